@@ -0,0 +1,112 @@
+package benchmark;
+
+import model.Appointment;
+import model.AppointmentIndex;
+import model.AppointmentRecord;
+import model.AvailabilityFinder;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Level;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+
+import java.time.LocalDateTime;
+import java.util.List;
+import java.util.Random;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Measures the "next free time" search the appointment form runs (AptDetails.findNextFreeTime), asking for the next
+ * five free hour-long slots shared by a customer, a contact and a user. The generated data spreads every appointment
+ * over only a few contacts and users, so their calendars are dense and most slots are taken
+ * @author Derek Brown
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MICROSECONDS)
+@Warmup(iterations = 3, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(value = 1, jvmArgsAppend = {"-Xms2g", "-Xmx4g"})
+public class AvailabilityBenchmark {
+    /**
+     * the number of probes cycled through
+     */
+    private static final int PROBES = 1024;
+    /**
+     * the number of appointments booked
+     */
+    @Param({"10000", "100000", "1000000"})
+    public int rows;
+
+    /**
+     * the finder over the three indexes, as Landing.availability holds them
+     */
+    private AvailabilityFinder availability;
+    /**
+     * the customer of each probe
+     */
+    private int[] probeCustomers;
+    /**
+     * the contact of each probe
+     */
+    private int[] probeContacts;
+    /**
+     * the user of each probe
+     */
+    private int[] probeUsers;
+    /**
+     * where each probe starts searching, in local time
+     */
+    private LocalDateTime[] probeFroms;
+    /**
+     * the next probe to use
+     */
+    private int probe;
+
+    /**
+     * generates the appointments, builds the indexes and picks the probes
+     */
+    @Setup(Level.Trial)
+    public void generate() {
+        int customerCount = DataGenerator.customersFor(rows);
+        List<AppointmentRecord> records = new DataGenerator(42).appointments(rows, customerCount);
+        AppointmentIndex customerAppointments = new AppointmentIndex(Appointment::getCustomerID);
+        AppointmentIndex contactAppointments = new AppointmentIndex(Appointment::getContactID);
+        AppointmentIndex userAppointments = new AppointmentIndex(Appointment::getUserID);
+        for (AppointmentRecord record : records) {
+            Appointment appointment = record.toAppointment(record.getAppointmentID());
+            customerAppointments.add(appointment);
+            contactAppointments.add(appointment);
+            userAppointments.add(appointment);
+        }
+        availability = new AvailabilityFinder(customerAppointments, contactAppointments, userAppointments);
+        Random random = new Random(7);
+        probeCustomers = new int[PROBES];
+        probeContacts = new int[PROBES];
+        probeUsers = new int[PROBES];
+        probeFroms = new LocalDateTime[PROBES];
+        for (int i = 0; i < PROBES; i++) {
+            probeCustomers[i] = 1 + random.nextInt(customerCount);
+            probeContacts[i] = 1 + random.nextInt(DataGenerator.CONTACTS);
+            probeUsers[i] = 1 + random.nextInt(DataGenerator.USERS);
+            probeFroms[i] = DataGenerator.FIRST_START.plusDays(random.nextInt(DataGenerator.DAYS)).plusMinutes(30L * random.nextInt(48));
+        }
+    }
+
+    /**
+     * the next five free hour-long slots for the probe
+     * @return the slots found
+     */
+    @Benchmark
+    public List<AvailabilityFinder.Slot> nextFreeSlots() {
+        int i = probe++ & (PROBES - 1);
+        return availability.findFreeSlots(probeCustomers[i], probeContacts[i], probeUsers[i], probeFroms[i], 2, 5, -1);
+    }
+}
@@ -0,0 +1,46 @@
+package benchmark;
+
+import org.openjdk.jmh.results.format.ResultFormatType;
+import org.openjdk.jmh.runner.Runner;
+import org.openjdk.jmh.runner.RunnerException;
+import org.openjdk.jmh.runner.options.ChainedOptionsBuilder;
+import org.openjdk.jmh.runner.options.CommandLineOptionException;
+import org.openjdk.jmh.runner.options.CommandLineOptions;
+import org.openjdk.jmh.runner.options.OptionsBuilder;
+
+/**
+ * Entry point of benchmarks.jar. Takes the usual JMH command line options (e.g. "-p rows=10000 Overlap"), but writes
+ * the results as JSON to jmh-result.json unless -rf or -rff says otherwise, so runs from different releases can be
+ * compared with any JMH results viewer
+ * @author Derek Brown
+ */
+public class BenchmarkRunner {
+    /**
+     * the default results file
+     */
+    private static final String RESULT_FILE = "jmh-result.json";
+
+    /**
+     * runs the benchmarks
+     * @param args JMH command line options
+     * @throws RunnerException if a benchmark fails to run
+     */
+    public static void main(String[] args) throws RunnerException {
+        CommandLineOptions commandLine;
+        try {
+            commandLine = new CommandLineOptions(args);
+        } catch (CommandLineOptionException e) {
+            System.out.println("Error parsing command line: " + e.getMessage());
+            System.exit(1);
+            return;
+        }
+        ChainedOptionsBuilder options = new OptionsBuilder().parent(commandLine);
+        if (!commandLine.getResultFormat().hasValue()) {
+            options.resultFormat(ResultFormatType.JSON);
+        }
+        if (!commandLine.getResult().hasValue()) {
+            options.result(RESULT_FILE);
+        }
+        new Runner(options.build()).run();
+    }
+}
@@ -0,0 +1,80 @@
+package benchmark;
+
+import dao.CustomerRepository;
+import model.Customer;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Level;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.TearDown;
+import org.openjdk.jmh.annotations.Warmup;
+import org.openjdk.jmh.infra.Blackhole;
+
+import java.sql.SQLException;
+import java.util.List;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Measures building Customer objects from the customers table, including the division and country lookups each
+ * customer makes in the cached reference data
+ * @author Derek Brown
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.SingleShotTime)
+@OutputTimeUnit(TimeUnit.MILLISECONDS)
+@Warmup(iterations = 3)
+@Measurement(iterations = 5)
+@Fork(value = 1, jvmArgsAppend = {"-Xms2g", "-Xmx4g"})
+public class CustomerHydrationBenchmark {
+    /**
+     * the number of customers in the database
+     */
+    @Param({"10000", "100000", "1000000"})
+    public int rows;
+
+    /**
+     * fills an in-memory database with generated customers
+     * @throws SQLException if the database can't be filled
+     */
+    @Setup(Level.Trial)
+    public void createDatabase() throws SQLException {
+        EmbeddedDatabase.create("customers" + rows);
+        EmbeddedDatabase.insertReferenceData();
+        EmbeddedDatabase.insertCustomers(new DataGenerator(42).customers(rows));
+    }
+
+    /**
+     * drops the database
+     */
+    @TearDown(Level.Trial)
+    public void dropDatabase() {
+        EmbeddedDatabase.drop();
+    }
+
+    /**
+     * streams every customer, as the customer list load does
+     * @param blackhole consumes each customer
+     * @throws SQLException if the customers can't be read
+     */
+    @Benchmark
+    public void streamAll(Blackhole blackhole) throws SQLException {
+        CustomerRepository.streamAll(blackhole::consume);
+    }
+
+    /**
+     * reads every customer into a list
+     * @return the customers
+     * @throws SQLException if the customers can't be read
+     */
+    @Benchmark
+    public List<Customer> findAll() throws SQLException {
+        return CustomerRepository.findAll();
+    }
+}
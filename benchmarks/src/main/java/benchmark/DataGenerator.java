@@ -0,0 +1,128 @@
+package benchmark;
+
+import model.AppointmentRecord;
+import model.Country;
+import model.Customer;
+import model.Division;
+
+import java.time.LocalDateTime;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Random;
+
+/**
+ * Generates repeatable synthetic appointments, customers and reference data for the benchmarks.
+ * The same seed always gives the same rows, so results from different runs compare like with like
+ * @author Derek Brown
+ */
+public class DataGenerator {
+    /**
+     * the appointment types, as entered in the appointment form
+     */
+    public static final String[] TYPES = {"Planning Session", "De-Briefing", "Follow-up", "Consultation", "Review", "Onboarding"};
+    /**
+     * the number of contacts appointments are spread over
+     */
+    public static final int CONTACTS = 3;
+    /**
+     * the number of users appointments are spread over
+     */
+    public static final int USERS = 2;
+    /**
+     * the number of countries generated
+     */
+    public static final int COUNTRIES = 3;
+    /**
+     * the number of divisions generated in each country
+     */
+    public static final int DIVISIONS_PER_COUNTRY = 20;
+    /**
+     * the earliest appointment start (UTC)
+     */
+    public static final LocalDateTime FIRST_START = LocalDateTime.of(2024, 1, 1, 12, 0);
+    /**
+     * how many days of appointments are generated
+     */
+    public static final int DAYS = 730;
+
+    /**
+     * the random number source
+     */
+    private final Random random;
+
+    /**
+     * constructor
+     * @param seed the random seed - the same seed gives the same rows
+     */
+    public DataGenerator(long seed) {
+        this.random = new Random(seed);
+    }
+
+    /**
+     * @param count the number of customers the appointments belong to
+     * @return the number of customers to generate for a number of appointments - about ten appointments each
+     */
+    public static int customersFor(int count) {
+        return Math.max(1, count / 10);
+    }
+
+    /**
+     * generates appointments spread over DAYS days of business hours, 30 to 120 minutes long, on half hour boundaries
+     * @param count the number of appointments
+     * @param customerCount appointments get customer IDs from 1 to customerCount
+     * @return the appointments, with IDs 1 to count and times in UTC
+     */
+    public List<AppointmentRecord> appointments(int count, int customerCount) {
+        List<AppointmentRecord> appointments = new ArrayList<>(count);
+        for (int i = 1; i <= count; i++) {
+            LocalDateTime start = FIRST_START.plusDays(random.nextInt(DAYS)).plusMinutes(30L * random.nextInt(24));
+            LocalDateTime end = start.plusMinutes(30L * (1 + random.nextInt(4)));
+            String type = TYPES[random.nextInt(TYPES.length)];
+            appointments.add(new AppointmentRecord(i, "Appointment " + i, type + " with customer", "Room " + (1 + random.nextInt(20)),
+                    type, start, end, 1 + random.nextInt(customerCount), 1 + random.nextInt(USERS), 1 + random.nextInt(CONTACTS)));
+        }
+        return appointments;
+    }
+
+    /**
+     * generates customers, each in a random division
+     * @param count the number of customers
+     * @return the customers, with IDs 1 to count
+     */
+    public List<Customer> customers(int count) {
+        List<Customer> customers = new ArrayList<>(count);
+        int divisionCount = COUNTRIES * DIVISIONS_PER_COUNTRY;
+        for (int i = 1; i <= count; i++) {
+            customers.add(new Customer(i, "Customer " + i, (100 + random.nextInt(9900)) + " Main St",
+                    String.format("%05d", random.nextInt(100000)), String.format("555-%04d", random.nextInt(10000)),
+                    1 + random.nextInt(divisionCount)));
+        }
+        return customers;
+    }
+
+    /**
+     * @return the generated countries, with IDs 1 to COUNTRIES
+     */
+    public static List<Country> countries() {
+        List<Country> countries = new ArrayList<>();
+        for (int i = 1; i <= COUNTRIES; i++) {
+            countries.add(new Country(i, "Country " + i));
+        }
+        return countries;
+    }
+
+    /**
+     * @return the generated divisions, DIVISIONS_PER_COUNTRY in each country, with IDs from 1
+     */
+    public static List<Division> divisions() {
+        List<Division> divisions = new ArrayList<>();
+        int id = 1;
+        for (int country = 1; country <= COUNTRIES; country++) {
+            for (int i = 1; i <= DIVISIONS_PER_COUNTRY; i++) {
+                divisions.add(new Division(id, "Division " + id, country));
+                id++;
+            }
+        }
+        return divisions;
+    }
+}
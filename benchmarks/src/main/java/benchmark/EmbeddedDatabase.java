@@ -0,0 +1,204 @@
+package benchmark;
+
+import jdbc.DBConnection;
+import model.AppointmentRecord;
+import model.Country;
+import model.Customer;
+import model.Division;
+import model.ReferenceData;
+
+import java.sql.Connection;
+import java.sql.PreparedStatement;
+import java.sql.SQLException;
+import java.sql.Statement;
+import java.sql.Timestamp;
+import java.util.List;
+
+/**
+ * An in-memory H2 database with the client_schedule tables, standing in for MySQL so the JDBC paths can be measured
+ * offline. Points DBConnection at itself, so the application's repositories run against it unchanged
+ * @author Derek Brown
+ */
+public class EmbeddedDatabase {
+    /**
+     * rows inserted per JDBC batch while filling the tables
+     */
+    private static final int BATCH_SIZE = 5000;
+    /**
+     * the tables, in the shape of the MySQL schema in database_setup
+     */
+    private static final String[] SCHEMA = {
+            "create table countries (Country_ID int primary key, Country varchar(50), Create_Date datetime, Created_By varchar(50), "
+                    + "Last_Update timestamp, Last_Updated_By varchar(50))",
+            "create table first_level_divisions (Division_ID int primary key, Division varchar(50), Create_Date datetime, "
+                    + "Created_By varchar(50), Last_Update timestamp, Last_Updated_By varchar(50), Country_ID int not null)",
+            "create table customers (Customer_ID int auto_increment primary key, Customer_Name varchar(50), Address varchar(100), "
+                    + "Postal_Code varchar(50), Phone varchar(50), Create_Date datetime, Created_By varchar(50), Last_Update timestamp, "
+                    + "Last_Updated_By varchar(50), Division_ID int not null)",
+            "create table contacts (Contact_ID int primary key, Contact_Name varchar(50), Email varchar(50))",
+            "create table users (User_ID int primary key, User_Name varchar(50), Password text, Create_Date datetime, "
+                    + "Created_By varchar(50), Last_Update timestamp, Last_Updated_By varchar(50))",
+            "create table appointments (Appointment_ID int auto_increment primary key, Title varchar(50), Description varchar(50), "
+                    + "Location varchar(50), Type varchar(50), Start datetime, End datetime, Create_Date datetime, Created_By varchar(50), "
+                    + "Last_Update timestamp, Last_Updated_By varchar(50), Customer_ID int not null, User_ID int not null, Contact_ID int not null)",
+            "create index fk_customer_id_idx on appointments (Customer_ID)",
+            "create index fk_contact_id_idx on appointments (Contact_ID)",
+            "create index idx_start on appointments (Start)",
+            "create table appointment_deletions (Appointment_ID int not null, Deleted_At timestamp)"
+    };
+
+    /**
+     * creates an empty database and points DBConnection at it, closing the pool for any previous database
+     * @param name the database name - a new name gives a new, empty database
+     * @throws SQLException if the tables can't be created
+     */
+    public static void create(String name) throws SQLException {
+        DBConnection.closePool();
+        DBConnection.url = "jdbc:h2:mem:" + name + ";MODE=MySQL;DB_CLOSE_DELAY=-1;NON_KEYWORDS=END,START,VALUE";
+        DBConnection.jdbcUsername = "sa";
+        DBConnection.jdbcPassword = "";
+        try (Connection connection = DBConnection.getConnection();
+             Statement statement = connection.createStatement()) {
+            for (String sql : SCHEMA) {
+                statement.execute(sql);
+            }
+        }
+    }
+
+    /**
+     * drops the database DBConnection points at and closes the pool
+     */
+    public static void drop() {
+        try (Connection connection = DBConnection.getConnection();
+             Statement statement = connection.createStatement()) {
+            statement.execute("drop all objects");
+        } catch (SQLException e) {
+            System.out.println("Unable to drop the benchmark database");
+        }
+        DBConnection.closePool();
+    }
+
+    /**
+     * fills the reference tables (countries, divisions, contacts and users) and loads them into ReferenceData
+     * @throws SQLException if the rows can't be inserted
+     */
+    public static void insertReferenceData() throws SQLException {
+        List<Country> countries = DataGenerator.countries();
+        List<Division> divisions = DataGenerator.divisions();
+        try (Connection connection = DBConnection.getConnection()) {
+            try (PreparedStatement preparedStatement = connection.prepareStatement("insert into countries (Country_ID, Country) values (?, ?)")) {
+                for (Country country : countries) {
+                    preparedStatement.setInt(1, country.getCountryID());
+                    preparedStatement.setString(2, country.getCountry());
+                    preparedStatement.addBatch();
+                }
+                preparedStatement.executeBatch();
+            }
+            try (PreparedStatement preparedStatement = connection.prepareStatement("insert into first_level_divisions (Division_ID, Division, Country_ID) values (?, ?, ?)")) {
+                for (Division division : divisions) {
+                    preparedStatement.setInt(1, division.getDivisionID());
+                    preparedStatement.setString(2, division.getDivision());
+                    preparedStatement.setInt(3, division.getCountryID());
+                    preparedStatement.addBatch();
+                }
+                preparedStatement.executeBatch();
+            }
+            try (PreparedStatement preparedStatement = connection.prepareStatement("insert into contacts (Contact_ID, Contact_Name, Email) values (?, ?, ?)")) {
+                for (int i = 1; i <= DataGenerator.CONTACTS; i++) {
+                    preparedStatement.setInt(1, i);
+                    preparedStatement.setString(2, "Contact " + i);
+                    preparedStatement.setString(3, "contact" + i + "@example.com");
+                    preparedStatement.addBatch();
+                }
+                preparedStatement.executeBatch();
+            }
+            try (PreparedStatement preparedStatement = connection.prepareStatement("insert into users (User_ID, User_Name, Password) values (?, ?, ?)")) {
+                for (int i = 1; i <= DataGenerator.USERS; i++) {
+                    preparedStatement.setInt(1, i);
+                    preparedStatement.setString(2, "user" + i);
+                    preparedStatement.setString(3, "user" + i);
+                    preparedStatement.addBatch();
+                }
+                preparedStatement.executeBatch();
+            }
+        }
+        ReferenceData.load(countries, divisions);
+    }
+
+    /**
+     * inserts customers, keeping their generated IDs
+     * @param customers the customers to insert
+     * @throws SQLException if the rows can't be inserted
+     */
+    public static void insertCustomers(List<Customer> customers) throws SQLException {
+        try (Connection connection = DBConnection.getConnection();
+             PreparedStatement preparedStatement = connection.prepareStatement("insert into customers (Customer_ID, Customer_Name, Address, "
+                     + "Postal_Code, Phone, Create_Date, Created_By, Last_Update, Last_Updated_By, Division_ID) "
+                     + "values (?, ?, ?, ?, ?, CURRENT_TIMESTAMP, 'benchmark', CURRENT_TIMESTAMP, 'benchmark', ?)")) {
+            int batched = 0;
+            for (Customer customer : customers) {
+                preparedStatement.setInt(1, customer.getCustomerID());
+                preparedStatement.setString(2, customer.getCustomerName());
+                preparedStatement.setString(3, customer.getAddress());
+                preparedStatement.setString(4, customer.getPostalCode());
+                preparedStatement.setString(5, customer.getPhone());
+                preparedStatement.setInt(6, customer.getFirstLevelDivisionID());
+                preparedStatement.addBatch();
+                if (++batched % BATCH_SIZE == 0) {
+                    preparedStatement.executeBatch();
+                }
+            }
+            preparedStatement.executeBatch();
+        }
+    }
+
+    /**
+     * inserts appointments, keeping their generated IDs
+     * @param appointments the appointments to insert
+     * @throws SQLException if the rows can't be inserted
+     */
+    public static void insertAppointments(List<AppointmentRecord> appointments) throws SQLException {
+        try (Connection connection = DBConnection.getConnection();
+             PreparedStatement preparedStatement = connection.prepareStatement("insert into appointments (Appointment_ID, Title, Description, "
+                     + "Location, Type, Start, End, Create_Date, Created_By, Last_Update, Last_Updated_By, Customer_ID, User_ID, Contact_ID) "
+                     + "values (?, ?, ?, ?, ?, ?, ?, CURRENT_TIMESTAMP, 'benchmark', CURRENT_TIMESTAMP, 'benchmark', ?, ?, ?)")) {
+            int batched = 0;
+            for (AppointmentRecord appointment : appointments) {
+                preparedStatement.setInt(1, appointment.getAppointmentID());
+                preparedStatement.setString(2, appointment.getTitle());
+                preparedStatement.setString(3, appointment.getDescription());
+                preparedStatement.setString(4, appointment.getLocation());
+                preparedStatement.setString(5, appointment.getType());
+                preparedStatement.setTimestamp(6, Timestamp.valueOf(appointment.getStart()));
+                preparedStatement.setTimestamp(7, Timestamp.valueOf(appointment.getEnd()));
+                preparedStatement.setInt(8, appointment.getCustomerID());
+                preparedStatement.setInt(9, appointment.getUserID());
+                preparedStatement.setInt(10, appointment.getContactID());
+                preparedStatement.addBatch();
+                if (++batched % BATCH_SIZE == 0) {
+                    preparedStatement.executeBatch();
+                }
+            }
+            preparedStatement.executeBatch();
+        }
+    }
+
+    /**
+     * creates a database holding generated appointments, their customers and the reference data
+     * @param name the database name
+     * @param appointmentCount the number of appointments
+     * @param seed the random seed for the generated rows
+     * @return the generated appointments, as inserted
+     * @throws SQLException if the database can't be filled
+     */
+    public static List<AppointmentRecord> createWithAppointments(String name, int appointmentCount, long seed) throws SQLException {
+        DataGenerator generator = new DataGenerator(seed);
+        int customerCount = DataGenerator.customersFor(appointmentCount);
+        create(name);
+        insertReferenceData();
+        insertCustomers(generator.customers(customerCount));
+        List<AppointmentRecord> appointments = generator.appointments(appointmentCount, customerCount);
+        insertAppointments(appointments);
+        return appointments;
+    }
+}
@@ -0,0 +1,92 @@
+package benchmark;
+
+import controller.Landing;
+import dao.AppointmentRepository;
+import model.Appointment;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Level;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.TearDown;
+import org.openjdk.jmh.annotations.Warmup;
+import util.BackgroundLoader;
+
+import java.sql.SQLException;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Measures loading the appointment list: streaming every row from the database into Landing.fullAppointmentList in
+ * the same batches the background loader hands to the FX thread, which also keeps the customer and start time indexes
+ * in sync. The FX thread hop itself is left out, so this is the cost of the load without the toolkit
+ * @author Derek Brown
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.SingleShotTime)
+@OutputTimeUnit(TimeUnit.MILLISECONDS)
+@Warmup(iterations = 3)
+@Measurement(iterations = 5)
+@Fork(value = 1, jvmArgsAppend = {"-Xms2g", "-Xmx4g"})
+public class LoadBenchmark {
+    /**
+     * the number of appointments in the database
+     */
+    @Param({"10000", "100000", "1000000"})
+    public int rows;
+
+    /**
+     * fills an in-memory database with generated appointments
+     * @throws SQLException if the database can't be filled
+     */
+    @Setup(Level.Trial)
+    public void createDatabase() throws SQLException {
+        EmbeddedDatabase.createWithAppointments("load" + rows, rows, 42);
+    }
+
+    /**
+     * drops the database
+     */
+    @TearDown(Level.Trial)
+    public void dropDatabase() {
+        Landing.fullAppointmentList.clear();
+        EmbeddedDatabase.drop();
+    }
+
+    /**
+     * streams every appointment into the application's appointment list and indexes
+     * @return the number of appointments loaded
+     * @throws SQLException if the appointments can't be read
+     */
+    @Benchmark
+    public int streamIntoAppointmentList() throws SQLException {
+        Landing.fullAppointmentList.clear();
+        List<Appointment> batch = new ArrayList<>(BackgroundLoader.batchSize);
+        AppointmentRepository.streamAll(appointment -> {
+            batch.add(appointment);
+            if (batch.size() >= BackgroundLoader.batchSize) {
+                Landing.fullAppointmentList.addAll(batch);
+                batch.clear();
+            }
+        });
+        Landing.fullAppointmentList.addAll(batch);
+        return Landing.fullAppointmentList.size();
+    }
+
+    /**
+     * reads every appointment into a plain list - the JDBC and mapping cost on its own
+     * @return the appointments
+     * @throws SQLException if the appointments can't be read
+     */
+    @Benchmark
+    public List<Appointment> findAll() throws SQLException {
+        return AppointmentRepository.findAll();
+    }
+}
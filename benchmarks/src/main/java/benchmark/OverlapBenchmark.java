@@ -0,0 +1,125 @@
+package benchmark;
+
+import model.Appointment;
+import model.AppointmentIndex;
+import model.AppointmentRecord;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Level;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+
+import java.time.LocalDateTime;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Random;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Measures the overlap check the appointment form runs on save (AptDetails.checkOverlap), against the customer
+ * index it uses and against a scan of every appointment for comparison
+ * @author Derek Brown
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.NANOSECONDS)
+@Warmup(iterations = 3, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(value = 1, jvmArgsAppend = {"-Xms2g", "-Xmx4g"})
+public class OverlapBenchmark {
+    /**
+     * the number of probes cycled through, so the branch predictor can't learn a single answer
+     */
+    private static final int PROBES = 1024;
+    /**
+     * the number of appointments booked
+     */
+    @Param({"10000", "100000", "1000000"})
+    public int rows;
+
+    /**
+     * the appointments indexed by customer, as Landing.customerAppointments holds them
+     */
+    private AppointmentIndex customerAppointments;
+    /**
+     * the appointments as a list, for the scan
+     */
+    private List<Appointment> appointments;
+    /**
+     * the customer of each probe
+     */
+    private int[] probeCustomers;
+    /**
+     * the start of each probe in local time
+     */
+    private LocalDateTime[] probeStarts;
+    /**
+     * the end of each probe in local time
+     */
+    private LocalDateTime[] probeEnds;
+    /**
+     * the next probe to use
+     */
+    private int probe;
+
+    /**
+     * generates the appointments, builds the index and picks the probes
+     */
+    @Setup(Level.Trial)
+    public void generate() {
+        int customerCount = DataGenerator.customersFor(rows);
+        List<AppointmentRecord> records = new DataGenerator(42).appointments(rows, customerCount);
+        customerAppointments = new AppointmentIndex(Appointment::getCustomerID);
+        appointments = new ArrayList<>(rows);
+        for (AppointmentRecord record : records) {
+            Appointment appointment = record.toAppointment(record.getAppointmentID());
+            appointments.add(appointment);
+            customerAppointments.add(appointment);
+        }
+        Random random = new Random(7);
+        probeCustomers = new int[PROBES];
+        probeStarts = new LocalDateTime[PROBES];
+        probeEnds = new LocalDateTime[PROBES];
+        for (int i = 0; i < PROBES; i++) {
+            Appointment existing = appointments.get(random.nextInt(rows));
+            probeCustomers[i] = 1 + random.nextInt(customerCount);
+            probeStarts[i] = existing.getStart();
+            probeEnds[i] = existing.getStart().plusMinutes(30);
+        }
+    }
+
+    /**
+     * the check as the appointment form runs it
+     * @return true if the probe overlaps
+     */
+    @Benchmark
+    public boolean indexedOverlap() {
+        int i = probe++ & (PROBES - 1);
+        return customerAppointments.overlaps(probeCustomers[i], probeStarts[i], probeEnds[i], -1);
+    }
+
+    /**
+     * the same check by scanning every appointment
+     * @return true if the probe overlaps
+     */
+    @Benchmark
+    public boolean scanOverlap() {
+        int i = probe++ & (PROBES - 1);
+        int customerID = probeCustomers[i];
+        LocalDateTime start = probeStarts[i];
+        LocalDateTime end = probeEnds[i];
+        for (Appointment appointment : appointments) {
+            if (appointment.getCustomerID() == customerID && appointment.getStart().isBefore(end) && appointment.getEnd().isAfter(start)) {
+                return true;
+            }
+        }
+        return false;
+    }
+}
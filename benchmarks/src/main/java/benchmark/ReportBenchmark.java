@@ -0,0 +1,93 @@
+package benchmark;
+
+import model.AppointmentList;
+import model.AppointmentRecord;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Level;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.TearDown;
+import org.openjdk.jmh.annotations.Warmup;
+import report.MemoryReportSource;
+import report.MonthTypeCount;
+import report.SqlReportSource;
+
+import java.sql.SQLException;
+import java.util.Collections;
+import java.util.List;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Measures the count by month and type report (Reports.secondReport) from both report sources - in memory over a
+ * loaded appointment list, and as a GROUP BY in the database
+ * @author Derek Brown
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MILLISECONDS)
+@Warmup(iterations = 3, time = 2)
+@Measurement(iterations = 5, time = 2)
+@Fork(value = 1, jvmArgsAppend = {"-Xms2g", "-Xmx4g"})
+public class ReportBenchmark {
+    /**
+     * the number of appointments
+     */
+    @Param({"10000", "100000", "1000000"})
+    public int rows;
+
+    /**
+     * the report computed from the loaded appointments
+     */
+    private MemoryReportSource memorySource;
+    /**
+     * the report computed by the database
+     */
+    private SqlReportSource sqlSource;
+
+    /**
+     * fills an in-memory database and an appointment list with the same generated appointments
+     * @throws SQLException if the database can't be filled
+     */
+    @Setup(Level.Trial)
+    public void createData() throws SQLException {
+        List<AppointmentRecord> records = EmbeddedDatabase.createWithAppointments("report" + rows, rows, 42);
+        AppointmentList appointments = new AppointmentList();
+        for (AppointmentRecord record : records) {
+            appointments.add(record.toAppointment(record.getAppointmentID()));
+        }
+        memorySource = new MemoryReportSource(appointments, Collections.emptyList());
+        sqlSource = new SqlReportSource();
+    }
+
+    /**
+     * drops the database
+     */
+    @TearDown(Level.Trial)
+    public void dropDatabase() {
+        EmbeddedDatabase.drop();
+    }
+
+    /**
+     * @return the report counted from the loaded appointments
+     */
+    @Benchmark
+    public List<MonthTypeCount> countByMonthAndTypeInMemory() {
+        return memorySource.countByMonthAndType();
+    }
+
+    /**
+     * @return the report counted by the database
+     * @throws SQLException if the query fails
+     */
+    @Benchmark
+    public List<MonthTypeCount> countByMonthAndTypeInSql() throws SQLException {
+        return sqlSource.countByMonthAndType();
+    }
+}
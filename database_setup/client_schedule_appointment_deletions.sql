@@ -0,0 +1,45 @@
+-- Appointment deletion log used by the scheduler's incremental refresh
+--
+-- Host: localhost    Database: client_schedule
+-- ------------------------------------------------------
+-- Run after client_schedule_appointments.sql and client_schedule_customers.sql
+
+/*!40101 SET @OLD_CHARACTER_SET_CLIENT=@@CHARACTER_SET_CLIENT */;
+/*!40101 SET @OLD_CHARACTER_SET_RESULTS=@@CHARACTER_SET_RESULTS */;
+/*!40101 SET @OLD_COLLATION_CONNECTION=@@COLLATION_CONNECTION */;
+/*!50503 SET NAMES utf8 */;
+/*!40103 SET @OLD_TIME_ZONE=@@TIME_ZONE */;
+/*!40103 SET TIME_ZONE='+00:00' */;
+
+--
+-- Table structure for table `appointment_deletions`
+--
+
+DROP TABLE IF EXISTS `appointment_deletions`;
+/*!40101 SET @saved_cs_client     = @@character_set_client */;
+/*!50503 SET character_set_client = utf8mb4 */;
+CREATE TABLE `appointment_deletions` (
+  `Appointment_ID` int NOT NULL,
+  `Deleted_At` timestamp NOT NULL DEFAULT CURRENT_TIMESTAMP,
+  KEY `idx_deleted_at` (`Deleted_At`)
+) ENGINE=InnoDB DEFAULT CHARSET=utf8mb4 COLLATE=utf8mb4_0900_ai_ci;
+/*!40101 SET character_set_client = @saved_cs_client */;
+
+--
+-- Triggers recording deleted appointments.
+-- Rows removed by ON DELETE CASCADE do not fire triggers, so deleting a customer logs its appointments first
+--
+
+DROP TRIGGER IF EXISTS `appointments_after_delete`;
+CREATE TRIGGER `appointments_after_delete` AFTER DELETE ON `appointments`
+  FOR EACH ROW INSERT INTO `appointment_deletions` (`Appointment_ID`) VALUES (OLD.`Appointment_ID`);
+
+DROP TRIGGER IF EXISTS `customers_before_delete`;
+CREATE TRIGGER `customers_before_delete` BEFORE DELETE ON `customers`
+  FOR EACH ROW INSERT INTO `appointment_deletions` (`Appointment_ID`)
+    SELECT `Appointment_ID` FROM `appointments` WHERE `Customer_ID` = OLD.`Customer_ID`;
+
+/*!40103 SET TIME_ZONE=@OLD_TIME_ZONE */;
+/*!40101 SET CHARACTER_SET_CLIENT=@OLD_CHARACTER_SET_CLIENT */;
+/*!40101 SET CHARACTER_SET_RESULTS=@OLD_CHARACTER_SET_RESULTS */;
+/*!40101 SET COLLATION_CONNECTION=@OLD_COLLATION_CONNECTION */;
@@ -41,6 +41,8 @@ CREATE TABLE `appointments` (
   KEY `fk_customer_id_idx` (`Customer_ID`),
   KEY `fk_user_id_idx` (`User_ID`),
   KEY `fk_contact_id_idx` (`Contact_ID`),
+  KEY `idx_last_update` (`Last_Update`),
+  KEY `idx_start` (`Start`),
   CONSTRAINT `fk_contact_id` FOREIGN KEY (`Contact_ID`) REFERENCES `contacts` (`Contact_ID`) ON DELETE CASCADE ON UPDATE CASCADE,
   CONSTRAINT `fk_customer_id` FOREIGN KEY (`Customer_ID`) REFERENCES `customers` (`Customer_ID`) ON DELETE CASCADE ON UPDATE CASCADE,
   CONSTRAINT `fk_user_id` FOREIGN KEY (`User_ID`) REFERENCES `users` (`User_ID`) ON DELETE CASCADE ON UPDATE CASCADE
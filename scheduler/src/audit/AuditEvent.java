@@ -0,0 +1,276 @@
+package audit;
+
+import java.nio.charset.StandardCharsets;
+import java.time.Instant;
+import java.time.ZoneOffset;
+import java.time.ZonedDateTime;
+import java.time.format.DateTimeFormatter;
+import java.time.format.DateTimeParseException;
+import java.util.Locale;
+
+/**
+ * One entry in the audit log. Entries are written one per line as tab separated fields:
+ * time (UTC, yyyy-MM-ddTHH:mm:ss.SSSZ), type, username, source.
+ * Tabs, newlines and backslashes in the username and source are escaped with a backslash.
+ * Logs written before the audit log was added hold sentences instead, which parseLegacy reads
+ * @author Derek Brown
+ */
+public class AuditEvent {
+    /**
+     * formats the time field - fixed width so lines can be read without a full date parse
+     */
+    public static final DateTimeFormatter TIME_FORMAT = DateTimeFormatter.ofPattern("yyyy-MM-dd'T'HH:mm:ss.SSS'Z'")
+            .withZone(ZoneOffset.UTC);
+    /**
+     * the source recorded when none is given - the local machine
+     */
+    public static final String LOCAL_SOURCE = "local";
+    /**
+     * parses the time in the older sentence format - java.util.Date's toString
+     */
+    private static final DateTimeFormatter LEGACY_TIME_FORMAT = DateTimeFormatter.ofPattern("EEE MMM dd HH:mm:ss zzz yyyy", Locale.US);
+    /**
+     * ends the username in an older sentence for a successful login
+     */
+    private static final String LEGACY_SUCCESS = " logged in successfully on: ";
+    /**
+     * ends the username in an older sentence for a failed login
+     */
+    private static final String LEGACY_FAILURE = " unsuccessfully attempted to log in on: ";
+
+    /**
+     * The kinds of event that are audited
+     */
+    public enum Type {
+        /**
+         * a login with valid credentials
+         */
+        LOGIN_SUCCESS,
+        /**
+         * a login with missing or invalid credentials
+         */
+        LOGIN_FAILURE,
+        /**
+         * a user logging out
+         */
+        LOGOUT
+    }
+
+    /**
+     * when the event happened
+     */
+    private final Instant time;
+    /**
+     * the kind of event
+     */
+    private final Type type;
+    /**
+     * the username given, or "Unknown" if none was
+     */
+    private final String username;
+    /**
+     * where the event came from
+     */
+    private final String source;
+
+    /**
+     * constructor
+     * @param time when the event happened
+     * @param type the kind of event
+     * @param username the username given - empty or null is recorded as "Unknown"
+     * @param source where the event came from - null is recorded as the local machine
+     */
+    public AuditEvent(Instant time, Type type, String username, String source) {
+        this.time = time;
+        this.type = type;
+        this.username = username == null || username.isEmpty() ? "Unknown" : username;
+        this.source = source == null ? LOCAL_SOURCE : source;
+    }
+
+    /**
+     * creates an event from the local machine, timed now
+     * @param type the kind of event
+     * @param username the username given
+     * @return the event
+     */
+    public static AuditEvent of(Type type, String username) {
+        return new AuditEvent(Instant.now(), type, username, LOCAL_SOURCE);
+    }
+
+    /**
+     * @return when the event happened
+     */
+    public Instant getTime() {
+        return time;
+    }
+
+    /**
+     * @return the kind of event
+     */
+    public Type getType() {
+        return type;
+    }
+
+    /**
+     * @return the username given
+     */
+    public String getUsername() {
+        return username;
+    }
+
+    /**
+     * @return where the event came from
+     */
+    public String getSource() {
+        return source;
+    }
+
+    /**
+     * @return the event as a log line, including the trailing newline
+     */
+    public String toLine() {
+        StringBuilder line = new StringBuilder(64);
+        TIME_FORMAT.formatTo(time, line);
+        line.append('\t').append(type.name()).append('\t');
+        escape(username, line);
+        line.append('\t');
+        escape(source, line);
+        return line.append('\n').toString();
+    }
+
+    /**
+     * @return the event as UTF-8 encoded log line
+     */
+    public byte[] toBytes() {
+        return toLine().getBytes(StandardCharsets.UTF_8);
+    }
+
+    /**
+     * reads an event from a log line
+     * @param line the line, with or without its trailing newline
+     * @return the event, or null if the line isn't a valid entry
+     */
+    public static AuditEvent parse(String line) {
+        String[] fields = line.split("\t", -1);
+        if (fields.length != 4) {
+            return null;
+        }
+        try {
+            Instant time = Instant.from(TIME_FORMAT.parse(fields[0]));
+            Type type = Type.valueOf(fields[1]);
+            return new AuditEvent(time, type, unescape(fields[2]), unescape(stripNewline(fields[3])));
+        } catch (DateTimeParseException | IllegalArgumentException e) {
+            return null;
+        }
+    }
+
+    /**
+     * reads an event from a line in the older sentence format, e.g.
+     * "User test logged in successfully on: Mon Jan 01 10:00:00 EST 2024"
+     * @param line the line, with or without its trailing newline
+     * @return the login event, from the local machine, or null if the line isn't an older entry
+     */
+    public static AuditEvent parseLegacy(String line) {
+        if (!line.startsWith("User ")) {
+            return null;
+        }
+        Type type = Type.LOGIN_SUCCESS;
+        int marker = line.lastIndexOf(LEGACY_SUCCESS);
+        int timeStart = marker + LEGACY_SUCCESS.length();
+        if (marker < 0) {
+            type = Type.LOGIN_FAILURE;
+            marker = line.lastIndexOf(LEGACY_FAILURE);
+            timeStart = marker + LEGACY_FAILURE.length();
+        }
+        if (marker < "User ".length()) {
+            return null;
+        }
+        try {
+            Instant time = ZonedDateTime.parse(stripNewline(line.substring(timeStart)), LEGACY_TIME_FORMAT).toInstant();
+            return new AuditEvent(time, type, line.substring("User ".length(), marker), LOCAL_SOURCE);
+        } catch (DateTimeParseException e) {
+            return null;
+        }
+    }
+
+    /**
+     * @param field the last field of a line
+     * @return the field without a trailing newline or carriage return
+     */
+    private static String stripNewline(String field) {
+        int end = field.length();
+        while (end > 0 && (field.charAt(end - 1) == '\n' || field.charAt(end - 1) == '\r')) {
+            end--;
+        }
+        return field.substring(0, end);
+    }
+
+    /**
+     * appends a field with its tabs, newlines and backslashes escaped
+     * @param value the field
+     * @param out where to append it
+     */
+    private static void escape(String value, StringBuilder out) {
+        for (int i = 0; i < value.length(); i++) {
+            char c = value.charAt(i);
+            switch (c) {
+                case '\t':
+                    out.append("\\t");
+                    break;
+                case '\n':
+                    out.append("\\n");
+                    break;
+                case '\r':
+                    out.append("\\r");
+                    break;
+                case '\\':
+                    out.append("\\\\");
+                    break;
+                default:
+                    out.append(c);
+            }
+        }
+    }
+
+    /**
+     * @param value an escaped field
+     * @return the field with its escapes removed
+     */
+    private static String unescape(String value) {
+        if (value.indexOf('\\') < 0) {
+            return value;
+        }
+        StringBuilder out = new StringBuilder(value.length());
+        for (int i = 0; i < value.length(); i++) {
+            char c = value.charAt(i);
+            if (c == '\\' && i + 1 < value.length()) {
+                char next = value.charAt(++i);
+                switch (next) {
+                    case 't':
+                        out.append('\t');
+                        break;
+                    case 'n':
+                        out.append('\n');
+                        break;
+                    case 'r':
+                        out.append('\r');
+                        break;
+                    default:
+                        out.append(next);
+                }
+            }
+            else {
+                out.append(c);
+            }
+        }
+        return out.toString();
+    }
+
+    /**
+     * @return the event as a log line without the newline
+     */
+    @Override
+    public String toString() {
+        return stripNewline(toLine());
+    }
+}
@@ -0,0 +1,274 @@
+package audit;
+
+import java.io.IOException;
+import java.nio.ByteBuffer;
+import java.nio.file.Path;
+import java.nio.file.Paths;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * The audit log (login_activity.txt). log() only puts the event in a ring buffer, so the caller never waits on the
+ * disk; a single writer thread drains the buffer and appends each batch with one FileChannel write.
+ * The file is rolled over when it reaches maxBytes or gets older than rotateHours (see RollingFileChannel).
+ * The buffer is written out on exit by a shutdown hook, or earlier with flush() or close()
+ * @author Derek Brown
+ */
+public class AuditLog {
+    /**
+     * the log file
+     */
+    public static String logFile = System.getProperty("scheduler.audit.file", "login_activity.txt");
+    /**
+     * the size the log file is rolled over at, in bytes
+     */
+    public static long maxBytes = Long.getLong("scheduler.audit.maxBytes", 10L * 1024 * 1024);
+    /**
+     * the age the log file is rolled over at, in hours - 0 to only roll over by size
+     */
+    public static long rotateHours = Long.getLong("scheduler.audit.rotateHours", 24 * 7);
+    /**
+     * how many rolled over files are kept
+     */
+    public static int keepFiles = Integer.getInteger("scheduler.audit.keepFiles", 5);
+    /**
+     * the most events that can wait to be written - any more are dropped and counted
+     */
+    public static int capacity = Integer.getInteger("scheduler.audit.capacity", 8192);
+    /**
+     * true to force each batch to disk before the next one is taken
+     */
+    public static boolean forceWrites = !"false".equals(System.getProperty("scheduler.audit.force"));
+    /**
+     * how long the writer waits for events before checking whether the file is due to roll over, in milliseconds
+     */
+    private static final long IDLE_MILLIS = 1000;
+
+    /**
+     * the events waiting to be written - created with the writer
+     */
+    private static EventRing ring;
+    /**
+     * the writer thread, or null before the first event
+     */
+    private static Thread writer;
+    /**
+     * set by close() - the writer finishes the buffered events and stops
+     */
+    private static volatile boolean closing;
+    /**
+     * number of accepted events that have been written (or failed to write)
+     */
+    private static long written;
+    /**
+     * guards written, and wakes flush() when it changes
+     */
+    private static final Object writtenLock = new Object();
+
+    /**
+     * queues an event to be written. Never blocks - if the buffer is full the event is dropped
+     * @param event the event
+     * @return false if the event was dropped
+     */
+    public static boolean log(AuditEvent event) {
+        EventRing events = start();
+        if (events == null) {
+            System.out.println("Audit log closed - event not recorded: " + event);
+            return false;
+        }
+        return events.offer(event);
+    }
+
+    /**
+     * queues an event from the local machine, timed now
+     * @param type the kind of event
+     * @param username the username given
+     * @return false if the event was dropped
+     */
+    public static boolean log(AuditEvent.Type type, String username) {
+        return log(AuditEvent.of(type, username));
+    }
+
+    /**
+     * waits until every event queued before the call has been written
+     * @param timeoutMillis the longest to wait
+     * @return true if they were all written in time
+     */
+    public static boolean flush(long timeoutMillis) {
+        EventRing events;
+        synchronized (AuditLog.class) {
+            events = ring;
+        }
+        if (events == null) {
+            return true;
+        }
+        long target = events.getAccepted();
+        long deadline = System.nanoTime() + TimeUnit.MILLISECONDS.toNanos(timeoutMillis);
+        events.wakeUp();
+        synchronized (writtenLock) {
+            while (written < target) {
+                long remaining = TimeUnit.NANOSECONDS.toMillis(deadline - System.nanoTime());
+                if (remaining <= 0) {
+                    return false;
+                }
+                try {
+                    writtenLock.wait(remaining);
+                } catch (InterruptedException e) {
+                    Thread.currentThread().interrupt();
+                    return false;
+                }
+            }
+        }
+        return true;
+    }
+
+    /**
+     * writes the buffered events and stops the writer. Later events are not recorded
+     */
+    public static void close() {
+        Thread thread;
+        synchronized (AuditLog.class) {
+            if (closing) {
+                return;
+            }
+            closing = true;
+            thread = writer;
+        }
+        if (thread != null) {
+            ring.wakeUp();
+            try {
+                thread.join(5000);
+            } catch (InterruptedException e) {
+                Thread.currentThread().interrupt();
+            }
+        }
+    }
+
+    /**
+     * @return number of events dropped because the buffer was full
+     */
+    public static long getDropped() {
+        EventRing events;
+        synchronized (AuditLog.class) {
+            events = ring;
+        }
+        return events == null ? 0 : events.getDropped();
+    }
+
+    /**
+     * starts the writer on first use
+     * @return the buffer to queue events in, or null once the log is closed
+     */
+    private static synchronized EventRing start() {
+        if (closing) {
+            return null;
+        }
+        if (writer == null) {
+            ring = new EventRing(capacity);
+            RollingFileChannel file = new RollingFileChannel(Paths.get(logFile), maxBytes,
+                    TimeUnit.HOURS.toMillis(rotateHours), keepFiles);
+            writer = new Thread(() -> writeEvents(ring, file), "audit-log");
+            writer.setDaemon(true);
+            writer.start();
+            Runtime.getRuntime().addShutdownHook(new Thread(AuditLog::close, "audit-log-shutdown"));
+        }
+        return ring;
+    }
+
+    /**
+     * the writer thread - drains the buffer in batches until the log is closed and the buffer is empty
+     * @param events the buffer
+     * @param file the log file
+     */
+    private static void writeEvents(EventRing events, RollingFileChannel file) {
+        List<AuditEvent> batch = new ArrayList<>();
+        ByteBuffer buffer = ByteBuffer.allocate(64 * 1024);
+        long failed = 0;
+        try {
+            while (true) {
+                batch.clear();
+                int count;
+                try {
+                    count = events.drainTo(batch, closing ? 0 : IDLE_MILLIS);
+                } catch (InterruptedException e) {
+                    count = events.drainTo(batch, 0);
+                    closing = true;
+                }
+                if (count == 0) {
+                    if (closing) {
+                        break;
+                    }
+                    rollOverIfDue(file);
+                    continue;
+                }
+                try {
+                    buffer = writeBatch(batch, buffer, file);
+                } catch (IOException e) {
+                    failed += count;
+                    System.out.println("Unable to write " + logFile + " - " + failed + " audit events lost");
+                }
+                synchronized (writtenLock) {
+                    written += count;
+                    writtenLock.notifyAll();
+                }
+            }
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+        } finally {
+            try {
+                file.close();
+            } catch (IOException e) {
+                System.out.println("Unable to close " + logFile);
+            }
+        }
+    }
+
+    /**
+     * encodes a batch and appends it to the file with as few writes as the buffer allows
+     * @param batch the events
+     * @param buffer the encoding buffer
+     * @param file the log file
+     * @return the encoding buffer, grown if an event didn't fit
+     * @throws IOException if the file can't be written
+     */
+    private static ByteBuffer writeBatch(List<AuditEvent> batch, ByteBuffer buffer, RollingFileChannel file) throws IOException {
+        buffer.clear();
+        for (AuditEvent event : batch) {
+            byte[] line = event.toBytes();
+            if (line.length > buffer.remaining()) {
+                if (buffer.position() > 0) {
+                    buffer.flip();
+                    file.write(buffer, false);
+                    buffer.clear();
+                }
+                if (line.length > buffer.capacity()) {
+                    buffer = ByteBuffer.allocate(line.length);
+                }
+            }
+            buffer.put(line);
+        }
+        buffer.flip();
+        file.write(buffer, forceWrites);
+        return buffer;
+    }
+
+    /**
+     * rolls the file over if it is too old, reporting a failure rather than stopping the writer
+     * @param file the log file
+     */
+    private static void rollOverIfDue(RollingFileChannel file) {
+        try {
+            file.rollOverIfDue();
+        } catch (IOException e) {
+            System.out.println("Unable to roll over " + logFile);
+        }
+    }
+
+    /**
+     * @return the log file's path
+     */
+    public static Path getPath() {
+        return Paths.get(logFile);
+    }
+}
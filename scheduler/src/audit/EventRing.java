@@ -0,0 +1,100 @@
+package audit;
+
+import java.util.List;
+
+/**
+ * A fixed size ring buffer of events waiting to be written. Adding never blocks - when the ring is full the
+ * event is dropped and counted, so a burst of logins can't stall the caller on the writer thread
+ * @author Derek Brown
+ */
+class EventRing {
+    /**
+     * the buffered events - slots outside head..head+count are null
+     */
+    private final AuditEvent[] events;
+    /**
+     * index of the oldest buffered event
+     */
+    private int head;
+    /**
+     * number of events buffered
+     */
+    private int count;
+    /**
+     * number of events ever accepted
+     */
+    private long accepted;
+    /**
+     * number of events dropped because the ring was full
+     */
+    private long dropped;
+
+    /**
+     * constructor
+     * @param capacity the most events that can wait to be written
+     */
+    EventRing(int capacity) {
+        events = new AuditEvent[capacity];
+    }
+
+    /**
+     * adds an event if there is room, waking the writer if it was waiting
+     * @param event the event
+     * @return false if the ring was full and the event was dropped
+     */
+    synchronized boolean offer(AuditEvent event) {
+        if (count == events.length) {
+            dropped++;
+            return false;
+        }
+        events[(head + count) % events.length] = event;
+        count++;
+        accepted++;
+        if (count == 1) {
+            notifyAll();
+        }
+        return true;
+    }
+
+    /**
+     * moves every buffered event to the batch, oldest first, waiting for one if the ring is empty
+     * @param batch where to put the events
+     * @param waitMillis the longest to wait for an event
+     * @return the number of events moved
+     * @throws InterruptedException if interrupted while waiting
+     */
+    synchronized int drainTo(List<AuditEvent> batch, long waitMillis) throws InterruptedException {
+        if (count == 0 && waitMillis > 0) {
+            wait(waitMillis);
+        }
+        int drained = count;
+        for (int i = 0; i < drained; i++) {
+            batch.add(events[head]);
+            events[head] = null;
+            head = (head + 1) % events.length;
+        }
+        count = 0;
+        return drained;
+    }
+
+    /**
+     * wakes the writer if it is waiting for an event
+     */
+    synchronized void wakeUp() {
+        notifyAll();
+    }
+
+    /**
+     * @return number of events ever accepted
+     */
+    synchronized long getAccepted() {
+        return accepted;
+    }
+
+    /**
+     * @return number of events dropped because the ring was full
+     */
+    synchronized long getDropped() {
+        return dropped;
+    }
+}
@@ -0,0 +1,346 @@
+package audit;
+
+import java.io.IOException;
+import java.nio.ByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.StandardOpenOption;
+import java.nio.file.attribute.BasicFileAttributes;
+import java.time.Clock;
+import java.time.Duration;
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Objects;
+
+/**
+ * Login statistics read from the audit log. Only the bytes after the last offset are read and parsed, so a query
+ * costs a size check plus whatever was appended since the last one. The log is read in chunks into a buffer that
+ * lives only for the call rather than memory-mapped, since a mapping holds the file open until it is garbage
+ * collected and on Windows that stops RollingFileChannel renaming it when it rolls over. When the log has
+ * rolled over, the rest of the old file (now .1) is read before starting on the new one. Logins recorded in the older
+ * sentence format (before the audit log was added) are counted too.
+ * Counts start from the current file when the analytics are created - rolled over files are not read back
+ * @author Derek Brown
+ */
+public class LoginAnalytics {
+    /**
+     * how many hours of per-hour counts are kept
+     */
+    public static final int HOURS_TRACKED = 24 * 7;
+    /**
+     * usernames kept before those idle for a day are dropped, so made-up usernames can't grow the table forever
+     */
+    private static final int MAX_USERS = 10000;
+    /**
+     * the most bytes read at once
+     */
+    private static final int READ_CHUNK = 1024 * 1024;
+    /**
+     * milliseconds in an hour
+     */
+    private static final long HOUR_MILLIS = 3600_000L;
+    /**
+     * the analytics for the application's audit log, created on first use
+     */
+    private static LoginAnalytics shared;
+
+    /**
+     * the log file
+     */
+    private final Path path;
+    /**
+     * supplies the current time for windowed queries
+     */
+    private final Clock clock;
+    /**
+     * the counters for each username
+     */
+    private final Map<String, UserActivity> users = new HashMap<>();
+    /**
+     * the epoch hour each per-hour slot is counting, so a slot is reset when its hour comes round again
+     */
+    private final long[] slotHours = new long[HOURS_TRACKED];
+    /**
+     * successful logins in each hour slot
+     */
+    private final int[] successesByHour = new int[HOURS_TRACKED];
+    /**
+     * failed logins in each hour slot
+     */
+    private final int[] failuresByHour = new int[HOURS_TRACKED];
+    /**
+     * the byte offset parsed up to - always the start of a line
+     */
+    private long offset;
+    /**
+     * identifies the file the offset is in, to notice it being rolled over (null if the file system has no keys)
+     */
+    private Object fileKey;
+    /**
+     * lines that weren't audit entries in either format
+     */
+    private long skippedLines;
+
+    /**
+     * constructor
+     * @param path the audit log file
+     * @param clock supplies the current time for windowed queries
+     */
+    public LoginAnalytics(Path path, Clock clock) {
+        this.path = path;
+        this.clock = clock;
+    }
+
+    /**
+     * @return the analytics for the application's audit log (AuditLog.logFile)
+     */
+    public static synchronized LoginAnalytics shared() {
+        if (shared == null) {
+            shared = new LoginAnalytics(AuditLog.getPath(), Clock.systemUTC());
+        }
+        return shared;
+    }
+
+    /**
+     * parses whatever has been appended to the log since the last call. Queries call this themselves
+     */
+    public synchronized void refresh() {
+        try {
+            if (!Files.exists(path)) {
+                return;
+            }
+            Object key = fileKeyOf(path);
+            boolean rolledOver = !Objects.equals(fileKey, key) || Files.size(path) < offset;
+            if (rolledOver) {
+                Path previous = path.resolveSibling(path.getFileName() + ".1");
+                if (fileKey != null && Files.exists(previous) && fileKey.equals(fileKeyOf(previous))) {
+                    read(previous, offset);
+                }
+                offset = 0;
+            }
+            fileKey = key;
+            offset = read(path, offset);
+            if (users.size() > MAX_USERS) {
+                long idleSince = clock.millis() - 24 * HOUR_MILLIS;
+                users.values().removeIf(activity -> activity.getLastEvent() < idleSince);
+            }
+        } catch (IOException e) {
+            System.out.println("Unable to read " + path);
+        }
+    }
+
+    /**
+     * @param username the username
+     * @param window how far back to count
+     * @return the user's failed logins within the window (at most 64)
+     */
+    public synchronized int recentFailures(String username, Duration window) {
+        refresh();
+        UserActivity activity = users.get(username);
+        return activity == null ? 0 : activity.failuresSince(clock.millis() - window.toMillis());
+    }
+
+    /**
+     * @param username the username
+     * @return the user's failed logins since their last successful one
+     */
+    public synchronized int consecutiveFailures(String username) {
+        refresh();
+        UserActivity activity = users.get(username);
+        return activity == null ? 0 : activity.getConsecutiveFailures();
+    }
+
+    /**
+     * @param threshold the failures that make a user a candidate
+     * @param window how far back to count
+     * @return usernames with at least threshold failures within the window, and their counts, most failures first
+     */
+    public synchronized Map<String, Integer> lockoutCandidates(int threshold, Duration window) {
+        refresh();
+        long since = clock.millis() - window.toMillis();
+        List<Map.Entry<String, Integer>> candidates = new ArrayList<>();
+        for (Map.Entry<String, UserActivity> entry : users.entrySet()) {
+            int failures = entry.getValue().failuresSince(since);
+            if (failures >= threshold) {
+                candidates.add(Map.entry(entry.getKey(), failures));
+            }
+        }
+        candidates.sort(Map.Entry.<String, Integer>comparingByValue().reversed().thenComparing(Map.Entry.comparingByKey()));
+        Map<String, Integer> sorted = new LinkedHashMap<>();
+        for (Map.Entry<String, Integer> candidate : candidates) {
+            sorted.put(candidate.getKey(), candidate.getValue());
+        }
+        return sorted;
+    }
+
+    /**
+     * @param hours how many hours, up to HOURS_TRACKED
+     * @return successful logins in each of the last hours, oldest first and ending with the current hour
+     */
+    public synchronized int[] loginsPerHour(int hours) {
+        refresh();
+        return perHour(successesByHour, hours);
+    }
+
+    /**
+     * @param hours how many hours, up to HOURS_TRACKED
+     * @return failed logins in each of the last hours, oldest first and ending with the current hour
+     */
+    public synchronized int[] failuresPerHour(int hours) {
+        refresh();
+        return perHour(failuresByHour, hours);
+    }
+
+    /**
+     * @return number of usernames being tracked
+     */
+    public synchronized int getUserCount() {
+        refresh();
+        return users.size();
+    }
+
+    /**
+     * @return lines that weren't audit entries
+     */
+    public synchronized long getSkippedLines() {
+        return skippedLines;
+    }
+
+    /**
+     * copies the per-hour counts for the last hours, leaving slots that belong to older hours at 0
+     * @param counts the per-hour counts
+     * @param hours how many hours
+     * @return the counts, oldest first
+     */
+    private int[] perHour(int[] counts, int hours) {
+        hours = Math.min(hours, HOURS_TRACKED);
+        int[] result = new int[hours];
+        long currentHour = clock.millis() / HOUR_MILLIS;
+        for (int i = 0; i < hours; i++) {
+            long hour = currentHour - (hours - 1 - i);
+            int slot = (int) (hour % HOURS_TRACKED);
+            if (slotHours[slot] == hour) {
+                result[i] = counts[slot];
+            }
+        }
+        return result;
+    }
+
+    /**
+     * reads the file from an offset a chunk at a time and parses each complete line
+     * @param file the file
+     * @param from the offset of the first unread line
+     * @return the offset after the last complete line
+     * @throws IOException if the file can't be read
+     */
+    private long read(Path file, long from) throws IOException {
+        try (FileChannel channel = FileChannel.open(file, StandardOpenOption.READ)) {
+            long size = channel.size();
+            ByteBuffer buffer = ByteBuffer.allocate((int) Math.min(Math.max(size - from, 0), READ_CHUNK));
+            long position = from;
+            while (position < size) {
+                buffer.clear();
+                if (size - position < buffer.capacity()) {
+                    buffer.limit((int) (size - position));
+                }
+                int read;
+                do {
+                    read = channel.read(buffer, position + buffer.position());
+                } while (read > 0 && buffer.hasRemaining());
+                buffer.flip();
+                int consumed = parseLines(buffer);
+                if (consumed == 0) {
+                    if (buffer.limit() < READ_CHUNK) {
+                        break;
+                    }
+                    //a line longer than a whole chunk can't be an audit entry
+                    skippedLines++;
+                    consumed = buffer.limit();
+                }
+                position += consumed;
+            }
+            return position;
+        }
+    }
+
+    /**
+     * parses the complete lines in a chunk
+     * @param buffer the chunk, from position 0 to its limit
+     * @return the bytes consumed - up to and including the last newline
+     */
+    private int parseLines(ByteBuffer buffer) {
+        int limit = buffer.limit();
+        int lineStart = 0;
+        for (int i = 0; i < limit; i++) {
+            if (buffer.get(i) == '\n') {
+                parseLine(buffer, lineStart, i - lineStart);
+                lineStart = i + 1;
+            }
+        }
+        return lineStart;
+    }
+
+    /**
+     * decodes one line and counts the event in it
+     * @param buffer the chunk
+     * @param start the line's first byte
+     * @param length the line's length, without the newline
+     */
+    private void parseLine(ByteBuffer buffer, int start, int length) {
+        String line = new String(buffer.array(), start, length, StandardCharsets.UTF_8);
+        AuditEvent event = AuditEvent.parse(line);
+        if (event == null) {
+            event = AuditEvent.parseLegacy(line);
+        }
+        if (event == null) {
+            skippedLines++;
+            return;
+        }
+        long time = event.getTime().toEpochMilli();
+        switch (event.getType()) {
+            case LOGIN_SUCCESS:
+                users.computeIfAbsent(event.getUsername(), name -> new UserActivity()).success(time);
+                countHour(successesByHour, time);
+                break;
+            case LOGIN_FAILURE:
+                users.computeIfAbsent(event.getUsername(), name -> new UserActivity()).failure(time);
+                countHour(failuresByHour, time);
+                break;
+            default:
+                break;
+        }
+    }
+
+    /**
+     * adds one to the count for the time's hour, clearing the slot first if it was last used for an older hour.
+     * Times from an hour older than the one the slot now holds are too old to count
+     * @param counts the per-hour counts
+     * @param time a time in epoch milliseconds
+     */
+    private void countHour(int[] counts, long time) {
+        long hour = time / HOUR_MILLIS;
+        int slot = (int) (hour % HOURS_TRACKED);
+        if (slotHours[slot] < hour) {
+            slotHours[slot] = hour;
+            successesByHour[slot] = 0;
+            failuresByHour[slot] = 0;
+        }
+        if (slotHours[slot] == hour) {
+            counts[slot]++;
+        }
+    }
+
+    /**
+     * @param file a file
+     * @return the key identifying the file, or null if the file system doesn't have them
+     * @throws IOException if the file's attributes can't be read
+     */
+    private static Object fileKeyOf(Path file) throws IOException {
+        return Files.readAttributes(file, BasicFileAttributes.class).fileKey();
+    }
+}
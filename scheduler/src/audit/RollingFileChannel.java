@@ -0,0 +1,158 @@
+package audit;
+
+import java.io.IOException;
+import java.nio.ByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.StandardCopyOption;
+import java.nio.file.StandardOpenOption;
+import java.nio.file.attribute.BasicFileAttributes;
+
+/**
+ * An append-only file that is rolled over when it grows past a size or gets older than an age.
+ * The current file keeps its name; older files get .1, .2, ... appended (.1 the newest) and the oldest are deleted
+ * @author Derek Brown
+ */
+class RollingFileChannel {
+    /**
+     * the current file
+     */
+    private final Path path;
+    /**
+     * the size the file is rolled over at, in bytes - 0 for no limit
+     */
+    private final long maxBytes;
+    /**
+     * the age the file is rolled over at, in milliseconds - 0 for no limit
+     */
+    private final long maxAgeMillis;
+    /**
+     * how many rolled over files are kept
+     */
+    private final int keepFiles;
+    /**
+     * the open file, or null before the first write
+     */
+    private FileChannel channel;
+    /**
+     * the current file's size in bytes
+     */
+    private long size;
+    /**
+     * when the current file was started, in epoch milliseconds
+     */
+    private long startedMillis;
+
+    /**
+     * constructor
+     * @param path the current file
+     * @param maxBytes the size the file is rolled over at, in bytes - 0 for no limit
+     * @param maxAgeMillis the age the file is rolled over at, in milliseconds - 0 for no limit
+     * @param keepFiles how many rolled over files are kept
+     */
+    RollingFileChannel(Path path, long maxBytes, long maxAgeMillis, int keepFiles) {
+        this.path = path;
+        this.maxBytes = maxBytes;
+        this.maxAgeMillis = maxAgeMillis;
+        this.keepFiles = keepFiles;
+    }
+
+    /**
+     * appends the buffer's remaining bytes, rolling the file over first if they would take it past the limits
+     * @param buffer the bytes to write
+     * @param force true to force the bytes to disk before returning
+     * @throws IOException if the file can't be written
+     */
+    void write(ByteBuffer buffer, boolean force) throws IOException {
+        if (channel == null) {
+            open();
+        }
+        if (isDue(buffer.remaining())) {
+            rollOver();
+        }
+        while (buffer.hasRemaining()) {
+            size += channel.write(buffer);
+        }
+        if (force) {
+            channel.force(false);
+        }
+    }
+
+    /**
+     * rolls the file over if it has got older than the age limit
+     * @throws IOException if the file can't be rolled over
+     */
+    void rollOverIfDue() throws IOException {
+        if (channel != null && isDue(0)) {
+            rollOver();
+        }
+    }
+
+    /**
+     * closes the file
+     * @throws IOException if the file can't be closed
+     */
+    void close() throws IOException {
+        if (channel != null) {
+            channel.close();
+            channel = null;
+        }
+    }
+
+    /**
+     * @param incoming the bytes about to be written
+     * @return true if the file isn't empty and is too large or too old to take them
+     */
+    private boolean isDue(int incoming) {
+        if (size == 0) {
+            return false;
+        }
+        return (maxBytes > 0 && size + incoming > maxBytes)
+                || (maxAgeMillis > 0 && System.currentTimeMillis() - startedMillis >= maxAgeMillis);
+    }
+
+    /**
+     * opens the current file for appending, creating it if it isn't there
+     * @throws IOException if the file can't be opened
+     */
+    private void open() throws IOException {
+        if (path.getParent() != null) {
+            Files.createDirectories(path.getParent());
+        }
+        channel = FileChannel.open(path, StandardOpenOption.CREATE, StandardOpenOption.WRITE, StandardOpenOption.APPEND);
+        size = channel.size();
+        startedMillis = size == 0 ? System.currentTimeMillis()
+                : Files.readAttributes(path, BasicFileAttributes.class).creationTime().toMillis();
+    }
+
+    /**
+     * moves the current file to .1, shifting older files up and deleting the oldest, then starts a new file
+     * @throws IOException if the files can't be moved
+     */
+    private void rollOver() throws IOException {
+        close();
+        if (keepFiles > 0) {
+            Files.deleteIfExists(rolledPath(keepFiles));
+            for (int i = keepFiles - 1; i >= 1; i--) {
+                Path older = rolledPath(i);
+                if (Files.exists(older)) {
+                    Files.move(older, rolledPath(i + 1), StandardCopyOption.REPLACE_EXISTING);
+                }
+            }
+            Files.move(path, rolledPath(1), StandardCopyOption.REPLACE_EXISTING);
+        }
+        else {
+            Files.deleteIfExists(path);
+        }
+        open();
+    }
+
+    /**
+     * @param generation 1 for the newest rolled over file
+     * @return the path of that file
+     */
+    private Path rolledPath(int generation) {
+        return path.resolveSibling(path.getFileName() + "." + generation);
+    }
+}
@@ -0,0 +1,114 @@
+package audit;
+
+/**
+ * Rolling login counters for one username: totals, the time of the last success, failures since then,
+ * and a ring of the most recent failure times for windowed counts
+ * @author Derek Brown
+ */
+class UserActivity {
+    /**
+     * how many failure times are kept - windowed counts stop at this many
+     */
+    static final int TRACKED_FAILURES = 64;
+
+    /**
+     * the most recent failure times in epoch milliseconds, oldest overwritten first
+     */
+    private final long[] failureTimes = new long[TRACKED_FAILURES];
+    /**
+     * index the next failure time is written to
+     */
+    private int next;
+    /**
+     * total successful logins read
+     */
+    private long successes;
+    /**
+     * total failed logins read
+     */
+    private long failures;
+    /**
+     * failed logins since the last successful one
+     */
+    private int consecutiveFailures;
+    /**
+     * time of the last successful login in epoch milliseconds, 0 if none
+     */
+    private long lastSuccess;
+    /**
+     * time of the last event of any kind in epoch milliseconds
+     */
+    private long lastEvent;
+
+    /**
+     * counts a successful login
+     * @param time when it happened, in epoch milliseconds
+     */
+    void success(long time) {
+        successes++;
+        consecutiveFailures = 0;
+        lastSuccess = time;
+        lastEvent = Math.max(lastEvent, time);
+    }
+
+    /**
+     * counts a failed login
+     * @param time when it happened, in epoch milliseconds
+     */
+    void failure(long time) {
+        failures++;
+        consecutiveFailures++;
+        failureTimes[next] = time;
+        next = (next + 1) % TRACKED_FAILURES;
+        lastEvent = Math.max(lastEvent, time);
+    }
+
+    /**
+     * @param since the start of the window, in epoch milliseconds
+     * @return failures at or after the start, up to TRACKED_FAILURES
+     */
+    int failuresSince(long since) {
+        int count = 0;
+        for (int i = 0; i < TRACKED_FAILURES && i < failures; i++) {
+            if (failureTimes[i] >= since) {
+                count++;
+            }
+        }
+        return count;
+    }
+
+    /**
+     * @return total successful logins read
+     */
+    long getSuccesses() {
+        return successes;
+    }
+
+    /**
+     * @return total failed logins read
+     */
+    long getFailures() {
+        return failures;
+    }
+
+    /**
+     * @return failed logins since the last successful one
+     */
+    int getConsecutiveFailures() {
+        return consecutiveFailures;
+    }
+
+    /**
+     * @return time of the last successful login in epoch milliseconds, 0 if none
+     */
+    long getLastSuccess() {
+        return lastSuccess;
+    }
+
+    /**
+     * @return time of the last event of any kind in epoch milliseconds
+     */
+    long getLastEvent() {
+        return lastEvent;
+    }
+}
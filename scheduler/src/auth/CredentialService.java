@@ -0,0 +1,227 @@
+package auth;
+
+import dao.Transaction;
+import dao.UserRepository;
+import metrics.Metrics;
+
+import java.sql.SQLException;
+import java.time.Clock;
+import java.util.LinkedHashMap;
+import java.util.Map;
+import java.util.concurrent.ArrayBlockingQueue;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.RejectedExecutionException;
+import java.util.concurrent.ThreadPoolExecutor;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Checks login credentials off the JavaFX thread. Attempts are checked one at a time on a single verifier thread
+ * with a short queue, so a burst of attempts can neither tie up the database connections nor pile up hashing work -
+ * attempts beyond the queue are turned away as UNAVAILABLE. Stored passwords are cached for cacheMillis so repeated
+ * attempts don't each need a query, and repeated failures are slowed down by the LoginThrottle.
+ * Plain text passwords left from before hashing are replaced with hashes by migratePasswords() and,
+ * failing that, the first time each one is used
+ * @author Derek Brown
+ */
+public class CredentialService {
+    /**
+     * how long a stored password is cached, in milliseconds
+     */
+    public static long cacheMillis = Long.getLong("scheduler.auth.cacheMillis", 60_000);
+    /**
+     * slows down repeated failures: 5 per username and 20 per source, forgotten after 15 quiet minutes,
+     * then lockouts from 1 second doubling up to 5 minutes
+     */
+    public static LoginThrottle throttle = new LoginThrottle(5, 20, TimeUnit.MINUTES.toMillis(15),
+            1000, TimeUnit.MINUTES.toMillis(5), Clock.systemUTC());
+    /**
+     * attempts that can wait for the verifier before new ones are turned away
+     */
+    private static final int QUEUE_SIZE = 16;
+    /**
+     * cached passwords kept before expired ones are dropped, as LoginThrottle caps its table
+     */
+    private static final int MAX_CACHED = 10000;
+    /**
+     * the single verifier thread
+     */
+    private static final ThreadPoolExecutor verifier = new ThreadPoolExecutor(1, 1, 0, TimeUnit.MILLISECONDS,
+            new ArrayBlockingQueue<>(QUEUE_SIZE), runnable -> {
+                Thread thread = new Thread(runnable, "credential-check");
+                thread.setDaemon(true);
+                return thread;
+            });
+    /**
+     * the cached stored password for each known username - unknown usernames aren't cached, so made-up ones
+     * can't grow it
+     */
+    private static final Map<String, CachedPassword> cache = new ConcurrentHashMap<>();
+    /**
+     * a hash checked for unknown usernames, so they take as long to reject as a wrong password
+     */
+    private static String unknownUserHash;
+
+    /**
+     * checks a username and password on the verifier thread
+     * @param username the username given
+     * @param password the password given
+     * @param source where the attempt comes from, for throttling
+     * @return the result, completed on the verifier thread (or at once if throttled or turned away)
+     */
+    public static CompletableFuture<LoginResult> verify(String username, String password, String source) {
+        long retryAfter = throttle.retryAfterMillis(username, source);
+        if (retryAfter > 0) {
+            return CompletableFuture.completedFuture(new LoginResult(LoginResult.Outcome.THROTTLED, retryAfter));
+        }
+        try {
+            return CompletableFuture.supplyAsync(
+                    () -> Metrics.<LoginResult, RuntimeException>time("auth.verify", () -> check(username, password, source)), verifier);
+        } catch (RejectedExecutionException e) {
+            return CompletableFuture.completedFuture(LoginResult.of(LoginResult.Outcome.UNAVAILABLE));
+        }
+    }
+
+    /**
+     * replaces every plain text password in the users table with a hash, in one transaction, on the verifier thread
+     * @return the number of passwords replaced, completed exceptionally if the update fails
+     */
+    public static CompletableFuture<Integer> migratePasswords() {
+        return CompletableFuture.supplyAsync(() -> {
+            try {
+                Map<String, String> hashes = new LinkedHashMap<>();
+                for (Map.Entry<String, String> entry : UserRepository.findPasswords().entrySet()) {
+                    if (entry.getValue() != null && !PasswordHasher.isHashed(entry.getValue())) {
+                        hashes.put(entry.getKey(), PasswordHasher.hash(entry.getValue()));
+                    }
+                }
+                if (hashes.isEmpty()) {
+                    return 0;
+                }
+                int updated = Transaction.run(connection -> UserRepository.updatePasswords(connection, hashes));
+                cache.clear();
+                return updated;
+            } catch (SQLException e) {
+                throw new IllegalStateException("Unable to hash stored passwords", e);
+            }
+        }, verifier);
+    }
+
+    /**
+     * forgets the cached stored passwords, e.g. after a password is changed outside the application
+     */
+    public static void clearCache() {
+        cache.clear();
+    }
+
+    /**
+     * checks the credentials and updates the throttle - runs on the verifier thread
+     * @param username the username given
+     * @param password the password given
+     * @param source where the attempt comes from
+     * @return the result
+     */
+    private static LoginResult check(String username, String password, String source) {
+        //failures counted while this attempt was queued may have locked it out
+        long retryAfter = throttle.retryAfterMillis(username, source);
+        if (retryAfter > 0) {
+            return new LoginResult(LoginResult.Outcome.THROTTLED, retryAfter);
+        }
+        String stored;
+        try {
+            stored = storedPassword(username);
+        } catch (SQLException e) {
+            System.out.println("Unable to load the stored password");
+            return LoginResult.of(LoginResult.Outcome.UNAVAILABLE);
+        }
+        boolean valid;
+        if (stored == null) {
+            PasswordHasher.verify(password, unknownUserHash());
+            valid = false;
+        }
+        else {
+            valid = PasswordHasher.verify(password, stored);
+        }
+        if (!valid) {
+            throttle.failure(username, source);
+            return LoginResult.of(LoginResult.Outcome.INVALID);
+        }
+        throttle.success(username, source);
+        if (PasswordHasher.needsRehash(stored)) {
+            rehash(username, password);
+        }
+        return LoginResult.of(LoginResult.Outcome.SUCCESS);
+    }
+
+    /**
+     * @param username the username
+     * @return the user's stored password from the cache, or the database if it isn't cached - null for an unknown user
+     * @throws SQLException if the query fails
+     */
+    private static String storedPassword(String username) throws SQLException {
+        long now = System.currentTimeMillis();
+        CachedPassword cached = cache.get(username);
+        if (cached != null && now - cached.loadedMillis < cacheMillis) {
+            return cached.stored;
+        }
+        String stored = UserRepository.findPassword(username);
+        if (stored == null) {
+            cache.remove(username);
+            return null;
+        }
+        cache.put(username, new CachedPassword(stored, now));
+        if (cache.size() > MAX_CACHED) {
+            cache.values().removeIf(entry -> now - entry.loadedMillis >= cacheMillis);
+        }
+        return stored;
+    }
+
+    /**
+     * replaces a plain text or outdated stored password with a new hash after a successful login
+     * @param username the username
+     * @param password the password, already checked
+     */
+    private static void rehash(String username, String password) {
+        String hash = PasswordHasher.hash(password);
+        try {
+            UserRepository.updatePassword(username, hash);
+            cache.put(username, new CachedPassword(hash, System.currentTimeMillis()));
+        } catch (SQLException e) {
+            System.out.println("Unable to store the hashed password for " + username);
+        }
+    }
+
+    /**
+     * @return the hash checked for unknown usernames, made on first use
+     */
+    private static String unknownUserHash() {
+        if (unknownUserHash == null) {
+            unknownUserHash = PasswordHasher.hash(Long.toString(System.nanoTime()));
+        }
+        return unknownUserHash;
+    }
+
+    /**
+     * A stored password and when it was loaded
+     */
+    private static class CachedPassword {
+        /**
+         * the stored password
+         */
+        private final String stored;
+        /**
+         * when it was loaded, in epoch milliseconds
+         */
+        private final long loadedMillis;
+
+        /**
+         * constructor
+         * @param stored the stored password
+         * @param loadedMillis when it was loaded, in epoch milliseconds
+         */
+        private CachedPassword(String stored, long loadedMillis) {
+            this.stored = stored;
+            this.loadedMillis = loadedMillis;
+        }
+    }
+}
@@ -0,0 +1,85 @@
+package auth;
+
+/**
+ * The outcome of a login attempt checked by CredentialService
+ * @author Derek Brown
+ */
+public class LoginResult {
+    /**
+     * The kinds of outcome
+     */
+    public enum Outcome {
+        /**
+         * the username and password match
+         */
+        SUCCESS,
+        /**
+         * the username or password is wrong
+         */
+        INVALID,
+        /**
+         * too many recent failures - the attempt wasn't checked
+         */
+        THROTTLED,
+        /**
+         * the attempt couldn't be checked (database error, or too many attempts already waiting)
+         */
+        UNAVAILABLE
+    }
+
+    /**
+     * the outcome
+     */
+    private final Outcome outcome;
+    /**
+     * for THROTTLED, how long until another attempt is allowed, in milliseconds
+     */
+    private final long retryAfterMillis;
+
+    /**
+     * constructor
+     * @param outcome the outcome
+     * @param retryAfterMillis for THROTTLED, how long until another attempt is allowed, in milliseconds
+     */
+    public LoginResult(Outcome outcome, long retryAfterMillis) {
+        this.outcome = outcome;
+        this.retryAfterMillis = retryAfterMillis;
+    }
+
+    /**
+     * @param outcome the outcome
+     * @return a result with no retry delay
+     */
+    public static LoginResult of(Outcome outcome) {
+        return new LoginResult(outcome, 0);
+    }
+
+    /**
+     * @return the outcome
+     */
+    public Outcome getOutcome() {
+        return outcome;
+    }
+
+    /**
+     * @return true if the username and password match
+     */
+    public boolean isSuccess() {
+        return outcome == Outcome.SUCCESS;
+    }
+
+    /**
+     * @return for THROTTLED, how long until another attempt is allowed, in milliseconds
+     */
+    public long getRetryAfterMillis() {
+        return retryAfterMillis;
+    }
+
+    /**
+     * @return the outcome, with the retry delay if throttled
+     */
+    @Override
+    public String toString() {
+        return outcome == Outcome.THROTTLED ? outcome + " (retry in " + retryAfterMillis + " ms)" : outcome.toString();
+    }
+}
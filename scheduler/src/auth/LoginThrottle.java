@@ -0,0 +1,173 @@
+package auth;
+
+import java.time.Clock;
+import java.util.HashMap;
+import java.util.Map;
+
+/**
+ * Slows down repeated failed logins, counted in memory per username and per source. Once a username or source
+ * has used up its allowed failures, each further failure locks it out for twice as long as the last, from
+ * baseLockMillis up to maxLockMillis. Failures are forgotten when a window passes without one, and a successful
+ * login clears the username's and the source's counts
+ * @author Derek Brown
+ */
+public class LoginThrottle {
+    /**
+     * keys tracked before expired ones are dropped, so made-up usernames can't grow the table forever
+     */
+    private static final int MAX_KEYS = 10000;
+
+    /**
+     * failures a username may have in the window before it is locked out
+     */
+    private final int userAttempts;
+    /**
+     * failures a source may have in the window before it is locked out - higher, since it covers every username
+     */
+    private final int sourceAttempts;
+    /**
+     * how long without a failure before the failures are forgotten, in milliseconds
+     */
+    private final long windowMillis;
+    /**
+     * the first lockout, in milliseconds
+     */
+    private final long baseLockMillis;
+    /**
+     * the longest lockout, in milliseconds
+     */
+    private final long maxLockMillis;
+    /**
+     * supplies the current time
+     */
+    private final Clock clock;
+    /**
+     * the failures for each key ("user:" or "source:" followed by the name)
+     */
+    private final Map<String, Attempts> attempts = new HashMap<>();
+
+    /**
+     * constructor
+     * @param userAttempts failures a username may have in the window before it is locked out
+     * @param sourceAttempts failures a source may have in the window before it is locked out
+     * @param windowMillis how long without a failure before the failures are forgotten, in milliseconds
+     * @param baseLockMillis the first lockout, in milliseconds
+     * @param maxLockMillis the longest lockout, in milliseconds
+     * @param clock supplies the current time
+     */
+    public LoginThrottle(int userAttempts, int sourceAttempts, long windowMillis, long baseLockMillis, long maxLockMillis, Clock clock) {
+        this.userAttempts = userAttempts;
+        this.sourceAttempts = sourceAttempts;
+        this.windowMillis = windowMillis;
+        this.baseLockMillis = baseLockMillis;
+        this.maxLockMillis = maxLockMillis;
+        this.clock = clock;
+    }
+
+    /**
+     * @param username the username given
+     * @param source where the attempt comes from
+     * @return how long until an attempt is allowed, in milliseconds - 0 if it is allowed now
+     */
+    public synchronized long retryAfterMillis(String username, String source) {
+        long now = clock.millis();
+        return Math.max(lockRemaining(userKey(username), now), lockRemaining(sourceKey(source), now));
+    }
+
+    /**
+     * counts a failed login, locking the username or source out if it has failed too often
+     * @param username the username given
+     * @param source where the attempt came from
+     */
+    public synchronized void failure(String username, String source) {
+        long now = clock.millis();
+        countFailure(userKey(username), userAttempts, now);
+        countFailure(sourceKey(source), sourceAttempts, now);
+        if (attempts.size() > MAX_KEYS) {
+            attempts.values().removeIf(entry -> entry.isExpired(now, windowMillis));
+        }
+    }
+
+    /**
+     * clears the counts for a username and source after a successful login
+     * @param username the username
+     * @param source where the login came from
+     */
+    public synchronized void success(String username, String source) {
+        attempts.remove(userKey(username));
+        attempts.remove(sourceKey(source));
+    }
+
+    /**
+     * @param key the key
+     * @param allowed failures allowed in the window
+     * @param now the current time in epoch milliseconds
+     */
+    private void countFailure(String key, int allowed, long now) {
+        Attempts entry = attempts.get(key);
+        if (entry == null || entry.isExpired(now, windowMillis)) {
+            entry = new Attempts();
+            attempts.put(key, entry);
+        }
+        entry.failures++;
+        entry.lastFailure = now;
+        int over = entry.failures - allowed;
+        if (over > 0) {
+            long lock = baseLockMillis << Math.min(over - 1, 20);
+            entry.lockedUntil = now + Math.min(lock, maxLockMillis);
+        }
+    }
+
+    /**
+     * @param key the key
+     * @param now the current time in epoch milliseconds
+     * @return milliseconds left on the key's lockout, 0 if none
+     */
+    private long lockRemaining(String key, long now) {
+        Attempts entry = attempts.get(key);
+        return entry == null ? 0 : Math.max(0, entry.lockedUntil - now);
+    }
+
+    /**
+     * @param username a username
+     * @return its key
+     */
+    private static String userKey(String username) {
+        return "user:" + username;
+    }
+
+    /**
+     * @param source a source
+     * @return its key
+     */
+    private static String sourceKey(String source) {
+        return "source:" + source;
+    }
+
+    /**
+     * The failures counted for one key
+     */
+    private static class Attempts {
+        /**
+         * failures since counting started
+         */
+        private int failures;
+        /**
+         * time of the last failure in epoch milliseconds
+         */
+        private long lastFailure;
+        /**
+         * the end of the current lockout in epoch milliseconds
+         */
+        private long lockedUntil;
+
+        /**
+         * @param now the current time in epoch milliseconds
+         * @param windowMillis how long without a failure before the failures are forgotten
+         * @return true if the window has passed since the last failure and no lockout is running
+         */
+        private boolean isExpired(long now, long windowMillis) {
+            return now >= lockedUntil && now - lastFailure >= windowMillis;
+        }
+    }
+}
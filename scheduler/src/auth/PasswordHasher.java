@@ -0,0 +1,124 @@
+package auth;
+
+import javax.crypto.SecretKeyFactory;
+import javax.crypto.spec.PBEKeySpec;
+import java.nio.charset.StandardCharsets;
+import java.security.GeneralSecurityException;
+import java.security.MessageDigest;
+import java.security.SecureRandom;
+import java.util.Base64;
+
+/**
+ * Salted PBKDF2 password hashes, stored as pbkdf2$iterations$salt$hash with the salt and hash in Base64.
+ * Passwords stored before hashing was added are plain text; verify() still accepts them so they can be
+ * replaced with a hash the first time they're used (see CredentialService)
+ * @author Derek Brown
+ */
+public class PasswordHasher {
+    /**
+     * the prefix of every hashed password
+     */
+    public static final String PREFIX = "pbkdf2";
+    /**
+     * the PBKDF2 variant, available in every JDK
+     */
+    private static final String ALGORITHM = "PBKDF2WithHmacSHA256";
+    /**
+     * iterations for new hashes - older hashes with fewer are upgraded on the next successful login
+     */
+    public static int iterations = Integer.getInteger("scheduler.auth.iterations", 210000);
+    /**
+     * salt length in bytes
+     */
+    private static final int SALT_BYTES = 16;
+    /**
+     * hash length in bits
+     */
+    private static final int HASH_BITS = 256;
+    /**
+     * makes the salts
+     */
+    private static final SecureRandom random = new SecureRandom();
+
+    /**
+     * hashes a password with a new salt
+     * @param password the password
+     * @return the stored form, pbkdf2$iterations$salt$hash
+     */
+    public static String hash(String password) {
+        byte[] salt = new byte[SALT_BYTES];
+        random.nextBytes(salt);
+        Base64.Encoder encoder = Base64.getEncoder();
+        return PREFIX + "$" + iterations + "$" + encoder.encodeToString(salt) + "$"
+                + encoder.encodeToString(pbkdf2(password, salt, iterations, HASH_BITS));
+    }
+
+    /**
+     * checks a password against its stored form, in time that doesn't depend on where they differ
+     * @param password the password given
+     * @param stored the stored hash, or a plain text password from before hashing was added
+     * @return true if the password matches
+     */
+    public static boolean verify(String password, String stored) {
+        if (stored == null) {
+            return false;
+        }
+        if (!isHashed(stored)) {
+            return MessageDigest.isEqual(password.getBytes(StandardCharsets.UTF_8), stored.getBytes(StandardCharsets.UTF_8));
+        }
+        String[] parts = stored.split("\\$");
+        if (parts.length != 4) {
+            return false;
+        }
+        try {
+            int storedIterations = Integer.parseInt(parts[1]);
+            byte[] salt = Base64.getDecoder().decode(parts[2]);
+            byte[] expected = Base64.getDecoder().decode(parts[3]);
+            return MessageDigest.isEqual(expected, pbkdf2(password, salt, storedIterations, expected.length * 8));
+        } catch (IllegalArgumentException e) {
+            return false;
+        }
+    }
+
+    /**
+     * @param stored a stored password
+     * @return true if it is a hash rather than plain text
+     */
+    public static boolean isHashed(String stored) {
+        return stored != null && stored.startsWith(PREFIX + "$");
+    }
+
+    /**
+     * @param stored a stored password
+     * @return true if it is plain text or hashed with fewer iterations than new hashes use
+     */
+    public static boolean needsRehash(String stored) {
+        if (!isHashed(stored)) {
+            return true;
+        }
+        String[] parts = stored.split("\\$");
+        try {
+            return parts.length != 4 || Integer.parseInt(parts[1]) < iterations;
+        } catch (NumberFormatException e) {
+            return true;
+        }
+    }
+
+    /**
+     * @param password the password
+     * @param salt the salt
+     * @param iterations the iteration count
+     * @param bits the hash length in bits
+     * @return the derived hash
+     */
+    private static byte[] pbkdf2(String password, byte[] salt, int iterations, int bits) {
+        PBEKeySpec spec = new PBEKeySpec(password.toCharArray(), salt, iterations, bits);
+        try {
+            return SecretKeyFactory.getInstance(ALGORITHM).generateSecret(spec).getEncoded();
+        } catch (GeneralSecurityException e) {
+            throw new IllegalStateException(ALGORITHM + " is not available", e);
+        } finally {
+            spec.clearPassword();
+        }
+    }
+}
@@ -0,0 +1,39 @@
+package bulk;
+
+import dao.AppointmentRepository;
+
+import java.io.IOException;
+import java.io.UncheckedIOException;
+import java.sql.SQLException;
+
+/**
+ * Exports every appointment, streaming rows from the database straight to the file so the table is never held in memory
+ * @author Derek Brown
+ */
+public class AppointmentExporter {
+    /**
+     * writes every appointment, in Appointment_ID order, with times in UTC
+     * @param writer where the rows go
+     * @return counts and timing
+     * @throws IOException if the file can't be written
+     * @throws SQLException if the appointments can't be read
+     */
+    public static TransferReport exportTo(AppointmentWriter writer) throws IOException, SQLException {
+        TransferReport report = new TransferReport();
+        try {
+            AppointmentRepository.streamRecords(record -> {
+                report.rowRead();
+                try {
+                    writer.write(record);
+                } catch (IOException e) {
+                    throw new UncheckedIOException(e);
+                }
+                report.rowsWritten(1);
+            });
+        } catch (UncheckedIOException e) {
+            throw e.getCause();
+        }
+        report.finish();
+        return report;
+    }
+}
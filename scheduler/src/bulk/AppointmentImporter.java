@@ -0,0 +1,254 @@
+package bulk;
+
+import dao.AppointmentRepository;
+import dao.CustomerRepository;
+import dao.ReferenceDataRepository;
+import dao.Transaction;
+import model.Appointment;
+import model.AppointmentIndex;
+import model.AppointmentRecord;
+
+import java.io.IOException;
+import java.sql.SQLException;
+import java.util.ArrayList;
+import java.util.Collection;
+import java.util.HashSet;
+import java.util.List;
+import java.util.Set;
+
+/**
+ * Imports appointments in bulk. Each row is checked the way the appointment form checks it - required fields,
+ * known customer, contact and user, and no overlap with the other appointments of the customer, the contact or the
+ * user (including rows earlier in the same file) - and the rows that pass are inserted as JDBC batches, one transaction per batch.
+ * Appointment IDs in the file are ignored; the database assigns new ones
+ * @author Derek Brown
+ */
+public class AppointmentImporter {
+    /**
+     * rows inserted per batch unless setBatchSize is called
+     */
+    public static int defaultBatchSize = Integer.getInteger("scheduler.import.batchSize", 1000);
+    /**
+     * the longest a text column may be
+     */
+    private static final int MAX_TEXT_LENGTH = 50;
+    /**
+     * appointment times by customer - the existing appointments plus every row accepted so far
+     */
+    private final AppointmentIndex customerAppointments;
+    /**
+     * appointment times by contact - the existing appointments plus every row accepted so far
+     */
+    private final AppointmentIndex contactAppointments;
+    /**
+     * appointment times by user - the existing appointments plus every row accepted so far
+     */
+    private final AppointmentIndex userAppointments;
+    /**
+     * IDs of the customers that exist
+     */
+    private final Set<Integer> customerIDs;
+    /**
+     * IDs of the contacts that exist
+     */
+    private final Set<Integer> contactIDs;
+    /**
+     * IDs of the users that exist
+     */
+    private final Set<Integer> userIDs;
+    /**
+     * rows inserted per batch
+     */
+    private int batchSize = defaultBatchSize;
+    /**
+     * if true rows are only validated, nothing is inserted
+     */
+    private boolean dryRun;
+    /**
+     * the ID given to the next accepted row in the overlap index - negative so it can't clash with a real appointment
+     */
+    private int nextIndexID = -2;
+
+    /**
+     * constructor
+     * @param customerAppointments the existing appointments indexed by customer - accepted rows are added to it
+     * @param contactAppointments the existing appointments indexed by contact - accepted rows are added to it
+     * @param userAppointments the existing appointments indexed by user - accepted rows are added to it
+     * @param customerIDs IDs of the customers that exist
+     * @param contactIDs IDs of the contacts that exist
+     * @param userIDs IDs of the users that exist
+     */
+    public AppointmentImporter(AppointmentIndex customerAppointments, AppointmentIndex contactAppointments,
+                               AppointmentIndex userAppointments, Collection<Integer> customerIDs,
+                               Collection<Integer> contactIDs, Collection<Integer> userIDs) {
+        this.customerAppointments = customerAppointments;
+        this.contactAppointments = contactAppointments;
+        this.userAppointments = userAppointments;
+        this.customerIDs = new HashSet<>(customerIDs);
+        this.contactIDs = new HashSet<>(contactIDs);
+        this.userIDs = new HashSet<>(userIDs);
+    }
+
+    /**
+     * creates an importer that checks rows against the appointments, customers, contacts and users in the database
+     * @return the importer
+     * @throws SQLException if the existing data can't be read
+     */
+    public static AppointmentImporter fromDatabase() throws SQLException {
+        AppointmentIndex customerIndex = new AppointmentIndex(Appointment::getCustomerID);
+        AppointmentIndex contactIndex = new AppointmentIndex(Appointment::getContactID);
+        AppointmentIndex userIndex = new AppointmentIndex(Appointment::getUserID);
+        AppointmentRepository.streamAll(appointment -> {
+            customerIndex.add(appointment);
+            contactIndex.add(appointment);
+            userIndex.add(appointment);
+        });
+        return new AppointmentImporter(customerIndex, contactIndex, userIndex, CustomerRepository.findAllIDs(),
+                ReferenceDataRepository.findContactIDs(), ReferenceDataRepository.findUserIDs());
+    }
+
+    /**
+     * @param batchSize rows inserted per batch (and per transaction)
+     */
+    public void setBatchSize(int batchSize) {
+        this.batchSize = Math.max(1, batchSize);
+    }
+
+    /**
+     * @param dryRun if true rows are only validated, nothing is inserted
+     */
+    public void setDryRun(boolean dryRun) {
+        this.dryRun = dryRun;
+    }
+
+    /**
+     * reads, checks and inserts every row. A batch that fails to insert is rolled back and the import stops there -
+     * batches committed before it stay in the database
+     * @param reader the rows to import
+     * @param username recorded as the creator of each appointment
+     * @return counts, timing and the rejected rows
+     * @throws IOException if the file can't be read
+     */
+    public TransferReport importFrom(AppointmentReader reader, String username) throws IOException {
+        TransferReport report = new TransferReport();
+        List<AppointmentRecord> batch = new ArrayList<>(batchSize);
+        List<Integer> batchIndexIDs = new ArrayList<>(batchSize);
+        while (true) {
+            AppointmentRecord record;
+            try {
+                record = reader.read();
+            } catch (IllegalArgumentException e) {
+                report.rowRead();
+                report.rowRejected(reader.getLineNumber(), e.getMessage());
+                continue;
+            }
+            if (record == null) {
+                break;
+            }
+            report.rowRead();
+            Appointment appointment = record.toAppointment(nextIndexID);
+            String errors = validate(record, appointment);
+            if (!errors.isEmpty()) {
+                report.rowRejected(reader.getLineNumber(), errors.trim());
+                continue;
+            }
+            customerAppointments.add(appointment);
+            contactAppointments.add(appointment);
+            userAppointments.add(appointment);
+            batchIndexIDs.add(nextIndexID--);
+            batch.add(record);
+            if (batch.size() >= batchSize && !flush(batch, batchIndexIDs, username, report)) {
+                break;
+            }
+        }
+        if (report.getFailure() == null) {
+            flush(batch, batchIndexIDs, username, report);
+        }
+        report.finish();
+        return report;
+    }
+
+    /**
+     * inserts and commits a batch, then empties it
+     * @param batch the rows to insert
+     * @param batchIndexIDs the rows' IDs in the overlap indexes, removed again if the insert fails
+     * @param username recorded as the creator of each appointment
+     * @param report counts the rows written, or records the failure
+     * @return true if the batch was committed (or this is a dry run)
+     */
+    private boolean flush(List<AppointmentRecord> batch, List<Integer> batchIndexIDs, String username, TransferReport report) {
+        try {
+            if (dryRun) {
+                report.rowsWritten(batch.size());
+            }
+            else if (!batch.isEmpty()) {
+                report.rowsWritten(Transaction.run(connection -> AppointmentRepository.insertBatch(connection, batch, username)));
+            }
+            return true;
+        } catch (SQLException e) {
+            for (Integer indexID : batchIndexIDs) {
+                customerAppointments.remove(indexID);
+                contactAppointments.remove(indexID);
+                userAppointments.remove(indexID);
+            }
+            report.failed("batch of " + batch.size() + " rows failed and was rolled back - " + e.getMessage());
+            return false;
+        } finally {
+            batch.clear();
+            batchIndexIDs.clear();
+        }
+    }
+
+    /**
+     * checks a row the way AptDetails.checkFields does
+     * @param record the row as read
+     * @param appointment the row with its times in local time, for the overlap check
+     * @return the problems found, separated by spaces, or an empty string if there are none
+     */
+    private String validate(AppointmentRecord record, Appointment appointment) {
+        String errorList = "";
+        if (!userIDs.contains(record.getUserID())) {
+            errorList += "Invalid User ID. ";
+        }
+        errorList += checkText("Title", record.getTitle());
+        errorList += checkText("Description", record.getDescription());
+        errorList += checkText("Location", record.getLocation());
+        if (!contactIDs.contains(record.getContactID())) {
+            errorList += "Invalid Contact ID. ";
+        }
+        if (!customerIDs.contains(record.getCustomerID())) {
+            errorList += "Invalid Customer ID. ";
+        }
+        errorList += checkText("Type", record.getType());
+        if (!record.getEnd().isAfter(record.getStart())) {
+            errorList += "Invalid End Time. ";
+        }
+        else {
+            if (customerAppointments.overlaps(record.getCustomerID(), appointment.getStart(), appointment.getEnd(), -1)) {
+                errorList += "Times overlap with existing appointments. ";
+            }
+            if (contactAppointments.overlaps(record.getContactID(), appointment.getStart(), appointment.getEnd(), -1)) {
+                errorList += "Contact is already booked at that time. ";
+            }
+            if (userAppointments.overlaps(record.getUserID(), appointment.getStart(), appointment.getEnd(), -1)) {
+                errorList += "User is already booked at that time. ";
+            }
+        }
+        return errorList;
+    }
+
+    /**
+     * @param name the field name
+     * @param value the field value
+     * @return an error if the value is empty or too long for its column, otherwise an empty string
+     */
+    private static String checkText(String name, String value) {
+        if (value == null || value.isBlank()) {
+            return "Invalid " + name + ". ";
+        }
+        if (value.length() > MAX_TEXT_LENGTH) {
+            return name + " is longer than " + MAX_TEXT_LENGTH + " characters. ";
+        }
+        return "";
+    }
+}
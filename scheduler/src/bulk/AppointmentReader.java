@@ -0,0 +1,25 @@
+package bulk;
+
+import model.AppointmentRecord;
+
+import java.io.Closeable;
+import java.io.IOException;
+
+/**
+ * Reads appointment records one at a time from an import file
+ * @author Derek Brown
+ */
+public interface AppointmentReader extends Closeable {
+    /**
+     * reads the next record
+     * @return the record, or null at the end of the file
+     * @throws IOException if the file can't be read
+     * @throws IllegalArgumentException if the row is malformed - the reader moves past it, so reading can carry on
+     */
+    AppointmentRecord read() throws IOException;
+
+    /**
+     * @return the line the last record read started on, for error messages
+     */
+    long getLineNumber();
+}
@@ -0,0 +1,19 @@
+package bulk;
+
+import model.AppointmentRecord;
+
+import java.io.Closeable;
+import java.io.IOException;
+
+/**
+ * Writes appointment records one at a time to an export file
+ * @author Derek Brown
+ */
+public interface AppointmentWriter extends Closeable {
+    /**
+     * writes a record
+     * @param record the record to write
+     * @throws IOException if the file can't be written
+     */
+    void write(AppointmentRecord record) throws IOException;
+}
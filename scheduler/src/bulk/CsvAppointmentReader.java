@@ -0,0 +1,171 @@
+package bulk;
+
+import model.AppointmentRecord;
+
+import java.io.IOException;
+import java.io.Reader;
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+
+/**
+ * Reads appointment records from CSV (RFC 4180 - quoted fields may hold commas, quotes and line breaks).
+ * The first row names the columns, matched to the field names without regard to case, so the columns can be in any
+ * order and unknown columns are ignored
+ * @author Derek Brown
+ */
+public class CsvAppointmentReader implements AppointmentReader {
+    /**
+     * the file being read
+     */
+    private final Reader in;
+    /**
+     * the field name of each column, or null for a column that is ignored
+     */
+    private final String[] columns;
+    /**
+     * the characters of the field being read
+     */
+    private final StringBuilder field = new StringBuilder();
+    /**
+     * a character read ahead and pushed back, or -2 if none
+     */
+    private int pushedBack = -2;
+    /**
+     * the line the reader is on
+     */
+    private long line = 1;
+    /**
+     * the line the last record started on
+     */
+    private long recordLine;
+
+    /**
+     * constructor - reads the header row
+     * @param in the file to read, buffered by the caller
+     * @throws IOException if the file can't be read or has no header row
+     */
+    public CsvAppointmentReader(Reader in) throws IOException {
+        this.in = in;
+        List<String> header = readRow();
+        if (header == null) {
+            throw new IOException("CSV file has no header row");
+        }
+        columns = new String[header.size()];
+        for (int i = 0; i < columns.length; i++) {
+            for (String name : RecordFields.NAMES) {
+                if (name.equalsIgnoreCase(header.get(i).trim())) {
+                    columns[i] = name;
+                }
+            }
+        }
+    }
+
+    @Override
+    public AppointmentRecord read() throws IOException {
+        List<String> row = readRow();
+        while (row != null && row.size() == 1 && row.get(0).isEmpty()) {
+            row = readRow();
+        }
+        if (row == null) {
+            return null;
+        }
+        Map<String, String> fields = new HashMap<>();
+        for (int i = 0; i < row.size() && i < columns.length; i++) {
+            if (columns[i] != null) {
+                fields.put(columns[i], row.get(i));
+            }
+        }
+        return RecordFields.fromFields(fields);
+    }
+
+    @Override
+    public long getLineNumber() {
+        return recordLine;
+    }
+
+    @Override
+    public void close() throws IOException {
+        in.close();
+    }
+
+    /**
+     * reads one row
+     * @return the row's fields, or null at the end of the file
+     * @throws IOException if the file can't be read
+     */
+    private List<String> readRow() throws IOException {
+        int c = next();
+        if (c == -1) {
+            return null;
+        }
+        recordLine = line;
+        List<String> row = new ArrayList<>(RecordFields.NAMES.length);
+        field.setLength(0);
+        boolean quoted = false;
+        while (true) {
+            if (quoted) {
+                if (c == -1) {
+                    throw new IOException("Unterminated quoted field starting on line " + recordLine);
+                }
+                if (c == '"') {
+                    int following = next();
+                    if (following == '"') {
+                        field.append('"');
+                    }
+                    else {
+                        quoted = false;
+                        c = following;
+                        continue;
+                    }
+                }
+                else {
+                    field.append((char) c);
+                }
+            }
+            else if (c == '"' && field.length() == 0) {
+                quoted = true;
+            }
+            else if (c == ',') {
+                row.add(field.toString());
+                field.setLength(0);
+            }
+            else if (c == '\r' || c == '\n' || c == -1) {
+                if (c == '\r') {
+                    int following = next();
+                    if (following != '\n') {
+                        //a bare carriage return ends the line on its own
+                        pushedBack = following;
+                        line++;
+                    }
+                }
+                row.add(field.toString());
+                return row;
+            }
+            else {
+                field.append((char) c);
+            }
+            c = next();
+        }
+    }
+
+    /**
+     * @return the next character, or -1 at the end of the file
+     * @throws IOException if the file can't be read
+     */
+    private int next() throws IOException {
+        int c;
+        if (pushedBack != -2) {
+            c = pushedBack;
+            pushedBack = -2;
+        }
+        else {
+            c = in.read();
+        }
+        if (c == '\n') {
+            line++;
+        }
+        return c;
+    }
+}
@@ -0,0 +1,68 @@
+package bulk;
+
+import model.AppointmentRecord;
+
+import java.io.IOException;
+import java.io.Writer;
+
+/**
+ * Writes appointment records as CSV with a header row, quoting fields only when they need it
+ * @author Derek Brown
+ */
+public class CsvAppointmentWriter implements AppointmentWriter {
+    /**
+     * the file being written
+     */
+    private final Writer out;
+
+    /**
+     * constructor - writes the header row
+     * @param out the file to write, buffered by the caller
+     * @throws IOException if the file can't be written
+     */
+    public CsvAppointmentWriter(Writer out) throws IOException {
+        this.out = out;
+        writeRow(RecordFields.NAMES);
+    }
+
+    @Override
+    public void write(AppointmentRecord record) throws IOException {
+        writeRow(RecordFields.toFields(record));
+    }
+
+    @Override
+    public void close() throws IOException {
+        out.close();
+    }
+
+    /**
+     * writes one row
+     * @param fields the row's fields - null is written as an empty field
+     * @throws IOException if the file can't be written
+     */
+    private void writeRow(String[] fields) throws IOException {
+        for (int i = 0; i < fields.length; i++) {
+            if (i > 0) {
+                out.write(',');
+            }
+            String field = fields[i];
+            if (field == null) {
+                continue;
+            }
+            boolean quote = false;
+            for (int j = 0; j < field.length() && !quote; j++) {
+                char c = field.charAt(j);
+                quote = c == ',' || c == '"' || c == '\n' || c == '\r';
+            }
+            if (quote) {
+                out.write('"');
+                out.write(field.replace("\"", "\"\""));
+                out.write('"');
+            }
+            else {
+                out.write(field);
+            }
+        }
+        out.write("\r\n");
+    }
+}
@@ -0,0 +1,216 @@
+package bulk;
+
+import model.AppointmentRecord;
+
+import java.io.BufferedReader;
+import java.io.IOException;
+import java.util.HashMap;
+import java.util.Map;
+
+/**
+ * Reads appointment records from newline-delimited JSON - one flat object per line, keyed by the field names.
+ * Values may be strings, numbers or null; blank lines are skipped
+ * @author Derek Brown
+ */
+public class NdjsonAppointmentReader implements AppointmentReader {
+    /**
+     * the file being read
+     */
+    private final BufferedReader in;
+    /**
+     * the line the reader is on
+     */
+    private long line;
+    /**
+     * the line being parsed
+     */
+    private String text;
+    /**
+     * position in the line being parsed
+     */
+    private int position;
+
+    /**
+     * constructor
+     * @param in the file to read
+     */
+    public NdjsonAppointmentReader(BufferedReader in) {
+        this.in = in;
+    }
+
+    @Override
+    public AppointmentRecord read() throws IOException {
+        do {
+            text = in.readLine();
+            line++;
+        } while (text != null && text.isBlank());
+        if (text == null) {
+            return null;
+        }
+        position = 0;
+        return RecordFields.fromFields(parseObject());
+    }
+
+    @Override
+    public long getLineNumber() {
+        return line;
+    }
+
+    @Override
+    public void close() throws IOException {
+        in.close();
+    }
+
+    /**
+     * parses the line as a flat JSON object
+     * @return the object's values by key - numbers keep their text, null values are left out
+     * @throws IllegalArgumentException if the line isn't a flat JSON object
+     */
+    private Map<String, String> parseObject() {
+        Map<String, String> fields = new HashMap<>();
+        expect('{');
+        if (peek() == '}') {
+            position++;
+        }
+        else {
+            while (true) {
+                String key = parseString();
+                expect(':');
+                String value = parseValue();
+                if (value != null) {
+                    fields.put(key, value);
+                }
+                char c = nextToken();
+                if (c == '}') {
+                    break;
+                }
+                if (c != ',') {
+                    throw malformed();
+                }
+            }
+        }
+        if (peek() != 0) {
+            throw malformed();
+        }
+        return fields;
+    }
+
+    /**
+     * @return the value at the current position as text, or null for a JSON null
+     * @throws IllegalArgumentException if the value is an object, an array or malformed
+     */
+    private String parseValue() {
+        char c = peek();
+        if (c == '"') {
+            return parseString();
+        }
+        int start = position;
+        while (position < text.length() && ",}] \t".indexOf(text.charAt(position)) < 0) {
+            position++;
+        }
+        String literal = text.substring(start, position);
+        if (literal.equals("null")) {
+            return null;
+        }
+        if (literal.isEmpty() || c == '{' || c == '[') {
+            throw malformed();
+        }
+        return literal;
+    }
+
+    /**
+     * @return the string at the current position, unescaped
+     * @throws IllegalArgumentException if there is no string or it is unterminated
+     */
+    private String parseString() {
+        expect('"');
+        StringBuilder value = new StringBuilder();
+        while (position < text.length()) {
+            char c = text.charAt(position++);
+            if (c == '"') {
+                return value.toString();
+            }
+            if (c != '\\') {
+                value.append(c);
+                continue;
+            }
+            if (position >= text.length()) {
+                break;
+            }
+            char escaped = text.charAt(position++);
+            switch (escaped) {
+                case 'n':
+                    value.append('\n');
+                    break;
+                case 'r':
+                    value.append('\r');
+                    break;
+                case 't':
+                    value.append('\t');
+                    break;
+                case 'b':
+                    value.append('\b');
+                    break;
+                case 'f':
+                    value.append('\f');
+                    break;
+                case 'u':
+                    if (position + 4 > text.length()) {
+                        throw malformed();
+                    }
+                    try {
+                        value.append((char) Integer.parseInt(text.substring(position, position + 4), 16));
+                    } catch (NumberFormatException e) {
+                        throw malformed();
+                    }
+                    position += 4;
+                    break;
+                default:
+                    value.append(escaped);
+                    break;
+            }
+        }
+        throw malformed();
+    }
+
+    /**
+     * skips whitespace and consumes the expected character
+     * @param expected the character that must come next
+     * @throws IllegalArgumentException if a different character comes next
+     */
+    private void expect(char expected) {
+        if (nextToken() != expected) {
+            throw malformed();
+        }
+    }
+
+    /**
+     * skips whitespace and consumes the next character
+     * @return the character, or 0 at the end of the line
+     */
+    private char nextToken() {
+        char c = peek();
+        if (c != 0) {
+            position++;
+        }
+        return c;
+    }
+
+    /**
+     * skips whitespace
+     * @return the next character without consuming it, or 0 at the end of the line
+     */
+    private char peek() {
+        while (position < text.length() && Character.isWhitespace(text.charAt(position))) {
+            position++;
+        }
+        return position < text.length() ? text.charAt(position) : 0;
+    }
+
+    /**
+     * @return the error for a line that isn't a flat JSON object
+     */
+    private IllegalArgumentException malformed() {
+        return new IllegalArgumentException("Malformed JSON at column " + (position + 1));
+    }
+}
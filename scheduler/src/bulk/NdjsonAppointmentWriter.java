@@ -0,0 +1,99 @@
+package bulk;
+
+import model.AppointmentRecord;
+
+import java.io.IOException;
+import java.io.Writer;
+
+/**
+ * Writes appointment records as newline-delimited JSON, one object per line
+ * @author Derek Brown
+ */
+public class NdjsonAppointmentWriter implements AppointmentWriter {
+    /**
+     * fields written as JSON numbers rather than strings
+     */
+    private static final boolean[] NUMERIC = {true, false, false, false, false, false, false, true, true, true};
+    /**
+     * the file being written
+     */
+    private final Writer out;
+    /**
+     * the line being built
+     */
+    private final StringBuilder line = new StringBuilder(256);
+
+    /**
+     * constructor
+     * @param out the file to write, buffered by the caller
+     */
+    public NdjsonAppointmentWriter(Writer out) {
+        this.out = out;
+    }
+
+    @Override
+    public void write(AppointmentRecord record) throws IOException {
+        String[] fields = RecordFields.toFields(record);
+        line.setLength(0);
+        line.append('{');
+        for (int i = 0; i < fields.length; i++) {
+            if (i > 0) {
+                line.append(',');
+            }
+            line.append('"').append(RecordFields.NAMES[i]).append("\":");
+            if (fields[i] == null) {
+                line.append("null");
+            }
+            else if (NUMERIC[i]) {
+                line.append(fields[i]);
+            }
+            else {
+                appendString(fields[i]);
+            }
+        }
+        line.append("}\n");
+        out.append(line);
+    }
+
+    @Override
+    public void close() throws IOException {
+        out.close();
+    }
+
+    /**
+     * appends a JSON string, escaping quotes, backslashes and control characters
+     * @param value the string
+     */
+    private void appendString(String value) {
+        line.append('"');
+        for (int i = 0; i < value.length(); i++) {
+            char c = value.charAt(i);
+            switch (c) {
+                case '"':
+                    line.append("\\\"");
+                    break;
+                case '\\':
+                    line.append("\\\\");
+                    break;
+                case '\n':
+                    line.append("\\n");
+                    break;
+                case '\r':
+                    line.append("\\r");
+                    break;
+                case '\t':
+                    line.append("\\t");
+                    break;
+                default:
+                    if (c < 0x20) {
+                        line.append(String.format("\\u%04x", (int) c));
+                    }
+                    else {
+                        line.append(c);
+                    }
+                    break;
+            }
+        }
+        line.append('"');
+    }
+}
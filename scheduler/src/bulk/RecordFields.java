@@ -0,0 +1,108 @@
+package bulk;
+
+import model.AppointmentRecord;
+import util.TimeService;
+
+import java.time.LocalDateTime;
+import java.time.format.DateTimeParseException;
+import java.util.Map;
+
+/**
+ * Converts appointment records to and from the named text fields shared by every file format.
+ * Times are written as "yyyy-MM-dd HH:mm:ss" in UTC, the way the database stores them
+ * @author Derek Brown
+ */
+class RecordFields {
+    /**
+     * the field names, in the order they are written
+     */
+    static final String[] NAMES = {"Appointment_ID", "Title", "Description", "Location", "Type", "Start", "End",
+            "Customer_ID", "User_ID", "Contact_ID"};
+
+    /**
+     * @param record the record
+     * @return the record's fields in the order of NAMES
+     */
+    static String[] toFields(AppointmentRecord record) {
+        return new String[]{
+                Integer.toString(record.getAppointmentID()),
+                record.getTitle(),
+                record.getDescription(),
+                record.getLocation(),
+                record.getType(),
+                record.getStart() == null ? null : record.getStart().format(TimeService.DATE_TIME_FORMATTER),
+                record.getEnd() == null ? null : record.getEnd().format(TimeService.DATE_TIME_FORMATTER),
+                Integer.toString(record.getCustomerID()),
+                Integer.toString(record.getUserID()),
+                Integer.toString(record.getContactID())
+        };
+    }
+
+    /**
+     * builds a record from named fields. Appointment_ID is optional - a new appointment is assumed without it
+     * @param fields field values by name
+     * @return the record
+     * @throws IllegalArgumentException if a field is missing or can't be parsed
+     */
+    static AppointmentRecord fromFields(Map<String, String> fields) {
+        String appointmentID = fields.get("Appointment_ID");
+        return new AppointmentRecord(
+                appointmentID == null || appointmentID.isEmpty() ? -1 : parseInt(fields, "Appointment_ID"),
+                fields.get("Title"),
+                fields.get("Description"),
+                fields.get("Location"),
+                fields.get("Type"),
+                parseTime(fields, "Start"),
+                parseTime(fields, "End"),
+                parseInt(fields, "Customer_ID"),
+                parseInt(fields, "User_ID"),
+                parseInt(fields, "Contact_ID"));
+    }
+
+    /**
+     * @param fields field values by name
+     * @param name the field to parse
+     * @return the field as an int
+     * @throws IllegalArgumentException if the field is missing or not a number
+     */
+    private static int parseInt(Map<String, String> fields, String name) {
+        String value = required(fields, name);
+        try {
+            return Integer.parseInt(value.trim());
+        } catch (NumberFormatException e) {
+            throw new IllegalArgumentException("Invalid " + name + " \"" + value + "\"");
+        }
+    }
+
+    /**
+     * @param fields field values by name
+     * @param name the field to parse
+     * @return the field as a UTC time - "yyyy-MM-dd HH:mm:ss" or ISO-8601
+     * @throws IllegalArgumentException if the field is missing or not a time
+     */
+    private static LocalDateTime parseTime(Map<String, String> fields, String name) {
+        String value = required(fields, name).trim();
+        try {
+            if (value.indexOf('T') > 0) {
+                return LocalDateTime.parse(value);
+            }
+            return LocalDateTime.parse(value, TimeService.DATE_TIME_FORMATTER);
+        } catch (DateTimeParseException e) {
+            throw new IllegalArgumentException("Invalid " + name + " \"" + value + "\"");
+        }
+    }
+
+    /**
+     * @param fields field values by name
+     * @param name the field to read
+     * @return the field's value
+     * @throws IllegalArgumentException if the field is missing or empty
+     */
+    private static String required(Map<String, String> fields, String name) {
+        String value = fields.get(name);
+        if (value == null || value.isBlank()) {
+            throw new IllegalArgumentException("Missing " + name);
+        }
+        return value;
+    }
+}
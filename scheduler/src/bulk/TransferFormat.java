@@ -0,0 +1,54 @@
+package bulk;
+
+import java.io.BufferedReader;
+import java.io.IOException;
+import java.io.Writer;
+
+/**
+ * The file formats appointments can be imported from and exported to
+ * @author Derek Brown
+ */
+public enum TransferFormat {
+    /**
+     * comma separated values with a header row
+     */
+    CSV,
+    /**
+     * newline-delimited JSON, one object per line
+     */
+    NDJSON;
+
+    /**
+     * @param in the file to read
+     * @return a reader for this format
+     * @throws IOException if the file can't be read
+     */
+    public AppointmentReader openReader(BufferedReader in) throws IOException {
+        return this == CSV ? new CsvAppointmentReader(in) : new NdjsonAppointmentReader(in);
+    }
+
+    /**
+     * @param out the file to write, buffered by the caller
+     * @return a writer for this format
+     * @throws IOException if the file can't be written
+     */
+    public AppointmentWriter openWriter(Writer out) throws IOException {
+        return this == CSV ? new CsvAppointmentWriter(out) : new NdjsonAppointmentWriter(out);
+    }
+
+    /**
+     * picks the format from a file name's extension (.csv, or .ndjson/.jsonl/.json)
+     * @param fileName the file name
+     * @return the format, or null if the extension isn't recognised
+     */
+    public static TransferFormat fromFileName(String fileName) {
+        String lower = fileName.toLowerCase();
+        if (lower.endsWith(".csv")) {
+            return CSV;
+        }
+        if (lower.endsWith(".ndjson") || lower.endsWith(".jsonl") || lower.endsWith(".json")) {
+            return NDJSON;
+        }
+        return null;
+    }
+}
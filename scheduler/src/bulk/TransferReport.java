@@ -0,0 +1,141 @@
+package bulk;
+
+import java.util.ArrayList;
+import java.util.List;
+
+/**
+ * Counts and timing for one import or export run, with the reasons rows were rejected
+ * @author Derek Brown
+ */
+public class TransferReport {
+    /**
+     * the most rejection messages kept - the count keeps going past it
+     */
+    public static final int MAX_REJECTIONS_KEPT = 100;
+    /**
+     * rows read from the source
+     */
+    private long read;
+    /**
+     * rows written to the destination
+     */
+    private long written;
+    /**
+     * rows rejected by validation
+     */
+    private long rejected;
+    /**
+     * the first MAX_REJECTIONS_KEPT rejection messages
+     */
+    private final List<String> rejections = new ArrayList<>();
+    /**
+     * why the run stopped early, or null if it ran to the end
+     */
+    private String failure;
+    /**
+     * System.nanoTime() when the run started
+     */
+    private final long startNanos = System.nanoTime();
+    /**
+     * how long the run took, set when it finishes
+     */
+    private long elapsedNanos = -1;
+
+    /**
+     * counts a row read from the source
+     */
+    void rowRead() {
+        read++;
+    }
+
+    /**
+     * @param rows the number of rows written to the destination
+     */
+    void rowsWritten(long rows) {
+        written += rows;
+    }
+
+    /**
+     * counts a rejected row
+     * @param line the line the row started on
+     * @param reason why it was rejected
+     */
+    void rowRejected(long line, String reason) {
+        rejected++;
+        if (rejections.size() < MAX_REJECTIONS_KEPT) {
+            rejections.add("line " + line + ": " + reason);
+        }
+    }
+
+    /**
+     * records why the run stopped early
+     * @param failure the reason
+     */
+    void failed(String failure) {
+        this.failure = failure;
+    }
+
+    /**
+     * stops the clock
+     */
+    void finish() {
+        elapsedNanos = System.nanoTime() - startNanos;
+    }
+
+    /**
+     * @return rows read from the source
+     */
+    public long getRead() {
+        return read;
+    }
+
+    /**
+     * @return rows written to the destination
+     */
+    public long getWritten() {
+        return written;
+    }
+
+    /**
+     * @return rows rejected by validation
+     */
+    public long getRejected() {
+        return rejected;
+    }
+
+    /**
+     * @return the first MAX_REJECTIONS_KEPT rejection messages
+     */
+    public List<String> getRejections() {
+        return rejections;
+    }
+
+    /**
+     * @return why the run stopped early, or null if it ran to the end
+     */
+    public String getFailure() {
+        return failure;
+    }
+
+    /**
+     * @return how long the run took in milliseconds (so far, if it hasn't finished)
+     */
+    public long getElapsedMillis() {
+        return (elapsedNanos < 0 ? System.nanoTime() - startNanos : elapsedNanos) / 1_000_000;
+    }
+
+    /**
+     * @return rows read per second
+     */
+    public double getRowsPerSecond() {
+        long nanos = elapsedNanos < 0 ? System.nanoTime() - startNanos : elapsedNanos;
+        return nanos == 0 ? 0 : read * 1e9 / nanos;
+    }
+
+    @Override
+    public String toString() {
+        return String.format("%d read, %d written, %d rejected in %.2f s (%.0f rows/s)%s",
+                read, written, rejected, getElapsedMillis() / 1000.0, getRowsPerSecond(),
+                failure == null ? "" : " - stopped: " + failure);
+    }
+}
@@ -11,14 +11,17 @@ import javafx.scene.Scene;
 import javafx.scene.control.*;
 import javafx.scene.control.cell.PropertyValueFactory;
 import javafx.stage.Stage;
-import jdbc.DBConnection;
+import dao.AppointmentRepository;
+import metrics.Metrics;
 import model.Appointment;
+import util.BackgroundLoader;
+import util.PagedList;
+import util.TimeService;
 import java.io.IOException;
 import java.net.URL;
-import java.sql.PreparedStatement;
 import java.sql.SQLException;
 import java.time.LocalDateTime;
-import java.time.ZoneId;
+import java.util.List;
 import java.util.Objects;
 import java.util.ResourceBundle;
 
@@ -96,6 +99,11 @@ public class Appointments implements Initializable{
      * this label displays the time zone for start and end times
      */
     public Label timeMsg;
+    /**
+     * every appointment - read from Landing.fullAppointmentList once it has loaded, otherwise a page at a time
+     * as the table scrolls. Shown in the default view
+     */
+    private PagedList<Appointment> pagedAppointments;
 
     /**
      * Initializes the appointments controller
@@ -104,10 +112,11 @@ public class Appointments implements Initializable{
      */
     @Override
     public void initialize(URL url, ResourceBundle resourceBundle) {
+        BackgroundLoader.cancelScreenLoads();
         defaultViewBtn.setSelected(true);
         weekViewBtn.setSelected(false);
         monthViewBtn.setSelected(false);
-        timeMsg.setText("*Times in " + ZoneId.systemDefault() + " timezone");
+        timeMsg.setText("*Times in " + TimeService.LOCAL + " timezone");
 
         aptIDCol.setCellValueFactory(new PropertyValueFactory<>("appointmentID"));
         aptTitleCol.setCellValueFactory(new PropertyValueFactory<>("title"));
@@ -119,7 +128,13 @@ public class Appointments implements Initializable{
         aptEndCol.setCellValueFactory(new PropertyValueFactory<>("end"));
         aptCustIDCol.setCellValueFactory(new PropertyValueFactory<>("customerID"));
         aptUserIDCol.setCellValueFactory(new PropertyValueFactory<>("userID"));
-        aptsTable.setItems(Landing.fullAppointmentList);
+        pagedAppointments = new PagedList<>("appointments", AppointmentRepository.pageSource(), Landing.fullAppointmentList,
+                Landing::isAppointmentListLoaded);
+        aptsTable.setItems(pagedAppointments);
+        //the paged list can't be sorted in place, so the database sorts it - the week and month lists sort as usual
+        aptsTable.setSortPolicy(table -> aptsTable.getItems() == pagedAppointments
+                ? pagedAppointments.sort(aptsTable)
+                : TableView.DEFAULT_SORT_POLICY.call(aptsTable));
 
         errorMessage.setText("");
 
@@ -145,7 +160,7 @@ public class Appointments implements Initializable{
         errorMessage.setText("");
         AptDetails.appointment = null;
 
-        Parent root = FXMLLoader.load(Objects.requireNonNull(getClass().getResource("/view/AptDetails.fxml")));
+        Parent root = Metrics.time("screen.AptDetails", () -> FXMLLoader.load(Objects.requireNonNull(getClass().getResource("/view/AptDetails.fxml"))));
         Stage stage = (Stage) ((Node)actionEvent.getSource()).getScene().getWindow();
         stage.centerOnScreen();
         stage.setTitle("Create new Appointment");
@@ -160,10 +175,15 @@ public class Appointments implements Initializable{
      */
     public void modAppointment(ActionEvent actionEvent) throws IOException {
         if (aptsTable.getSelectionModel().getSelectedIndex() > -1){
+            //a row whose page hasn't arrived yet has no appointment
+            if (aptsTable.getSelectionModel().getSelectedItem() == null){
+                errorMessage.setText("Appointment is still loading - try again in a moment");
+                return;
+            }
             errorMessage.setText("");
             AptDetails.appointment = (Appointment) aptsTable.getSelectionModel().getSelectedItem();
 
-            Parent root = FXMLLoader.load(Objects.requireNonNull(getClass().getResource("/view/AptDetails.fxml")));
+            Parent root = Metrics.time("screen.AptDetails", () -> FXMLLoader.load(Objects.requireNonNull(getClass().getResource("/view/AptDetails.fxml"))));
             Stage stage = (Stage) ((Node)actionEvent.getSource()).getScene().getWindow();
             stage.centerOnScreen();
             stage.setTitle("Modify Appointment");
@@ -189,14 +209,12 @@ public class Appointments implements Initializable{
             if (aptsTable.getSelectionModel().getSelectedItem() != null){
                 Appointment selectedAppointment = ((Appointment) aptsTable.getSelectionModel().getSelectedItem());
 
-                PreparedStatement preparedStatement = DBConnection.connection.prepareStatement("delete from appointments where Appointment_ID = ?;");
-
-                preparedStatement.setString(1, Integer.toString(selectedAppointment.getAppointmentID()));
-                preparedStatement.executeUpdate();
+                AppointmentRepository.delete(selectedAppointment.getAppointmentID());
 
                 errorMessage.setText("Appointment cancelled:\nAppointment ID: " + selectedAppointment.getAppointmentID() + " - " + selectedAppointment.getType());
-                Landing.fullAppointmentList.remove(selectedAppointment);
-                aptsTable.setItems(Landing.fullAppointmentList);
+                Landing.removeAppointments(List.of(selectedAppointment.getAppointmentID()));
+                pagedAppointments.refresh();
+                aptsTable.setItems(pagedAppointments);
 
                 aptsTable.getSelectionModel().selectFirst();
 
@@ -219,21 +237,14 @@ public class Appointments implements Initializable{
         login.exitProgram();
     }
     /**
-     * sets the table to month view - showing all appointments within 1 week of current date
+     * sets the table to week view - showing all appointments within 1 week of current date
      */
     public void weekView() {
         errorMessage.setText("");
         monthViewBtn.setSelected(false);
         defaultViewBtn.setSelected(false);
-        aptsList = FXCollections.observableArrayList();
-
-        for (Appointment appointment : Landing.fullAppointmentList){
-            if (appointment.getStart().isAfter(LocalDateTime.now()) && appointment.getStart().isBefore(LocalDateTime.now().plusWeeks(1))){
-                aptsList.add(appointment);
-            }
-        }
-
-        aptsTable.setItems(aptsList);
+        LocalDateTime now = LocalDateTime.now();
+        showStartingBetween(now, now.plusWeeks(1));
     }
     /**
      * sets the table to month view - showing all appointments within 1 month of current date
@@ -242,15 +253,29 @@ public class Appointments implements Initializable{
         errorMessage.setText("");
         weekViewBtn.setSelected(false);
         defaultViewBtn.setSelected(false);
-        aptsList = FXCollections.observableArrayList();
+        LocalDateTime now = LocalDateTime.now();
+        showStartingBetween(now, now.plusMonths(1));
+    }
 
-        for (Appointment appointment : Landing.fullAppointmentList){
-            if (appointment.getStart().isAfter(LocalDateTime.now()) && appointment.getStart().isBefore(LocalDateTime.now().plusMonths(1))){
-                aptsList.add(appointment);
+    /**
+     * shows the appointments starting inside a time window - a range lookup in the start time index,
+     * or a query on the Start column while the appointment list is still loading
+     * @param from the start of the window (exclusive)
+     * @param to the end of the window (exclusive)
+     */
+    private void showStartingBetween(LocalDateTime from, LocalDateTime to) {
+        if (Landing.isAppointmentListLoaded()) {
+            aptsList = FXCollections.observableArrayList();
+            for (int appointmentID : Landing.appointmentsByStart.findStartingBetween(from, to)) {
+                aptsList.add(Landing.fullAppointmentList.getByID(appointmentID));
             }
+            aptsTable.setItems(aptsList);
+            return;
         }
-
+        aptsList = FXCollections.observableArrayList();
         aptsTable.setItems(aptsList);
+        BackgroundLoader.loadForScreen("appointments.window", () -> AppointmentRepository.findStartingBetween(from, to),
+                appointments -> aptsList.setAll(appointments), "Unable to load appointments for the selected view");
     }
 
     /**
@@ -260,7 +285,7 @@ public class Appointments implements Initializable{
         errorMessage.setText("");
         monthViewBtn.setSelected(false);
         weekViewBtn.setSelected(false);
-        aptsTable.setItems(Landing.fullAppointmentList);
+        aptsTable.setItems(pagedAppointments);
     }
 
 }
@@ -6,14 +6,21 @@ import javafx.collections.ObservableList;
 import javafx.event.ActionEvent;
 import javafx.fxml.Initializable;
 import javafx.scene.control.*;
-import jdbc.DBConnection;
+import dao.AppointmentRepository;
 import model.Appointment;
+import model.AppointmentRecord;
+import model.AvailabilityFinder;
+import model.LookupCache;
+import util.BackgroundLoader;
+import util.SlotTable;
+import util.TimeService;
 
 import java.io.IOException;
 import java.net.URL;
-import java.sql.*;
+import java.sql.SQLException;
 import java.time.*;
-import java.time.format.DateTimeFormatter;
+import java.util.ArrayList;
+import java.util.List;
 import java.util.ResourceBundle;
 import java.util.concurrent.TimeUnit;
 
@@ -27,38 +34,13 @@ public class AptDetails implements Initializable {
      */
     public static Appointment appointment;
     /**
-     * String format for use with DateTimeFormatter class to format the start and end times
+     * the business hour slots for the selected date, in the user's time zone
      */
-    public final String TIME_FORMAT = "HH:mm:ss";
+    private SlotTable slots;
     /**
-     * String format for use with DateTimeFormatter class to format the start and end date and times
+     * the end times offered for the selected start time, in the user's time zone
      */
-    public final String DATE_TIME_FORMAT = "yyyy-MM-dd HH:mm:ss";
-    /**
-     * This is the utc time zone ID for use in time zone conversions
-     */
-    public final ZoneId utcZoneID = ZoneId.of("UTC");
-    /**
-     * This is the eastern US time zone ID for use in time zone conversions
-     */
-    public final ZoneId etZoneID = ZoneId.of("US/Eastern");
-    /**
-     * this holds the ET values for the start times
-     */
-    public ObservableList <String> hoursList = FXCollections.observableArrayList();
-
-    /**
-     * this holds the ET values for the end times
-     */
-    public ObservableList <String> endHoursList = FXCollections.observableArrayList();
-    /**
-     * Stores localTimes after converting start times from hoursList to the user's time zone
-     */
-    public ObservableList <String> hoursUpdatedList = FXCollections.observableArrayList();
-    /**
-     * Stores localTimes after converting end times from endHoursList to the user's time zone
-     */
-    public ObservableList <String> endHoursUpdatedList = FXCollections.observableArrayList();
+    private List<LocalDateTime> endTimes = new ArrayList<>();
 
     /**
      * Set to true if updating an existing appointment
@@ -135,22 +117,21 @@ public class AptDetails implements Initializable {
      * @param resourceBundle not used in this controller, but required for method
      */
     public void initialize(URL url, ResourceBundle resourceBundle) {
+        BackgroundLoader.cancelScreenLoads();
         update = false;
         endLabel.setText("");
         errorMessage.setText("");
-        startTimeLabel.setText("Start Time (" + ZoneId.systemDefault() + " time)");
+        startTimeLabel.setText("Start Time (" + TimeService.LOCAL + " time)");
 
-        populateTimeCB();
-        populateContactCB();
-        populateUserCB();
-        populateCustomerCB();
+        populateTimeCB(appointment != null ? appointment.getStart().toLocalDate() : LocalDate.now());
+        populateIDCBs();
 
         //set the appointment if applicable
         if (appointment != null){
             update = true;
 
-            String startTime = (appointment.getStart().toLocalTime().format(DateTimeFormatter.ofPattern(TIME_FORMAT)));
-            String endTime = (appointment.getEnd().toLocalTime().format(DateTimeFormatter.ofPattern(TIME_FORMAT)));
+            String startTime = TimeService.formatTime(appointment.getStart());
+            String endTime = TimeService.formatTime(appointment.getEnd());
 
             appointmentIDField.setText(Integer.toString(appointment.getAppointmentID()));
             userIDCB.setValue(appointment.getUserID());
@@ -162,107 +143,89 @@ public class AptDetails implements Initializable {
             custIDCB.setValue(appointment.getCustomerID());
             datePickerField.setValue(appointment.getStart().toLocalDate());
             startTimeCB.setValue(startTime);
-            endTimeCB.setValue(endTime);
             endTimeCB.setItems(filteredEndTimes());
+            endTimeCB.setValue(endTime);
         }
         //lambda function used to filter the end time combobox quickly
         /**
          * Lambda method here to implement a change listener for effective and quick filtering of the endTimeCB combobox
          */
         startTimeCB.valueProperty().addListener((ChangeListener<String>) (observableValue, o, t1) -> endTimeCB.setItems(filteredEndTimes()));
+        /**
+         * Lambda method here to rebuild the time slots for the new date, since DST can move them
+         */
+        datePickerField.valueProperty().addListener((ChangeListener<LocalDate>) (observableValue, o, t1) -> {
+            if (t1 != null) {
+                populateTimeCB(t1);
+            }
+        });
 
     }
 
+    /**
+     * gets the end times for the selected start time - from the slot after it to the close of business
+     * @return the end times as HH:mm:ss
+     */
     private ObservableList filteredEndTimes() {
-        ObservableList <String> filteredEndTimes = FXCollections.observableArrayList();
         int startIndex = startTimeCB.getSelectionModel().getSelectedIndex();
-        for (int i = 0; i < endHoursUpdatedList.size(); i++){
-            if (i >= startIndex){
-                filteredEndTimes.add(endHoursUpdatedList.get(i));
-            }
+        if (startIndex < 0 || slots == null){
+            endTimes = new ArrayList<>();
+            return FXCollections.observableArrayList();
         }
-        return filteredEndTimes;
+        endTimes = slots.getEnds(startIndex);
+        return FXCollections.observableArrayList(slots.getEndLabels(startIndex));
     }
 
     /**
-     * Populates the customer ID combobox
+     * Populates the customer, user and contact ID comboboxes from the shared LookupCache - straight away if it is
+     * already loaded, otherwise after loading it in the background
      */
-    private void populateCustomerCB() {
-        try{
-            PreparedStatement preparedStatement = DBConnection.connection.prepareStatement("select Customer_ID from customers order by Customer_ID asc;");
-            ResultSet resultSet = preparedStatement.executeQuery();
-            ObservableList <Integer> custIDList = FXCollections.observableArrayList();
-            while(resultSet.next()){
-                custIDList.add(resultSet.getInt("Customer_ID"));
-            }
-            custIDCB.setItems(custIDList);
-        } catch (SQLException e){
-            System.out.println("Could not import Customer ID list");
+    private void populateIDCBs() {
+        LookupCache.Lookups lookups = LookupCache.current();
+        if (lookups != null) {
+            setIDItems(lookups);
+        }
+        else {
+            BackgroundLoader.loadForScreen("aptDetails.lookups", LookupCache::load, this::setIDItems,
+                    "Could not import Customer, user and contact ID lists");
         }
     }
+
     /**
-     * Populates the user ID combobox
+     * sets the ID comboboxes' items to the shared lists
+     * @param lookups the lookup lists
      */
-    private void populateUserCB() {
-        try{
-            PreparedStatement preparedStatement = DBConnection.connection.prepareStatement("select User_ID from users order by User_ID asc;");
-            ResultSet resultSet = preparedStatement.executeQuery();
-            ObservableList <Integer> userIDList = FXCollections.observableArrayList();
-            while(resultSet.next()){
-                userIDList.add(resultSet.getInt("User_ID"));
-            }
-            userIDCB.setItems(userIDList);
-        } catch (SQLException e){
-            System.out.println("Could not import user ID list");
-        }
+    private void setIDItems(LookupCache.Lookups lookups) {
+        setItemsKeepingValue(custIDCB, lookups.getCustomerIDs());
+        setItemsKeepingValue(userIDCB, lookups.getUserIDs());
+        setItemsKeepingValue(contactCB, lookups.getContactIDs());
     }
+
     /**
-     * Populates the contact ID combobox
+     * sets a combobox's items without losing a value that was set while they were loading
+     * @param comboBox the combobox
+     * @param items the loaded items
      */
-    private void populateContactCB() {
-        try {
-            PreparedStatement preparedStatement = DBConnection.connection.prepareStatement("select Contact_ID from contacts order by Contact_ID asc;");
-            ResultSet resultSet = preparedStatement.executeQuery();
-            ObservableList <Integer> contactIDList = FXCollections.observableArrayList();
-            while(resultSet.next()){
-                contactIDList.add(resultSet.getInt("Contact_ID"));
-            }
-            contactCB.setItems(contactIDList);
-
-        } catch (SQLException e) {
-            System.out.println("Could not import contact ID list");
-        }
+    private static void setItemsKeepingValue(ComboBox comboBox, ObservableList<Integer> items) {
+        Object value = comboBox.getValue();
+        comboBox.setItems(items);
+        comboBox.setValue(value);
     }
 
     /**
-     * Populates the start and end time comboboxes - in local time
+     * Populates the start and end time comboboxes - in local time, for the business hours on the given date.
+     * The selected start and end times are kept if they're still offered on the new date
+     * @param date the appointment date in the user's time zone
      */
-    private void populateTimeCB() {
-        //this will convert the hours and endHours lists to local time
-        LocalTime localTime = LocalTime.of(8, 0, 0);
-        while(!localTime.equals(LocalTime.of(22, 0, 0))){
-            hoursList.add(localTime.format(DateTimeFormatter.ofPattern(TIME_FORMAT)));
-            localTime = localTime.plusMinutes(30);
-        }
-        endHoursList = FXCollections.observableArrayList(hoursList);
-        endHoursList.remove(0);
-        endHoursList.add("22:00:00");
-
-        ZonedDateTime zonedDateTime;
+    private void populateTimeCB(LocalDate date) {
+        Object startTime = startTimeCB.getValue();
+        Object endTime = endTimeCB.getValue();
+        slots = TimeService.slotsFor(date);
 
-        for (String time : hoursList){
-            LocalDateTime localDateTime = LocalDateTime.parse("2000-01-01 " + time, DateTimeFormatter.ofPattern(DATE_TIME_FORMAT));
-            zonedDateTime = localDateTime.atZone(etZoneID).withZoneSameInstant(ZoneId.systemDefault());
-            hoursUpdatedList.add(zonedDateTime.toLocalTime().format(DateTimeFormatter.ofPattern(TIME_FORMAT)));
-        }
-        for (String time : endHoursList){
-            LocalDateTime localDateTime = LocalDateTime.parse("2000-01-01 " + time, DateTimeFormatter.ofPattern(DATE_TIME_FORMAT));
-            zonedDateTime = localDateTime.atZone(etZoneID).withZoneSameInstant(ZoneId.systemDefault());
-            endHoursUpdatedList.add(zonedDateTime.toLocalTime().format(DateTimeFormatter.ofPattern(TIME_FORMAT)));
-        }
-
-        startTimeCB.setItems(hoursUpdatedList);
-        endTimeCB.setItems(endHoursUpdatedList);
+        startTimeCB.setItems(FXCollections.observableArrayList(slots.getStartLabels()));
+        startTimeCB.setValue(startTime);
+        endTimeCB.setItems(filteredEndTimes());
+        endTimeCB.setValue(endTime);
 
     }
 
@@ -311,66 +274,31 @@ public class AptDetails implements Initializable {
         if (datePickerField.getValue() == null ){
             errorList += "Invalid Date. ";
         }
-        if (startTimeCB.getValue() == null){
+        //the times come from the slot table for the date, so they are already on the right day and DST offset
+        int startIndex = startTimeCB.getSelectionModel().getSelectedIndex();
+        int endIndex = endTimeCB.getSelectionModel().getSelectedIndex();
+        if (startTimeCB.getValue() == null || startIndex < 0){
             errorList += "Invalid Start Time. ";
 
         }
-        else {
-
-            try {
-                //converts end time from system default timezone to utc
-                startLDT = LocalDateTime.parse(datePickerField.getValue().toString() + " " + startTimeCB.getValue().toString(), DateTimeFormatter.ofPattern(DATE_TIME_FORMAT));
-            }
-            catch (DateTimeException e){
-                System.out.println("Failed to parse start time to local time zone");
-                errorList += "Failed to parse start time. ";
-            }
-        }
-
-        if (endTimeCB.getValue() == null || endTimeCB.getValue().equals(startTimeCB.getValue())){
+        else if (endTimeCB.getValue() == null || endIndex < 0 || endIndex >= endTimes.size()){
             errorList += "Invalid End Time. ";
         }
         else{
-            try {
-                //converts end time from system default timezone to utc
-                endLDT = LocalDateTime.parse(datePickerField.getValue().toString() + " " + endTimeCB.getValue().toString(), DateTimeFormatter.ofPattern(DATE_TIME_FORMAT));
-            }
-            catch (DateTimeException e){
-                System.out.println("Failed to parse end time to local time zone");
-                errorList += "Failed to parse end time. ";
-            }
-            if (endLDT.isBefore(startLDT)){
-                //increments the end date by 1 day if the appointment time crosses midnight (ie. earlier time, but a higher index)
-                if (endTimeCB.getSelectionModel().getSelectedIndex() < startTimeCB.getSelectionModel().getSelectedIndex()){
-                    endLDT = endLDT.plusDays(1);
-                }
-                else{
-                    errorList += "End time is before start time. ";
-                }
-            }
+            LocalDateTime localStart = slots.getStart(startIndex);
+            LocalDateTime localEnd = endTimes.get(endIndex);
 
-            if (checkOverlap(startLDT, endLDT)){
-                errorList += "Times overlap with existing appointments. ";
-            }
-
-            try {
-                //converts start time from system default timezone to utc
-                ZonedDateTime zonedDateTime = startLDT.atZone(ZoneId.systemDefault()).withZoneSameInstant(utcZoneID);
-                startLDT = zonedDateTime.toLocalDateTime();
+            //the overlap indexes are incomplete until the appointment list has finished loading
+            if (!Landing.isAppointmentListLoaded()){
+                errorList += "Appointments are still loading - try again in a moment. ";
             }
-            catch (DateTimeException e){
-                System.out.println("Failed to convert start time to local time zone");
-                errorList += "Failed to convert start time. ";
-            }
-            try {
-                //converts end time from system default timezone to utc
-                ZonedDateTime zonedDateTime = endLDT.atZone(ZoneId.systemDefault()).withZoneSameInstant(utcZoneID);
-                endLDT = zonedDateTime.toLocalDateTime();
-            }
-            catch (DateTimeException e){
-                System.out.println("Failed to convert end time to local time zone");
-                errorList += "Failed to convert end time. ";
+            else {
+                errorList += checkOverlap(localStart, localEnd);
             }
+
+            //converts start and end times from system default timezone to utc
+            startLDT = TimeService.localToUtc(localStart);
+            endLDT = TimeService.localToUtc(localEnd);
         }
 
 
@@ -384,43 +312,71 @@ public class AptDetails implements Initializable {
     }
 
     /**
-     * This method checks for overlap with existing appointments
+     * This method checks for overlap with the existing appointments of the customer, the contact and the user.
+     * Appointments that only touch at the start or end time don't overlap
      * @param start the start time of new appointment
      * @param end the end time of new appointment
+     * @return the overlap errors, or an empty string if there are none
      */
-    private boolean checkOverlap(LocalDateTime start, LocalDateTime end){
-        String cid = custIDCB.getValue().toString();
-        String aptCid = "";
+    private String checkOverlap(LocalDateTime start, LocalDateTime end){
         int nAptID = -1;
         if (update){
             nAptID = Integer.parseInt(appointmentIDField.getText());
         }
-        int aptID;
-
-        for(Appointment apt : Landing.fullAppointmentList){
-            aptCid = Integer.toString(apt.getCustomerID());
-            aptID = apt.getAppointmentID();
+        String errorList = "";
+        if (custIDCB.getValue() != null
+                && Landing.customerAppointments.overlaps(Integer.parseInt(custIDCB.getValue().toString()), start, end, nAptID)){
+            errorList += "Times overlap with existing appointments. ";
+        }
+        if (contactCB.getValue() != null
+                && Landing.contactAppointments.overlaps(Integer.parseInt(contactCB.getValue().toString()), start, end, nAptID)){
+            errorList += "Contact is already booked at that time. ";
+        }
+        if (userIDCB.getValue() != null
+                && Landing.userAppointments.overlaps(Integer.parseInt(userIDCB.getValue().toString()), start, end, nAptID)){
+            errorList += "User is already booked at that time. ";
+        }
+        return errorList;
 
-            LocalDateTime aptSt = apt.getStart();
-            LocalDateTime aptEnd = apt.getEnd();
+    }
 
-            if(cid.equals(aptCid) && !(nAptID == aptID)){
-                if (start.isEqual(aptEnd) || end.isEqual(aptSt)){
-                    return false;
-                }
-                if(start.isAfter(aptSt) && start.isBefore(aptEnd) || start.isEqual(aptSt)){
-                    return true;
-                }
-                if(end.isAfter(aptSt) && end.isBefore(aptEnd) || end.isEqual(aptEnd)){
-                    return true;
-                }
-                if(start.isBefore(aptSt) && end.isAfter(aptEnd)){
-                    return true;
-                }
-            }
+    /**
+     * fills in the date and times with the first free time shared by the selected customer, contact and user,
+     * from the selected date (or now, if that's later). The length of the selected times is kept - one slot if none are selected
+     * @param actionEvent when the "Next Free Time" button is activated
+     */
+    public void findNextFreeTime(ActionEvent actionEvent) {
+        if (custIDCB.getValue() == null || contactCB.getValue() == null || userIDCB.getValue() == null){
+            errorMessage.setText("Select a Customer ID, Contact ID and User ID to find a free time.");
+            return;
         }
-        return false;
-
+        if (!Landing.isAppointmentListLoaded()){
+            errorMessage.setText("Appointments are still loading - try again in a moment.");
+            return;
+        }
+        //end times start one slot after the start, so the end's index is the length in slots minus one
+        int endIndex = endTimeCB.getSelectionModel().getSelectedIndex();
+        int slotCount = endIndex >= 0 && endIndex < endTimes.size() ? endIndex + 1 : 1;
+        LocalDateTime from = LocalDateTime.now();
+        LocalDate date = datePickerField.getValue();
+        if (date != null && date.atStartOfDay().isAfter(from)){
+            from = date.atStartOfDay();
+        }
+        int nAptID = update ? Integer.parseInt(appointmentIDField.getText()) : -1;
+        List<AvailabilityFinder.Slot> free = Landing.availability.findFreeSlots(Integer.parseInt(custIDCB.getValue().toString()),
+                Integer.parseInt(contactCB.getValue().toString()), Integer.parseInt(userIDCB.getValue().toString()),
+                from, slotCount, 1, nAptID);
+        if (free.isEmpty()){
+            errorMessage.setText("No free time in the next " + AvailabilityFinder.maxDays + " days.");
+            return;
+        }
+        AvailabilityFinder.Slot slot = free.get(0);
+        datePickerField.setValue(slot.getStart().toLocalDate());
+        //the date listener only rebuilds the slots if the date changed
+        populateTimeCB(slot.getStart().toLocalDate());
+        startTimeCB.setValue(TimeService.formatTime(slot.getStart()));
+        endTimeCB.setValue(TimeService.formatTime(slot.getEnd()));
+        errorMessage.setText("");
     }
 
     /**
@@ -429,56 +385,28 @@ public class AptDetails implements Initializable {
      */
     public void saveApt(ActionEvent actionEvent) throws IOException {
 
-        PreparedStatement preparedStatement;
-
         if(checkFields()){
 
-            try{
+            int appointmentID = update ? Integer.parseInt(appointmentIDField.getText()) : -1;
+            AppointmentRecord record = new AppointmentRecord(appointmentID, titleField.getText(), descriptionField.getText(),
+                    locationField.getText(), typeField.getText(), startLDT, endLDT,
+                    Integer.parseInt(custIDCB.getValue().toString()), Integer.parseInt(userIDCB.getValue().toString()),
+                    Integer.parseInt(contactCB.getValue().toString()));
+            try {
                 if (update){
-                    preparedStatement = DBConnection.connection.prepareStatement("update appointments set Title = ?, Description = ?, "
-                            + "Location = ?, Type = ?, Start = ?, End = ?, Customer_ID = ?, User_ID = ?, Contact_ID = ?, "
-                            + "Last_Update = CURRENT_TIMESTAMP, Last_Updated_By = ? where Appointment_ID = ?");
-
-                    preparedStatement.setString(1, titleField.getText());
-                    preparedStatement.setString(2, descriptionField.getText());
-                    preparedStatement.setString(3, locationField.getText());
-                    preparedStatement.setString(4, typeField.getText());
-                    preparedStatement.setString(5, startLDT.toString());
-                    preparedStatement.setString(6, endLDT.toString());
-                    preparedStatement.setString(7, custIDCB.getValue().toString());
-                    preparedStatement.setString(8, userIDCB.getValue().toString());
-                    preparedStatement.setString(9, contactCB.getValue().toString());
-                    preparedStatement.setString(10, Login.username);
-                    preparedStatement.setString(11, appointmentIDField.getText());
-
-                    preparedStatement.executeUpdate();
+                    AppointmentRepository.update(record, Login.username);
                     errorMessage.setText("Successfully inserted appointment");
                     System.out.println("Successfully updated appointment");
 
                 }
                 else{
-                    preparedStatement = DBConnection.connection.prepareStatement("insert into appointments (Title, Description, Location, Type, Start, End, "
-                            + "Customer_ID, User_ID, Contact_ID, Last_Update, Last_Updated_By, Created_By, Create_Date)"
-                            + " Values (?, ?, ?, ?, ?, ?, ?, ?, ?, CURRENT_TIMESTAMP, ?, ?, CURRENT_TIMESTAMP);");
-                    preparedStatement.setString(1, titleField.getText());
-                    preparedStatement.setString(2, descriptionField.getText());
-                    preparedStatement.setString(3, locationField.getText());
-                    preparedStatement.setString(4, typeField.getText());
-                    preparedStatement.setString(5, startLDT.toString());
-                    preparedStatement.setString(6, endLDT.toString());
-                    preparedStatement.setString(7, custIDCB.getValue().toString());
-                    preparedStatement.setString(8, userIDCB.getValue().toString());
-                    preparedStatement.setString(9, contactCB.getValue().toString());
-                    preparedStatement.setString(10, Login.username);
-                    preparedStatement.setString(11, Login.username);
-
-                    preparedStatement.executeUpdate();
+                    AppointmentRepository.insert(record, Login.username);
                     errorMessage.setText("Successfully inserted appointment");
                     System.out.println("Successfully inserted appointment");
 
                 }
 
-                Landing.updateAppointmentsList();
+                Landing.refreshAppointments();
                 Landing landing = new Landing();
 
                 landing.toAppointments(actionEvent);
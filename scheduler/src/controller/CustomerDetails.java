@@ -11,13 +11,15 @@ import javafx.scene.Parent;
 import javafx.scene.Scene;
 import javafx.scene.control.*;
 import javafx.stage.Stage;
-import jdbc.DBConnection;
+import dao.CustomerRepository;
 import model.Customer;
+import model.Division;
+import model.LookupCache;
+import model.ReferenceData;
+import util.BackgroundLoader;
 
 import java.io.IOException;
 import java.net.URL;
-import java.sql.PreparedStatement;
-import java.sql.ResultSet;
 import java.sql.SQLException;
 import java.util.Objects;
 import java.util.ResourceBundle;
@@ -78,11 +80,9 @@ public class CustomerDetails implements Initializable {
      */
     @Override
     public void initialize(URL url, ResourceBundle resourceBundle) {
+        BackgroundLoader.cancelScreenLoads();
         errorMessage.setText("");
 
-        populateCountryCB();
-        populateDivisionCB();
-
         if (customer != null){
             update = true;
 
@@ -94,70 +94,49 @@ public class CustomerDetails implements Initializable {
             countryCB.setValue(customer.getCountry());
             divisionCB.setValue(customer.getDivisionID());
         }
+        populateGeographyCBs();
 
         /**
          * Lambda method here to implement a change listener for effective and quick filtering of the combobox
          */
-        countryCB.valueProperty().addListener((ChangeListener<String>) (observableValue, o, t1) -> divisionCB.setItems(filterDivCB()));
+        countryCB.valueProperty().addListener((ChangeListener<String>) (observableValue, o, t1) -> filterDivCB());
 
 
     }
-    private ObservableList <String> filterDivCB(){
-        ObservableList <String> filteredList = FXCollections.observableArrayList();
-
-        try {
-            int countryID = -1;
-            PreparedStatement preparedStatement = DBConnection.connection.prepareStatement("select Country_ID from countries where Country = ?;");
-            preparedStatement.setString(1, countryCB.getValue());
-            ResultSet resultSet = preparedStatement.executeQuery();
-            if (resultSet.next()){
-                countryID = resultSet.getInt("Country_ID");
-            }
-
-            preparedStatement = DBConnection.connection.prepareStatement("select Division from first_level_divisions where Country_ID = ?;");
-            preparedStatement.setString(1, Integer.toString(countryID));
-            resultSet = preparedStatement.executeQuery();
-            while(resultSet.next()){
-                filteredList.add(resultSet.getString("Division"));
-            }
-            return filteredList;
-        } catch (SQLException e) {
-            System.out.println("Unable to update Division Combobox");
-        }
-        return null;
+    /**
+     * shows only the divisions of the selected country in the division combobox - a lookup in ReferenceData
+     */
+    private void filterDivCB(){
+        divisionCB.setItems(FXCollections.observableArrayList(ReferenceData.getDivisionNames(countryCB.getValue())));
     }
+
     /**
-     * this populates the division combobox
+     * populates the country and division comboboxes from ReferenceData - straight away if it is already loaded,
+     * otherwise after loading it in the background
      */
-    private void populateDivisionCB() {
-        try {
-            PreparedStatement preparedStatement = DBConnection.connection.prepareStatement("select Division from first_level_divisions order by Division asc;");
-            ResultSet resultSet = preparedStatement.executeQuery();
-            ObservableList<String> divisionList = FXCollections.observableArrayList();
-            while(resultSet.next()){
-                divisionList.add(resultSet.getString("Division"));
-            }
-            divisionCB.setItems(divisionList);
-        } catch (SQLException e) {
-            System.out.println("Unable to populate Division Combobox");
+    private void populateGeographyCBs() {
+        if (ReferenceData.isLoaded()) {
+            setGeographyItems();
+        }
+        else {
+            BackgroundLoader.loadForScreen("customerDetails.geography", () -> {
+                ReferenceData.ensureLoaded();
+                return ReferenceData.isLoaded();
+            }, loaded -> setGeographyItems(), "Unable to populate Country and Division Comboboxes");
         }
     }
 
     /**
-     * this populates the country combobox
+     * sets the country and division comboboxes' items, keeping values that are already set
      */
-    private void populateCountryCB() {
-        try {
-            PreparedStatement preparedStatement = DBConnection.connection.prepareStatement("select Country from countries order by Country asc;");
-            ResultSet resultSet = preparedStatement.executeQuery();
-            ObservableList<String> countryList = FXCollections.observableArrayList();
-            while(resultSet.next()){
-                countryList.add(resultSet.getString("Country"));
-            }
-            countryCB.setItems(countryList);
-        } catch (SQLException e) {
-            System.out.println("Unable to populate Country Combobox");
-        }
+    private void setGeographyItems() {
+        String country = countryCB.getValue();
+        String division = divisionCB.getValue();
+        countryCB.setItems(FXCollections.observableArrayList(ReferenceData.getCountryNames()));
+        countryCB.setValue(country);
+        divisionCB.setItems(FXCollections.observableArrayList(country == null
+                ? ReferenceData.getDivisionNames() : ReferenceData.getDivisionNames(country)));
+        divisionCB.setValue(division);
     }
 
     /**
@@ -166,68 +145,45 @@ public class CustomerDetails implements Initializable {
      */
     public void saveCustomer(ActionEvent actionEvent) throws IOException {
 
-        PreparedStatement preparedStatement;
-        ResultSet resultSet;
-
-        String divID = "";
-        try {
-            preparedStatement = DBConnection.connection.prepareStatement("select Division_ID from first_level_divisions where Division = ?;");
-            preparedStatement.setString(1, divisionCB.getValue());
-            resultSet = preparedStatement.executeQuery();
-            if (resultSet.next()){
-                int divIDInt = resultSet.getInt("Division_ID");
-                divID = Integer.toString(divIDInt);
-            }
-        }catch(SQLException e){
-            System.out.println("Failed to get division ID from combobox");
-        }
+        Division division = ReferenceData.getDivision(divisionCB.getValue());
+        int divID = division == null ? -1 : division.getDivisionID();
 
         if(checkFields()){
-            try{
+            int customerID = update ? Integer.parseInt(customerIDField.getText()) : -1;
+            Customer savedCustomer = new Customer(customerID, customerNameField.getText(), addressField.getText(),
+                    postalCodeField.getText(), phoneNumberField.getText(), divID);
+            try {
                 if (update){
-                    preparedStatement = DBConnection.connection.prepareStatement("update customers set Customer_Name = ?, "
-                            + "Address = ?, Postal_Code = ?, Phone = ?, Last_Update = CURRENT_TIMESTAMP, "
-                            + "Last_Updated_By = ?, Division_ID = ? where Customer_ID = ?");
-
-                    preparedStatement.setString(1, customerNameField.getText());
-                    preparedStatement.setString(2, addressField.getText());
-                    preparedStatement.setString(3, postalCodeField.getText());
-                    preparedStatement.setString(4, phoneNumberField.getText());
-                    preparedStatement.setString(5, Login.username);
-                    preparedStatement.setString(6, divID);
-                    preparedStatement.setString(7, customerIDField.getText());
-
-                    preparedStatement.executeUpdate();
-                    errorMessage.setText("Customer updated");
-                    System.out.println("Updated customer successfully");
-
+                    if (CustomerRepository.update(savedCustomer, Login.username)){
+                        Landing.putCustomer(savedCustomer);
+                        errorMessage.setText("Customer updated");
+                        System.out.println("Updated customer successfully");
+                    }
+                    else {
+                        //deleted elsewhere, so the cached customer IDs are out of date
+                        LookupCache.invalidate();
+                        Landing.removeCustomer(customerID);
+                        errorMessage.setText("Customer was already deleted");
+                        System.out.println("Customer to update was not found. ");
+                    }
                 }
                 else{
-                    preparedStatement = DBConnection.connection.prepareStatement("insert into customers "
-                            + "(Customer_Name, Address, Postal_Code, Phone, Create_Date, Created_By, Last_Update, Last_Updated_By, Division_ID) "
-                            + "Values (?, ?, ?, ?, CURRENT_TIMESTAMP, ?, CURRENT_TIMESTAMP, ?, ?)");
-
-                    preparedStatement.setString(1, customerNameField.getText());
-                    preparedStatement.setString(2, addressField.getText());
-                    preparedStatement.setString(3, postalCodeField.getText());
-                    preparedStatement.setString(4, phoneNumberField.getText());
-                    preparedStatement.setString(5, Login.username);
-                    preparedStatement.setString(6, Login.username);
-                    preparedStatement.setString(7, divID);
-
-                    preparedStatement.executeUpdate();
+                    int insertedID = CustomerRepository.insert(savedCustomer, Login.username);
+                    LookupCache.customerAdded(insertedID);
+                    Landing.putCustomer(new Customer(insertedID, savedCustomer.getCustomerName(),
+                            savedCustomer.getAddress(), savedCustomer.getPostalCode(), savedCustomer.getPhone(), divID));
                     errorMessage.setText("Customer created");
                     System.out.println("Inserted customer successfully. ");
 
 
                 }
-                Landing.updateCustomersList();
-                Landing.updateAppointmentsList();
                 Landing landing = new Landing();
 
                 landing.toCustomers(actionEvent);
             }
             catch (SQLException e){
+                //an insert may have happened without its ID coming back
+                LookupCache.invalidate();
                 errorMessage.setText("Customer could not be saved - SQL error");
                 System.out.println("Failed to save customer. ");
             }
@@ -259,37 +215,10 @@ public class CustomerDetails implements Initializable {
             errorList += "Invalid First Level Division. ";
         }
         else{
-            //this section checks whether the selected division id is within the country selected
-            try{
-                int countryID = -1;
-                boolean validDivision = false;
-
-                PreparedStatement preparedStatement = DBConnection.connection.prepareStatement("select Country_ID from first_level_divisions where Division = ?;");
-                preparedStatement.setString(1, divisionCB.getValue());
-                ResultSet resultSet = preparedStatement.executeQuery();
-
-                if (resultSet.next()){
-                    countryID = resultSet.getInt("Country_ID");
-                }
-
-                preparedStatement = DBConnection.connection.prepareStatement("select Country from countries where Country_ID = ?;");
-                preparedStatement.setString(1, Integer.toString(countryID));
-                resultSet = preparedStatement.executeQuery();
-
-                if (resultSet.next()){
-                    if (countryCB.getValue().contains(resultSet.getString("Country"))){
-                        validDivision = true;
-                    }
-                }
-
-                if (!validDivision){
-                    errorList += "Division " + divisionCB.getValue() + " is not located in " + countryCB.getValue() + ". ";
-                }
-            } catch (SQLException e){
-                errorList += "Division ID check failed - SQL error. ";
-                System.out.println("Division ID check failed - SQL error. ");
+            //this section checks whether the selected division is within the country selected
+            if (!ReferenceData.isDivisionInCountry(divisionCB.getValue(), countryCB.getValue())){
+                errorList += "Division " + divisionCB.getValue() + " is not located in " + countryCB.getValue() + ". ";
             }
-
         }
 
         if (!errorList.equals("")){
@@ -9,14 +9,19 @@ import javafx.scene.Scene;
 import javafx.scene.control.*;
 import javafx.scene.control.cell.PropertyValueFactory;
 import javafx.stage.Stage;
-import jdbc.DBConnection;
+import dao.CustomerRepository;
+import metrics.Metrics;
 import model.Appointment;
 import model.Customer;
+import model.LookupCache;
+import util.BackgroundLoader;
+import util.PagedList;
 
 import java.io.IOException;
 import java.net.URL;
-import java.sql.PreparedStatement;
 import java.sql.SQLException;
+import java.util.ArrayList;
+import java.util.List;
 import java.util.Objects;
 import java.util.ResourceBundle;
 
@@ -61,6 +66,14 @@ public class Customers implements Initializable {
      * Label for the error/status message to display
      */
     public Label errorMessage;
+    /**
+     * every customer - read from Landing.fullCustomerList once it has loaded, otherwise a page at a time as the table scrolls
+     */
+    private PagedList<Customer> pagedCustomers;
+    /**
+     * the most appointments listed in the delete confirmation
+     */
+    private static final int PREVIEW_APPOINTMENTS = 20;
 
     /** Initializes the Customers controller
      * @param url the location/url for the fxml file
@@ -68,6 +81,7 @@ public class Customers implements Initializable {
      */
     @Override
     public void initialize(URL url, ResourceBundle resourceBundle) {
+        BackgroundLoader.cancelScreenLoads();
         errorMessage.setText("");
 
         custNameCol.setCellValueFactory(new PropertyValueFactory<>("customerName"));
@@ -77,7 +91,11 @@ public class Customers implements Initializable {
         custPhoneCol.setCellValueFactory(new PropertyValueFactory<>("phone"));
         custFirstLvlCol.setCellValueFactory(new PropertyValueFactory<>("divisionID"));
         custCountryCol.setCellValueFactory(new PropertyValueFactory<>("country"));
-        custTable.setItems(Landing.fullCustomerList);
+        pagedCustomers = new PagedList<>("customers", CustomerRepository.pageSource(), Landing.fullCustomerList,
+                Landing::isCustomerListLoaded);
+        custTable.setItems(pagedCustomers);
+        //the paged list can't be sorted in place, so the database sorts it
+        custTable.setSortPolicy(table -> pagedCustomers.sort(custTable));
 
     }
 
@@ -101,7 +119,7 @@ public class Customers implements Initializable {
         errorMessage.setText("");
         CustomerDetails.customer = null;
 
-        Parent root = FXMLLoader.load(Objects.requireNonNull(getClass().getResource("/view/CustomerDetails.fxml")));
+        Parent root = Metrics.time("screen.CustomerDetails", () -> FXMLLoader.load(Objects.requireNonNull(getClass().getResource("/view/CustomerDetails.fxml"))));
         Stage stage = (Stage) ((Node)actionEvent.getSource()).getScene().getWindow();
         stage.centerOnScreen();
         stage.setTitle("Create new Customer");
@@ -116,10 +134,15 @@ public class Customers implements Initializable {
      */
     public void modCustomer(ActionEvent actionEvent) throws IOException {
         if (custTable.getSelectionModel().getSelectedIndex() > -1){
+            //a row whose page hasn't arrived yet has no customer
+            if (custTable.getSelectionModel().getSelectedItem() == null){
+                errorMessage.setText("Customer is still loading - try again in a moment");
+                return;
+            }
             errorMessage.setText("");
             CustomerDetails.customer = (Customer) custTable.getSelectionModel().getSelectedItem();
 
-            Parent root = FXMLLoader.load(Objects.requireNonNull(getClass().getResource("/view/CustomerDetails.fxml")));
+            Parent root = Metrics.time("screen.CustomerDetails", () -> FXMLLoader.load(Objects.requireNonNull(getClass().getResource("/view/CustomerDetails.fxml"))));
             Stage stage = (Stage) ((Node)actionEvent.getSource()).getScene().getWindow();
             stage.setTitle("Modify Customer");
             stage.setScene(new Scene(root));
@@ -131,58 +154,77 @@ public class Customers implements Initializable {
     }
 
     /**
-     * Deletes the selected customer
+     * Deletes the selected customer. The confirmation lists the customer's appointments from the customer index,
+     * and after the delete the customer and those appointments are removed from the in-memory lists in place
      * @throws SQLException for deletion from database
      */
     public void deleteCustomer() throws SQLException {
         errorMessage.setText("");
-        String delMsg = "Are you sure you want to delete this Customer?";
-        String aptsToDel = "";
         Customer selectedCustomer = ((Customer) custTable.getSelectionModel().getSelectedItem());
-        for(Appointment appointment : Landing.fullAppointmentList){
-            if (appointment.getCustomerID() == selectedCustomer.getCustomerID()){
-                aptsToDel += appointment.getTitle() + " - ID:" + appointment.getAppointmentID() + " | ";
-            }
-        }
-        if (!aptsToDel.equals("")){
-            delMsg += " This will also delete the following appointments:\n" + aptsToDel.substring(0, aptsToDel.length() - 3);
-        }
-        else{
-            delMsg += " There are no appointments associated with this customer.";
+        if (selectedCustomer == null){
+            errorMessage.setText("No customer selected");
+            return;
         }
-
-        if (custTable.getSelectionModel().getSelectedIndex() > -1){
-            Alert exitAlert = new Alert(Alert.AlertType.NONE, delMsg, ButtonType.YES, ButtonType.NO);
-            ButtonType response = exitAlert.showAndWait().orElse(ButtonType.NO);
-            if (ButtonType.YES.equals(response)) {
-
-
-                //delete appointments
-                PreparedStatement preparedStatement = DBConnection.connection.prepareStatement("delete from appointments where Customer_ID = ?;");
-                preparedStatement.setString(1, Integer.toString(selectedCustomer.getCustomerID()));
-                preparedStatement.executeUpdate();
-                //delete customer
-                preparedStatement = DBConnection.connection.prepareStatement("delete from customers where Customer_ID = ?;");
-                preparedStatement.setString(1, Integer.toString(selectedCustomer.getCustomerID()));
-                preparedStatement.executeUpdate();
-
-                Landing.updateCustomersList();
-                Landing.updateAppointmentsList();
-
-                custTable.setItems(Landing.fullCustomerList);
-
-                errorMessage.setText("Customer and associated appointments have been deleted.");
-
+        int customerID = selectedCustomer.getCustomerID();
+        int[] appointmentIDs = Landing.customerAppointments.getAppointmentIDs(customerID);
+
+        Alert exitAlert = new Alert(Alert.AlertType.NONE, deleteMessage(appointmentIDs), ButtonType.YES, ButtonType.NO);
+        ButtonType response = exitAlert.showAndWait().orElse(ButtonType.NO);
+        if (ButtonType.YES.equals(response)) {
+
+            //the database deletes the customer's appointments with the customer (ON DELETE CASCADE)
+            if (!CustomerRepository.delete(customerID)){
+                errorMessage.setText("Customer was already deleted.");
+                //deleted elsewhere, so the cached customer IDs may be out of date in other ways too
+                LookupCache.invalidate();
             }
             else {
-                errorMessage.setText("Deletion cancelled");
+                errorMessage.setText("Customer and associated appointments have been deleted.");
+            }
+
+            List<Integer> deletedIDs = new ArrayList<>(appointmentIDs.length);
+            for (int appointmentID : appointmentIDs){
+                deletedIDs.add(appointmentID);
             }
+            Landing.removeAppointments(deletedIDs);
+            Landing.removeCustomer(customerID);
+            LookupCache.customerRemoved(customerID);
+
+            pagedCustomers.refresh();
+
         }
         else {
-            errorMessage.setText("No customer selected");
+            errorMessage.setText("Deletion cancelled");
         }
 
+    }
 
+    /**
+     * builds the delete confirmation, listing up to PREVIEW_APPOINTMENTS of the customer's appointments
+     * @param appointmentIDs IDs of the customer's appointments, from the customer index
+     * @return the confirmation message
+     */
+    private String deleteMessage(int[] appointmentIDs) {
+        StringBuilder message = new StringBuilder("Are you sure you want to delete this Customer?");
+        if (!Landing.isAppointmentListLoaded()){
+            return message.append(" This will also delete all of the customer's appointments.").toString();
+        }
+        if (appointmentIDs.length == 0){
+            return message.append(" There are no appointments associated with this customer.").toString();
+        }
+        message.append(" This will also delete the following appointments:\n");
+        int shown = Math.min(appointmentIDs.length, PREVIEW_APPOINTMENTS);
+        for (int i = 0; i < shown; i++){
+            Appointment appointment = Landing.fullAppointmentList.getByID(appointmentIDs[i]);
+            if (i > 0){
+                message.append(" | ");
+            }
+            message.append(appointment == null ? "" : appointment.getTitle()).append(" - ID:").append(appointmentIDs[i]);
+        }
+        if (appointmentIDs.length > shown){
+            message.append("\n...and ").append(appointmentIDs.length - shown).append(" more");
+        }
+        return message.toString();
     }
 
     /**
@@ -1,6 +1,9 @@
 package controller;
 
+import javafx.application.Platform;
+import javafx.concurrent.Task;
 import javafx.collections.FXCollections;
+import javafx.collections.ListChangeListener;
 import javafx.collections.ObservableList;
 import javafx.event.ActionEvent;
 import javafx.fxml.FXMLLoader;
@@ -11,21 +14,35 @@ import javafx.scene.Scene;
 import javafx.scene.control.Alert;
 import javafx.scene.control.ButtonType;
 import javafx.scene.control.Label;
+import javafx.scene.control.ProgressBar;
 import javafx.scene.paint.Color;
 import javafx.stage.Stage;
+import audit.AuditEvent;
+import audit.AuditLog;
+import dao.AppointmentRepository;
+import dao.CustomerRepository;
+import dao.ReportRepository;
 import jdbc.DBConnection;
+import metrics.Metrics;
 import model.Appointment;
+import model.AppointmentIndex;
+import model.AppointmentList;
+import model.AvailabilityFinder;
 import model.Customer;
+import model.LookupCache;
+import model.ReferenceData;
+import model.StartTimeIndex;
+import snapshot.Reconciliation;
+import snapshot.Snapshot;
+import util.BackgroundLoader;
+import util.ReminderScheduler;
+import util.TimeService;
 
 import java.io.IOException;
 import java.net.URL;
-import java.sql.PreparedStatement;
-import java.sql.ResultSet;
 import java.sql.SQLException;
 import java.sql.Timestamp;
 import java.time.LocalDateTime;
-import java.time.ZoneId;
-import java.time.format.DateTimeFormatter;
 import java.util.*;
 
 
@@ -35,174 +52,453 @@ import java.util.*;
 public class Landing implements Initializable {
 
     /**
-     * stores all appointments for easy access throughout the program - static for use in other controllers
+     * stores all appointments for easy access throughout the program - static for use in other controllers.
+     * Backed by a columnar AppointmentStore, so reading an element builds a new Appointment from the stored values
      */
-    public static ObservableList <Appointment> fullAppointmentList = FXCollections.observableArrayList();
+    public static final AppointmentList fullAppointmentList = new AppointmentList();
     /**
      * stores all customers for easy access throughout the program - static for use in other controllers
      */
-    public static ObservableList <Customer> fullCustomerList = FXCollections.observableArrayList();
+    public static final ObservableList <Customer> fullCustomerList = FXCollections.observableArrayList();
+    /**
+     * index of appointment times by customer, kept in sync with fullAppointmentList - used for overlap checks
+     */
+    public static final AppointmentIndex customerAppointments = new AppointmentIndex(Appointment::getCustomerID);
+    /**
+     * index of appointment times by contact, kept in sync with fullAppointmentList - used for overlap checks
+     */
+    public static final AppointmentIndex contactAppointments = new AppointmentIndex(Appointment::getContactID);
+    /**
+     * index of appointment times by user, kept in sync with fullAppointmentList - used for overlap checks
+     */
+    public static final AppointmentIndex userAppointments = new AppointmentIndex(Appointment::getUserID);
+    /**
+     * finds free times shared by a customer, contact and user, using the three indexes above
+     */
+    public static final AvailabilityFinder availability = new AvailabilityFinder(customerAppointments, contactAppointments, userAppointments);
+    /**
+     * appointments sorted by start time, kept in sync with fullAppointmentList - used for the week and month views
+     */
+    public static final StartTimeIndex appointmentsByStart = new StartTimeIndex();
+    /**
+     * the position of each customer in fullCustomerList by Customer_ID, kept in sync with the list
+     */
+    private static final Map<Integer, Integer> customerPositions = new HashMap<>();
+
+    static {
+        fullAppointmentList.addListener((ListChangeListener<Appointment>) change -> syncIndexes(change));
+        fullCustomerList.addListener((ListChangeListener<Customer>) change -> syncCustomerPositions(change));
+    }
+    /**
+     * BackgroundLoader key for the appointment list load
+     */
+    public static final String APPOINTMENTS_LOAD = "appointments";
+    /**
+     * BackgroundLoader key for the customer list load
+     */
+    public static final String CUSTOMERS_LOAD = "customers";
+    /**
+     * BackgroundLoader key for bringing the lists shown from the snapshot up to date
+     */
+    public static final String SNAPSHOT_RECONCILE = "snapshot";
+    /**
+     * the background load of the appointment list, or null if it hasn't been started
+     */
+    private static Task<Void> appointmentLoad;
+    /**
+     * set when a refresh is asked for while the appointment list is loading - the refresh runs once the load finishes
+     */
+    private static boolean refreshAfterLoad;
     /**
      * checks if it's the first initialization - sets the lists if it is
      */
     private static boolean firstInitialize = true;
+    /**
+     * database time of the last appointment refresh - changes at or after this time are picked up by the next refresh
+     */
+    private static Timestamp lastAppointmentSync;
+    /**
+     * database time of the last customer list load - customers changed at or after this time are picked up when
+     * the snapshot is brought up to date
+     */
+    private static Timestamp lastCustomerSync;
     /**
      * label for the reminder for whether there's an upcoming appointment or not
      */
     public Label reminder;
+    /**
+     * the reminder label of the landing screen shown last, updated when a reminder is given
+     */
+    private static Label reminderLabel;
+    /**
+     * progress bar shown while the appointment list is loading
+     */
+    public ProgressBar loadProgress;
 
     /**
-     * Initializes the landing screen controller,
-     * A lambda method is used here to check if there's an upcoming appointment efficiently
+     * Initializes the landing screen controller. On first initialization the lists saved in the local snapshot are
+     * shown straight away and brought up to date in the background - without a snapshot, the appointment and
+     * customer lists are loaded in the background and the load progress is shown
      * @param url the location/url for the fxml file
      * @param resourceBundle not used in this controller, but required for method
      */
     @Override
     public void initialize(URL url, ResourceBundle resourceBundle) {
+        BackgroundLoader.cancelScreenLoads();
         if (firstInitialize) {
             firstInitialize = false;
-            //set appointment list
-            try {
-                PreparedStatement preparedStatement = DBConnection.connection.prepareStatement("select * from appointments;");
-                ResultSet resultSet = preparedStatement.executeQuery();
-                while(resultSet.next()) {
-
-                    Appointment apt = new Appointment(-1,null,null,null,null,null,null,-1,-1, -1);
-                    apt.setAppointmentID(resultSet.getInt("Appointment_ID"));
-                    apt.setTitle(resultSet.getString("Title"));
-                    apt.setLocation(resultSet.getString("Location"));
-                    apt.setType(resultSet.getString("Type"));
-                    apt.setContactID(resultSet.getInt("Contact_ID"));
-                    apt.setCustomerID(resultSet.getInt("Customer_ID"));
-                    apt.setDescription(resultSet.getString("Description"));
-                    apt.setStart(resultSet.getTimestamp("Start").toLocalDateTime());
-                    apt.setEnd(resultSet.getTimestamp("End").toLocalDateTime());
-                    apt.setUserID(resultSet.getInt("User_ID"));
-                    fullAppointmentList.add(apt);
+            if (showSnapshot()) {
+                ReminderScheduler.start(Landing::remindUpcoming);
+            }
+            else {
+                //set appointment and customer lists in the background
+                appointmentLoad = loadAppointmentsInBackground(() -> ReminderScheduler.start(Landing::remindUpcoming));
+                loadCustomersInBackground();
+            }
+        }
+        if (appointmentLoad != null && appointmentLoad.isRunning()) {
+            loadProgress.progressProperty().bind(appointmentLoad.progressProperty());
+            loadProgress.visibleProperty().bind(appointmentLoad.runningProperty());
+        }
+        else {
+            loadProgress.setVisible(false);
+        }
+        reminderLabel = reminder;
+        if (isAppointmentListLoaded()) {
+            LocalDateTime now = LocalDateTime.now();
+            int[] upcoming = appointmentsByStart.findStartingBetween(now, now.plusMinutes(ReminderScheduler.leadMinutes));
+            if (upcoming.length > 0) {
+                showReminder(upcoming);
+            }
+        }
 
-                }
+    }
 
-                if (fullAppointmentList != null){
-
-                    ObservableList<Appointment> filteredList = FXCollections.observableArrayList();
-                    for (Appointment appointment : fullAppointmentList){
-                        filteredList.add(appointment);
-                    }
-
-                    /**
-                     * Lambda method here to quickly and efficiently check for upcoming appointments
-                     */
-                    filteredList.removeIf(appointment -> appointment.getStart().isBefore(LocalDateTime.now())
-                            || appointment.getStart().isAfter(LocalDateTime.now().plusMinutes(15)));
-
-                    if (!filteredList.isEmpty()){
-                        String reminderMsg = "You have an upcoming appointment:\n";
-                        DateTimeFormatter formatter = DateTimeFormatter.ofPattern("yyyy-MM-dd HH:mm:ss");
-                        for (Appointment appointment : filteredList){
-                            reminderMsg += "ID - " + appointment.getAppointmentID() + " - " + appointment.getTitle()
-                                    + "\nDate/time: - " + appointment.getStart().format(formatter) + "\n" + "(" + ZoneId.systemDefault() + " time)";
-                        }
-                        reminder.setText(reminderMsg);
-                        reminder.setTextFill(Color.RED);
-                        Alert appointmentAlert = new Alert(Alert.AlertType.WARNING, "There's an appointment in less than 15 minutes", ButtonType.OK);
-                        ButtonType response = appointmentAlert.showAndWait().orElse(ButtonType.OK);
-                        if (ButtonType.OK.equals(response)) {
-
-                            appointmentAlert.close();
-                        }
-                    }
-                }
+    /**
+     * called by the ReminderScheduler when appointments are about to start - shows them on the landing screen
+     * and alerts the user, on the FX thread
+     * @param appointmentIDs IDs of the appointments about to start
+     */
+    private static void remindUpcoming(List<Integer> appointmentIDs) {
+        int[] ids = new int[appointmentIDs.size()];
+        for (int i = 0; i < ids.length; i++) {
+            ids[i] = appointmentIDs.get(i);
+        }
+        /**
+         * Lambda method here to show the reminder on the FX thread
+         */
+        Platform.runLater(() -> {
+            String reminderMsg = showReminder(ids);
+            Alert appointmentAlert = new Alert(Alert.AlertType.WARNING, "There's an appointment in less than "
+                    + ReminderScheduler.leadMinutes + " minutes\n" + reminderMsg, ButtonType.OK);
+            appointmentAlert.show();
+        });
+    }
 
-            } catch (SQLException e) {
-                System.out.println("Failed to populate Appointments list");
+    /**
+     * shows upcoming appointments in the landing screen's reminder label
+     * @param appointmentIDs IDs of the upcoming appointments
+     * @return the reminder message
+     */
+    private static String showReminder(int[] appointmentIDs) {
+        StringBuilder reminderMsg = new StringBuilder("You have an upcoming appointment:\n");
+        for (int appointmentID : appointmentIDs) {
+            Appointment appointment = fullAppointmentList.getByID(appointmentID);
+            if (appointment != null) {
+                reminderMsg.append("ID - ").append(appointment.getAppointmentID()).append(" - ").append(appointment.getTitle())
+                        .append("\nDate/time: - ").append(TimeService.formatDateTime(appointment.getStart()))
+                        .append("\n(").append(TimeService.LOCAL).append(" time)\n");
             }
-            //set customer list
-            try {
+        }
+        if (reminderLabel != null) {
+            reminderLabel.setText(reminderMsg.toString());
+            reminderLabel.setTextFill(Color.RED);
+        }
+        return reminderMsg.toString();
+    }
 
-                PreparedStatement preparedStatement = DBConnection.connection.prepareStatement("select * from customers;");
-                ResultSet resultSet = preparedStatement.executeQuery();
+    /**
+     * clears the appointment list and streams it in from the database on a background thread.
+     * Rows are added to the list in batches on the FX thread as they arrive
+     * @param onLoaded run on the FX thread once every appointment has been added
+     * @return the load task - its progress is the fraction of appointments read
+     */
+    public static Task<Void> loadAppointmentsInBackground(Runnable onLoaded){
+        fullAppointmentList.clear();
+        lastAppointmentSync = null;
+        Timestamp[] syncTime = new Timestamp[1];
+        return BackgroundLoader.<Appointment>stream(APPOINTMENTS_LOAD, sink -> {
+            syncTime[0] = AppointmentRepository.currentTimestamp();
+            sink.setTotal(ReportRepository.countRows("appointments"));
+            AppointmentRepository.streamAll(sink::accept);
+        }, fullAppointmentList::addAll, () -> {
+            lastAppointmentSync = syncTime[0];
+            onLoaded.run();
+            if (refreshAfterLoad){
+                refreshAfterLoad = false;
+                refreshAppointments();
+            }
+        }, "Failed to populate Appointments list");
+    }
 
-                while(resultSet.next()) {
+    /**
+     * clears the customer list and streams it in from the database on a background thread
+     * @return the load task
+     */
+    public static Task<Void> loadCustomersInBackground(){
+        fullCustomerList.clear();
+        lastCustomerSync = null;
+        LookupCache.invalidate();
+        Timestamp[] syncTime = new Timestamp[1];
+        return BackgroundLoader.<Customer>stream(CUSTOMERS_LOAD, sink -> {
+            syncTime[0] = AppointmentRepository.currentTimestamp();
+            ReferenceData.ensureLoaded();
+            sink.setTotal(ReportRepository.countRows("customers"));
+            CustomerRepository.streamAll(sink::accept);
+        }, Landing::addLoadedCustomers, () -> lastCustomerSync = syncTime[0], "Failed to populate Customer list");
+    }
 
-                    Customer customer = new Customer(-1, "", "", "", "", -1);
+    /**
+     * adds a batch of streamed customers, skipping any already in the list - a customer saved while the list was
+     * loading is already there, and is at least as new as the streamed row
+     * @param customers the batch
+     */
+    private static void addLoadedCustomers(List<Customer> customers){
+        List<Customer> added = new ArrayList<>(customers.size());
+        for (Customer customer : customers){
+            if (!customerPositions.containsKey(customer.getCustomerID())){
+                added.add(customer);
+            }
+        }
+        fullCustomerList.addAll(added);
+    }
 
-                    customer.setCustomerID(resultSet.getInt("Customer_ID"));
-                    customer.setCustomerName(resultSet.getString("Customer_Name"));
-                    customer.setAddress(resultSet.getString("Address"));
-                    customer.setPostalCode(resultSet.getString("Postal_Code"));
-                    customer.setPhone(resultSet.getString("Phone"));
-                    customer.setDivisionID(resultSet.getInt("Division_ID"));
+    /**
+     * shows the lists saved in the local snapshot and starts bringing them up to date in the background
+     * @return false if there is no usable snapshot - the lists must be loaded from the database instead
+     */
+    private static boolean showSnapshot(){
+        Snapshot snapshot = Metrics.<Snapshot, RuntimeException>time("snapshot.load", Snapshot::load);
+        if (snapshot == null){
+            return false;
+        }
+        fullCustomerList.setAll(snapshot.getCustomers());
+        fullAppointmentList.setAll(snapshot.getAppointments());
+        lastAppointmentSync = snapshot.getAppointmentSync();
+        lastCustomerSync = snapshot.getCustomerSync();
+        Timestamp appointmentSync = lastAppointmentSync;
+        Timestamp customerSync = lastCustomerSync;
+        BackgroundLoader.load(SNAPSHOT_RECONCILE, () -> Reconciliation.fetch(appointmentSync, customerSync),
+                changes -> applyReconciliation(changes, appointmentSync, customerSync),
+                "Failed to bring the saved lists up to date");
+        return true;
+    }
 
-                    fullCustomerList.add(customer);
+    /**
+     * applies the changes made since the snapshot was saved. A list that has been reloaded or refreshed since the
+     * changes were requested is left alone - it is already newer than the changes
+     * @param changes the changes since the snapshot
+     * @param appointmentSync the appointment watermark the changes were fetched from
+     * @param customerSync the customer watermark the changes were fetched from
+     */
+    private static void applyReconciliation(Reconciliation changes, Timestamp appointmentSync, Timestamp customerSync){
+        if (lastAppointmentSync == appointmentSync){
+            applyAppointmentChanges(changes.getChangedAppointments(), changes.getDeletedAppointmentIDs());
+            lastAppointmentSync = changes.getSyncTime();
+        }
+        if (lastCustomerSync == customerSync){
+            //customers added or deleted elsewhere change the cached customer IDs
+            LookupCache.invalidate();
+            Set<Integer> customerIDs = changes.getCustomerIDs();
+            fullCustomerList.removeIf(customer -> !customerIDs.contains(customer.getCustomerID()));
+            for (Customer customer : changes.getChangedCustomers()){
+                putCustomer(customer);
+            }
+            lastCustomerSync = changes.getSyncTime();
+        }
+    }
 
-                }
+    /**
+     * saves the appointment, customer and reference data lists to the local snapshot for the next start.
+     * Nothing is saved unless both lists have been completely loaded
+     */
+    public static void saveSnapshot(){
+        if (lastAppointmentSync == null || lastCustomerSync == null || !ReferenceData.isLoaded()){
+            return;
+        }
+        Snapshot snapshot = new Snapshot(DBConnection.url, lastAppointmentSync, lastCustomerSync,
+                ReferenceData.getCountries(), ReferenceData.getDivisions(), fullCustomerList, fullAppointmentList);
+        Metrics.<Boolean, RuntimeException>time("snapshot.save", () -> Snapshot.save(snapshot));
+    }
 
-            } catch (SQLException e) {
-                e.printStackTrace();
-                System.out.println("Failed to populate Customer list");
-            }
+    /**
+     * puts a saved customer in the customer list, replacing the customer with the same ID or adding it at the end
+     * @param customer the saved customer
+     */
+    public static void putCustomer(Customer customer){
+        Integer position = customerPositions.get(customer.getCustomerID());
+        if (position == null){
+            fullCustomerList.add(customer);
+        }
+        else {
+            fullCustomerList.set(position, customer);
+        }
+    }
 
+    /**
+     * removes a deleted customer from the customer list
+     * @param customerID the ID of the deleted customer
+     */
+    public static void removeCustomer(int customerID){
+        Integer position = customerPositions.get(customerID);
+        if (position != null){
+            fullCustomerList.remove((int) position);
         }
+    }
 
+    /**
+     * keeps customerPositions in step with a change in fullCustomerList. Every removal is dropped before any
+     * position is written, and rows after an insertion or removal have moved, so they are rewritten from the
+     * first such change on
+     * @param change the list change
+     */
+    private static void syncCustomerPositions(ListChangeListener.Change<? extends Customer> change){
+        while (change.next()){
+            for (Customer customer : change.getRemoved()){
+                customerPositions.remove(customer.getCustomerID());
+            }
+        }
+        change.reset();
+        List<? extends Customer> customers = change.getList();
+        int moved = customers.size();
+        while (change.next()){
+            if (change.getRemovedSize() != change.getAddedSize()){
+                moved = Math.min(moved, change.getFrom());
+            }
+            else {
+                for (int i = change.getFrom(); i < change.getTo(); i++){
+                    customerPositions.put(customers.get(i).getCustomerID(), i);
+                }
+            }
+        }
+        for (int i = moved; i < customers.size(); i++){
+            customerPositions.put(customers.get(i).getCustomerID(), i);
+        }
     }
+
     /**
-     * clears the customer list and reacquires it from the database to update it
+     * updates the appointment list with only the rows inserted, updated or deleted since the last refresh.
+     * While the list is still loading, the refresh runs once the load has finished instead
      */
-    public static void updateCustomersList(){
-        fullCustomerList.clear();
+    public static void refreshAppointments(){
+        if (lastAppointmentSync == null){
+            reloadAppointments();
+            return;
+        }
         try {
+            Timestamp syncTime = AppointmentRepository.currentTimestamp();
+            List<Appointment> changed = AppointmentRepository.findUpdatedSince(lastAppointmentSync);
+            List<Integer> deletedIDs = AppointmentRepository.findDeletedSince(lastAppointmentSync);
+            applyAppointmentChanges(changed, deletedIDs);
+            lastAppointmentSync = syncTime;
 
-            PreparedStatement preparedStatement = DBConnection.connection.prepareStatement("select * from customers;");
-            ResultSet resultSet = preparedStatement.executeQuery();
-
-            while(resultSet.next()) {
+        } catch (SQLException e) {
+            System.out.println("Failed to refresh Appointments list - reloading all appointments");
+            reloadAppointments();
+        }
+    }
 
-                Customer customer = new Customer(-1, "", "", "", "", -1);
+    /**
+     * refreshes the appointment list once the running background load finishes, or loads it again in the background
+     * if none is running - the list isn't reloaded on the FX thread, and the reminders start once it is loaded
+     */
+    private static void reloadAppointments(){
+        if (BackgroundLoader.isRunning(APPOINTMENTS_LOAD)){
+            refreshAfterLoad = true;
+        }
+        else {
+            appointmentLoad = loadAppointmentsInBackground(() -> ReminderScheduler.start(Landing::remindUpcoming));
+        }
+    }
 
-                customer.setCustomerID(resultSet.getInt("Customer_ID"));
-                customer.setCustomerName(resultSet.getString("Customer_Name"));
-                customer.setAddress(resultSet.getString("Address"));
-                customer.setPostalCode(resultSet.getString("Postal_Code"));
-                customer.setPhone(resultSet.getString("Phone"));
-                customer.setDivisionID(resultSet.getInt("Division_ID"));
+    /**
+     * @return true once the appointment list has been fully loaded and the in-memory indexes are complete
+     */
+    public static boolean isAppointmentListLoaded(){
+        return lastAppointmentSync != null;
+    }
 
-                fullCustomerList.add(customer);
+    /**
+     * @return true once the customer list has been fully loaded
+     */
+    public static boolean isCustomerListLoaded(){
+        return lastCustomerSync != null;
+    }
 
+    /**
+     * patches the appointment list in place - changed appointments replace the row with the same ID (or are added)
+     * and deleted appointments are removed
+     * @param changed appointments that were inserted or updated
+     * @param deletedIDs IDs of appointments that were deleted
+     */
+    public static void applyAppointmentChanges(Collection<Appointment> changed, Collection<Integer> deletedIDs){
+        for (Appointment appointment : changed){
+            int position = fullAppointmentList.indexOfID(appointment.getAppointmentID());
+            if (position < 0){
+                fullAppointmentList.add(appointment);
+            }
+            else {
+                fullAppointmentList.set(position, appointment);
             }
-
-        } catch (SQLException e) {
-            e.printStackTrace();
-            System.out.println("Failed to populate Customer list");
         }
+        removeAppointments(deletedIDs);
     }
 
     /**
-     * clears the appointment list and reacquires it from the database to update it
+     * removes appointments from the appointment list by ID
+     * @param appointmentIDs IDs of the appointments to remove
      */
-    public static void updateAppointmentsList(){
-        fullAppointmentList.clear();
-        try {
-            PreparedStatement preparedStatement = DBConnection.connection.prepareStatement("select * from appointments;");
-            ResultSet resultSet = preparedStatement.executeQuery();
-            while(resultSet.next()) {
-                Appointment apt = new Appointment(-1,null,null,null,null,null,null,-1,-1, -1);
-                apt.setAppointmentID(resultSet.getInt("Appointment_ID"));
-                apt.setTitle(resultSet.getString("Title"));
-                apt.setLocation(resultSet.getString("Location"));
-                apt.setType(resultSet.getString("Type"));
-                apt.setContactID(resultSet.getInt("Contact_ID"));
-                apt.setCustomerID(resultSet.getInt("Customer_ID"));
-                apt.setDescription(resultSet.getString("Description"));
-                apt.setStart(resultSet.getTimestamp("Start").toLocalDateTime());
-                apt.setEnd(resultSet.getTimestamp("End").toLocalDateTime());
-                apt.setUserID(resultSet.getInt("User_ID"));
-
-                fullAppointmentList.add(apt);
+    public static void removeAppointments(Collection<Integer> appointmentIDs){
+        //one change for the whole batch, each removal filling its row with the last one instead of shifting the rows up
+        fullAppointmentList.removeByID(appointmentIDs);
+    }
 
+    /**
+     * applies a change in fullAppointmentList to the appointment indexes
+     * @param change the list change
+     */
+    private static void syncIndexes(ListChangeListener.Change<? extends Appointment> change){
+        if (change.getList().isEmpty()){
+            customerAppointments.clear();
+            contactAppointments.clear();
+            userAppointments.clear();
+            appointmentsByStart.clear();
+            ReminderScheduler.clear();
+            return;
+        }
+        //every removal before any addition - a row moved by AppointmentList.removeByID is both removed and added,
+        //and the removal of its old position can come after the addition at its new one
+        List<Integer> removedIDs = new ArrayList<>();
+        while (change.next()){
+            for (Appointment appointment : change.getRemoved()){
+                removedIDs.add(appointment.getAppointmentID());
+                appointmentsByStart.remove(appointment);
+                ReminderScheduler.remove(appointment.getAppointmentID());
+            }
+        }
+        //each resource's intervals are compacted once for the batch, by its next query
+        customerAppointments.removeAll(removedIDs);
+        contactAppointments.removeAll(removedIDs);
+        userAppointments.removeAll(removedIDs);
+        change.reset();
+        while (change.next()){
+            for (Appointment appointment : change.getAddedSubList()){
+                customerAppointments.add(appointment);
+                contactAppointments.add(appointment);
+                userAppointments.add(appointment);
+                appointmentsByStart.add(appointment);
+                ReminderScheduler.add(appointment);
             }
-
-        } catch (SQLException e) {
-            System.out.println("Failed to populate Appointments list");
         }
     }
 
@@ -212,7 +508,7 @@ public class Landing implements Initializable {
      * @throws IOException if the .fxml file is missing
      */
     public void toCustomers(ActionEvent actionEvent) throws IOException {
-        Parent root = FXMLLoader.load(Objects.requireNonNull(getClass().getResource("/view/Customers.fxml")));
+        Parent root = Metrics.time("screen.Customers", () -> FXMLLoader.load(Objects.requireNonNull(getClass().getResource("/view/Customers.fxml"))));
         Stage stage = (Stage) ((Node)actionEvent.getSource()).getScene().getWindow();
         stage.setTitle("Customers");
         stage.setScene(new Scene(root));
@@ -226,7 +522,7 @@ public class Landing implements Initializable {
      * @throws IOException if the .fxml file is missing
      */
     public void toAppointments(ActionEvent actionEvent) throws IOException {
-        Parent root = FXMLLoader.load(Objects.requireNonNull(getClass().getResource("/view/Appointments.fxml")));
+        Parent root = Metrics.time("screen.Appointments", () -> FXMLLoader.load(Objects.requireNonNull(getClass().getResource("/view/Appointments.fxml"))));
         Stage stage = (Stage) ((Node)actionEvent.getSource()).getScene().getWindow();
         stage.setTitle("Appointments");
         stage.setScene(new Scene(root));
@@ -240,7 +536,7 @@ public class Landing implements Initializable {
      * @throws IOException if the .fxml file is missing
      */
     public void toReports(ActionEvent actionEvent) throws IOException {
-        Parent root = FXMLLoader.load(Objects.requireNonNull(getClass().getResource("/view/Reports.fxml")));
+        Parent root = Metrics.time("screen.Reports", () -> FXMLLoader.load(Objects.requireNonNull(getClass().getResource("/view/Reports.fxml"))));
         Stage stage = (Stage) ((Node)actionEvent.getSource()).getScene().getWindow();
         stage.setTitle("Reports");
         stage.setScene(new Scene(root));
@@ -257,6 +553,7 @@ public class Landing implements Initializable {
         Alert logoutAlert = new Alert(Alert.AlertType.NONE, "Would you like to log out?", ButtonType.YES, ButtonType.NO);
         ButtonType response = logoutAlert.showAndWait().orElse(ButtonType.NO);
         if (ButtonType.YES.equals(response)) {
+            AuditLog.log(AuditEvent.Type.LOGOUT, Login.username);
             toLogin(actionEvent);
         }
 
@@ -268,7 +565,7 @@ public class Landing implements Initializable {
      * @throws IOException if the .fxml file is missing
      */
     public void toLogin(ActionEvent actionEvent) throws IOException{
-        Parent root = FXMLLoader.load(Objects.requireNonNull(getClass().getResource("/view/Login.fxml")));
+        Parent root = Metrics.time("screen.Login", () -> FXMLLoader.load(Objects.requireNonNull(getClass().getResource("/view/Login.fxml"))));
         Stage stage = (Stage) ((Node)actionEvent.getSource()).getScene().getWindow();
         stage.setTitle("Login");
         stage.setScene(new Scene(root));
@@ -1,5 +1,6 @@
 package controller;
 
+import javafx.application.Platform;
 import javafx.event.ActionEvent;
 import javafx.fxml.Initializable;
 import javafx.scene.Node;
@@ -7,12 +8,15 @@ import javafx.scene.Parent;
 import javafx.scene.Scene;
 import javafx.scene.control.*;
 import javafx.stage.Stage;
+import audit.AuditEvent;
+import audit.AuditLog;
+import auth.CredentialService;
+import auth.LoginResult;
 import jdbc.DBConnection;
+import metrics.Metrics;
 
 import java.io.*;
 import java.net.URL;
-import java.sql.PreparedStatement;
-import java.sql.ResultSet;
 import java.sql.SQLException;
 import java.time.ZoneId;
 import java.util.*;
@@ -81,6 +85,18 @@ public class Login implements Initializable {
      * label for the locale
      */
     public String exitMsg;
+    /**
+     * message shown when the username and password don't match
+     */
+    private String invalidCredentialsMsg = "Invalid credentials. Please try again.";
+    /**
+     * message shown when there have been too many failed attempts
+     */
+    private String throttledMsg = "Too many failed attempts. Please wait before trying again.";
+    /**
+     * message shown when the credentials couldn't be checked
+     */
+    private String unavailableMsg = "Unable to check credentials. Please try again.";
 
     /**
      * Initializes the Login controller
@@ -106,7 +122,10 @@ public class Login implements Initializable {
             loginBtn.setText(resourceBundle.getString("login"));
             exitBtn.setText(resourceBundle.getString("exit"));
             exitMsg = resourceBundle.getString("exitMessage");
-            invalidCredentials.setText(resourceBundle.getString("invCred"));
+            invalidCredentialsMsg = resourceBundle.getString("invCred");
+            invalidCredentials.setText(invalidCredentialsMsg);
+            throttledMsg = resourceBundle.getString("throttled");
+            unavailableMsg = resourceBundle.getString("unavailable");
             invalidPassword.setText(resourceBundle.getString("invPass"));
             invalidUsername.setText(resourceBundle.getString("invUser"));
 
@@ -120,36 +139,92 @@ public class Login implements Initializable {
         if(firstInitialize){
             firstInitialize = false;
             try {
-                DBConnection.connection = DBConnection.getConnection();
+                DBConnection.initialize();
                 System.out.println("Successful connection");
+                /**
+                 * Lambda method here to report the one-time hashing of plain text passwords when it finishes
+                 */
+                CredentialService.migratePasswords().whenComplete((count, error) -> {
+                    if (error != null) {
+                        System.out.println("Unable to hash stored passwords");
+                    }
+                    else if (count > 0) {
+                        System.out.println("Hashed " + count + " stored passwords");
+                    }
+                });
             }
             catch (SQLException e) {
                 System.out.println("Failed to connect - SQL error");
             }
-            catch (ClassNotFoundException e) {
-                System.out.println("Failed to connect - Class error");
-            }
         }
 
     }
 
     /**
-     * calls method to check credentials, logs the attempt with timestamp, and goes to landing screen if valid credentials
+     * checks the credentials in the background, logs the attempt with timestamp, and goes to landing screen if valid credentials.
+     * The login button is disabled until the check finishes
      * @param actionEvent from the "login" button
-     * @throws IOException if the fxml file is not found
-     * @throws SQLException if there is a problem retrieving the password and username due to SQL errors
      */
-    public void login(ActionEvent actionEvent) throws IOException, SQLException {
+    public void login(ActionEvent actionEvent) {
+        invalidCredentials.setVisible(false);
+        invalidUsername.setVisible(false);
+        invalidPassword.setVisible(false);
 
-        username = usernameLogin.getText();
+        String attemptedUsername = usernameLogin.getText();
         String password = passwordLogin.getText();
 
-        boolean validLogin = checkLoginCredentials(username, password);
-        loginLogger(username, validLogin);
-        if (validLogin){
-            toLanding(actionEvent);
+        if (!checkLoginFields(attemptedUsername, password)){
+            loginLogger(attemptedUsername, false);
+            return;
         }
+        loginBtn.setDisable(true);
+        /**
+         * Lambda method here to handle the result back on the JavaFX thread once the credentials have been checked.
+         * A check that failed with an exception is shown as unavailable, so the login button is always re-enabled
+         */
+        CredentialService.verify(attemptedUsername, password, AuditEvent.LOCAL_SOURCE)
+                .whenComplete((result, error) -> {
+                    LoginResult checked = result;
+                    if (error != null || result == null) {
+                        System.out.println("Unable to check credentials");
+                        checked = LoginResult.of(LoginResult.Outcome.UNAVAILABLE);
+                    }
+                    LoginResult finalResult = checked;
+                    Platform.runLater(() -> finishLogin(actionEvent, attemptedUsername, finalResult));
+                });
+    }
 
+    /**
+     * logs the attempt and shows the result of the credential check, going to the landing screen if it succeeded
+     * @param actionEvent from the "login" button
+     * @param attemptedUsername the username that was checked
+     * @param result the result of the check
+     */
+    private void finishLogin(ActionEvent actionEvent, String attemptedUsername, LoginResult result) {
+        loginBtn.setDisable(false);
+        loginLogger(attemptedUsername, result.isSuccess());
+        switch (result.getOutcome()) {
+            case SUCCESS:
+                username = attemptedUsername;
+                try {
+                    toLanding(actionEvent);
+                } catch (IOException e) {
+                    System.out.println("Unable to load the landing screen");
+                }
+                break;
+            case THROTTLED:
+                long seconds = (result.getRetryAfterMillis() + 999) / 1000;
+                invalidCredentials.setText(throttledMsg + " (" + seconds + " s)");
+                invalidCredentials.setVisible(true);
+                break;
+            case UNAVAILABLE:
+                invalidCredentials.setText(unavailableMsg);
+                invalidCredentials.setVisible(true);
+                break;
+            default:
+                invalidCredentials.setText(invalidCredentialsMsg);
+                invalidCredentials.setVisible(true);
+        }
     }
 
     /**
@@ -158,7 +233,7 @@ public class Login implements Initializable {
      * @throws IOException if the fxml file is not found
      */
     public void toLanding(ActionEvent actionEvent) throws IOException {
-        Parent root = load(Objects.requireNonNull(getClass().getResource("/view/Landing.fxml")));
+        Parent root = Metrics.time("screen.Landing", () -> load(Objects.requireNonNull(getClass().getResource("/view/Landing.fxml"))));
         Stage stage = (Stage) ((Node)actionEvent.getSource()).getScene().getWindow();
         stage.setTitle("Welcome back " + username);
         stage.setScene(new Scene(root));
@@ -167,67 +242,41 @@ public class Login implements Initializable {
     }
 
     /**
-     * This logs the time and status of the login attempt in login_activity.txt (file is created if it doesn't already exist)
+     * Records the login attempt in the audit log (login_activity.txt). The entry is only queued here -
+     * the audit log's writer thread appends it to the file, so the login never waits on the disk
      * @param username the username provided by user
      * @param validLogin result of the credential check - true if the credentials are valid
      */
-    private void loginLogger(String username, boolean validLogin) throws IOException {
-
-
-        //create file if not present
-        File file = new File("login_activity.txt");
-        if (file.createNewFile()){
-            System.out.println("login_activity file created\n");
-
+    private void loginLogger(String username, boolean validLogin) {
+        if (username.length() < 1){
+            username = "Unknown";
         }
-        FileWriter fileWriter = new FileWriter("login_activity.txt", true);
-
-        if (validLogin && fileWriter != null){
-            fileWriter.append("User " + username + " logged in successfully on: " + new Date() + "\n");
+        if (validLogin){
+            AuditLog.log(AuditEvent.Type.LOGIN_SUCCESS, username);
             System.out.println("User " + username + " logged in successfully on: " + new Date());
         }
         else {
-            if (username.length() < 1){
-                username = "Unknown";
-            }
-            fileWriter.append("User " + username + " unsuccessfully attempted to log in on: " + new Date() + "\n");
+            AuditLog.log(AuditEvent.Type.LOGIN_FAILURE, username);
             System.out.println("User " + username + " unsuccessfully attempted to log in on: " + new Date());
         }
-        fileWriter.close();
-
     }
 
     /**
-     * validates login credentials against user database
+     * checks that a username and password were entered
      * @param username the username provided by user
      * @param password the password provided by user
-     * @return true if username and password are valid
+     * @return true if both were entered
      */
-    private boolean checkLoginCredentials(String username, String password) throws SQLException {
+    private boolean checkLoginFields(String username, String password) {
         if (username.length() < 1){
             invalidUsername.setVisible(true);
             return false;
         }
         else if (password.length() < 1){
-            invalidPassword.setVisible(true);;
+            invalidPassword.setVisible(true);
             return false;
         }
-        else{
-            PreparedStatement preparedStatement = DBConnection.connection.prepareStatement("select Password from users where User_Name = ?;");
-            preparedStatement.setString(1, username);
-            ResultSet resultSet = preparedStatement.executeQuery();
-            while(resultSet.next()){
-                if (resultSet.getString("Password").equals(password)){
-                    return true;
-
-                }
-                else {
-                    System.out.println(resultSet.getString("Password"));
-                }
-            }
-        }
-        invalidCredentials.setVisible(true);
-        return false;
+        return true;
     }
 
     /**
@@ -241,13 +290,10 @@ public class Login implements Initializable {
         Alert exitAlert = new Alert(Alert.AlertType.NONE, exitMsg, ButtonType.YES, ButtonType.NO);
         ButtonType response = exitAlert.showAndWait().orElse(ButtonType.NO);
         if (ButtonType.YES.equals(response)) {
-            try {
-                if (DBConnection.connection != null) {
-                    DBConnection.connection.close();
-                }
-            } catch (SQLException e) {
-                System.out.println("Couldn't close connection?");
-            }
+            Landing.saveSnapshot();
+            Metrics.writeLog();
+            AuditLog.close();
+            DBConnection.closePool();
             System.exit(0);
         }
     }
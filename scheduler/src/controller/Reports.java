@@ -7,17 +7,21 @@ import javafx.event.ActionEvent;
 import javafx.fxml.Initializable;
 import javafx.scene.control.*;
 import javafx.scene.control.cell.PropertyValueFactory;
-import jdbc.DBConnection;
+import audit.LoginAnalytics;
 import model.Appointment;
+import model.LookupCache;
+import report.MonthTypeCount;
+import report.ReportEngine;
+import report.ReportSource;
+import util.BackgroundLoader;
 
 import java.io.IOException;
 import java.math.RoundingMode;
 import java.net.URL;
-import java.sql.PreparedStatement;
-import java.sql.ResultSet;
 import java.sql.SQLException;
 import java.text.DecimalFormat;
-import java.time.Month;
+import java.time.Duration;
+import java.util.Map;
 import java.util.ResourceBundle;
 
 /**
@@ -71,6 +75,23 @@ public class Reports implements Initializable {
      * label for the third report to display the average number of appointments per customer
      */
     public Label avgAptsLabel;
+    /**
+     * text area for the login activity report
+     */
+    public TextArea loginActivityField;
+
+    /**
+     * the lookup lists behind the contact combobox, or null while they are loading
+     */
+    private LookupCache.Lookups lookups;
+    /**
+     * where the reports are computed - SQL or the loaded lists, picked by ReportEngine
+     */
+    private ReportSource reportSource;
+    /**
+     * failed logins in an hour that get a user listed in the login activity report
+     */
+    private static final int LOCKOUT_FAILURES = 5;
 
     /**
      * Initializes the Reports controller,
@@ -80,13 +101,11 @@ public class Reports implements Initializable {
      */
     @Override
     public void initialize(URL url, ResourceBundle resourceBundle) {
+        BackgroundLoader.cancelScreenLoads();
+        reportSource = ReportEngine.plan(Landing.fullAppointmentList, Landing.fullCustomerList,
+                Landing.isAppointmentListLoaded() && Landing.isCustomerListLoaded());
 
-        //set combobox items
-        try {
-            contactCB.setItems(populateContactCB());
-        } catch (SQLException e) {
-            System.out.println("Unable to populate Contact combobox");
-        }
+        populateContactCB();
 
         aptIDCol.setCellValueFactory(new PropertyValueFactory<>("appointmentID"));
         aptTitleCol.setCellValueFactory(new PropertyValueFactory<>("title"));
@@ -104,23 +123,36 @@ public class Reports implements Initializable {
 
         secondReport();
         thirdReport();
+        loginActivityReport();
 
     }
 
     /**
-     * This gets the list of contacts for the combobox
-     * @return List of contacts
+     * Populates the contact combobox from the shared LookupCache - straight away if it is already loaded,
+     * otherwise after loading it in the background
      */
-    private ObservableList <String> populateContactCB() throws SQLException {
-        ObservableList <String> contactNameList = FXCollections.observableArrayList();
-        PreparedStatement preparedStatement = DBConnection.connection.prepareStatement("select Contact_Name from contacts;");
-        ResultSet resultSet = preparedStatement.executeQuery();
-        while(resultSet.next()){
-            contactNameList.add(resultSet.getString("Contact_Name"));
+    private void populateContactCB() {
+        LookupCache.Lookups current = LookupCache.current();
+        if (current != null) {
+            setContactItems(current);
         }
-        contactCB.setValue(contactNameList.get(0));
-        return contactNameList;
+        else {
+            BackgroundLoader.loadForScreen("reports.lookups", LookupCache::load, this::setContactItems,
+                    "Unable to populate Contact combobox");
+        }
+    }
 
+    /**
+     * sets the contact combobox's items and selects the first contact, which shows the first report
+     * @param lookups the lookup lists
+     */
+    private void setContactItems(LookupCache.Lookups lookups) {
+        this.lookups = lookups;
+        ObservableList <String> contactNameList = lookups.getContactNames();
+        contactCB.setItems(contactNameList);
+        if (!contactNameList.isEmpty()){
+            contactCB.setValue(contactNameList.get(0));
+        }
     }
 
     /**
@@ -140,21 +172,14 @@ public class Reports implements Initializable {
     public ObservableList<Appointment> firstReport() {
         //lists appointments based on contact
         ObservableList <Appointment> listByContact = FXCollections.observableArrayList();
-        try{
-            PreparedStatement preparedStatement = DBConnection.connection.prepareStatement("select Contact_ID from contacts where Contact_Name = ?;");
-            preparedStatement.setString(1, contactCB.getValue().toString());
-            ResultSet resultSet = preparedStatement.executeQuery();
-            int contactID = -1;
-            while(resultSet.next()){
-                contactID = resultSet.getInt("Contact_ID");
-            }
-            for (Appointment appointment : Landing.fullAppointmentList){
-                if (contactID == appointment.getContactID()){
-                    listByContact.add(appointment);
-                }
-            }
+        if (lookups == null || contactCB.getValue() == null){
+            return listByContact;
+        }
+        try {
+            int contactID = lookups.getContactID(contactCB.getValue().toString());
+            listByContact.setAll(reportSource.appointmentsForContact(contactID));
         }catch (SQLException e){
-
+            System.out.println("Unable to load appointments for contact");
         }
 
 
@@ -165,37 +190,15 @@ public class Reports implements Initializable {
      * generates the report listing the count by Month and Type
      */
     public void secondReport() {
-        //* these lists hold values for the report
-        ObservableList <Month> monthsList = FXCollections.observableArrayList();
-        ObservableList <String> typesList = FXCollections.observableArrayList();
-
-        String monthTypeCount = "";
-        for(int i = 1; i <= 12; i++){
-            monthsList.add(Month.of(i));
-        }
-        for(Appointment appointment : Landing.fullAppointmentList){
-            if (!typesList.contains(appointment.getType())){
-                typesList.add(appointment.getType());
-            }
-        }
-        int count = 0;
-        for(Month month : monthsList){
-            for (String type : typesList) {
-                for (Appointment appointment : Landing.fullAppointmentList){
-                    if (appointment.getStart().getMonth().equals(month) && appointment.getType().contains(type)){
-                        count++;
-                    }
-
-                }
-
-                if (count != 0){
-                    monthTypeCount += month + " - " + type + " - " + count + "\n";
-                    count = 0;
-                }
-
+        StringBuilder monthTypeCount = new StringBuilder();
+        try {
+            for (MonthTypeCount row : reportSource.countByMonthAndType()){
+                monthTypeCount.append(row).append("\n");
             }
+        } catch (SQLException e) {
+            System.out.println("Unable to count appointments by month and type");
         }
-        monthTypeField.setText(monthTypeCount);
+        monthTypeField.setText(monthTypeCount.toString());
 
     }
 
@@ -204,10 +207,17 @@ public class Reports implements Initializable {
      */
     public void thirdReport() {
         //list user appointments
+        int aptSize;
+        int custSize;
+        try {
+            aptSize = reportSource.countAppointments();
+            custSize = reportSource.countCustomers();
+        } catch (SQLException e) {
+            System.out.println("Unable to count appointments and customers");
+            return;
+        }
 
-        if (Landing.fullCustomerList.size() > 0 && Landing.fullAppointmentList.size() > 0) {
-            int aptSize = Landing.fullAppointmentList.size();
-            int custSize = Landing.fullCustomerList.size();
+        if (custSize > 0 && aptSize > 0) {
             Double avg = (Double.valueOf(aptSize)/Double.valueOf(custSize));
             DecimalFormat decimalFormat = new DecimalFormat("0.00");
             decimalFormat.setRoundingMode(RoundingMode.UP);
@@ -216,10 +226,10 @@ public class Reports implements Initializable {
         }
         else{
             String msg ="";
-            if (Landing.fullCustomerList.size() < 1){
+            if (custSize < 1){
                 msg += "No customers in list\n";
             }
-            if (Landing.fullAppointmentList.size() < 1){
+            if (aptSize < 1){
                 msg += "No appointments in list\n";
             }
             avgAptsLabel.setText(msg);
@@ -227,4 +237,34 @@ public class Reports implements Initializable {
 
     }
 
+    /**
+     * Reports the logins in the last 24 hours and the usernames with repeated failures in the last hour,
+     * read from the audit log in the background
+     */
+    public void loginActivityReport() {
+        BackgroundLoader.loadForScreen("reports.loginActivity", () -> {
+            LoginAnalytics analytics = LoginAnalytics.shared();
+            int successes = 0;
+            for (int count : analytics.loginsPerHour(24)) {
+                successes += count;
+            }
+            int failures = 0;
+            for (int count : analytics.failuresPerHour(24)) {
+                failures += count;
+            }
+            StringBuilder report = new StringBuilder();
+            report.append(successes).append(" successful and ").append(failures).append(" failed logins\n");
+            Map<String, Integer> candidates = analytics.lockoutCandidates(LOCKOUT_FAILURES, Duration.ofHours(1));
+            if (candidates.isEmpty()) {
+                report.append("No users with ").append(LOCKOUT_FAILURES).append(" or more failures in the last hour\n");
+            }
+            else {
+                report.append("Users with ").append(LOCKOUT_FAILURES).append(" or more failures in the last hour:\n");
+                for (Map.Entry<String, Integer> candidate : candidates.entrySet()) {
+                    report.append("  ").append(candidate.getKey()).append(" (").append(candidate.getValue()).append(")\n");
+                }
+            }
+            return report.toString();
+        }, loginActivityField::setText, "Unable to read login activity");
+    }
 }
@@ -0,0 +1,405 @@
+package dao;
+
+import jdbc.DBConnection;
+import model.Appointment;
+import model.AppointmentRecord;
+import util.PageSource;
+import util.TimeService;
+
+import java.sql.Connection;
+import java.sql.PreparedStatement;
+import java.sql.ResultSet;
+import java.sql.SQLException;
+import java.sql.Statement;
+import java.sql.Timestamp;
+import java.time.LocalDateTime;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Map;
+import java.util.function.Consumer;
+
+/**
+ * Reads and writes appointments in the database
+ * @author Derek Brown
+ */
+public class AppointmentRepository {
+    /**
+     * rows fetched per round trip when streaming the whole table
+     */
+    static final int STREAM_FETCH_SIZE = 1000;
+    /**
+     * the column each sortable table property is stored in - only these are put into an ORDER BY
+     */
+    private static final Map<String, String> SORT_COLUMNS = Map.of("appointmentID", "Appointment_ID", "title", "Title",
+            "description", "Description", "location", "Location", "contactID", "Contact_ID", "type", "Type",
+            "start", "Start", "end", "End", "customerID", "Customer_ID", "userID", "User_ID");
+
+    /**
+     * loads every appointment
+     * @return list of all appointments
+     * @throws SQLException if the query fails
+     */
+    public static List<Appointment> findAll() throws SQLException {
+        List<Appointment> appointments = new ArrayList<>();
+        try (Connection connection = DBConnection.getConnection();
+             PreparedStatement preparedStatement = connection.prepareStatement("select * from appointments;");
+             ResultSet resultSet = preparedStatement.executeQuery()) {
+            while (resultSet.next()) {
+                appointments.add(mapAppointment(resultSet));
+            }
+        }
+        return appointments;
+    }
+
+    /**
+     * reads every appointment, passing each one on as it is read instead of building a list
+     * @param sink receives each appointment
+     * @throws SQLException if the query fails
+     */
+    public static void streamAll(Consumer<Appointment> sink) throws SQLException {
+        try (Connection connection = DBConnection.getConnection();
+             PreparedStatement preparedStatement = connection.prepareStatement("select * from appointments;")) {
+            preparedStatement.setFetchSize(STREAM_FETCH_SIZE);
+            try (ResultSet resultSet = preparedStatement.executeQuery()) {
+                while (resultSet.next()) {
+                    sink.accept(mapAppointment(resultSet));
+                }
+            }
+        }
+    }
+
+    /**
+     * reads every appointment as it is stored, with the times left in UTC, passing each one on as it is read
+     * @param sink receives each appointment
+     * @throws SQLException if the query fails
+     */
+    public static void streamRecords(Consumer<AppointmentRecord> sink) throws SQLException {
+        try (Connection connection = DBConnection.getConnection();
+             PreparedStatement preparedStatement = connection.prepareStatement("select * from appointments order by Appointment_ID;")) {
+            preparedStatement.setFetchSize(STREAM_FETCH_SIZE);
+            try (ResultSet resultSet = preparedStatement.executeQuery()) {
+                while (resultSet.next()) {
+                    sink.accept(mapRecord(resultSet));
+                }
+            }
+        }
+    }
+
+    /**
+     * inserts an appointment
+     * @param record the appointment to insert - its appointment ID is ignored
+     * @param username recorded as the creator of the appointment
+     * @return the appointment ID the database assigned
+     * @throws SQLException if the insert fails
+     */
+    public static int insert(AppointmentRecord record, String username) throws SQLException {
+        try (Connection connection = DBConnection.getConnection();
+             PreparedStatement preparedStatement = connection.prepareStatement("insert into appointments (Title, Description, Location, Type, Start, End, "
+                     + "Customer_ID, User_ID, Contact_ID, Last_Update, Last_Updated_By, Created_By, Create_Date)"
+                     + " Values (?, ?, ?, ?, ?, ?, ?, ?, ?, CURRENT_TIMESTAMP, ?, ?, CURRENT_TIMESTAMP);", Statement.RETURN_GENERATED_KEYS)) {
+            setColumns(preparedStatement, record);
+            preparedStatement.setString(10, username);
+            preparedStatement.setString(11, username);
+            preparedStatement.executeUpdate();
+            try (ResultSet keys = preparedStatement.getGeneratedKeys()) {
+                return keys.next() ? keys.getInt(1) : -1;
+            }
+        }
+    }
+
+    /**
+     * updates an appointment
+     * @param record the new values, identified by its appointment ID
+     * @param username recorded as the last user to update the appointment
+     * @return true if the appointment was found and updated
+     * @throws SQLException if the update fails
+     */
+    public static boolean update(AppointmentRecord record, String username) throws SQLException {
+        try (Connection connection = DBConnection.getConnection();
+             PreparedStatement preparedStatement = connection.prepareStatement("update appointments set Title = ?, Description = ?, "
+                     + "Location = ?, Type = ?, Start = ?, End = ?, Customer_ID = ?, User_ID = ?, Contact_ID = ?, "
+                     + "Last_Update = CURRENT_TIMESTAMP, Last_Updated_By = ? where Appointment_ID = ?")) {
+            setColumns(preparedStatement, record);
+            preparedStatement.setString(10, username);
+            preparedStatement.setInt(11, record.getAppointmentID());
+            return preparedStatement.executeUpdate() > 0;
+        }
+    }
+
+    /**
+     * deletes an appointment
+     * @param appointmentID the appointment to delete
+     * @return true if the appointment was found and deleted
+     * @throws SQLException if the delete fails
+     */
+    public static boolean delete(int appointmentID) throws SQLException {
+        try (Connection connection = DBConnection.getConnection();
+             PreparedStatement preparedStatement = connection.prepareStatement("delete from appointments where Appointment_ID = ?;")) {
+            preparedStatement.setInt(1, appointmentID);
+            return preparedStatement.executeUpdate() > 0;
+        }
+    }
+
+    /**
+     * inserts appointments as one JDBC batch on the given connection. The caller owns the transaction.
+     * With rewriteBatchedStatements=true on the connection URL the driver sends the batch as multi-row inserts
+     * @param connection the connection to insert on
+     * @param records the appointments to insert - their appointment IDs are ignored
+     * @param username recorded as the creator of each appointment
+     * @return the number of rows inserted
+     * @throws SQLException if the insert fails
+     */
+    public static int insertBatch(Connection connection, List<AppointmentRecord> records, String username) throws SQLException {
+        if (records.isEmpty()) {
+            return 0;
+        }
+        try (PreparedStatement preparedStatement = connection.prepareStatement("insert into appointments (Title, Description, Location, Type, Start, End, "
+                + "Customer_ID, User_ID, Contact_ID, Last_Update, Last_Updated_By, Created_By, Create_Date)"
+                + " Values (?, ?, ?, ?, ?, ?, ?, ?, ?, CURRENT_TIMESTAMP, ?, ?, CURRENT_TIMESTAMP);")) {
+            for (AppointmentRecord record : records) {
+                setColumns(preparedStatement, record);
+                preparedStatement.setString(10, username);
+                preparedStatement.setString(11, username);
+                preparedStatement.addBatch();
+            }
+            int inserted = 0;
+            for (int count : preparedStatement.executeBatch()) {
+                //rewritten batches report SUCCESS_NO_INFO instead of a row count
+                inserted += count == Statement.SUCCESS_NO_INFO ? 1 : count;
+            }
+            return inserted;
+        }
+    }
+
+    /**
+     * counts the appointments
+     * @return the number of appointments
+     * @throws SQLException if the query fails
+     */
+    public static int count() throws SQLException {
+        try (Connection connection = DBConnection.getConnection();
+             PreparedStatement preparedStatement = connection.prepareStatement("select count(*) from appointments;");
+             ResultSet resultSet = preparedStatement.executeQuery()) {
+            resultSet.next();
+            return resultSet.getInt(1);
+        }
+    }
+
+    /**
+     * reads one page of appointments in Appointment_ID order, seeking past afterID with the primary key
+     * @param afterID only appointments with a greater ID are read
+     * @param skip rows to skip after afterID before the page starts
+     * @param limit the most rows to read
+     * @return the page of appointments
+     * @throws SQLException if the query fails
+     */
+    public static List<Appointment> findPage(int afterID, int skip, int limit) throws SQLException {
+        List<Appointment> appointments = new ArrayList<>();
+        try (Connection connection = DBConnection.getConnection();
+             PreparedStatement preparedStatement = connection.prepareStatement("select * from appointments where Appointment_ID > ? order by Appointment_ID limit ? offset ?;")) {
+            preparedStatement.setInt(1, afterID);
+            preparedStatement.setInt(2, limit);
+            preparedStatement.setInt(3, skip);
+            preparedStatement.setFetchSize(limit);
+            try (ResultSet resultSet = preparedStatement.executeQuery()) {
+                while (resultSet.next()) {
+                    appointments.add(mapAppointment(resultSet));
+                }
+            }
+        }
+        return appointments;
+    }
+
+    /**
+     * reads one page of appointments in the order of a column, with ties in Appointment_ID order.
+     * Rows are skipped with an offset - a key only locates a page in key order
+     * @param property the table property to sort by (see SORT_COLUMNS)
+     * @param descending true to sort largest first
+     * @param skip rows to skip before the page starts
+     * @param limit the most rows to read
+     * @return the page of appointments
+     * @throws SQLException if the query fails
+     */
+    public static List<Appointment> findPage(String property, boolean descending, int skip, int limit) throws SQLException {
+        String column = SORT_COLUMNS.get(property);
+        if (column == null) {
+            throw new IllegalArgumentException("Can't sort appointments by " + property);
+        }
+        String direction = descending ? " desc" : " asc";
+        List<Appointment> appointments = new ArrayList<>();
+        try (Connection connection = DBConnection.getConnection();
+             PreparedStatement preparedStatement = connection.prepareStatement("select * from appointments order by "
+                     + column + direction + ", Appointment_ID" + direction + " limit ? offset ?;")) {
+            preparedStatement.setInt(1, limit);
+            preparedStatement.setInt(2, skip);
+            preparedStatement.setFetchSize(limit);
+            try (ResultSet resultSet = preparedStatement.executeQuery()) {
+                while (resultSet.next()) {
+                    appointments.add(mapAppointment(resultSet));
+                }
+            }
+        }
+        return appointments;
+    }
+
+    /**
+     * @return the appointments table as a source for a PagedList, keyed by Appointment_ID
+     */
+    public static PageSource<Appointment> pageSource() {
+        return new PageSource<>() {
+            @Override
+            public int count() throws SQLException {
+                return AppointmentRepository.count();
+            }
+
+            @Override
+            public List<Appointment> fetchPage(int afterKey, int skip, int limit) throws SQLException {
+                return findPage(afterKey, skip, limit);
+            }
+
+            @Override
+            public List<Appointment> fetchSortedPage(String property, boolean descending, int skip, int limit) throws SQLException {
+                return findPage(property, descending, skip, limit);
+            }
+
+            @Override
+            public boolean canSortBy(String property) {
+                return SORT_COLUMNS.containsKey(property);
+            }
+
+            @Override
+            public int keyOf(Appointment row) {
+                return row.getAppointmentID();
+            }
+        };
+    }
+
+    /**
+     * loads the appointments starting strictly inside a time window, using the index on Start
+     * @param from the start of the window in local time (exclusive)
+     * @param to the end of the window in local time (exclusive)
+     * @return the appointments in start order
+     * @throws SQLException if the query fails
+     */
+    public static List<Appointment> findStartingBetween(LocalDateTime from, LocalDateTime to) throws SQLException {
+        List<Appointment> appointments = new ArrayList<>();
+        try (Connection connection = DBConnection.getConnection();
+             PreparedStatement preparedStatement = connection.prepareStatement("select * from appointments where Start > ? and Start < ? order by Start;")) {
+            //Start is stored in UTC
+            preparedStatement.setTimestamp(1, Timestamp.valueOf(TimeService.localToUtc(from)));
+            preparedStatement.setTimestamp(2, Timestamp.valueOf(TimeService.localToUtc(to)));
+            try (ResultSet resultSet = preparedStatement.executeQuery()) {
+                while (resultSet.next()) {
+                    appointments.add(mapAppointment(resultSet));
+                }
+            }
+        }
+        return appointments;
+    }
+
+    /**
+     * loads the appointments inserted or updated since the watermark
+     * @param watermark only rows with a Last_Update at or after this time are returned
+     * @return list of changed appointments
+     * @throws SQLException if the query fails
+     */
+    public static List<Appointment> findUpdatedSince(Timestamp watermark) throws SQLException {
+        List<Appointment> appointments = new ArrayList<>();
+        try (Connection connection = DBConnection.getConnection();
+             PreparedStatement preparedStatement = connection.prepareStatement("select * from appointments where Last_Update >= ?;")) {
+            preparedStatement.setTimestamp(1, watermark);
+            try (ResultSet resultSet = preparedStatement.executeQuery()) {
+                while (resultSet.next()) {
+                    appointments.add(mapAppointment(resultSet));
+                }
+            }
+        }
+        return appointments;
+    }
+
+    /**
+     * loads the IDs of appointments deleted since the watermark (recorded in appointment_deletions by trigger)
+     * @param watermark only deletions at or after this time are returned
+     * @return list of deleted appointment IDs
+     * @throws SQLException if the query fails
+     */
+    public static List<Integer> findDeletedSince(Timestamp watermark) throws SQLException {
+        List<Integer> deletedIDs = new ArrayList<>();
+        try (Connection connection = DBConnection.getConnection();
+             PreparedStatement preparedStatement = connection.prepareStatement("select Appointment_ID from appointment_deletions where Deleted_At >= ?;")) {
+            preparedStatement.setTimestamp(1, watermark);
+            try (ResultSet resultSet = preparedStatement.executeQuery()) {
+                while (resultSet.next()) {
+                    deletedIDs.add(resultSet.getInt("Appointment_ID"));
+                }
+            }
+        }
+        return deletedIDs;
+    }
+
+    /**
+     * reads the database clock - used as the watermark for the next incremental refresh
+     * @return the current time on the database server
+     * @throws SQLException if the query fails
+     */
+    public static Timestamp currentTimestamp() throws SQLException {
+        try (Connection connection = DBConnection.getConnection();
+             PreparedStatement preparedStatement = connection.prepareStatement("select CURRENT_TIMESTAMP;");
+             ResultSet resultSet = preparedStatement.executeQuery()) {
+            resultSet.next();
+            return resultSet.getTimestamp(1);
+        }
+    }
+
+    /**
+     * sets the first nine parameters of an insert or update - Title through Contact_ID, in table order
+     * @param preparedStatement the insert or update
+     * @param record the values to set
+     * @throws SQLException if a parameter can't be set
+     */
+    private static void setColumns(PreparedStatement preparedStatement, AppointmentRecord record) throws SQLException {
+        preparedStatement.setString(1, record.getTitle());
+        preparedStatement.setString(2, record.getDescription());
+        preparedStatement.setString(3, record.getLocation());
+        preparedStatement.setString(4, record.getType());
+        preparedStatement.setTimestamp(5, Timestamp.valueOf(record.getStart()));
+        preparedStatement.setTimestamp(6, Timestamp.valueOf(record.getEnd()));
+        preparedStatement.setInt(7, record.getCustomerID());
+        preparedStatement.setInt(8, record.getUserID());
+        preparedStatement.setInt(9, record.getContactID());
+    }
+
+    /**
+     * builds an appointment record from the current row, leaving the times in UTC
+     * @param resultSet a result set positioned on an appointments row
+     * @return the appointment record
+     * @throws SQLException if a column can't be read
+     */
+    public static AppointmentRecord mapRecord(ResultSet resultSet) throws SQLException {
+        return new AppointmentRecord(resultSet.getInt("Appointment_ID"), resultSet.getString("Title"),
+                resultSet.getString("Description"), resultSet.getString("Location"), resultSet.getString("Type"),
+                resultSet.getTimestamp("Start").toLocalDateTime(), resultSet.getTimestamp("End").toLocalDateTime(),
+                resultSet.getInt("Customer_ID"), resultSet.getInt("User_ID"), resultSet.getInt("Contact_ID"));
+    }
+
+    /**
+     * builds an appointment from the current row
+     * @param resultSet a result set positioned on an appointments row
+     * @return the appointment
+     * @throws SQLException if a column can't be read
+     */
+    public static Appointment mapAppointment(ResultSet resultSet) throws SQLException {
+        Appointment apt = new Appointment(-1,null,null,null,null,null,null,-1,-1, -1);
+        apt.setAppointmentID(resultSet.getInt("Appointment_ID"));
+        apt.setTitle(resultSet.getString("Title"));
+        apt.setLocation(resultSet.getString("Location"));
+        apt.setType(resultSet.getString("Type"));
+        apt.setContactID(resultSet.getInt("Contact_ID"));
+        apt.setCustomerID(resultSet.getInt("Customer_ID"));
+        apt.setDescription(resultSet.getString("Description"));
+        apt.setStart(resultSet.getTimestamp("Start").toLocalDateTime());
+        apt.setEnd(resultSet.getTimestamp("End").toLocalDateTime());
+        apt.setUserID(resultSet.getInt("User_ID"));
+        return apt;
+    }
+}
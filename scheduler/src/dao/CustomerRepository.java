@@ -0,0 +1,274 @@
+package dao;
+
+import jdbc.DBConnection;
+import model.Customer;
+import util.PageSource;
+
+import java.sql.Connection;
+import java.sql.PreparedStatement;
+import java.sql.ResultSet;
+import java.sql.SQLException;
+import java.sql.Statement;
+import java.sql.Timestamp;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Map;
+import java.util.function.Consumer;
+
+/**
+ * Reads and writes customers in the database
+ * @author Derek Brown
+ */
+public class CustomerRepository {
+    /**
+     * the expression each sortable table property is sorted by - only these are put into an ORDER BY.
+     * The division and country columns show names, so they sort by the name looked up from the Division_ID
+     */
+    private static final Map<String, String> SORT_COLUMNS = Map.of("customerID", "Customer_ID",
+            "customerName", "Customer_Name", "address", "Address", "postalCode", "Postal_Code", "phone", "Phone",
+            "divisionID", "(select Division from first_level_divisions d where d.Division_ID = customers.Division_ID)",
+            "country", "(select Country from countries c join first_level_divisions d on d.Country_ID = c.Country_ID "
+                    + "where d.Division_ID = customers.Division_ID)");
+
+    /**
+     * loads every customer
+     * @return list of all customers
+     * @throws SQLException if the query fails
+     */
+    public static List<Customer> findAll() throws SQLException {
+        List<Customer> customers = new ArrayList<>();
+        streamAll(customers::add);
+        return customers;
+    }
+
+    /**
+     * loads the customer IDs for the customer combobox
+     * @return every customer ID in ascending order
+     * @throws SQLException if the query fails
+     */
+    public static List<Integer> findAllIDs() throws SQLException {
+        return ReferenceDataRepository.findIDs("select Customer_ID from customers order by Customer_ID asc;");
+    }
+
+    /**
+     * reads every customer, passing each one on as it is read instead of building a list
+     * @param sink receives each customer
+     * @throws SQLException if the query fails
+     */
+    public static void streamAll(Consumer<Customer> sink) throws SQLException {
+        try (Connection connection = DBConnection.getConnection();
+             PreparedStatement preparedStatement = connection.prepareStatement("select * from customers;")) {
+            preparedStatement.setFetchSize(AppointmentRepository.STREAM_FETCH_SIZE);
+            try (ResultSet resultSet = preparedStatement.executeQuery()) {
+                while (resultSet.next()) {
+                    sink.accept(mapCustomer(resultSet));
+                }
+            }
+        }
+    }
+
+    /**
+     * loads the customers inserted or updated since the watermark
+     * @param watermark only rows with a Last_Update at or after this time are returned
+     * @return list of changed customers
+     * @throws SQLException if the query fails
+     */
+    public static List<Customer> findUpdatedSince(Timestamp watermark) throws SQLException {
+        List<Customer> customers = new ArrayList<>();
+        try (Connection connection = DBConnection.getConnection();
+             PreparedStatement preparedStatement = connection.prepareStatement("select * from customers where Last_Update >= ?;")) {
+            preparedStatement.setTimestamp(1, watermark);
+            try (ResultSet resultSet = preparedStatement.executeQuery()) {
+                while (resultSet.next()) {
+                    customers.add(mapCustomer(resultSet));
+                }
+            }
+        }
+        return customers;
+    }
+
+    /**
+     * counts the customers
+     * @return the number of customers
+     * @throws SQLException if the query fails
+     */
+    public static int count() throws SQLException {
+        try (Connection connection = DBConnection.getConnection();
+             PreparedStatement preparedStatement = connection.prepareStatement("select count(*) from customers;");
+             ResultSet resultSet = preparedStatement.executeQuery()) {
+            resultSet.next();
+            return resultSet.getInt(1);
+        }
+    }
+
+    /**
+     * reads one page of customers in Customer_ID order, seeking past afterID with the primary key
+     * @param afterID only customers with a greater ID are read
+     * @param skip rows to skip after afterID before the page starts
+     * @param limit the most rows to read
+     * @return the page of customers
+     * @throws SQLException if the query fails
+     */
+    public static List<Customer> findPage(int afterID, int skip, int limit) throws SQLException {
+        List<Customer> customers = new ArrayList<>();
+        try (Connection connection = DBConnection.getConnection();
+             PreparedStatement preparedStatement = connection.prepareStatement("select * from customers where Customer_ID > ? order by Customer_ID limit ? offset ?;")) {
+            preparedStatement.setInt(1, afterID);
+            preparedStatement.setInt(2, limit);
+            preparedStatement.setInt(3, skip);
+            preparedStatement.setFetchSize(limit);
+            try (ResultSet resultSet = preparedStatement.executeQuery()) {
+                while (resultSet.next()) {
+                    customers.add(mapCustomer(resultSet));
+                }
+            }
+        }
+        return customers;
+    }
+
+    /**
+     * reads one page of customers in the order of a column, with ties in Customer_ID order.
+     * Rows are skipped with an offset - a key only locates a page in key order
+     * @param property the table property to sort by (see SORT_COLUMNS)
+     * @param descending true to sort largest first
+     * @param skip rows to skip before the page starts
+     * @param limit the most rows to read
+     * @return the page of customers
+     * @throws SQLException if the query fails
+     */
+    public static List<Customer> findPage(String property, boolean descending, int skip, int limit) throws SQLException {
+        String column = SORT_COLUMNS.get(property);
+        if (column == null) {
+            throw new IllegalArgumentException("Can't sort customers by " + property);
+        }
+        String direction = descending ? " desc" : " asc";
+        List<Customer> customers = new ArrayList<>();
+        try (Connection connection = DBConnection.getConnection();
+             PreparedStatement preparedStatement = connection.prepareStatement("select * from customers order by "
+                     + column + direction + ", Customer_ID" + direction + " limit ? offset ?;")) {
+            preparedStatement.setInt(1, limit);
+            preparedStatement.setInt(2, skip);
+            preparedStatement.setFetchSize(limit);
+            try (ResultSet resultSet = preparedStatement.executeQuery()) {
+                while (resultSet.next()) {
+                    customers.add(mapCustomer(resultSet));
+                }
+            }
+        }
+        return customers;
+    }
+
+    /**
+     * @return the customers table as a source for a PagedList, keyed by Customer_ID
+     */
+    public static PageSource<Customer> pageSource() {
+        return new PageSource<>() {
+            @Override
+            public int count() throws SQLException {
+                return CustomerRepository.count();
+            }
+
+            @Override
+            public List<Customer> fetchPage(int afterKey, int skip, int limit) throws SQLException {
+                return findPage(afterKey, skip, limit);
+            }
+
+            @Override
+            public List<Customer> fetchSortedPage(String property, boolean descending, int skip, int limit) throws SQLException {
+                return findPage(property, descending, skip, limit);
+            }
+
+            @Override
+            public boolean canSortBy(String property) {
+                return SORT_COLUMNS.containsKey(property);
+            }
+
+            @Override
+            public int keyOf(Customer row) {
+                return row.getCustomerID();
+            }
+        };
+    }
+
+    /**
+     * inserts a customer
+     * @param customer the customer to insert - its customer ID is ignored
+     * @param username recorded as the creator of the customer
+     * @return the customer ID the database assigned
+     * @throws SQLException if the insert fails
+     */
+    public static int insert(Customer customer, String username) throws SQLException {
+        try (Connection connection = DBConnection.getConnection();
+             PreparedStatement preparedStatement = connection.prepareStatement("insert into customers "
+                     + "(Customer_Name, Address, Postal_Code, Phone, Create_Date, Created_By, Last_Update, Last_Updated_By, Division_ID) "
+                     + "Values (?, ?, ?, ?, CURRENT_TIMESTAMP, ?, CURRENT_TIMESTAMP, ?, ?)", Statement.RETURN_GENERATED_KEYS)) {
+            preparedStatement.setString(1, customer.getCustomerName());
+            preparedStatement.setString(2, customer.getAddress());
+            preparedStatement.setString(3, customer.getPostalCode());
+            preparedStatement.setString(4, customer.getPhone());
+            preparedStatement.setString(5, username);
+            preparedStatement.setString(6, username);
+            preparedStatement.setInt(7, customer.getFirstLevelDivisionID());
+            preparedStatement.executeUpdate();
+            try (ResultSet keys = preparedStatement.getGeneratedKeys()) {
+                return keys.next() ? keys.getInt(1) : -1;
+            }
+        }
+    }
+
+    /**
+     * updates a customer
+     * @param customer the new values, identified by its customer ID
+     * @param username recorded as the last user to update the customer
+     * @return true if the customer was found and updated
+     * @throws SQLException if the update fails
+     */
+    public static boolean update(Customer customer, String username) throws SQLException {
+        try (Connection connection = DBConnection.getConnection();
+             PreparedStatement preparedStatement = connection.prepareStatement("update customers set Customer_Name = ?, "
+                     + "Address = ?, Postal_Code = ?, Phone = ?, Last_Update = CURRENT_TIMESTAMP, "
+                     + "Last_Updated_By = ?, Division_ID = ? where Customer_ID = ?")) {
+            preparedStatement.setString(1, customer.getCustomerName());
+            preparedStatement.setString(2, customer.getAddress());
+            preparedStatement.setString(3, customer.getPostalCode());
+            preparedStatement.setString(4, customer.getPhone());
+            preparedStatement.setString(5, username);
+            preparedStatement.setInt(6, customer.getFirstLevelDivisionID());
+            preparedStatement.setInt(7, customer.getCustomerID());
+            return preparedStatement.executeUpdate() > 0;
+        }
+    }
+
+    /**
+     * deletes a customer with a single statement - the appointments foreign key is ON DELETE CASCADE, so the database
+     * removes the customer's appointments in the same statement, and the customers_before_delete trigger records them
+     * in appointment_deletions. Either everything is deleted or nothing is
+     * @param customerID the customer to delete
+     * @return true if the customer was deleted
+     * @throws SQLException if the delete fails
+     */
+    public static boolean delete(int customerID) throws SQLException {
+        try (Connection connection = DBConnection.getConnection();
+             PreparedStatement preparedStatement = connection.prepareStatement("delete from customers where Customer_ID = ?;")) {
+            preparedStatement.setInt(1, customerID);
+            return preparedStatement.executeUpdate() > 0;
+        }
+    }
+
+    /**
+     * builds a customer from the current row
+     * @param resultSet a result set positioned on a customers row
+     * @return the customer
+     * @throws SQLException if a column can't be read
+     */
+    public static Customer mapCustomer(ResultSet resultSet) throws SQLException {
+        Customer customer = new Customer(-1, "", "", "", "", -1);
+        customer.setCustomerID(resultSet.getInt("Customer_ID"));
+        customer.setCustomerName(resultSet.getString("Customer_Name"));
+        customer.setAddress(resultSet.getString("Address"));
+        customer.setPostalCode(resultSet.getString("Postal_Code"));
+        customer.setPhone(resultSet.getString("Phone"));
+        customer.setDivisionID(resultSet.getInt("Division_ID"));
+        return customer;
+    }
+}
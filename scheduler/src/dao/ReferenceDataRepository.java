@@ -0,0 +1,151 @@
+package dao;
+
+import jdbc.DBConnection;
+import model.Country;
+import model.Division;
+
+import java.sql.Connection;
+import java.sql.PreparedStatement;
+import java.sql.ResultSet;
+import java.sql.SQLException;
+import java.util.ArrayList;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+
+/**
+ * Reads the reference tables (countries, first level divisions, contacts and users) from the database
+ * @author Derek Brown
+ */
+public class ReferenceDataRepository {
+
+    /**
+     * loads every country in one query
+     * @return list of all countries ordered by ID
+     * @throws SQLException if the query fails
+     */
+    public static List<Country> findAllCountries() throws SQLException {
+        List<Country> countries = new ArrayList<>();
+        try (Connection connection = DBConnection.getConnection();
+             PreparedStatement preparedStatement = connection.prepareStatement("select Country_ID, Country from countries order by Country_ID;");
+             ResultSet resultSet = preparedStatement.executeQuery()) {
+            while (resultSet.next()) {
+                countries.add(new Country(resultSet.getInt("Country_ID"), resultSet.getString("Country")));
+            }
+        }
+        return countries;
+    }
+
+    /**
+     * loads every first level division in one query
+     * @return list of all divisions ordered by ID
+     * @throws SQLException if the query fails
+     */
+    public static List<Division> findAllDivisions() throws SQLException {
+        List<Division> divisions = new ArrayList<>();
+        try (Connection connection = DBConnection.getConnection();
+             PreparedStatement preparedStatement = connection.prepareStatement("select Division_ID, Division, Country_ID from first_level_divisions order by Division_ID;");
+             ResultSet resultSet = preparedStatement.executeQuery()) {
+            while (resultSet.next()) {
+                divisions.add(new Division(resultSet.getInt("Division_ID"), resultSet.getString("Division"), resultSet.getInt("Country_ID")));
+            }
+        }
+        return divisions;
+    }
+
+    /**
+     * loads the contact names for the contact combobox
+     * @return every contact name
+     * @throws SQLException if the query fails
+     */
+    public static List<String> findContactNames() throws SQLException {
+        return findStrings("select Contact_Name from contacts;", null);
+    }
+
+    /**
+     * loads every contact in one query
+     * @return each contact's name by Contact_ID, in ID order
+     * @throws SQLException if the query fails
+     */
+    public static Map<Integer, String> findAllContacts() throws SQLException {
+        Map<Integer, String> contacts = new LinkedHashMap<>();
+        try (Connection connection = DBConnection.getConnection();
+             PreparedStatement preparedStatement = connection.prepareStatement("select Contact_ID, Contact_Name from contacts order by Contact_ID asc;");
+             ResultSet resultSet = preparedStatement.executeQuery()) {
+            while (resultSet.next()) {
+                contacts.put(resultSet.getInt("Contact_ID"), resultSet.getString("Contact_Name"));
+            }
+        }
+        return contacts;
+    }
+
+    /**
+     * looks up a contact by name
+     * @param contactName the contact name
+     * @return the Contact_ID, or -1 if there is no such contact
+     * @throws SQLException if the query fails
+     */
+    public static int findContactID(String contactName) throws SQLException {
+        List<String> ids = findStrings("select Contact_ID from contacts where Contact_Name = ?;", contactName);
+        return ids.isEmpty() ? -1 : Integer.parseInt(ids.get(ids.size() - 1));
+    }
+
+    /**
+     * loads the contact IDs for the contact combobox
+     * @return every contact ID in ascending order
+     * @throws SQLException if the query fails
+     */
+    public static List<Integer> findContactIDs() throws SQLException {
+        return findIDs("select Contact_ID from contacts order by Contact_ID asc;");
+    }
+
+    /**
+     * loads the user IDs for the user combobox
+     * @return every user ID in ascending order
+     * @throws SQLException if the query fails
+     */
+    public static List<Integer> findUserIDs() throws SQLException {
+        return findIDs("select User_ID from users order by User_ID asc;");
+    }
+
+    /**
+     * runs a query returning a single string column
+     * @param sql the query
+     * @param parameter the value for the query's parameter, or null if it has none
+     * @return the first column of every row
+     * @throws SQLException if the query fails
+     */
+    private static List<String> findStrings(String sql, String parameter) throws SQLException {
+        List<String> values = new ArrayList<>();
+        try (Connection connection = DBConnection.getConnection();
+             PreparedStatement preparedStatement = connection.prepareStatement(sql)) {
+            if (parameter != null) {
+                preparedStatement.setString(1, parameter);
+            }
+            try (ResultSet resultSet = preparedStatement.executeQuery()) {
+                while (resultSet.next()) {
+                    values.add(resultSet.getString(1));
+                }
+            }
+        }
+        return values;
+    }
+
+    /**
+     * runs a query returning a single int column
+     * @param sql the query
+     * @return the first column of every row
+     * @throws SQLException if the query fails
+     */
+    static List<Integer> findIDs(String sql) throws SQLException {
+        List<Integer> ids = new ArrayList<>();
+        try (Connection connection = DBConnection.getConnection();
+             PreparedStatement preparedStatement = connection.prepareStatement(sql);
+             ResultSet resultSet = preparedStatement.executeQuery()) {
+            while (resultSet.next()) {
+                ids.add(resultSet.getInt(1));
+            }
+        }
+        return ids;
+    }
+}
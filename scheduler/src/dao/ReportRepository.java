@@ -0,0 +1,93 @@
+package dao;
+
+import jdbc.DBConnection;
+import model.Appointment;
+import model.StringDictionary;
+import report.Aggregator;
+import report.IntCountMap;
+import report.MonthTypeCount;
+import util.TimeService;
+
+import java.sql.Connection;
+import java.sql.PreparedStatement;
+import java.sql.ResultSet;
+import java.sql.SQLException;
+import java.time.LocalDateTime;
+import java.util.ArrayList;
+import java.util.List;
+
+/**
+ * Runs the report queries in the database
+ * @author Derek Brown
+ */
+public class ReportRepository {
+
+    /**
+     * loads the appointments for one contact
+     * @param contactID the contact ID
+     * @return the contact's appointments
+     * @throws SQLException if the query fails
+     */
+    public static List<Appointment> findAppointmentsByContact(int contactID) throws SQLException {
+        List<Appointment> appointments = new ArrayList<>();
+        try (Connection connection = DBConnection.getConnection();
+             PreparedStatement preparedStatement = connection.prepareStatement("select * from appointments where Contact_ID = ?;")) {
+            preparedStatement.setInt(1, contactID);
+            try (ResultSet resultSet = preparedStatement.executeQuery()) {
+                while (resultSet.next()) {
+                    appointments.add(AppointmentRepository.mapAppointment(resultSet));
+                }
+            }
+        }
+        return appointments;
+    }
+
+    /**
+     * counts appointments by month and type. The database groups them by type and UTC hour, so the rows returned
+     * grow with the time span covered rather than the table, and each hour is then turned into a month in the user's
+     * time zone with the offset in force at that instant, as Aggregator does in memory - a single current offset
+     * would put appointments on the far side of a DST change a month boundary away into the wrong month.
+     * In a zone offset by part of an hour, an appointment in the hour a month starts is counted by the hour's start
+     * @return the counts ordered by month then type
+     * @throws SQLException if the query fails
+     */
+    public static List<MonthTypeCount> countByMonthAndType() throws SQLException {
+        StringDictionary types = new StringDictionary();
+        IntCountMap counts = new IntCountMap();
+
+        try (Connection connection = DBConnection.getConnection();
+             PreparedStatement preparedStatement = connection.prepareStatement("select Type, year(Start) as StartYear, "
+                     + "month(Start) as StartMonth, day(Start) as StartDay, hour(Start) as StartHour, count(*) as Total "
+                     + "from appointments where Start is not null "
+                     + "group by Type, year(Start), month(Start), day(Start), hour(Start);")) {
+            preparedStatement.setFetchSize(AppointmentRepository.STREAM_FETCH_SIZE);
+            try (ResultSet resultSet = preparedStatement.executeQuery()) {
+                while (resultSet.next()) {
+                    LocalDateTime hour = LocalDateTime.of(resultSet.getInt("StartYear"), resultSet.getInt("StartMonth"),
+                            resultSet.getInt("StartDay"), resultSet.getInt("StartHour"), 0);
+                    int month = TimeService.utcToLocal(hour).getMonthValue();
+                    counts.add(types.encode(resultSet.getString("Type")) * 16 + month, resultSet.getInt("Total"));
+                }
+            }
+        }
+        return Aggregator.toMonthTypeRows(counts, types::decode);
+    }
+
+    /**
+     * counts the rows in a table
+     * @param table the table name (appointments or customers)
+     * @return the number of rows
+     * @throws SQLException if the query fails
+     */
+    public static int countRows(String table) throws SQLException {
+        if (!table.equals("appointments") && !table.equals("customers")) {
+            throw new IllegalArgumentException("Can't count table " + table);
+        }
+        try (Connection connection = DBConnection.getConnection();
+             PreparedStatement preparedStatement = connection.prepareStatement("select count(*) from " + table + ";");
+             ResultSet resultSet = preparedStatement.executeQuery()) {
+            resultSet.next();
+            return resultSet.getInt(1);
+        }
+    }
+}
@@ -0,0 +1,50 @@
+package dao;
+
+import jdbc.DBConnection;
+
+import java.sql.Connection;
+import java.sql.SQLException;
+
+/**
+ * Runs several statements on one connection as a single transaction - committed if they all succeed,
+ * rolled back if any of them throws
+ * @author Derek Brown
+ */
+public class Transaction {
+    /**
+     * runs the work in a transaction
+     * @param work the statements to run, given the connection to run them on
+     * @param <T> the work's result type
+     * @return the work's result
+     * @throws SQLException if the work fails (after rolling it back) or the commit fails
+     */
+    public static <T> T run(Work<T> work) throws SQLException {
+        try (Connection connection = DBConnection.getConnection()) {
+            connection.setAutoCommit(false);
+            try {
+                T result = work.run(connection);
+                connection.commit();
+                return result;
+            } catch (SQLException | RuntimeException e) {
+                connection.rollback();
+                throw e;
+            } finally {
+                connection.setAutoCommit(true);
+            }
+        }
+    }
+
+    /**
+     * Statements run inside a transaction
+     * @param <T> the result type
+     */
+    public interface Work<T> {
+        /**
+         * runs the statements
+         * @param connection the connection to run them on - don't commit or close it
+         * @return the result
+         * @throws SQLException if a statement fails
+         */
+        T run(Connection connection) throws SQLException;
+    }
+}
@@ -0,0 +1,84 @@
+package dao;
+
+import jdbc.DBConnection;
+
+import java.sql.Connection;
+import java.sql.PreparedStatement;
+import java.sql.ResultSet;
+import java.sql.SQLException;
+import java.util.LinkedHashMap;
+import java.util.Map;
+
+/**
+ * Reads and updates user accounts in the database
+ * @author Derek Brown
+ */
+public class UserRepository {
+
+    /**
+     * loads the stored password for a user
+     * @param username the user name
+     * @return the stored password, or null if there is no such user
+     * @throws SQLException if the query fails
+     */
+    public static String findPassword(String username) throws SQLException {
+        try (Connection connection = DBConnection.getConnection();
+             PreparedStatement preparedStatement = connection.prepareStatement("select Password from users where User_Name = ?;")) {
+            preparedStatement.setString(1, username);
+            try (ResultSet resultSet = preparedStatement.executeQuery()) {
+                return resultSet.next() ? resultSet.getString("Password") : null;
+            }
+        }
+    }
+
+    /**
+     * loads every user's stored password
+     * @return the stored password for each user name
+     * @throws SQLException if the query fails
+     */
+    public static Map<String, String> findPasswords() throws SQLException {
+        Map<String, String> passwords = new LinkedHashMap<>();
+        try (Connection connection = DBConnection.getConnection();
+             PreparedStatement preparedStatement = connection.prepareStatement("select User_Name, Password from users;");
+             ResultSet resultSet = preparedStatement.executeQuery()) {
+            while (resultSet.next()) {
+                passwords.put(resultSet.getString("User_Name"), resultSet.getString("Password"));
+            }
+        }
+        return passwords;
+    }
+
+    /**
+     * replaces a user's stored password
+     * @param username the user name
+     * @param password the new stored password (a hash from PasswordHasher)
+     * @throws SQLException if the update fails
+     */
+    public static void updatePassword(String username, String password) throws SQLException {
+        Transaction.run(connection -> updatePasswords(connection, Map.of(username, password)));
+    }
+
+    /**
+     * replaces several users' stored passwords as one batch
+     * @param connection the connection to run on (inside a Transaction)
+     * @param passwords the new stored password for each user name
+     * @return number of users updated
+     * @throws SQLException if the update fails
+     */
+    public static int updatePasswords(Connection connection, Map<String, String> passwords) throws SQLException {
+        try (PreparedStatement preparedStatement = connection.prepareStatement(
+                "update users set Password = ?, Last_Update = CURRENT_TIMESTAMP, Last_Updated_By = ? where User_Name = ?")) {
+            for (Map.Entry<String, String> entry : passwords.entrySet()) {
+                preparedStatement.setString(1, entry.getValue());
+                preparedStatement.setString(2, entry.getKey());
+                preparedStatement.setString(3, entry.getKey());
+                preparedStatement.addBatch();
+            }
+            int updated = 0;
+            for (int count : preparedStatement.executeBatch()) {
+                updated += count == PreparedStatement.SUCCESS_NO_INFO ? 1 : count;
+            }
+            return updated;
+        }
+    }
+}
@@ -0,0 +1,345 @@
+package jdbc;
+
+import java.sql.Connection;
+import java.sql.DriverManager;
+import java.sql.SQLException;
+import java.sql.SQLTimeoutException;
+import java.util.Iterator;
+import java.util.concurrent.Executors;
+import java.util.concurrent.LinkedBlockingDeque;
+import java.util.concurrent.ScheduledExecutorService;
+import java.util.concurrent.Semaphore;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.atomic.AtomicLong;
+
+/**
+ * A bounded pool of database connections.
+ * Connections are validated when borrowed, evicted after sitting idle, and recycled once they reach their max lifetime
+ * @author Derek Brown
+ */
+public class ConnectionPool implements AutoCloseable {
+    /**
+     * url for the database
+     */
+    private final String url;
+    /**
+     * database username to log in
+     */
+    private final String username;
+    /**
+     * database password to log in
+     */
+    private final String password;
+    /**
+     * the most connections that can be checked out or idle at once
+     */
+    private final int maxSize;
+    /**
+     * idle eviction will not shrink the pool below this many connections
+     */
+    private final int minIdle;
+    /**
+     * how long a caller will wait for a free connection before giving up
+     */
+    private final long borrowTimeoutMillis;
+    /**
+     * how long a connection may sit unused before it is closed
+     */
+    private final long idleTimeoutMillis;
+    /**
+     * how long a connection may live before it is replaced with a fresh one
+     */
+    private final long maxLifetimeMillis;
+    /**
+     * connections returned more recently than this are not pinged again when borrowed
+     */
+    private final long validationIntervalMillis;
+    /**
+     * how long to wait for the database to answer a validation ping
+     */
+    private final int validationTimeoutSeconds;
+
+    /**
+     * one permit per connection - bounds the pool to maxSize
+     */
+    private final Semaphore permits;
+    /**
+     * connections waiting to be borrowed, most recently returned first
+     */
+    private final LinkedBlockingDeque<PooledConnection> idle = new LinkedBlockingDeque<>();
+    /**
+     * runs idle eviction and max-lifetime checks in the background
+     */
+    private final ScheduledExecutorService housekeeper;
+    /**
+     * set once the pool has been closed
+     */
+    private volatile boolean closed;
+
+    /**
+     * number of connections currently checked out
+     */
+    private final AtomicInteger active = new AtomicInteger();
+    /**
+     * number of physical connections opened over the life of the pool
+     */
+    private final AtomicLong created = new AtomicLong();
+    /**
+     * number of successful checkouts
+     */
+    private final AtomicLong borrowed = new AtomicLong();
+    /**
+     * number of checkouts that timed out waiting for a connection
+     */
+    private final AtomicLong timeouts = new AtomicLong();
+    /**
+     * total time (in nanos) callers have spent waiting for a connection
+     */
+    private final AtomicLong totalWaitNanos = new AtomicLong();
+    /**
+     * the longest time (in nanos) a single caller waited for a connection
+     */
+    private final AtomicLong maxWaitNanos = new AtomicLong();
+
+    /**
+     * constructor
+     * @param url the url for the database
+     * @param username the database username
+     * @param password the database password
+     * @param maxSize the most connections the pool may hold
+     * @param minIdle the fewest idle connections eviction will leave behind
+     * @param borrowTimeoutMillis how long to wait for a free connection
+     * @param idleTimeoutMillis how long a connection may sit unused
+     * @param maxLifetimeMillis how long a connection may live
+     */
+    public ConnectionPool(String url, String username, String password, int maxSize, int minIdle,
+                          long borrowTimeoutMillis, long idleTimeoutMillis, long maxLifetimeMillis) {
+        if (maxSize < 1) {
+            throw new IllegalArgumentException("Pool size must be at least 1");
+        }
+        this.url = url;
+        this.username = username;
+        this.password = password;
+        this.maxSize = maxSize;
+        this.minIdle = Math.min(minIdle, maxSize);
+        this.borrowTimeoutMillis = borrowTimeoutMillis;
+        this.idleTimeoutMillis = idleTimeoutMillis;
+        this.maxLifetimeMillis = maxLifetimeMillis;
+        this.validationIntervalMillis = 500;
+        this.validationTimeoutSeconds = 2;
+        this.permits = new Semaphore(maxSize, true);
+
+        housekeeper = Executors.newSingleThreadScheduledExecutor(runnable -> {
+            Thread thread = new Thread(runnable, "connection-pool-housekeeper");
+            thread.setDaemon(true);
+            return thread;
+        });
+        long period = Math.max(1000, Math.min(idleTimeoutMillis, maxLifetimeMillis) / 2);
+        housekeeper.scheduleWithFixedDelay(this::evict, period, period, TimeUnit.MILLISECONDS);
+    }
+
+    /**
+     * checks a connection out of the pool, opening a new one if none are idle.
+     * The connection must be closed to return it to the pool
+     * @return a validated connection
+     * @throws SQLException if the pool is closed, no connection frees up in time, or a new connection can't be opened
+     */
+    public Connection borrow() throws SQLException {
+        if (closed) {
+            throw new SQLException("Connection pool is closed");
+        }
+        long waitStart = System.nanoTime();
+        try {
+            if (!permits.tryAcquire(borrowTimeoutMillis, TimeUnit.MILLISECONDS)) {
+                timeouts.incrementAndGet();
+                recordWait(System.nanoTime() - waitStart);
+                throw new SQLTimeoutException("Timed out after " + borrowTimeoutMillis + "ms waiting for a database connection");
+            }
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+            throw new SQLException("Interrupted while waiting for a database connection", e);
+        }
+        recordWait(System.nanoTime() - waitStart);
+
+        try {
+            PooledConnection pooledConnection = takeIdle();
+            if (pooledConnection == null) {
+                pooledConnection = open();
+            }
+            active.incrementAndGet();
+            borrowed.incrementAndGet();
+            return pooledConnection.lease();
+        } catch (SQLException | RuntimeException e) {
+            permits.release();
+            throw e;
+        }
+    }
+
+    /**
+     * takes the most recently used idle connection that is still valid, closing any that are not
+     * @return an idle connection or null if there are none
+     */
+    private PooledConnection takeIdle() {
+        PooledConnection pooledConnection;
+        while ((pooledConnection = idle.pollFirst()) != null) {
+            long now = System.currentTimeMillis();
+            if (!pooledConnection.isExpired(now, maxLifetimeMillis)
+                    && pooledConnection.isValid(now, validationIntervalMillis, validationTimeoutSeconds)) {
+                return pooledConnection;
+            }
+            pooledConnection.closePhysical();
+        }
+        return null;
+    }
+
+    /**
+     * opens a new physical connection
+     * @return the new connection
+     * @throws SQLException if unable to connect
+     */
+    private PooledConnection open() throws SQLException {
+        Connection connection = DriverManager.getConnection(url, username, password);
+        created.incrementAndGet();
+        return new PooledConnection(connection, this);
+    }
+
+    /**
+     * returns a connection to the pool - called when a borrower closes its lease
+     * @param pooledConnection the connection being returned
+     */
+    void release(PooledConnection pooledConnection) {
+        active.decrementAndGet();
+        try {
+            if (closed || pooledConnection.isExpired(System.currentTimeMillis(), maxLifetimeMillis)) {
+                pooledConnection.closePhysical();
+            }
+            else {
+                pooledConnection.reset();
+                idle.offerFirst(pooledConnection);
+            }
+        } catch (SQLException e) {
+            pooledConnection.closePhysical();
+        } finally {
+            permits.release();
+        }
+    }
+
+    /**
+     * closes idle connections that are past their idle timeout or max lifetime
+     */
+    private void evict() {
+        long now = System.currentTimeMillis();
+        int keep = idle.size();
+        Iterator<PooledConnection> iterator = idle.descendingIterator();
+        while (iterator.hasNext()) {
+            PooledConnection pooledConnection = iterator.next();
+            boolean expired = pooledConnection.isExpired(now, maxLifetimeMillis);
+            boolean stale = keep > minIdle && pooledConnection.isIdleTooLong(now, idleTimeoutMillis);
+            if ((expired || stale) && idle.removeFirstOccurrence(pooledConnection)) {
+                pooledConnection.closePhysical();
+                keep--;
+            }
+        }
+    }
+
+    /**
+     * records how long a caller waited for a permit
+     * @param nanos the wait time
+     */
+    private void recordWait(long nanos) {
+        totalWaitNanos.addAndGet(nanos);
+        maxWaitNanos.accumulateAndGet(nanos, Math::max);
+    }
+
+    /**
+     * closes every idle connection and stops the pool. Checked out connections are closed when they are returned
+     */
+    @Override
+    public void close() {
+        closed = true;
+        housekeeper.shutdownNow();
+        PooledConnection pooledConnection;
+        while ((pooledConnection = idle.pollFirst()) != null) {
+            pooledConnection.closePhysical();
+        }
+    }
+
+    /**
+     * @return true if the pool has been closed
+     */
+    public boolean isClosed() {
+        return closed;
+    }
+
+    /**
+     * @return the most connections the pool may hold
+     */
+    public int getMaxSize() {
+        return maxSize;
+    }
+
+    /**
+     * @return number of connections currently checked out
+     */
+    public int getActiveCount() {
+        return active.get();
+    }
+
+    /**
+     * @return number of connections sitting idle in the pool
+     */
+    public int getIdleCount() {
+        return idle.size();
+    }
+
+    /**
+     * @return number of callers currently waiting for a connection
+     */
+    public int getWaitingCount() {
+        return permits.getQueueLength();
+    }
+
+    /**
+     * @return number of physical connections opened over the life of the pool
+     */
+    public long getCreatedCount() {
+        return created.get();
+    }
+
+    /**
+     * @return number of successful checkouts
+     */
+    public long getBorrowCount() {
+        return borrowed.get();
+    }
+
+    /**
+     * @return number of checkouts that timed out
+     */
+    public long getTimeoutCount() {
+        return timeouts.get();
+    }
+
+    /**
+     * @return the average time (in millis) callers waited for a connection
+     */
+    public double getAverageWaitMillis() {
+        long count = borrowed.get() + timeouts.get();
+        return count == 0 ? 0 : totalWaitNanos.get() / 1_000_000.0 / count;
+    }
+
+    /**
+     * @return the longest time (in millis) a caller waited for a connection
+     */
+    public double getMaxWaitMillis() {
+        return maxWaitNanos.get() / 1_000_000.0;
+    }
+
+    @Override
+    public String toString() {
+        return String.format("ConnectionPool[active=%d, idle=%d, waiting=%d, max=%d, created=%d, borrowed=%d, timeouts=%d, avgWait=%.2fms, maxWait=%.2fms]",
+                getActiveCount(), getIdleCount(), getWaitingCount(), maxSize, getCreatedCount(), getBorrowCount(),
+                getTimeoutCount(), getAverageWaitMillis(), getMaxWaitMillis());
+    }
+}
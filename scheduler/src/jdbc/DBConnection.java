@@ -1,11 +1,11 @@
 package jdbc;
 
 import java.sql.Connection;
-import java.sql.DriverManager;
 import java.sql.SQLException;
 
 /**
- * This class establishes a connection to the database
+ * This class hands out connections to the database from a shared connection pool.
+ * Settings can be overridden with system properties (e.g. -Dscheduler.db.url=...)
  * @author Derek Brown
  */
 public class DBConnection {
@@ -13,30 +13,75 @@ public class DBConnection {
     /**
      * url for the database
      */
-    public static String url = "jdbc:mysql://localhost:3306/client_schedule";
+    public static String url = System.getProperty("scheduler.db.url", "jdbc:mysql://localhost:3306/client_schedule?useServerPrepStmts=true&useCursorFetch=true&rewriteBatchedStatements=true");
     /**
      * database username to log in
      */
-    public static String jdbcUsername = "sqlUser";
+    public static String jdbcUsername = System.getProperty("scheduler.db.user", "sqlUser");
     /**
      * database password to log in
      */
-    public static String jdbcPassword = "Passw0rd!";
+    public static String jdbcPassword = System.getProperty("scheduler.db.password", "Passw0rd!");
     /**
-     * connection object to allow us to connect and interact with database
+     * the most connections the pool may hold at once
      */
-    public static Connection connection;
+    public static int poolSize = Integer.getInteger("scheduler.pool.size", 8);
+    /**
+     * how long (in millis) to wait for a free connection before giving up
+     */
+    public static long borrowTimeoutMillis = Long.getLong("scheduler.pool.borrowTimeout", 10_000L);
+    /**
+     * how long (in millis) a connection may sit unused in the pool before it is closed
+     */
+    public static long idleTimeoutMillis = Long.getLong("scheduler.pool.idleTimeout", 5 * 60_000L);
+    /**
+     * how long (in millis) a connection may live before it is replaced
+     */
+    public static long maxLifetimeMillis = Long.getLong("scheduler.pool.maxLifetime", 30 * 60_000L);
 
     /**
-     * method establishes a connection using the url, username, password, and connection object in this class
+     * the shared connection pool - created on first use
+     */
+    private static ConnectionPool pool;
+
+    /**
+     * method creates the connection pool (if needed) and checks a connection can be made
+     * @throws SQLException if unable to connect to the database
+     */
+    public static void initialize() throws SQLException {
+        try (Connection connection = getConnection()) {
+            connection.getMetaData();
+        }
+    }
+
+    /**
+     * method borrows a connection from the pool. Close the connection (try-with-resources) to return it
      * @return connection to database
-     * @throws SQLException if unable to get connection via SQL
-     * @throws ClassNotFoundException if the server connection is not available
+     * @throws SQLException if unable to get a connection
+     */
+    public static Connection getConnection() throws SQLException {
+        return getPool().borrow();
+    }
+
+    /**
+     * @return the shared connection pool, created with the settings in this class on first call
+     */
+    public static synchronized ConnectionPool getPool() {
+        if (pool == null || pool.isClosed()) {
+            pool = new ConnectionPool(url, jdbcUsername, jdbcPassword, poolSize, 1,
+                    borrowTimeoutMillis, idleTimeoutMillis, maxLifetimeMillis);
+        }
+        return pool;
+    }
+
+    /**
+     * closes the connection pool and every idle connection in it
      */
-    public static Connection getConnection() throws SQLException, ClassNotFoundException {
-        Class.forName("com.mysql.cj.jdbc.Driver");
-        connection = DriverManager.getConnection(url, jdbcUsername, jdbcPassword);
-        return connection;
+    public static synchronized void closePool() {
+        if (pool != null) {
+            pool.close();
+            pool = null;
+        }
     }
 
 }
@@ -0,0 +1,269 @@
+package jdbc;
+
+import metrics.Metrics;
+import metrics.OperationStats;
+
+import java.lang.reflect.InvocationHandler;
+import java.lang.reflect.InvocationTargetException;
+import java.lang.reflect.Method;
+import java.lang.reflect.Proxy;
+import java.sql.ResultSet;
+import java.sql.SQLException;
+import java.sql.Statement;
+import java.util.Iterator;
+
+/**
+ * Wraps a statement handed out by the pool so every execute is timed and its rows counted in Metrics.
+ * The operation is named after the repository method that prepared the statement (e.g. db.AppointmentRepository.findPage),
+ * found once per statement by walking the stack, so repositories don't need any instrumentation of their own
+ * @author Derek Brown
+ */
+class InstrumentedStatement implements InvocationHandler {
+    /**
+     * finds the caller that prepared a statement
+     */
+    private static final StackWalker STACK_WALKER = StackWalker.getInstance();
+    /**
+     * the statement being timed
+     */
+    private final Statement statement;
+    /**
+     * the statistics the statement's calls are recorded in
+     */
+    private final OperationStats stats;
+    /**
+     * rows read from the current result set and not yet added to the statistics
+     */
+    private long pendingRows;
+
+    /**
+     * constructor
+     * @param statement the statement being timed
+     * @param stats the statistics to record in
+     */
+    private InstrumentedStatement(Statement statement, OperationStats stats) {
+        this.statement = statement;
+        this.stats = stats;
+    }
+
+    /**
+     * wraps a statement, unless metrics are turned off
+     * @param statement the statement
+     * @param type the statement's interface (Statement or PreparedStatement)
+     * @param <T> the statement's interface
+     * @return the wrapped statement
+     */
+    static <T extends Statement> T wrap(T statement, Class<T> type) {
+        if (!Metrics.enabled) {
+            return statement;
+        }
+        OperationStats stats = Metrics.get(callerName());
+        return type.cast(Proxy.newProxyInstance(type.getClassLoader(), new Class<?>[]{type}, new InstrumentedStatement(statement, stats)));
+    }
+
+    @Override
+    public Object invoke(Object proxy, Method method, Object[] args) throws Throwable {
+        String name = method.getName();
+        switch (name) {
+            case "executeQuery":
+            case "executeUpdate":
+            case "executeLargeUpdate":
+            case "executeBatch":
+            case "execute":
+                return timed(method, args);
+            case "close":
+                flushRows();
+                return call(method, args);
+            case "equals":
+                return proxy == args[0];
+            case "hashCode":
+                return System.identityHashCode(proxy);
+            default:
+                return call(method, args);
+        }
+    }
+
+    /**
+     * runs an execute method, recording its latency and the rows it wrote, or an error if it throws
+     * @param method the execute method
+     * @param args its arguments
+     * @return its result - a result set is wrapped to count the rows read
+     * @throws Throwable whatever the statement throws
+     */
+    private Object timed(Method method, Object[] args) throws Throwable {
+        flushRows();
+        long start = System.nanoTime();
+        Object result;
+        try {
+            result = call(method, args);
+        } catch (SQLException | RuntimeException e) {
+            stats.recordError(System.nanoTime() - start);
+            throw e;
+        }
+        long elapsed = System.nanoTime() - start;
+        if (result instanceof ResultSet) {
+            stats.record(elapsed, 0);
+            return Proxy.newProxyInstance(ResultSet.class.getClassLoader(), new Class<?>[]{ResultSet.class}, new CountingResultSet((ResultSet) result));
+        }
+        stats.record(elapsed, rowsWritten(result));
+        return result;
+    }
+
+    /**
+     * @param result the result of executeUpdate, executeLargeUpdate or executeBatch
+     * @return the rows written - a batch entry without a count (a rewritten batch) counts as one row
+     */
+    private static long rowsWritten(Object result) {
+        if (result instanceof Integer || result instanceof Long) {
+            return ((Number) result).longValue();
+        }
+        if (result instanceof int[]) {
+            long rows = 0;
+            for (int count : (int[]) result) {
+                rows += count == Statement.SUCCESS_NO_INFO ? 1 : Math.max(0, count);
+            }
+            return rows;
+        }
+        return 0;
+    }
+
+    /**
+     * adds the rows read so far to the statistics
+     */
+    private void flushRows() {
+        if (pendingRows > 0) {
+            stats.addRows(pendingRows);
+            pendingRows = 0;
+        }
+    }
+
+    /**
+     * calls the method on the statement, unwrapping any exception it throws
+     * @param method the method to call
+     * @param args the method arguments
+     * @return the result of the call
+     * @throws Throwable whatever the statement throws
+     */
+    private Object call(Method method, Object[] args) throws Throwable {
+        try {
+            return method.invoke(statement, args);
+        } catch (InvocationTargetException e) {
+            throw e.getCause();
+        }
+    }
+
+    /**
+     * names the operation after the repository method the caller entered - the outermost of the dao frames nearest
+     * the top of the stack, so a private helper is named after the public method that called it. Transaction is
+     * skipped. Without a repository on the stack the first caller outside the JDBC and JDK classes is used
+     * @return the operation name
+     */
+    private static String callerName() {
+        StackWalker.StackFrame frame = STACK_WALKER.walk(frames -> {
+            StackWalker.StackFrame firstCaller = null;
+            StackWalker.StackFrame repository = null;
+            Iterator<StackWalker.StackFrame> iterator = frames.iterator();
+            while (iterator.hasNext()) {
+                StackWalker.StackFrame candidate = iterator.next();
+                String className = candidate.getClassName();
+                if (className.startsWith("dao.")) {
+                    if (!className.equals("dao.Transaction")) {
+                        repository = candidate;
+                    }
+                }
+                else if (repository != null) {
+                    break;
+                }
+                else if (firstCaller == null && !isInfrastructure(className)) {
+                    firstCaller = candidate;
+                }
+            }
+            return repository != null ? repository : firstCaller;
+        });
+        if (frame == null) {
+            return "db.unknown";
+        }
+        String className = frame.getClassName();
+        String simpleName = className.substring(className.lastIndexOf('.') + 1);
+        int nested = simpleName.indexOf('$');
+        if (nested >= 0) {
+            simpleName = simpleName.substring(0, nested);
+        }
+        return "db." + simpleName + "." + methodName(frame.getMethodName());
+    }
+
+    /**
+     * @param className a class on the stack
+     * @return true for the pool's own classes, the JDK and proxies
+     */
+    private static boolean isInfrastructure(String className) {
+        return className.startsWith("jdbc.") || className.startsWith("java.") || className.startsWith("javax.")
+                || className.startsWith("jdk.") || className.startsWith("sun.") || className.startsWith("com.sun.");
+    }
+
+    /**
+     * @param methodName a method name from the stack
+     * @return the method name, with a lambda's synthetic name turned back into its enclosing method
+     */
+    private static String methodName(String methodName) {
+        if (methodName.startsWith("lambda$")) {
+            int end = methodName.indexOf('$', 7);
+            return end > 7 ? methodName.substring(7, end) : methodName;
+        }
+        return methodName;
+    }
+
+    /**
+     * Counts the rows read from a result set
+     */
+    private class CountingResultSet implements InvocationHandler {
+        /**
+         * the result set being counted
+         */
+        private final ResultSet resultSet;
+
+        /**
+         * constructor
+         * @param resultSet the result set being counted
+         */
+        CountingResultSet(ResultSet resultSet) {
+            this.resultSet = resultSet;
+        }
+
+        @Override
+        public Object invoke(Object proxy, Method method, Object[] args) throws Throwable {
+            switch (method.getName()) {
+                case "next":
+                    Object hasRow = invokeResultSet(method, args);
+                    if ((Boolean) hasRow) {
+                        pendingRows++;
+                    }
+                    return hasRow;
+                case "close":
+                    flushRows();
+                    return invokeResultSet(method, args);
+                case "equals":
+                    return proxy == args[0];
+                case "hashCode":
+                    return System.identityHashCode(proxy);
+                default:
+                    return invokeResultSet(method, args);
+            }
+        }
+
+        /**
+         * calls the method on the result set, unwrapping any exception it throws
+         * @param method the method to call
+         * @param args the method arguments
+         * @return the result of the call
+         * @throws Throwable whatever the result set throws
+         */
+        private Object invokeResultSet(Method method, Object[] args) throws Throwable {
+            try {
+                return method.invoke(resultSet, args);
+            } catch (InvocationTargetException e) {
+                throw e.getCause();
+            }
+        }
+    }
+}
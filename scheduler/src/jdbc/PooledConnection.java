@@ -0,0 +1,192 @@
+package jdbc;
+
+import java.lang.reflect.InvocationHandler;
+import java.lang.reflect.InvocationTargetException;
+import java.lang.reflect.Method;
+import java.lang.reflect.Proxy;
+import java.sql.Connection;
+import java.sql.PreparedStatement;
+import java.sql.SQLException;
+import java.sql.Statement;
+
+/**
+ * Wraps a physical connection owned by the ConnectionPool.
+ * Each checkout hands out a proxy whose close() returns the physical connection to the pool instead of closing it
+ * @author Derek Brown
+ */
+class PooledConnection {
+    /**
+     * the real connection to the database
+     */
+    private final Connection physical;
+    /**
+     * the pool that owns this connection
+     */
+    private final ConnectionPool pool;
+    /**
+     * prepared statements cached for this connection
+     */
+    private final StatementCache statementCache;
+    /**
+     * time (in millis) the physical connection was opened - used for max-lifetime recycling
+     */
+    private final long createdAt;
+    /**
+     * time (in millis) the connection was last returned to the pool - used for idle eviction
+     */
+    private volatile long lastReturned;
+
+    /**
+     * constructor
+     * @param physical the physical connection to wrap
+     * @param pool the pool that owns the connection
+     */
+    PooledConnection(Connection physical, ConnectionPool pool) {
+        this.physical = physical;
+        this.pool = pool;
+        this.statementCache = new StatementCache(physical);
+        this.createdAt = System.currentTimeMillis();
+        this.lastReturned = createdAt;
+    }
+
+    /**
+     * creates a new proxy for one checkout of this connection
+     * @return a connection that goes back to the pool when closed
+     */
+    Connection lease() {
+        return (Connection) Proxy.newProxyInstance(Connection.class.getClassLoader(),
+                new Class<?>[]{Connection.class}, new Lease());
+    }
+
+    /**
+     * @return the real connection to the database
+     */
+    Connection getPhysical() {
+        return physical;
+    }
+
+    /**
+     * @param now the current time in millis
+     * @param maxLifetimeMillis how long a connection may live before it is recycled
+     * @return true if the connection has outlived the max lifetime
+     */
+    boolean isExpired(long now, long maxLifetimeMillis) {
+        return now - createdAt >= maxLifetimeMillis;
+    }
+
+    /**
+     * @param now the current time in millis
+     * @param idleTimeoutMillis how long a connection may sit unused in the pool
+     * @return true if the connection has been idle for too long
+     */
+    boolean isIdleTooLong(long now, long idleTimeoutMillis) {
+        return now - lastReturned >= idleTimeoutMillis;
+    }
+
+    /**
+     * @param now the current time in millis
+     * @param validationIntervalMillis connections returned more recently than this are trusted without a ping
+     * @param timeoutSeconds how long to wait for the database to answer the ping
+     * @return true if the connection can still be used
+     */
+    boolean isValid(long now, long validationIntervalMillis, int timeoutSeconds) {
+        try {
+            if (physical.isClosed()) {
+                return false;
+            }
+            return now - lastReturned < validationIntervalMillis || physical.isValid(timeoutSeconds);
+        } catch (SQLException e) {
+            return false;
+        }
+    }
+
+    /**
+     * resets any state the last borrower may have left behind, called when the connection comes back to the pool
+     * @throws SQLException if the connection can not be reset
+     */
+    void reset() throws SQLException {
+        if (!physical.getAutoCommit()) {
+            physical.rollback();
+            physical.setAutoCommit(true);
+        }
+        physical.clearWarnings();
+        lastReturned = System.currentTimeMillis();
+    }
+
+    /**
+     * closes the cached statements and the physical connection, ignoring any errors
+     */
+    void closePhysical() {
+        statementCache.closeAll();
+        try {
+            physical.close();
+        } catch (SQLException e) {
+            System.out.println("Couldn't close pooled connection");
+        }
+    }
+
+    /**
+     * Handles calls on a single checkout of the connection. Once closed, the lease can no longer be used
+     */
+    private class Lease implements InvocationHandler {
+        /**
+         * true once the borrower has closed this lease
+         */
+        private boolean closed;
+
+        @Override
+        public Object invoke(Object proxy, Method method, Object[] args) throws Throwable {
+            switch (method.getName()) {
+                case "close":
+                    if (!closed) {
+                        closed = true;
+                        statementCache.releaseAll();
+                        pool.release(PooledConnection.this);
+                    }
+                    return null;
+                case "isClosed":
+                    return closed;
+                case "equals":
+                    return proxy == args[0];
+                case "hashCode":
+                    return System.identityHashCode(proxy);
+                case "toString":
+                    return "PooledConnection[" + physical + "]";
+                case "prepareStatement":
+                    if (closed) {
+                        throw new SQLException("Connection has already been returned to the pool");
+                    }
+                    if (args.length == 1) {
+                        return InstrumentedStatement.wrap(statementCache.prepare((String) args[0]), PreparedStatement.class);
+                    }
+                    //statements with generated keys or cursor options are not cached
+                    return InstrumentedStatement.wrap((PreparedStatement) invokePhysical(method, args), PreparedStatement.class);
+                case "createStatement":
+                    if (closed) {
+                        throw new SQLException("Connection has already been returned to the pool");
+                    }
+                    return InstrumentedStatement.wrap((Statement) invokePhysical(method, args), Statement.class);
+                default:
+                    if (closed) {
+                        throw new SQLException("Connection has already been returned to the pool");
+                    }
+                    return invokePhysical(method, args);
+            }
+        }
+
+        /**
+         * calls the method on the physical connection, unwrapping any exception it throws
+         * @param method the method to call
+         * @param args the method arguments
+         * @return the result of the call
+         * @throws Throwable whatever the physical connection throws
+         */
+        private Object invokePhysical(Method method, Object[] args) throws Throwable {
+            try {
+                return method.invoke(physical, args);
+            } catch (InvocationTargetException e) {
+                throw e.getCause();
+            }
+        }
+    }
+}
@@ -0,0 +1,264 @@
+package jdbc;
+
+import java.lang.reflect.InvocationHandler;
+import java.lang.reflect.InvocationTargetException;
+import java.lang.reflect.Method;
+import java.lang.reflect.Proxy;
+import java.sql.Connection;
+import java.sql.PreparedStatement;
+import java.sql.ResultSet;
+import java.sql.SQLException;
+import java.util.Iterator;
+import java.util.LinkedHashMap;
+import java.util.concurrent.atomic.AtomicLong;
+
+/**
+ * Caches prepared statements for one physical connection, keyed by their SQL text.
+ * Closing a statement handed out by the cache returns it to the cache instead of closing it on the server,
+ * so running the same query again skips the parse step. Hit/miss counters are shared across every connection
+ * @author Derek Brown
+ */
+public class StatementCache {
+    /**
+     * the most statements kept open per connection - the least recently used one is closed when this is exceeded
+     */
+    public static int maxSize = Integer.getInteger("scheduler.statementCache.size", 64);
+
+    /**
+     * number of prepareStatement calls answered from a cache
+     */
+    private static final AtomicLong hits = new AtomicLong();
+    /**
+     * number of prepareStatement calls that had to prepare a new statement
+     */
+    private static final AtomicLong misses = new AtomicLong();
+    /**
+     * number of statements closed because a cache was full
+     */
+    private static final AtomicLong evictions = new AtomicLong();
+
+    /**
+     * the physical connection the statements belong to
+     */
+    private final Connection connection;
+    /**
+     * cached statements by SQL text, least recently used first
+     */
+    private final LinkedHashMap<String, CachedStatement> statements = new LinkedHashMap<>(16, 0.75f, true);
+
+    /**
+     * constructor
+     * @param connection the physical connection to prepare statements on
+     */
+    StatementCache(Connection connection) {
+        this.connection = connection;
+    }
+
+    /**
+     * hands out a prepared statement for the SQL, reusing a cached one if it isn't already in use.
+     * The statement must be closed (try-with-resources) to return it to the cache
+     * @param sql the SQL text
+     * @return a prepared statement
+     * @throws SQLException if the statement can not be prepared
+     */
+    synchronized PreparedStatement prepare(String sql) throws SQLException {
+        CachedStatement cached = statements.get(sql);
+        if (cached != null && !cached.inUse) {
+            hits.incrementAndGet();
+            return cached.checkOut();
+        }
+        misses.incrementAndGet();
+        PreparedStatement statement = connection.prepareStatement(sql);
+        if (cached != null) {
+            //the cached one is still open by this borrower - hand out a statement that is closed normally
+            return statement;
+        }
+        cached = new CachedStatement(statement);
+        statements.put(sql, cached);
+        evictOverflow();
+        return cached.checkOut();
+    }
+
+    /**
+     * closes the least recently used statements until the cache fits in maxSize
+     */
+    private void evictOverflow() {
+        Iterator<CachedStatement> iterator = statements.values().iterator();
+        while (statements.size() > maxSize && iterator.hasNext()) {
+            CachedStatement cached = iterator.next();
+            if (!cached.inUse) {
+                iterator.remove();
+                cached.closePhysical();
+                evictions.incrementAndGet();
+            }
+        }
+    }
+
+    /**
+     * returns every statement still checked out to the cache - called when the connection goes back to the pool
+     */
+    synchronized void releaseAll() {
+        for (CachedStatement cached : statements.values()) {
+            if (cached.inUse) {
+                cached.checkIn();
+            }
+        }
+    }
+
+    /**
+     * closes every cached statement - called before the physical connection is closed
+     */
+    synchronized void closeAll() {
+        for (CachedStatement cached : statements.values()) {
+            cached.closePhysical();
+        }
+        statements.clear();
+    }
+
+    /**
+     * @return number of statements cached for this connection
+     */
+    public synchronized int size() {
+        return statements.size();
+    }
+
+    /**
+     * @return number of prepareStatement calls answered from a cache
+     */
+    public static long getHitCount() {
+        return hits.get();
+    }
+
+    /**
+     * @return number of prepareStatement calls that prepared a new statement
+     */
+    public static long getMissCount() {
+        return misses.get();
+    }
+
+    /**
+     * @return number of statements closed because a cache was full
+     */
+    public static long getEvictionCount() {
+        return evictions.get();
+    }
+
+    /**
+     * @return the fraction of prepareStatement calls answered from a cache
+     */
+    public static double getHitRatio() {
+        long total = hits.get() + misses.get();
+        return total == 0 ? 0 : (double) hits.get() / total;
+    }
+
+    /**
+     * @return a summary of the cache counters
+     */
+    public static String summary() {
+        return String.format("StatementCache[hits=%d, misses=%d, evictions=%d, hitRatio=%.2f]",
+                getHitCount(), getMissCount(), getEvictionCount(), getHitRatio());
+    }
+
+    /**
+     * A statement held by the cache along with the proxy handed to callers
+     */
+    private static class CachedStatement implements InvocationHandler {
+        /**
+         * the real prepared statement
+         */
+        private final PreparedStatement statement;
+        /**
+         * the statement handed to callers - its close() returns the statement to the cache
+         */
+        private final PreparedStatement proxy;
+        /**
+         * true while a caller has the statement checked out
+         */
+        private boolean inUse;
+        /**
+         * the last result set the statement produced - closed when the statement is returned.
+         * Executing the statement again closes the previous result set, so only the latest needs tracking
+         */
+        private ResultSet currentResult;
+
+        /**
+         * constructor
+         * @param statement the real prepared statement
+         */
+        CachedStatement(PreparedStatement statement) {
+            this.statement = statement;
+            this.proxy = (PreparedStatement) Proxy.newProxyInstance(PreparedStatement.class.getClassLoader(),
+                    new Class<?>[]{PreparedStatement.class}, this);
+        }
+
+        /**
+         * @return the statement for a caller to use
+         */
+        PreparedStatement checkOut() {
+            inUse = true;
+            return proxy;
+        }
+
+        /**
+         * closes any result sets left open and clears the parameters so the statement is ready for the next caller
+         */
+        void checkIn() {
+            inUse = false;
+            if (currentResult != null) {
+                try {
+                    currentResult.close();
+                } catch (SQLException e) {
+                    System.out.println("Couldn't close cached result set");
+                }
+                currentResult = null;
+            }
+            try {
+                statement.clearParameters();
+                statement.clearBatch();
+            } catch (SQLException e) {
+                System.out.println("Couldn't clear cached statement parameters");
+            }
+        }
+
+        /**
+         * closes the real statement on the server
+         */
+        void closePhysical() {
+            try {
+                statement.close();
+            } catch (SQLException e) {
+                System.out.println("Couldn't close cached statement");
+            }
+        }
+
+        @Override
+        public Object invoke(Object proxy, Method method, Object[] args) throws Throwable {
+            switch (method.getName()) {
+                case "close":
+                    if (inUse) {
+                        checkIn();
+                    }
+                    return null;
+                case "isClosed":
+                    return !inUse;
+                case "equals":
+                    return proxy == args[0];
+                case "hashCode":
+                    return System.identityHashCode(proxy);
+                default:
+                    if (!inUse) {
+                        throw new SQLException("Statement has already been closed");
+                    }
+                    try {
+                        Object result = method.invoke(statement, args);
+                        if (result instanceof ResultSet) {
+                            currentResult = (ResultSet) result;
+                        }
+                        return result;
+                    } catch (InvocationTargetException e) {
+                        throw e.getCause();
+                    }
+            }
+        }
+    }
+}
@@ -0,0 +1,158 @@
+package main;
+
+import bulk.AppointmentExporter;
+import bulk.AppointmentImporter;
+import bulk.AppointmentReader;
+import bulk.AppointmentWriter;
+import bulk.TransferFormat;
+import bulk.TransferReport;
+import jdbc.DBConnection;
+
+import java.io.BufferedReader;
+import java.io.BufferedWriter;
+import java.io.IOException;
+import java.io.InputStreamReader;
+import java.io.OutputStreamWriter;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.sql.SQLException;
+
+/**
+ * Command line entry point for importing and exporting appointments without the user interface.
+ * Run with the same classpath as Main, e.g.
+ * "java -cp ... main.BulkTool import bookings.csv --user admin" or "java -cp ... main.BulkTool export all.ndjson".
+ * The database settings are read from the same system properties as the application (-Dscheduler.db.url=...)
+ * @author Derek Brown
+ */
+public class BulkTool {
+    /**
+     * the usage message
+     */
+    private static final String USAGE = "usage: BulkTool import <file|-> [--format csv|ndjson] [--user name] [--batch-size n] [--dry-run]\n"
+            + "       BulkTool export <file|-> [--format csv|ndjson]\n"
+            + "Times are in UTC as \"yyyy-MM-dd HH:mm:ss\". \"-\" reads standard input or writes standard output.";
+
+    /**
+     * runs an import or export and prints the throughput report
+     * @param args the command, the file and any options
+     */
+    public static void main(String[] args) {
+        if (args.length < 2 || !(args[0].equals("import") || args[0].equals("export"))) {
+            System.out.println(USAGE);
+            System.exit(2);
+        }
+        String file = args[1];
+        TransferFormat format = TransferFormat.fromFileName(file);
+        String username = "import";
+        int batchSize = AppointmentImporter.defaultBatchSize;
+        boolean dryRun = false;
+        try {
+            for (int i = 2; i < args.length; i++) {
+                switch (args[i]) {
+                    case "--format":
+                        format = TransferFormat.valueOf(args[++i].toUpperCase());
+                        break;
+                    case "--user":
+                        username = args[++i];
+                        break;
+                    case "--batch-size":
+                        batchSize = Integer.parseInt(args[++i]);
+                        break;
+                    case "--dry-run":
+                        dryRun = true;
+                        break;
+                    default:
+                        throw new IllegalArgumentException("Unknown option " + args[i]);
+                }
+            }
+        } catch (IllegalArgumentException | ArrayIndexOutOfBoundsException e) {
+            System.out.println(USAGE);
+            System.exit(2);
+        }
+        if (format == null) {
+            format = TransferFormat.CSV;
+        }
+
+        DBConnection.url = withBatchRewriting(DBConnection.url);
+        try {
+            TransferReport report;
+            if (args[0].equals("import")) {
+                report = runImport(file, format, username, batchSize, dryRun);
+            }
+            else {
+                report = runExport(file, format);
+            }
+            //the report goes to standard error so an export to standard output stays clean
+            System.err.println((dryRun ? "Dry run: " : "") + report);
+            for (String rejection : report.getRejections()) {
+                System.err.println("  rejected " + rejection);
+            }
+            if (report.getRejected() > report.getRejections().size()) {
+                System.err.println("  ... and " + (report.getRejected() - report.getRejections().size()) + " more");
+            }
+            System.exit(report.getFailure() == null ? 0 : 1);
+        } catch (IOException e) {
+            System.out.println("Unable to read or write " + file + " - " + e.getMessage());
+            System.exit(1);
+        } catch (SQLException e) {
+            System.out.println("SQL error - " + e.getMessage());
+            System.exit(1);
+        } finally {
+            DBConnection.closePool();
+        }
+    }
+
+    /**
+     * imports a file
+     * @param file the file to read, or "-" for standard input
+     * @param format the file's format
+     * @param username recorded as the creator of each appointment
+     * @param batchSize rows inserted per batch
+     * @param dryRun if true rows are only validated
+     * @return the import report
+     * @throws IOException if the file can't be read
+     * @throws SQLException if the database can't be used
+     */
+    private static TransferReport runImport(String file, TransferFormat format, String username, int batchSize, boolean dryRun)
+            throws IOException, SQLException {
+        AppointmentImporter importer = AppointmentImporter.fromDatabase();
+        importer.setBatchSize(batchSize);
+        importer.setDryRun(dryRun);
+        BufferedReader in = file.equals("-")
+                ? new BufferedReader(new InputStreamReader(System.in, StandardCharsets.UTF_8), 1 << 16)
+                : Files.newBufferedReader(Path.of(file), StandardCharsets.UTF_8);
+        try (AppointmentReader reader = format.openReader(in)) {
+            return importer.importFrom(reader, username);
+        }
+    }
+
+    /**
+     * exports every appointment to a file
+     * @param file the file to write, or "-" for standard output
+     * @param format the file's format
+     * @return the export report
+     * @throws IOException if the file can't be written
+     * @throws SQLException if the appointments can't be read
+     */
+    private static TransferReport runExport(String file, TransferFormat format) throws IOException, SQLException {
+        BufferedWriter out = file.equals("-")
+                ? new BufferedWriter(new OutputStreamWriter(System.out, StandardCharsets.UTF_8), 1 << 16)
+                : Files.newBufferedWriter(Path.of(file), StandardCharsets.UTF_8);
+        try (AppointmentWriter writer = format.openWriter(out)) {
+            return AppointmentExporter.exportTo(writer);
+        }
+    }
+
+    /**
+     * turns on rewriteBatchedStatements for a MySQL URL that doesn't set it, so batches go as multi-row inserts
+     * @param url the connection URL
+     * @return the URL with batch rewriting on
+     */
+    static String withBatchRewriting(String url) {
+        if (!url.startsWith("jdbc:mysql:") || url.contains("rewriteBatchedStatements")) {
+            return url;
+        }
+        return url + (url.contains("?") ? "&" : "?") + "rewriteBatchedStatements=true";
+    }
+}
@@ -0,0 +1,133 @@
+package metrics;
+
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.concurrent.atomic.AtomicLongArray;
+import java.util.concurrent.atomic.LongAdder;
+
+/**
+ * A fixed-size, thread-safe latency histogram in the style of HdrHistogram. Values are recorded in microseconds into
+ * log-linear buckets - exact below 256 microseconds, then 128 buckets for every power of two - so any recorded value is
+ * reported to within 1% and recording is a single atomic increment, however many values are recorded
+ * @author Derek Brown
+ */
+public class LatencyHistogram {
+    /**
+     * log2 of the number of buckets per power of two
+     */
+    private static final int SUB_BUCKET_BITS = 7;
+    /**
+     * the number of buckets per power of two
+     */
+    private static final int SUB_BUCKET_COUNT = 1 << SUB_BUCKET_BITS;
+    /**
+     * the largest value tracked separately, in microseconds (about 71 minutes) - larger values count as this
+     */
+    public static final long MAX_TRACKED_MICROS = (1L << 32) - 1;
+    /**
+     * recorded values per bucket
+     */
+    private final AtomicLongArray counts = new AtomicLongArray(indexOf(MAX_TRACKED_MICROS) + 1);
+    /**
+     * the number of values recorded
+     */
+    private final LongAdder totalCount = new LongAdder();
+    /**
+     * the sum of the recorded values in microseconds
+     */
+    private final LongAdder totalMicros = new LongAdder();
+    /**
+     * the largest value recorded in microseconds
+     */
+    private final AtomicLong maxMicros = new AtomicLong();
+
+    /**
+     * records a latency
+     * @param nanos the latency in nanoseconds
+     */
+    public void recordNanos(long nanos) {
+        long micros = Math.max(0, nanos / 1000);
+        counts.incrementAndGet(indexOf(Math.min(micros, MAX_TRACKED_MICROS)));
+        totalCount.increment();
+        totalMicros.add(micros);
+        maxMicros.accumulateAndGet(micros, Math::max);
+    }
+
+    /**
+     * @return the number of values recorded
+     */
+    public long getCount() {
+        return totalCount.sum();
+    }
+
+    /**
+     * @return the mean of the recorded values in microseconds, or 0 if none were recorded
+     */
+    public double getMeanMicros() {
+        long count = totalCount.sum();
+        return count == 0 ? 0 : (double) totalMicros.sum() / count;
+    }
+
+    /**
+     * @return the largest value recorded in microseconds
+     */
+    public long getMaxMicros() {
+        return maxMicros.get();
+    }
+
+    /**
+     * @param percentile the percentile, from 0 to 100
+     * @return the value in microseconds that percentile of the recorded values are at or below, or 0 if none were recorded
+     */
+    public long getPercentileMicros(double percentile) {
+        long count = totalCount.sum();
+        if (count == 0) {
+            return 0;
+        }
+        long target = Math.max(1, (long) Math.ceil(count * Math.min(100, percentile) / 100));
+        long seen = 0;
+        for (int i = 0; i < counts.length(); i++) {
+            seen += counts.get(i);
+            if (seen >= target) {
+                return Math.min(highestEquivalentValue(i), maxMicros.get());
+            }
+        }
+        return maxMicros.get();
+    }
+
+    /**
+     * clears every recorded value
+     */
+    public void reset() {
+        for (int i = 0; i < counts.length(); i++) {
+            counts.set(i, 0);
+        }
+        totalCount.reset();
+        totalMicros.reset();
+        maxMicros.set(0);
+    }
+
+    /**
+     * @param value a value in microseconds, at most MAX_TRACKED_MICROS
+     * @return the bucket the value is counted in
+     */
+    static int indexOf(long value) {
+        if (value < 2 * SUB_BUCKET_COUNT) {
+            return (int) value;
+        }
+        int shift = 63 - Long.numberOfLeadingZeros(value) - SUB_BUCKET_BITS;
+        return (shift << SUB_BUCKET_BITS) + (int) (value >>> shift);
+    }
+
+    /**
+     * @param index a bucket
+     * @return the largest value counted in the bucket
+     */
+    static long highestEquivalentValue(int index) {
+        if (index < 2 * SUB_BUCKET_COUNT) {
+            return index;
+        }
+        int shift = (index >>> SUB_BUCKET_BITS) - 1;
+        long subBucket = index - ((long) shift << SUB_BUCKET_BITS);
+        return ((subBucket + 1) << shift) - 1;
+    }
+}
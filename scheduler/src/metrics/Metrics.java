@@ -0,0 +1,176 @@
+package metrics;
+
+import javax.management.MBeanServer;
+import javax.management.ObjectName;
+import java.io.FileWriter;
+import java.io.IOException;
+import java.io.PrintWriter;
+import java.lang.management.ManagementFactory;
+import java.time.LocalDateTime;
+import java.util.ArrayList;
+import java.util.Comparator;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.Executors;
+import java.util.concurrent.ScheduledExecutorService;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Registry of named operation statistics. Every operation is published over JMX as scheduler:type=Operation,name=...
+ * (see it in JConsole or VisualVM) and the whole table is appended to metrics_log.txt every logSeconds.
+ * Database calls are recorded automatically by the connection pool; anything else can be timed with time()
+ * @author Derek Brown
+ */
+public class Metrics {
+    /**
+     * false to turn off recording (-Dscheduler.metrics=false)
+     */
+    public static boolean enabled = !"false".equals(System.getProperty("scheduler.metrics"));
+    /**
+     * how often the statistics are appended to the log file, in seconds - 0 turns the log off
+     */
+    public static long logSeconds = Long.getLong("scheduler.metrics.logSeconds", 300);
+    /**
+     * the file the statistics are appended to
+     */
+    public static String logFile = System.getProperty("scheduler.metrics.logFile", "metrics_log.txt");
+    /**
+     * the statistics for each operation name
+     */
+    private static final Map<String, OperationStats> operations = new ConcurrentHashMap<>();
+    /**
+     * writes the periodic log - started with the first operation
+     */
+    private static ScheduledExecutorService logWriter;
+
+    /**
+     * @param name the operation's name
+     * @return the operation's statistics, created and published over JMX on first use
+     */
+    public static OperationStats get(String name) {
+        OperationStats stats = operations.get(name);
+        if (stats == null) {
+            stats = operations.computeIfAbsent(name, Metrics::register);
+        }
+        return stats;
+    }
+
+    /**
+     * times a call and records it under the operation name, as an error if it throws
+     * @param name the operation's name
+     * @param work the call to time
+     * @param <T> the call's result type
+     * @param <E> the exception the call throws
+     * @return the call's result
+     * @throws E if the call throws
+     */
+    public static <T, E extends Exception> T time(String name, Work<T, E> work) throws E {
+        if (!enabled) {
+            return work.call();
+        }
+        long start = System.nanoTime();
+        try {
+            T result = work.call();
+            get(name).record(System.nanoTime() - start, 0);
+            return result;
+        } catch (Exception | Error e) {
+            get(name).recordError(System.nanoTime() - start);
+            throw e;
+        }
+    }
+
+    /**
+     * @return every operation's statistics, slowest total time first
+     */
+    public static List<OperationStats> snapshot() {
+        List<OperationStats> stats = new ArrayList<>(operations.values());
+        stats.sort(Comparator.comparingDouble((OperationStats s) -> s.getMeanMillis() * s.getCount()).reversed());
+        return stats;
+    }
+
+    /**
+     * @return a table of every operation's statistics, one line each
+     */
+    public static String summary() {
+        StringBuilder summary = new StringBuilder();
+        for (OperationStats stats : snapshot()) {
+            summary.append(stats).append('\n');
+        }
+        return summary.toString();
+    }
+
+    /**
+     * appends the summary to the log file
+     */
+    public static void writeLog() {
+        if (operations.isEmpty()) {
+            return;
+        }
+        try (PrintWriter out = new PrintWriter(new FileWriter(logFile, true))) {
+            out.println("Metrics at " + LocalDateTime.now());
+            out.print(summary());
+            out.println();
+        } catch (IOException e) {
+            System.out.println("Unable to write " + logFile);
+        }
+    }
+
+    /**
+     * clears every operation's statistics
+     */
+    public static void reset() {
+        for (OperationStats stats : operations.values()) {
+            stats.reset();
+        }
+    }
+
+    /**
+     * creates an operation's statistics and publishes them over JMX
+     * @param name the operation's name
+     * @return the new statistics
+     */
+    private static OperationStats register(String name) {
+        OperationStats stats = new OperationStats(name);
+        try {
+            MBeanServer server = ManagementFactory.getPlatformMBeanServer();
+            ObjectName objectName = new ObjectName("scheduler:type=Operation,name=" + ObjectName.quote(name));
+            if (!server.isRegistered(objectName)) {
+                server.registerMBean(stats, objectName);
+            }
+        } catch (Exception | LinkageError e) {
+            System.out.println("Unable to publish metrics for " + name + " over JMX");
+        }
+        startLog();
+        return stats;
+    }
+
+    /**
+     * starts the periodic log if it is on and not already running
+     */
+    private static synchronized void startLog() {
+        if (logWriter != null || logSeconds <= 0) {
+            return;
+        }
+        logWriter = Executors.newSingleThreadScheduledExecutor(runnable -> {
+            Thread thread = new Thread(runnable, "metrics-log");
+            thread.setDaemon(true);
+            return thread;
+        });
+        logWriter.scheduleAtFixedRate(Metrics::writeLog, logSeconds, logSeconds, TimeUnit.SECONDS);
+    }
+
+    /**
+     * A call to time
+     * @param <T> the result type
+     * @param <E> the exception the call throws
+     */
+    public interface Work<T, E extends Exception> {
+        /**
+         * makes the call
+         * @return the result
+         * @throws E if the call fails
+         */
+        T call() throws E;
+    }
+}
@@ -0,0 +1,122 @@
+package metrics;
+
+import java.util.concurrent.atomic.LongAdder;
+
+/**
+ * Latency, row and error counts for one named operation (a repository query or a screen load)
+ * @author Derek Brown
+ */
+public class OperationStats implements OperationStatsMBean {
+    /**
+     * the operation's name
+     */
+    private final String name;
+    /**
+     * the latency of every call
+     */
+    private final LatencyHistogram latency = new LatencyHistogram();
+    /**
+     * rows read or written across all calls
+     */
+    private final LongAdder rows = new LongAdder();
+    /**
+     * the number of calls that threw
+     */
+    private final LongAdder errors = new LongAdder();
+
+    /**
+     * constructor
+     * @param name the operation's name
+     */
+    OperationStats(String name) {
+        this.name = name;
+    }
+
+    /**
+     * records a successful call
+     * @param nanos how long the call took
+     * @param rowCount rows read or written, or 0 if not applicable
+     */
+    public void record(long nanos, long rowCount) {
+        latency.recordNanos(nanos);
+        if (rowCount > 0) {
+            rows.add(rowCount);
+        }
+    }
+
+    /**
+     * records a call that threw
+     * @param nanos how long the call took before it failed
+     */
+    public void recordError(long nanos) {
+        latency.recordNanos(nanos);
+        errors.increment();
+    }
+
+    /**
+     * adds rows to the operation without recording a call - used for rows read after the query returned
+     * @param rowCount the rows read
+     */
+    public void addRows(long rowCount) {
+        rows.add(rowCount);
+    }
+
+    @Override
+    public String getName() {
+        return name;
+    }
+
+    @Override
+    public long getCount() {
+        return latency.getCount();
+    }
+
+    @Override
+    public long getErrorCount() {
+        return errors.sum();
+    }
+
+    @Override
+    public long getRowCount() {
+        return rows.sum();
+    }
+
+    @Override
+    public double getMeanMillis() {
+        return latency.getMeanMicros() / 1000;
+    }
+
+    @Override
+    public double getP50Millis() {
+        return latency.getPercentileMicros(50) / 1000.0;
+    }
+
+    @Override
+    public double getP90Millis() {
+        return latency.getPercentileMicros(90) / 1000.0;
+    }
+
+    @Override
+    public double getP99Millis() {
+        return latency.getPercentileMicros(99) / 1000.0;
+    }
+
+    @Override
+    public double getMaxMillis() {
+        return latency.getMaxMicros() / 1000.0;
+    }
+
+    @Override
+    public void reset() {
+        latency.reset();
+        rows.reset();
+        errors.reset();
+    }
+
+    @Override
+    public String toString() {
+        return String.format("%-60s count=%d errors=%d rows=%d mean=%.3fms p50=%.3fms p90=%.3fms p99=%.3fms max=%.3fms",
+                name, getCount(), getErrorCount(), getRowCount(), getMeanMillis(), getP50Millis(), getP90Millis(),
+                getP99Millis(), getMaxMillis());
+    }
+}
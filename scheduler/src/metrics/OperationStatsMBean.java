@@ -0,0 +1,57 @@
+package metrics;
+
+/**
+ * The JMX view of one named operation's statistics, registered as scheduler:type=Operation,name=...
+ * @author Derek Brown
+ */
+public interface OperationStatsMBean {
+    /**
+     * @return the operation's name
+     */
+    String getName();
+
+    /**
+     * @return the number of calls, including failed ones
+     */
+    long getCount();
+
+    /**
+     * @return the number of calls that threw
+     */
+    long getErrorCount();
+
+    /**
+     * @return rows read or written across all calls
+     */
+    long getRowCount();
+
+    /**
+     * @return mean latency in milliseconds
+     */
+    double getMeanMillis();
+
+    /**
+     * @return median latency in milliseconds
+     */
+    double getP50Millis();
+
+    /**
+     * @return 90th percentile latency in milliseconds
+     */
+    double getP90Millis();
+
+    /**
+     * @return 99th percentile latency in milliseconds
+     */
+    double getP99Millis();
+
+    /**
+     * @return largest latency in milliseconds
+     */
+    double getMaxMillis();
+
+    /**
+     * clears the statistics
+     */
+    void reset();
+}
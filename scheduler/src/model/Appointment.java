@@ -1,8 +1,8 @@
 package model;
 
+import util.TimeService;
+
 import java.time.LocalDateTime;
-import java.time.ZoneId;
-import java.time.ZonedDateTime;
 
 /**
  * Appointment class to store values from database
@@ -159,14 +159,15 @@ public class Appointment{
      * @param start the start time to set
      */
     public void setStart(LocalDateTime start) {
-        if (start != null){
-            ZonedDateTime zonedDateTime;
-            zonedDateTime = start.atZone(ZoneId.of("UTC")).withZoneSameInstant(ZoneId.systemDefault());
-            this.start = zonedDateTime.toLocalDateTime();
-        }
-        else{
-            this.start = null;
-        }
+        this.start = TimeService.utcToLocal(start);
+    }
+
+    /**
+     * sets the start time without converting it - used by AppointmentStore, which already has local times
+     * @param start the start time in local time
+     */
+    void setLocalStart(LocalDateTime start) {
+        this.start = start;
     }
 
     /**
@@ -181,14 +182,15 @@ public class Appointment{
      * @param end the end time to set
      */
     public void setEnd(LocalDateTime end) {
-        if (end != null){
-            ZonedDateTime zonedDateTime;
-            zonedDateTime = end.atZone(ZoneId.of("UTC")).withZoneSameInstant(ZoneId.systemDefault());
-            this.end = zonedDateTime.toLocalDateTime();
-        }
-        else{
-            this.end = null;
-        }
+        this.end = TimeService.utcToLocal(end);
+    }
+
+    /**
+     * sets the end time without converting it - used by AppointmentStore, which already has local times
+     * @param end the end time in local time
+     */
+    void setLocalEnd(LocalDateTime end) {
+        this.end = end;
     }
 
     /**
@@ -232,4 +234,23 @@ public class Appointment{
     public void setContactID(int contactID) {
         this.contactID = contactID;
     }
+
+    /**
+     * appointments are equal if they have the same appointment ID, so copies read from the store at different
+     * times match each other
+     * @param o the object to compare
+     * @return true if o is an appointment with the same ID
+     */
+    @Override
+    public boolean equals(Object o) {
+        return o instanceof Appointment && ((Appointment) o).appointmentID == appointmentID;
+    }
+
+    /**
+     * @return the appointment ID
+     */
+    @Override
+    public int hashCode() {
+        return Integer.hashCode(appointmentID);
+    }
 }
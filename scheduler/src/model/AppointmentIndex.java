@@ -0,0 +1,154 @@
+package model;
+
+import util.TimeService;
+
+import java.time.LocalDateTime;
+import java.util.Collection;
+import java.util.HashMap;
+import java.util.Map;
+import java.util.function.ToIntFunction;
+
+/**
+ * Indexes appointment times by resource (customer, contact or user) so overlap checks only look at
+ * that resource's bookings, using binary search over an IntervalSet instead of scanning every appointment
+ * @author Derek Brown
+ */
+public class AppointmentIndex {
+    /**
+     * returned by resourceByAppointment for an appointment that isn't indexed
+     */
+    private static final int NOT_INDEXED = Integer.MIN_VALUE;
+    /**
+     * picks the resource ID an appointment is indexed under (e.g. Appointment::getCustomerID)
+     */
+    private final ToIntFunction<Appointment> resourceKey;
+    /**
+     * booked intervals for each resource ID
+     */
+    private final Map<Integer, IntervalSet> intervalsByResource = new HashMap<>();
+    /**
+     * the resource ID each appointment is indexed under - used to find the interval to remove on update or delete.
+     * Primitive, since there are three of these indexes over every appointment (customer, contact and user)
+     */
+    private final IntIntMap resourceByAppointment = new IntIntMap();
+
+    /**
+     * constructor
+     * @param resourceKey picks the resource ID to index each appointment under
+     */
+    public AppointmentIndex(ToIntFunction<Appointment> resourceKey) {
+        this.resourceKey = resourceKey;
+    }
+
+    /**
+     * adds an appointment, replacing any earlier version with the same appointment ID
+     * @param appointment the appointment to index
+     */
+    public synchronized void add(Appointment appointment) {
+        if (appointment.getStart() == null || appointment.getEnd() == null) {
+            return;
+        }
+        remove(appointment.getAppointmentID());
+        int resourceID = resourceKey.applyAsInt(appointment);
+        intervalsByResource.computeIfAbsent(resourceID, id -> new IntervalSet())
+                .add(appointment.getAppointmentID(), toEpochSecond(appointment.getStart()), toEpochSecond(appointment.getEnd()));
+        resourceByAppointment.put(appointment.getAppointmentID(), resourceID);
+    }
+
+    /**
+     * adds every appointment in the collection
+     * @param appointments the appointments to index
+     */
+    public synchronized void addAll(Collection<Appointment> appointments) {
+        for (Appointment appointment : appointments) {
+            add(appointment);
+        }
+    }
+
+    /**
+     * removes an appointment from the index
+     * @param appointmentID the ID of the appointment to remove
+     */
+    public synchronized void remove(int appointmentID) {
+        int resourceID = resourceByAppointment.get(appointmentID, NOT_INDEXED);
+        if (resourceID != NOT_INDEXED) {
+            resourceByAppointment.remove(appointmentID);
+            IntervalSet intervals = intervalsByResource.get(resourceID);
+            intervals.remove(appointmentID);
+            if (intervals.size() == 0) {
+                intervalsByResource.remove(resourceID);
+            }
+        }
+    }
+
+    /**
+     * removes several appointments - each resource's intervals are compacted once, by its next query
+     * @param appointmentIDs the IDs of the appointments to remove - IDs not indexed are ignored
+     */
+    public synchronized void removeAll(Collection<Integer> appointmentIDs) {
+        for (Integer appointmentID : appointmentIDs) {
+            remove(appointmentID);
+        }
+    }
+
+    /**
+     * removes every appointment from the index
+     */
+    public synchronized void clear() {
+        intervalsByResource.clear();
+        resourceByAppointment.clear();
+    }
+
+    /**
+     * checks whether a resource already has an appointment overlapping [start, end)
+     * @param resourceID the resource to check
+     * @param start the start of the new appointment (local time)
+     * @param end the end of the new appointment (local time)
+     * @param excludeAppointmentID the appointment being modified, which can't conflict with itself, or -1
+     * @return true if the times overlap an existing appointment
+     */
+    public synchronized boolean overlaps(int resourceID, LocalDateTime start, LocalDateTime end, int excludeAppointmentID) {
+        IntervalSet intervals = intervalsByResource.get(resourceID);
+        return intervals != null && intervals.overlaps(toEpochSecond(start), toEpochSecond(end), excludeAppointmentID);
+    }
+
+    /**
+     * @param resourceID the resource to look up
+     * @return IDs of every appointment booked for the resource, in start order
+     */
+    public synchronized int[] getAppointmentIDs(int resourceID) {
+        IntervalSet intervals = intervalsByResource.get(resourceID);
+        return intervals == null ? new int[0] : intervals.getIDs();
+    }
+
+    /**
+     * adds a resource's appointments overlapping [start, end) to a busy list, in start order, replacing its contents
+     * @param resourceID the resource to look up
+     * @param start the start in epoch seconds
+     * @param end the end in epoch seconds
+     * @param excludeAppointmentID the appointment being modified, which doesn't make the resource busy, or -1
+     * @param busy receives the intervals
+     */
+    synchronized void collectBusy(int resourceID, long start, long end, int excludeAppointmentID, BusyList busy) {
+        busy.clear();
+        IntervalSet intervals = intervalsByResource.get(resourceID);
+        if (intervals != null) {
+            intervals.collectOverlaps(start, end, excludeAppointmentID, busy);
+        }
+    }
+
+    /**
+     * @return number of appointments indexed
+     */
+    public synchronized int size() {
+        return resourceByAppointment.size();
+    }
+
+    /**
+     * @param localDateTime a time in the user's time zone
+     * @return the time in epoch seconds
+     */
+    public static long toEpochSecond(LocalDateTime localDateTime) {
+        return TimeService.toEpochSecond(localDateTime);
+    }
+}
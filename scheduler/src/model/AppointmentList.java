@@ -0,0 +1,193 @@
+package model;
+
+import javafx.collections.ModifiableObservableListBase;
+
+import java.util.AbstractList;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collection;
+import java.util.List;
+import java.util.function.Predicate;
+
+/**
+ * An ObservableList of appointments backed by an AppointmentStore.
+ * Appointments are stored in the store's columns when added and built again from them when read, so the list holds no
+ * Appointment objects itself. Clearing and bulk removal are done in one pass over the columns, and removeByID removes
+ * each appointment in O(1) by moving the last row into its place
+ * @author Derek Brown
+ */
+public class AppointmentList extends ModifiableObservableListBase<Appointment> {
+    /**
+     * the rows - replaced with an empty store on clear, so the old one can be handed to listeners as the removed rows
+     */
+    private AppointmentStore store = new AppointmentStore();
+
+    /**
+     * @return the store holding the rows - read-only use only, changes must go through the list so listeners see them
+     */
+    public AppointmentStore getStore() {
+        return store;
+    }
+
+    /**
+     * @param appointmentID an appointment ID
+     * @return the position of the appointment, or -1 if it isn't in the list
+     */
+    public int indexOfID(int appointmentID) {
+        return store.rowOf(appointmentID);
+    }
+
+    /**
+     * @param appointmentID an appointment ID
+     * @return the appointment, or null if it isn't in the list
+     */
+    public Appointment getByID(int appointmentID) {
+        int row = store.rowOf(appointmentID);
+        return row < 0 ? null : store.get(row);
+    }
+
+    @Override
+    public Appointment get(int index) {
+        return store.get(index);
+    }
+
+    @Override
+    public int size() {
+        return store.size();
+    }
+
+    @Override
+    public int indexOf(Object o) {
+        return o instanceof Appointment ? store.rowOf(((Appointment) o).getAppointmentID()) : -1;
+    }
+
+    @Override
+    public boolean contains(Object o) {
+        return indexOf(o) >= 0;
+    }
+
+    @Override
+    protected void doAdd(int index, Appointment element) {
+        store.insert(index, element);
+    }
+
+    @Override
+    protected Appointment doSet(int index, Appointment element) {
+        Appointment old = store.get(index);
+        store.set(index, element);
+        return old;
+    }
+
+    @Override
+    protected Appointment doRemove(int index) {
+        Appointment old = store.get(index);
+        store.remove(index);
+        return old;
+    }
+
+    /**
+     * clears by swapping in an empty store instead of removing rows one at a time
+     * @param fromIndex first index to remove
+     * @param toIndex index after the last one to remove
+     */
+    @Override
+    protected void removeRange(int fromIndex, int toIndex) {
+        if (fromIndex != 0 || toIndex != store.size() || toIndex == 0) {
+            super.removeRange(fromIndex, toIndex);
+            return;
+        }
+        AppointmentStore removed = store;
+        store = new AppointmentStore();
+        beginChange();
+        nextRemove(0, new AbstractList<>() {
+            @Override
+            public Appointment get(int index) {
+                return removed.get(index);
+            }
+
+            @Override
+            public int size() {
+                return removed.size();
+            }
+        });
+        endChange();
+    }
+
+    /**
+     * removes appointments by ID as one change. Each removed row is filled with the current last row rather than
+     * moving every later row up, so the cost depends on the number removed, not the size of the list.
+     * Rows are removed from the bottom up, so a row moved into a hole is never removed again. The change is
+     * reported as it nets out - each hole above the new end replaced by the row moved into it, then the old tail
+     * removed - so listeners see the positions as they really are
+     * @param appointmentIDs IDs of the appointments to remove - IDs not in the list are ignored
+     * @return the number removed
+     */
+    public int removeByID(Collection<Integer> appointmentIDs) {
+        int[] rows = new int[appointmentIDs.size()];
+        int count = 0;
+        for (Integer appointmentID : appointmentIDs) {
+            int row = store.rowOf(appointmentID);
+            if (row >= 0) {
+                rows[count++] = row;
+            }
+        }
+        Arrays.sort(rows, 0, count);
+        int unique = 0;
+        for (int i = 0; i < count; i++) {
+            if (unique == 0 || rows[i] != rows[unique - 1]) {
+                rows[unique++] = rows[i];
+            }
+        }
+        if (unique == 0) {
+            return 0;
+        }
+        int oldSize = store.size();
+        int newSize = oldSize - unique;
+        List<Appointment> holes = new ArrayList<>();
+        for (int i = 0; i < unique && rows[i] < newSize; i++) {
+            holes.add(store.get(rows[i]));
+        }
+        List<Appointment> tail = new ArrayList<>(unique);
+        for (int row = newSize; row < oldSize; row++) {
+            tail.add(store.get(row));
+        }
+        for (int i = unique - 1; i >= 0; i--) {
+            store.removeSwappingLast(rows[i]);
+        }
+        beginChange();
+        for (int i = 0; i < holes.size(); i++) {
+            nextSet(rows[i], holes.get(i));
+        }
+        nextRemove(newSize, tail);
+        endChange();
+        return unique;
+    }
+
+    /**
+     * removes the matching appointments in a single compacting pass
+     * @param filter picks the appointments to remove
+     * @return true if any were removed
+     */
+    @Override
+    public boolean removeIf(Predicate<? super Appointment> filter) {
+        int size = store.size();
+        int kept = 0;
+        beginChange();
+        for (int row = 0; row < size; row++) {
+            Appointment appointment = store.get(row);
+            if (filter.test(appointment)) {
+                store.forgetRow(row);
+                nextRemove(kept, appointment);
+            }
+            else {
+                if (kept != row) {
+                    store.moveRow(row, kept);
+                }
+                kept++;
+            }
+        }
+        store.truncate(kept);
+        endChange();
+        return kept < size;
+    }
+}
@@ -0,0 +1,156 @@
+package model;
+
+import java.time.LocalDateTime;
+
+/**
+ * One appointment row as it is stored in the database, with the start and end times left in UTC.
+ * Used by the bulk import and export, which move rows between files and the database without converting the times
+ * @author Derek Brown
+ */
+public class AppointmentRecord {
+    /**
+     * the appointment ID, or -1 if the database should assign one
+     */
+    private final int appointmentID;
+    /**
+     * the title
+     */
+    private final String title;
+    /**
+     * the description
+     */
+    private final String description;
+    /**
+     * the location
+     */
+    private final String location;
+    /**
+     * the type
+     */
+    private final String type;
+    /**
+     * the start time in UTC
+     */
+    private final LocalDateTime start;
+    /**
+     * the end time in UTC
+     */
+    private final LocalDateTime end;
+    /**
+     * the customer ID
+     */
+    private final int customerID;
+    /**
+     * the user ID
+     */
+    private final int userID;
+    /**
+     * the contact ID
+     */
+    private final int contactID;
+
+    /**
+     * constructor
+     * @param appointmentID the appointment ID, or -1 if the database should assign one
+     * @param title the title
+     * @param description the description
+     * @param location the location
+     * @param type the type
+     * @param start the start time in UTC
+     * @param end the end time in UTC
+     * @param customerID the customer ID
+     * @param userID the user ID
+     * @param contactID the contact ID
+     */
+    public AppointmentRecord(int appointmentID, String title, String description, String location, String type,
+                             LocalDateTime start, LocalDateTime end, int customerID, int userID, int contactID) {
+        this.appointmentID = appointmentID;
+        this.title = title;
+        this.description = description;
+        this.location = location;
+        this.type = type;
+        this.start = start;
+        this.end = end;
+        this.customerID = customerID;
+        this.userID = userID;
+        this.contactID = contactID;
+    }
+
+    /**
+     * @return the appointment ID, or -1 if the database should assign one
+     */
+    public int getAppointmentID() {
+        return appointmentID;
+    }
+
+    /**
+     * @return the title
+     */
+    public String getTitle() {
+        return title;
+    }
+
+    /**
+     * @return the description
+     */
+    public String getDescription() {
+        return description;
+    }
+
+    /**
+     * @return the location
+     */
+    public String getLocation() {
+        return location;
+    }
+
+    /**
+     * @return the type
+     */
+    public String getType() {
+        return type;
+    }
+
+    /**
+     * @return the start time in UTC
+     */
+    public LocalDateTime getStart() {
+        return start;
+    }
+
+    /**
+     * @return the end time in UTC
+     */
+    public LocalDateTime getEnd() {
+        return end;
+    }
+
+    /**
+     * @return the customer ID
+     */
+    public int getCustomerID() {
+        return customerID;
+    }
+
+    /**
+     * @return the user ID
+     */
+    public int getUserID() {
+        return userID;
+    }
+
+    /**
+     * @return the contact ID
+     */
+    public int getContactID() {
+        return contactID;
+    }
+
+    /**
+     * @param appointmentID the appointment ID to give the copy
+     * @return an Appointment with the same values, its times converted to local time
+     */
+    public Appointment toAppointment(int appointmentID) {
+        return new Appointment(appointmentID, title, description, location, type, start, end, customerID, contactID, userID);
+    }
+}
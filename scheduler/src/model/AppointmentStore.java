@@ -0,0 +1,380 @@
+package model;
+
+import util.TimeService;
+
+import java.time.LocalDateTime;
+import java.time.ZoneId;
+import java.util.Arrays;
+
+/**
+ * Stores appointments column by column in parallel primitive arrays instead of one object per appointment.
+ * Start and end are kept as epoch seconds, and titles, types and locations are dictionary encoded so each distinct
+ * value is stored once. Appointment objects are only built when a row is read with get, so the store itself costs
+ * a few dozen bytes per appointment and scans over a single column (contact, type, start) touch no objects at all
+ * @author Derek Brown
+ */
+public class AppointmentStore {
+    /**
+     * stored in the start and end columns for a missing time
+     */
+    public static final long NO_TIME = Long.MIN_VALUE;
+
+    /**
+     * the time zone the Appointment times are in
+     */
+    private final ZoneId zone = TimeService.LOCAL;
+    /**
+     * dictionary for the title column
+     */
+    private final StringDictionary titles = new StringDictionary();
+    /**
+     * dictionary for the type column
+     */
+    private final StringDictionary types = new StringDictionary();
+    /**
+     * dictionary for the location column
+     */
+    private final StringDictionary locations = new StringDictionary();
+    /**
+     * row of each appointment ID
+     */
+    private final IntIntMap rowByID = new IntIntMap();
+
+    /**
+     * appointment ID column
+     */
+    private int[] ids = new int[16];
+    /**
+     * customer ID column
+     */
+    private int[] customerIDs = new int[16];
+    /**
+     * user ID column
+     */
+    private int[] userIDs = new int[16];
+    /**
+     * contact ID column
+     */
+    private int[] contactIDs = new int[16];
+    /**
+     * title code column
+     */
+    private int[] titleCodes = new int[16];
+    /**
+     * type code column
+     */
+    private int[] typeCodes = new int[16];
+    /**
+     * location code column
+     */
+    private int[] locationCodes = new int[16];
+    /**
+     * description column - descriptions are mostly unique so they aren't dictionary encoded
+     */
+    private String[] descriptions = new String[16];
+    /**
+     * start column in epoch seconds
+     */
+    private long[] starts = new long[16];
+    /**
+     * end column in epoch seconds
+     */
+    private long[] ends = new long[16];
+    /**
+     * number of rows
+     */
+    private int size;
+
+    /**
+     * @return number of rows
+     */
+    public int size() {
+        return size;
+    }
+
+    /**
+     * @param appointmentID an appointment ID
+     * @return the row holding the appointment, or -1 if it isn't stored
+     */
+    public int rowOf(int appointmentID) {
+        return rowByID.get(appointmentID, -1);
+    }
+
+    /**
+     * builds an Appointment from a row
+     * @param row the row
+     * @return a new Appointment with the row's values
+     */
+    public Appointment get(int row) {
+        checkRow(row, size);
+        Appointment appointment = new Appointment(ids[row], titles.decode(titleCodes[row]), descriptions[row],
+                locations.decode(locationCodes[row]), types.decode(typeCodes[row]), null, null,
+                customerIDs[row], contactIDs[row], userIDs[row]);
+        appointment.setLocalStart(toLocal(starts[row]));
+        appointment.setLocalEnd(toLocal(ends[row]));
+        return appointment;
+    }
+
+    /**
+     * inserts an appointment at a row, moving later rows down
+     * @param row the row to insert at
+     * @param appointment the appointment
+     */
+    public void insert(int row, Appointment appointment) {
+        checkRow(row, size + 1);
+        if (size == ids.length) {
+            grow();
+        }
+        if (row < size) {
+            shift(row, row + 1, size - row);
+            for (int i = row + 1; i <= size; i++) {
+                rowByID.put(ids[i], i);
+            }
+        }
+        size++;
+        write(row, appointment);
+    }
+
+    /**
+     * adds an appointment after the last row
+     * @param appointment the appointment
+     */
+    public void add(Appointment appointment) {
+        insert(size, appointment);
+    }
+
+    /**
+     * replaces the appointment in a row
+     * @param row the row
+     * @param appointment the new appointment
+     */
+    public void set(int row, Appointment appointment) {
+        checkRow(row, size);
+        rowByID.remove(ids[row]);
+        write(row, appointment);
+    }
+
+    /**
+     * removes a row, moving later rows up
+     * @param row the row
+     */
+    public void remove(int row) {
+        checkRow(row, size);
+        rowByID.remove(ids[row]);
+        shift(row + 1, row, size - row - 1);
+        size--;
+        descriptions[size] = null;
+        for (int i = row; i < size; i++) {
+            rowByID.put(ids[i], i);
+        }
+    }
+
+    /**
+     * removes a row by moving the last row into its place, so no other row moves - O(1) instead of shifting
+     * every later row up, but the last row's position changes
+     * @param row the row
+     */
+    public void removeSwappingLast(int row) {
+        checkRow(row, size);
+        rowByID.remove(ids[row]);
+        int last = size - 1;
+        if (row != last) {
+            shift(last, row, 1);
+            rowByID.put(ids[row], row);
+        }
+        descriptions[last] = null;
+        size = last;
+    }
+
+    /**
+     * copies a row over another one - used to compact the store when removing many rows in one pass
+     * @param from the row to copy
+     * @param to the row to overwrite
+     */
+    public void moveRow(int from, int to) {
+        checkRow(from, size);
+        checkRow(to, size);
+        shift(from, to, 1);
+        rowByID.put(ids[to], to);
+    }
+
+    /**
+     * drops every row from newSize on - the IDs of the dropped rows must already be moved or forgotten
+     * @param newSize the number of rows to keep
+     */
+    public void truncate(int newSize) {
+        checkRow(newSize, size + 1);
+        Arrays.fill(descriptions, newSize, size, null);
+        size = newSize;
+    }
+
+    /**
+     * forgets the row of an appointment ID, before the row is overwritten by moveRow or dropped by truncate
+     * @param row the row whose appointment is being removed
+     */
+    public void forgetRow(int row) {
+        checkRow(row, size);
+        rowByID.remove(ids[row]);
+    }
+
+    /**
+     * removes every row
+     */
+    public void clear() {
+        Arrays.fill(descriptions, 0, size, null);
+        rowByID.clear();
+        size = 0;
+    }
+
+    /**
+     * @param row the row
+     * @return the appointment ID
+     */
+    public int getAppointmentID(int row) {
+        return ids[row];
+    }
+
+    /**
+     * @param row the row
+     * @return the customer ID
+     */
+    public int getCustomerID(int row) {
+        return customerIDs[row];
+    }
+
+    /**
+     * @param row the row
+     * @return the contact ID
+     */
+    public int getContactID(int row) {
+        return contactIDs[row];
+    }
+
+    /**
+     * @param row the row
+     * @return the user ID
+     */
+    public int getUserID(int row) {
+        return userIDs[row];
+    }
+
+    /**
+     * @param row the row
+     * @return the dictionary code of the type - decode with decodeType
+     */
+    public int getTypeCode(int row) {
+        return typeCodes[row];
+    }
+
+    /**
+     * @param code a code from getTypeCode
+     * @return the type
+     */
+    public String decodeType(int code) {
+        return types.decode(code);
+    }
+
+    /**
+     * @param row the row
+     * @return the start in epoch seconds, or NO_TIME
+     */
+    public long getStartEpochSecond(int row) {
+        return starts[row];
+    }
+
+    /**
+     * @param row the row
+     * @return the end in epoch seconds, or NO_TIME
+     */
+    public long getEndEpochSecond(int row) {
+        return ends[row];
+    }
+
+    /**
+     * @return the time zone the Appointment times are in
+     */
+    public ZoneId getZone() {
+        return zone;
+    }
+
+    /**
+     * stores an appointment's values in a row
+     * @param row the row
+     * @param appointment the appointment
+     */
+    private void write(int row, Appointment appointment) {
+        ids[row] = appointment.getAppointmentID();
+        customerIDs[row] = appointment.getCustomerID();
+        userIDs[row] = appointment.getUserID();
+        contactIDs[row] = appointment.getContactID();
+        titleCodes[row] = titles.encode(appointment.getTitle());
+        typeCodes[row] = types.encode(appointment.getType());
+        locationCodes[row] = locations.encode(appointment.getLocation());
+        descriptions[row] = appointment.getDescription();
+        starts[row] = toEpochSecond(appointment.getStart());
+        ends[row] = toEpochSecond(appointment.getEnd());
+        rowByID.put(ids[row], row);
+    }
+
+    /**
+     * copies a range of rows in every column
+     * @param from first row to copy
+     * @param to where the first row goes
+     * @param count number of rows
+     */
+    private void shift(int from, int to, int count) {
+        System.arraycopy(ids, from, ids, to, count);
+        System.arraycopy(customerIDs, from, customerIDs, to, count);
+        System.arraycopy(userIDs, from, userIDs, to, count);
+        System.arraycopy(contactIDs, from, contactIDs, to, count);
+        System.arraycopy(titleCodes, from, titleCodes, to, count);
+        System.arraycopy(typeCodes, from, typeCodes, to, count);
+        System.arraycopy(locationCodes, from, locationCodes, to, count);
+        System.arraycopy(descriptions, from, descriptions, to, count);
+        System.arraycopy(starts, from, starts, to, count);
+        System.arraycopy(ends, from, ends, to, count);
+    }
+
+    /**
+     * doubles the capacity of every column
+     */
+    private void grow() {
+        int capacity = ids.length * 2;
+        ids = Arrays.copyOf(ids, capacity);
+        customerIDs = Arrays.copyOf(customerIDs, capacity);
+        userIDs = Arrays.copyOf(userIDs, capacity);
+        contactIDs = Arrays.copyOf(contactIDs, capacity);
+        titleCodes = Arrays.copyOf(titleCodes, capacity);
+        typeCodes = Arrays.copyOf(typeCodes, capacity);
+        locationCodes = Arrays.copyOf(locationCodes, capacity);
+        descriptions = Arrays.copyOf(descriptions, capacity);
+        starts = Arrays.copyOf(starts, capacity);
+        ends = Arrays.copyOf(ends, capacity);
+    }
+
+    /**
+     * @param localDateTime a time in the store's zone, or null
+     * @return the time in epoch seconds, or NO_TIME
+     */
+    private long toEpochSecond(LocalDateTime localDateTime) {
+        return localDateTime == null ? NO_TIME : TimeService.toEpochSecond(localDateTime);
+    }
+
+    /**
+     * @param epochSecond a time in epoch seconds, or NO_TIME
+     * @return the time in the store's zone, or null
+     */
+    private LocalDateTime toLocal(long epochSecond) {
+        return epochSecond == NO_TIME ? null : TimeService.fromEpochSecond(epochSecond);
+    }
+
+    /**
+     * @param row a row
+     * @param limit the first invalid row
+     */
+    private static void checkRow(int row, int limit) {
+        if (row < 0 || row >= limit) {
+            throw new IndexOutOfBoundsException(row);
+        }
+    }
+}
@@ -0,0 +1,157 @@
+package model;
+
+import util.SlotTable;
+import util.TimeService;
+
+import java.time.LocalDate;
+import java.time.LocalDateTime;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Finds the free appointment slots a customer, a contact and a user have in common. Each resource's bookings come from
+ * its AppointmentIndex, so a search only reads those three calendars. A day at a time, the bookings of the three that
+ * fall in the day's business hours are merged into one sorted list of non-overlapping busy intervals, and the day's
+ * slots (TimeService.slotsFor - 30 minutes apart, within business hours in Eastern time) are walked against it with
+ * a single pointer. The cost is in the bookings read, not in the size of the appointment list
+ * @author Derek Brown
+ */
+public class AvailabilityFinder {
+    /**
+     * how many days ahead a search looks before giving up
+     */
+    public static int maxDays = Integer.getInteger("scheduler.availability.maxDays", 366);
+
+    /**
+     * appointments by customer
+     */
+    private final AppointmentIndex customerAppointments;
+    /**
+     * appointments by contact
+     */
+    private final AppointmentIndex contactAppointments;
+    /**
+     * appointments by user
+     */
+    private final AppointmentIndex userAppointments;
+
+    /**
+     * constructor
+     * @param customerAppointments appointments by customer
+     * @param contactAppointments appointments by contact
+     * @param userAppointments appointments by user
+     */
+    public AvailabilityFinder(AppointmentIndex customerAppointments, AppointmentIndex contactAppointments,
+                              AppointmentIndex userAppointments) {
+        this.customerAppointments = customerAppointments;
+        this.contactAppointments = contactAppointments;
+        this.userAppointments = userAppointments;
+    }
+
+    /**
+     * finds the first slots, in time order, where the customer, contact and user are all free for the whole length
+     * @param customerID the customer
+     * @param contactID the contact
+     * @param userID the user
+     * @param from the earliest start, in local time
+     * @param slotCount the appointment's length in slots (TimeService.SLOT_MINUTES each)
+     * @param count the most slots to return
+     * @param excludeAppointmentID the appointment being modified, which doesn't make anyone busy, or -1
+     * @return up to count free slots - fewer if the search reaches maxDays ahead
+     */
+    public List<Slot> findFreeSlots(int customerID, int contactID, int userID, LocalDateTime from, int slotCount,
+                                    int count, int excludeAppointmentID) {
+        List<Slot> found = new ArrayList<>();
+        if (slotCount < 1 || count < 1) {
+            return found;
+        }
+        long fromSecond = TimeService.toEpochSecond(from);
+        long length = TimeUnit.MINUTES.toSeconds((long) TimeService.SLOT_MINUTES * slotCount);
+        BusyList customerBusy = new BusyList();
+        BusyList contactBusy = new BusyList();
+        BusyList userBusy = new BusyList();
+        BusyList pair = new BusyList();
+        BusyList busy = new BusyList();
+        LocalDate date = from.toLocalDate();
+        for (int day = 0; day < maxDays && found.size() < count; day++, date = date.plusDays(1)) {
+            SlotTable slots = TimeService.slotsFor(date);
+            if (slots.size() == 0) {
+                continue;
+            }
+            long dayStart = Math.max(fromSecond, slots.getStartEpochSecond(0));
+            long dayEnd = slots.getStartEpochSecond(slots.size() - 1) + length;
+            if (dayStart >= dayEnd) {
+                continue;
+            }
+            customerAppointments.collectBusy(customerID, dayStart, dayEnd, excludeAppointmentID, customerBusy);
+            contactAppointments.collectBusy(contactID, dayStart, dayEnd, excludeAppointmentID, contactBusy);
+            userAppointments.collectBusy(userID, dayStart, dayEnd, excludeAppointmentID, userBusy);
+            pair.union(customerBusy, contactBusy);
+            busy.union(pair, userBusy);
+
+            int next = 0;
+            for (int i = 0; i < slots.size() && found.size() < count; i++) {
+                long start = slots.getStartEpochSecond(i);
+                long end = start + length;
+                if (start < fromSecond || end > slots.getCloseEpochSecond(i)) {
+                    continue;
+                }
+                //the busy intervals don't overlap, so the first one ending after the start is the only one that can clash
+                while (next < busy.size() && busy.getEnd(next) <= start) {
+                    next++;
+                }
+                if (next == busy.size() || busy.getStart(next) >= end) {
+                    found.add(new Slot(slots.getStart(i), TimeService.fromEpochSecond(end)));
+                }
+            }
+        }
+        return found;
+    }
+
+    /**
+     * One free slot
+     */
+    public static class Slot {
+        /**
+         * the start in local time
+         */
+        private final LocalDateTime start;
+        /**
+         * the end in local time
+         */
+        private final LocalDateTime end;
+
+        /**
+         * constructor
+         * @param start the start in local time
+         * @param end the end in local time
+         */
+        public Slot(LocalDateTime start, LocalDateTime end) {
+            this.start = start;
+            this.end = end;
+        }
+
+        /**
+         * @return the start in local time
+         */
+        public LocalDateTime getStart() {
+            return start;
+        }
+
+        /**
+         * @return the end in local time
+         */
+        public LocalDateTime getEnd() {
+            return end;
+        }
+
+        /**
+         * @return the start and end
+         */
+        @Override
+        public String toString() {
+            return TimeService.formatDateTime(start) + " - " + TimeService.formatTime(end);
+        }
+    }
+}
@@ -0,0 +1,105 @@
+package model;
+
+import java.util.Arrays;
+
+/**
+ * A list of busy time intervals sorted by start, as parallel primitive arrays. Intervals are half-open [start, end)
+ * in epoch seconds. Filled by IntervalSet.collectOverlaps, and used by AvailabilityFinder to merge the calendars of
+ * several resources into one list of non-overlapping intervals
+ * @author Derek Brown
+ */
+class BusyList {
+    /**
+     * start of each interval, ascending
+     */
+    private long[] starts = new long[16];
+    /**
+     * end of each interval
+     */
+    private long[] ends = new long[16];
+    /**
+     * number of intervals
+     */
+    private int size;
+
+    /**
+     * adds an interval after the last one - intervals must be added in start order
+     * @param start the start in epoch seconds
+     * @param end the end in epoch seconds
+     */
+    void add(long start, long end) {
+        if (size == starts.length) {
+            starts = Arrays.copyOf(starts, size * 2);
+            ends = Arrays.copyOf(ends, size * 2);
+        }
+        starts[size] = start;
+        ends[size] = end;
+        size++;
+    }
+
+    /**
+     * replaces the contents with the union of two lists, merging intervals that overlap or touch,
+     * so the result is sorted and no two intervals overlap
+     * @param first a list sorted by start
+     * @param second a list sorted by start
+     */
+    void union(BusyList first, BusyList second) {
+        size = 0;
+        int i = 0;
+        int j = 0;
+        while (i < first.size || j < second.size) {
+            if (j == second.size || (i < first.size && first.starts[i] <= second.starts[j])) {
+                addMerged(first.starts[i], first.ends[i]);
+                i++;
+            }
+            else {
+                addMerged(second.starts[j], second.ends[j]);
+                j++;
+            }
+        }
+    }
+
+    /**
+     * adds an interval in start order, extending the last interval instead if they overlap or touch
+     * @param start the start in epoch seconds
+     * @param end the end in epoch seconds
+     */
+    private void addMerged(long start, long end) {
+        if (size > 0 && start <= ends[size - 1]) {
+            ends[size - 1] = Math.max(ends[size - 1], end);
+        }
+        else {
+            add(start, end);
+        }
+    }
+
+    /**
+     * removes every interval
+     */
+    void clear() {
+        size = 0;
+    }
+
+    /**
+     * @return number of intervals
+     */
+    int size() {
+        return size;
+    }
+
+    /**
+     * @param index position in start order
+     * @return the start of the interval in epoch seconds
+     */
+    long getStart(int index) {
+        return starts[index];
+    }
+
+    /**
+     * @param index position in start order
+     * @return the end of the interval in epoch seconds
+     */
+    long getEnd(int index) {
+        return ends[index];
+    }
+}
@@ -0,0 +1,45 @@
+package model;
+
+/**
+ * Country class to store values from the countries table
+ * @author Derek Brown
+ */
+public class Country {
+    /**
+     * the country ID
+     */
+    private final int countryID;
+    /**
+     * the name of the country
+     */
+    private final String country;
+
+    /**
+     * constructor
+     * @param countryID the countryID to set
+     * @param country the country name to set
+     */
+    public Country(int countryID, String country) {
+        this.countryID = countryID;
+        this.country = country;
+    }
+
+    /**
+     * @return countryID for the country
+     */
+    public int getCountryID() {
+        return countryID;
+    }
+
+    /**
+     * @return name of the country
+     */
+    public String getCountry() {
+        return country;
+    }
+
+    @Override
+    public String toString() {
+        return country;
+    }
+}
@@ -1,11 +1,5 @@
 package model;
 
-import jdbc.DBConnection;
-
-import java.sql.PreparedStatement;
-import java.sql.ResultSet;
-import java.sql.SQLException;
-
 /**
  * Customer class to store values from database
  * @author Derek Brown
@@ -35,6 +29,10 @@ public class Customer{
      * the division ID associated with the customer
      */
     private String divisionID;
+    /**
+     * the numeric Division_ID associated with the customer
+     */
+    private int firstLevelDivisionID;
     /**
      * the country for the customer
      */
@@ -148,26 +146,23 @@ public class Customer{
     }
 
     /**
-     * set the divisionID
+     * get the numeric Division_ID (getDivisionID returns the division name for display)
+     * @return the Division_ID
+     */
+    public int getFirstLevelDivisionID() {
+        return firstLevelDivisionID;
+    }
+
+    /**
+     * set the divisionID - the division and country names are looked up in the cached reference data
      * @param divisionID the divisionID to set
      */
     public void setDivisionID(int divisionID) {
+        this.firstLevelDivisionID = divisionID;
         setCountry(divisionID);
 
-        try{
-            PreparedStatement preparedStatement = DBConnection.connection.prepareStatement("select Division from first_level_divisions where Division_ID = ?;");
-            preparedStatement.setString(1, Integer.toString(divisionID));
-            ResultSet resultSet = preparedStatement.executeQuery();
-            if (resultSet.next()){
-                this.divisionID= resultSet.getString("Division");
-            }
-        }catch (SQLException e){
-            System.out.println("Couldn't get division names");
-            this.divisionID = "";
-        }
-
-
-//        this.divisionID = divisionID;
+        Division division = ReferenceData.getDivision(divisionID);
+        this.divisionID = division == null ? "" : division.getDivision();
     }
 
     /**
@@ -183,15 +178,7 @@ public class Customer{
      * @param divisionID the division ID used to look up the Country to set
      */
     public void setCountry(int divisionID) {
-        String country = "UK";
-        if (divisionID < 55){
-            country = "U.S";
-        }
-        else if (divisionID < 100){
-            country = "Canada";
-        }
-
-        this.country = country;
-
+        Country country = ReferenceData.getCountryForDivision(divisionID);
+        this.country = country == null ? "" : country.getCountry();
     }
 }
@@ -0,0 +1,58 @@
+package model;
+
+/**
+ * Division class to store values from the first_level_divisions table
+ * @author Derek Brown
+ */
+public class Division {
+    /**
+     * the division ID
+     */
+    private final int divisionID;
+    /**
+     * the name of the division
+     */
+    private final String division;
+    /**
+     * the ID of the country the division is in
+     */
+    private final int countryID;
+
+    /**
+     * constructor
+     * @param divisionID the divisionID to set
+     * @param division the division name to set
+     * @param countryID the countryID to set
+     */
+    public Division(int divisionID, String division, int countryID) {
+        this.divisionID = divisionID;
+        this.division = division;
+        this.countryID = countryID;
+    }
+
+    /**
+     * @return divisionID for the division
+     */
+    public int getDivisionID() {
+        return divisionID;
+    }
+
+    /**
+     * @return name of the division
+     */
+    public String getDivision() {
+        return division;
+    }
+
+    /**
+     * @return ID of the country the division is in
+     */
+    public int getCountryID() {
+        return countryID;
+    }
+
+    @Override
+    public String toString() {
+        return division;
+    }
+}
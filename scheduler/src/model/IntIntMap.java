@@ -0,0 +1,145 @@
+package model;
+
+import java.util.Arrays;
+
+/**
+ * A hash map from int keys to int values using open addressing over primitive arrays, so a lookup doesn't box.
+ * Removal shifts later entries back instead of leaving tombstones. Keys must not be Integer.MIN_VALUE, which marks an
+ * empty slot
+ * @author Derek Brown
+ */
+class IntIntMap {
+    /**
+     * marks an empty slot in the keys array
+     */
+    private static final int EMPTY = Integer.MIN_VALUE;
+    /**
+     * the keys, or EMPTY for unused slots
+     */
+    private int[] keys = new int[16];
+    /**
+     * the value for the key in the same slot
+     */
+    private int[] values = new int[16];
+    /**
+     * number of keys stored
+     */
+    private int size;
+
+    /**
+     * constructor
+     */
+    IntIntMap() {
+        Arrays.fill(keys, EMPTY);
+    }
+
+    /**
+     * @param key the key
+     * @param missing returned if the key isn't stored
+     * @return the value for the key
+     */
+    int get(int key, int missing) {
+        int slot = findSlot(keys, key);
+        return keys[slot] == EMPTY ? missing : values[slot];
+    }
+
+    /**
+     * stores a value for a key, replacing any earlier value
+     * @param key the key
+     * @param value the value
+     */
+    void put(int key, int value) {
+        int slot = findSlot(keys, key);
+        if (keys[slot] == EMPTY) {
+            if ((size + 1) * 2 > keys.length) {
+                grow();
+                slot = findSlot(keys, key);
+            }
+            keys[slot] = key;
+            size++;
+        }
+        values[slot] = value;
+    }
+
+    /**
+     * removes a key
+     * @param key the key
+     */
+    void remove(int key) {
+        int mask = keys.length - 1;
+        int slot = findSlot(keys, key);
+        if (keys[slot] == EMPTY) {
+            return;
+        }
+        keys[slot] = EMPTY;
+        size--;
+        //move later entries of the same probe run back so lookups don't stop at the gap
+        for (int next = (slot + 1) & mask; keys[next] != EMPTY; next = (next + 1) & mask) {
+            int home = mix(keys[next]) & mask;
+            if (((next - home) & mask) >= ((next - slot) & mask)) {
+                keys[slot] = keys[next];
+                values[slot] = values[next];
+                keys[next] = EMPTY;
+                slot = next;
+            }
+        }
+    }
+
+    /**
+     * removes every key
+     */
+    void clear() {
+        Arrays.fill(keys, EMPTY);
+        size = 0;
+    }
+
+    /**
+     * @return number of keys stored
+     */
+    int size() {
+        return size;
+    }
+
+    /**
+     * finds the slot holding the key, or the empty slot where it would go
+     * @param table the keys array to search
+     * @param key the key
+     * @return the slot index
+     */
+    private static int findSlot(int[] table, int key) {
+        int mask = table.length - 1;
+        int slot = mix(key) & mask;
+        while (table[slot] != EMPTY && table[slot] != key) {
+            slot = (slot + 1) & mask;
+        }
+        return slot;
+    }
+
+    /**
+     * spreads the key bits so sequential keys don't cluster
+     * @param key the key
+     * @return the hash
+     */
+    private static int mix(int key) {
+        int hash = key * 0x9E3779B9;
+        return hash ^ (hash >>> 16);
+    }
+
+    /**
+     * doubles the table size and re-inserts every key
+     */
+    private void grow() {
+        int[] oldKeys = keys;
+        int[] oldValues = values;
+        keys = new int[oldKeys.length * 2];
+        values = new int[oldKeys.length * 2];
+        Arrays.fill(keys, EMPTY);
+        for (int i = 0; i < oldKeys.length; i++) {
+            if (oldKeys[i] != EMPTY) {
+                int slot = findSlot(keys, oldKeys[i]);
+                keys[slot] = oldKeys[i];
+                values[slot] = oldValues[i];
+            }
+        }
+    }
+}
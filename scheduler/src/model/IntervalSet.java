@@ -0,0 +1,328 @@
+package model;
+
+import java.util.Arrays;
+
+/**
+ * The booked time intervals of a single resource (e.g. one customer), stored as parallel primitive arrays sorted by start.
+ * Intervals are half-open [start, end) in epoch seconds, so appointments that only touch at an edge don't overlap.
+ * A running maximum of the end times lets an overlap query stop as soon as no earlier interval can reach the start.
+ * Adds are appended unsorted and removes only mark the interval, found through a map from ID to position; the next
+ * query sorts what was added, merges it in and recomputes the running maximum in one pass. Loading a resource's
+ * bookings in any order therefore costs one sort rather than one shift of the arrays per booking
+ * @author Derek Brown
+ */
+public class IntervalSet {
+    /**
+     * the ID of a removed interval, waiting for the next query to drop it
+     */
+    private static final int REMOVED = Integer.MIN_VALUE;
+
+    /**
+     * start of each interval, sorted ascending
+     */
+    private long[] starts = new long[4];
+    /**
+     * end of each interval
+     */
+    private long[] ends = new long[4];
+    /**
+     * the largest end time among intervals 0..i
+     */
+    private long[] maxEnds = new long[4];
+    /**
+     * the appointment ID of each interval
+     */
+    private int[] ids = new int[4];
+    /**
+     * number of positions used, including added intervals not yet merged and removed ones not yet dropped
+     */
+    private int size;
+    /**
+     * positions before this are sorted by start, with the running maximum up to date - later ones were added since
+     */
+    private int sortedSize;
+    /**
+     * number of intervals marked REMOVED
+     */
+    private int removedCount;
+    /**
+     * the position of each interval, by appointment ID
+     */
+    private final IntIntMap positions = new IntIntMap();
+
+    /**
+     * adds an interval - it is merged into start order by the next query
+     * @param id the appointment ID for the interval
+     * @param start the start in epoch seconds
+     * @param end the end in epoch seconds
+     */
+    public void add(int id, long start, long end) {
+        if (size == starts.length) {
+            int capacity = size * 2;
+            starts = Arrays.copyOf(starts, capacity);
+            ends = Arrays.copyOf(ends, capacity);
+            maxEnds = Arrays.copyOf(maxEnds, capacity);
+            ids = Arrays.copyOf(ids, capacity);
+        }
+        starts[size] = start;
+        ends[size] = end;
+        ids[size] = id;
+        positions.put(id, size);
+        size++;
+    }
+
+    /**
+     * removes the interval with the given appointment ID - it is dropped from the arrays by the next query
+     * @param id the appointment ID
+     * @return true if an interval was removed
+     */
+    public boolean remove(int id) {
+        int position = positions.get(id, -1);
+        if (position < 0) {
+            return false;
+        }
+        positions.remove(id);
+        ids[position] = REMOVED;
+        removedCount++;
+        return true;
+    }
+
+    /**
+     * checks whether [start, end) overlaps any stored interval
+     * @param start the start in epoch seconds
+     * @param end the end in epoch seconds
+     * @param excludeID an appointment ID to ignore (the appointment being modified), or -1
+     * @return true if there is an overlap
+     */
+    public boolean overlaps(long start, long end, int excludeID) {
+        prepare();
+        for (int i = firstStartAtOrAfter(end) - 1; i >= 0 && maxEnds[i] > start; i--) {
+            if (ends[i] > start && ids[i] != excludeID) {
+                return true;
+            }
+        }
+        return false;
+    }
+
+    /**
+     * finds every stored interval overlapping [start, end)
+     * @param start the start in epoch seconds
+     * @param end the end in epoch seconds
+     * @return appointment IDs of the overlapping intervals
+     */
+    public int[] findOverlaps(long start, long end) {
+        prepare();
+        int[] found = new int[4];
+        int count = 0;
+        for (int i = firstStartAtOrAfter(end) - 1; i >= 0 && maxEnds[i] > start; i--) {
+            if (ends[i] > start) {
+                if (count == found.length) {
+                    found = Arrays.copyOf(found, count * 2);
+                }
+                found[count++] = ids[i];
+            }
+        }
+        return Arrays.copyOf(found, count);
+    }
+
+    /**
+     * adds every stored interval overlapping [start, end) to a busy list, in start order
+     * @param start the start in epoch seconds
+     * @param end the end in epoch seconds
+     * @param excludeID an appointment ID to leave out (the appointment being modified), or -1
+     * @param busy receives the intervals
+     */
+    void collectOverlaps(long start, long end, int excludeID, BusyList busy) {
+        prepare();
+        int high = firstStartAtOrAfter(end);
+        //the running maximum never decreases, so every interval that can reach the start comes after the last one that can't
+        for (int i = firstMaxEndAfter(start, high); i < high; i++) {
+            if (ends[i] > start && ids[i] != excludeID) {
+                busy.add(starts[i], ends[i]);
+            }
+        }
+    }
+
+    /**
+     * @return the appointment IDs of every stored interval, in start order
+     */
+    public int[] getIDs() {
+        prepare();
+        return Arrays.copyOf(ids, size);
+    }
+
+    /**
+     * @return number of intervals stored
+     */
+    public int size() {
+        return size - removedCount;
+    }
+
+    /**
+     * @param index position in start order
+     * @return the start of the interval in epoch seconds
+     */
+    public long getStart(int index) {
+        prepare();
+        return starts[index];
+    }
+
+    /**
+     * @param index position in start order
+     * @return the end of the interval in epoch seconds
+     */
+    public long getEnd(int index) {
+        prepare();
+        return ends[index];
+    }
+
+    /**
+     * @param value an epoch second
+     * @return index of the first interval starting at or after the value
+     */
+    public int firstStartAtOrAfter(long value) {
+        prepare();
+        int low = 0;
+        int high = size;
+        while (low < high) {
+            int mid = (low + high) >>> 1;
+            if (starts[mid] < value) {
+                low = mid + 1;
+            }
+            else {
+                high = mid;
+            }
+        }
+        return low;
+    }
+
+    /**
+     * brings the arrays up to date for a query - drops removed intervals, sorts the ones added since the last query
+     * and merges them in from the back, then recomputes the running maximum and the positions from the first
+     * position that changed
+     */
+    private void prepare() {
+        if (sortedSize == size && removedCount == 0) {
+            return;
+        }
+        //the added intervals, in start order
+        int[] order = new int[size - sortedSize];
+        int added = 0;
+        for (int i = sortedSize; i < size; i++) {
+            if (ids[i] != REMOVED) {
+                order[added++] = i;
+            }
+        }
+        sortByStart(order, added);
+        long[] addedStarts = new long[added];
+        long[] addedEnds = new long[added];
+        int[] addedIDs = new int[added];
+        for (int i = 0; i < added; i++) {
+            addedStarts[i] = starts[order[i]];
+            addedEnds[i] = ends[order[i]];
+            addedIDs[i] = ids[order[i]];
+        }
+        //drop the removed intervals from the sorted part
+        int kept = 0;
+        int first = Integer.MAX_VALUE;
+        for (int i = 0; i < sortedSize; i++) {
+            if (ids[i] == REMOVED) {
+                first = Math.min(first, i);
+                continue;
+            }
+            starts[kept] = starts[i];
+            ends[kept] = ends[i];
+            ids[kept] = ids[i];
+            kept++;
+        }
+        first = Math.min(first, kept);
+        //merge from the back, so the sorted part only moves up to make room
+        int i = kept - 1;
+        int j = added - 1;
+        for (int write = kept + added - 1; j >= 0; write--) {
+            if (i >= 0 && starts[i] > addedStarts[j]) {
+                starts[write] = starts[i];
+                ends[write] = ends[i];
+                ids[write] = ids[i];
+                i--;
+            }
+            else {
+                starts[write] = addedStarts[j];
+                ends[write] = addedEnds[j];
+                ids[write] = addedIDs[j];
+                j--;
+                first = Math.min(first, write);
+            }
+        }
+        size = kept + added;
+        sortedSize = size;
+        removedCount = 0;
+        updateMaxEnds(first);
+        for (int k = first; k < size; k++) {
+            positions.put(ids[k], k);
+        }
+    }
+
+    /**
+     * sorts positions by the start of the interval at each, with a bottom-up merge sort so nothing is boxed
+     * @param order the positions to sort
+     * @param count number of positions used in the array
+     */
+    private void sortByStart(int[] order, int count) {
+        int[] from = order;
+        int[] to = new int[count];
+        for (int width = 1; width < count; width *= 2) {
+            for (int low = 0; low < count; low += 2 * width) {
+                int middle = Math.min(low + width, count);
+                int high = Math.min(low + 2 * width, count);
+                int i = low;
+                int j = middle;
+                for (int k = low; k < high; k++) {
+                    if (i < middle && (j == high || starts[from[i]] <= starts[from[j]])) {
+                        to[k] = from[i++];
+                    }
+                    else {
+                        to[k] = from[j++];
+                    }
+                }
+            }
+            int[] swap = from;
+            from = to;
+            to = swap;
+        }
+        if (from != order) {
+            System.arraycopy(from, 0, order, 0, count);
+        }
+    }
+
+    /**
+     * @param value an epoch second
+     * @param high the index to search below
+     * @return index of the first interval whose running maximum end time is after the value, or high if none is
+     */
+    private int firstMaxEndAfter(long value, int high) {
+        int low = 0;
+        while (low < high) {
+            int mid = (low + high) >>> 1;
+            if (maxEnds[mid] <= value) {
+                low = mid + 1;
+            }
+            else {
+                high = mid;
+            }
+        }
+        return low;
+    }
+
+    /**
+     * recalculates the running maximum end time from the given index on
+     * @param from the first index that changed
+     */
+    private void updateMaxEnds(int from) {
+        long max = from > 0 ? maxEnds[from - 1] : Long.MIN_VALUE;
+        for (int i = from; i < size; i++) {
+            max = Math.max(max, ends[i]);
+            maxEnds[i] = max;
+        }
+    }
+}
@@ -0,0 +1,231 @@
+package model;
+
+import dao.CustomerRepository;
+import dao.ReferenceDataRepository;
+import javafx.collections.FXCollections;
+import javafx.collections.ObservableList;
+
+import java.sql.SQLException;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+
+/**
+ * Shared cache of the lookup lists behind the ID and contact comboboxes - contacts, user IDs and customer IDs.
+ * The lists are loaded together once and kept as an immutable, versioned snapshot that every screen shares,
+ * so opening a form doesn't query the database. Writes made by the application replace the snapshot
+ * (customerAdded, customerRemoved) or drop it to be reloaded on next use (invalidate)
+ * @author Derek Brown
+ */
+public class LookupCache {
+    /**
+     * the current snapshot, or null if it hasn't been loaded or was invalidated
+     */
+    private static volatile Lookups lookups;
+    /**
+     * the version given to the next snapshot
+     */
+    private static long nextVersion = 1;
+
+    /**
+     * @return the current snapshot, or null if it needs loading (see load())
+     */
+    public static Lookups current() {
+        return lookups;
+    }
+
+    /**
+     * @return the current snapshot, loading it from the database first if there isn't one
+     * @throws SQLException if a query fails
+     */
+    public static Lookups load() throws SQLException {
+        Lookups current = lookups;
+        if (current != null) {
+            return current;
+        }
+        synchronized (LookupCache.class) {
+            //writes wait for the load, then patch what it read
+            if (lookups == null) {
+                lookups = new Lookups(nextVersion++, ReferenceDataRepository.findAllContacts(),
+                        ReferenceDataRepository.findUserIDs(), CustomerRepository.findAllIDs());
+            }
+            return lookups;
+        }
+    }
+
+    /**
+     * adds a customer the application has just inserted
+     * @param customerID the new customer's ID
+     */
+    public static synchronized void customerAdded(int customerID) {
+        Lookups current = lookups;
+        if (current != null) {
+            List<Integer> customerIDs = new ArrayList<>(current.customerIDs);
+            int position = Collections.binarySearch(customerIDs, customerID);
+            if (position < 0) {
+                customerIDs.add(-position - 1, customerID);
+            }
+            lookups = current.withCustomerIDs(nextVersion++, customerIDs);
+        }
+    }
+
+    /**
+     * removes a customer the application has just deleted
+     * @param customerID the deleted customer's ID
+     */
+    public static synchronized void customerRemoved(int customerID) {
+        Lookups current = lookups;
+        if (current != null) {
+            List<Integer> customerIDs = new ArrayList<>(current.customerIDs);
+            customerIDs.remove(Integer.valueOf(customerID));
+            lookups = current.withCustomerIDs(nextVersion++, customerIDs);
+        }
+    }
+
+    /**
+     * drops the snapshot so the next load() reads the lists again
+     */
+    public static synchronized void invalidate() {
+        lookups = null;
+    }
+
+    /**
+     * One immutable copy of the lookup lists, each sorted by ID. The observable lists are unmodifiable and shared,
+     * so comboboxes can use them directly
+     */
+    public static class Lookups {
+        /**
+         * the version of this copy - increases with every change
+         */
+        private final long version;
+        /**
+         * contact IDs in ascending order
+         */
+        private final ObservableList<Integer> contactIDs;
+        /**
+         * contact names in contact ID order
+         */
+        private final ObservableList<String> contactNames;
+        /**
+         * the Contact_ID for each contact name
+         */
+        private final Map<String, Integer> contactIDsByName;
+        /**
+         * user IDs in ascending order
+         */
+        private final ObservableList<Integer> userIDs;
+        /**
+         * customer IDs in ascending order
+         */
+        private final ObservableList<Integer> customerIDs;
+
+        /**
+         * constructor
+         * @param version the version of this copy
+         * @param contacts each contact's name by Contact_ID, in ID order
+         * @param userIDs user IDs in ascending order
+         * @param customerIDs customer IDs in ascending order
+         */
+        private Lookups(long version, Map<Integer, String> contacts, List<Integer> userIDs, List<Integer> customerIDs) {
+            this.version = version;
+            Map<String, Integer> byName = new HashMap<>();
+            for (Map.Entry<Integer, String> contact : contacts.entrySet()) {
+                //the highest ID wins for a repeated name, like ReferenceDataRepository.findContactID
+                byName.put(contact.getValue(), contact.getKey());
+            }
+            this.contactIDs = immutable(new ArrayList<>(contacts.keySet()));
+            this.contactNames = immutable(new ArrayList<>(contacts.values()));
+            this.contactIDsByName = Collections.unmodifiableMap(byName);
+            this.userIDs = immutable(userIDs);
+            this.customerIDs = immutable(customerIDs);
+        }
+
+        /**
+         * copy constructor for a change to the customer IDs - the other lists are shared
+         * @param version the version of the copy
+         * @param from the copy being changed
+         * @param customerIDs the new customer IDs in ascending order
+         */
+        private Lookups(long version, Lookups from, List<Integer> customerIDs) {
+            this.version = version;
+            this.contactIDs = from.contactIDs;
+            this.contactNames = from.contactNames;
+            this.contactIDsByName = from.contactIDsByName;
+            this.userIDs = from.userIDs;
+            this.customerIDs = immutable(customerIDs);
+        }
+
+        /**
+         * @param version the version of the copy
+         * @param customerIDs the new customer IDs in ascending order
+         * @return a copy with different customer IDs
+         */
+        private Lookups withCustomerIDs(long version, List<Integer> customerIDs) {
+            return new Lookups(version, this, customerIDs);
+        }
+
+        /**
+         * @param values the values
+         * @param <T> the value type
+         * @return an unmodifiable observable copy
+         */
+        private static <T> ObservableList<T> immutable(List<T> values) {
+            return FXCollections.unmodifiableObservableList(FXCollections.observableArrayList(values));
+        }
+
+        /**
+         * @return the version of this copy - increases with every change
+         */
+        public long getVersion() {
+            return version;
+        }
+
+        /**
+         * @return contact IDs in ascending order
+         */
+        public ObservableList<Integer> getContactIDs() {
+            return contactIDs;
+        }
+
+        /**
+         * @return contact names in contact ID order
+         */
+        public ObservableList<String> getContactNames() {
+            return contactNames;
+        }
+
+        /**
+         * @param contactName a contact name
+         * @return the contact's ID, or -1 if there is no contact with that name
+         */
+        public int getContactID(String contactName) {
+            Integer contactID = contactIDsByName.get(contactName);
+            return contactID == null ? -1 : contactID;
+        }
+
+        /**
+         * @return user IDs in ascending order
+         */
+        public ObservableList<Integer> getUserIDs() {
+            return userIDs;
+        }
+
+        /**
+         * @return customer IDs in ascending order
+         */
+        public ObservableList<Integer> getCustomerIDs() {
+            return customerIDs;
+        }
+
+        /**
+         * @return the version and list sizes
+         */
+        @Override
+        public String toString() {
+            return "Lookups v" + version + " (" + contactIDs.size() + " contacts, " + userIDs.size() + " users, "
+                    + customerIDs.size() + " customers)";
+        }
+    }
+}
@@ -0,0 +1,254 @@
+package model;
+
+import dao.ReferenceDataRepository;
+
+import java.sql.SQLException;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+
+/**
+ * In-memory cache of the countries and first level divisions tables.
+ * Both tables are loaded in bulk and indexed by ID in arrays, so looking up a division or country is a single array read.
+ * The names are indexed too (country name to ID, division name to division, and each country's sorted division names)
+ * so the customer form can filter and validate its comboboxes without queries
+ * @author Derek Brown
+ */
+public class ReferenceData {
+    /**
+     * the currently loaded tables - replaced as a whole on refresh so readers never see a half-loaded cache
+     */
+    private static volatile Tables tables = new Tables(Collections.emptyList(), Collections.emptyList());
+    /**
+     * true once the tables have been loaded from the database
+     */
+    private static volatile boolean loaded = false;
+
+    /**
+     * loads the tables if they haven't been loaded yet
+     */
+    public static void ensureLoaded() {
+        if (!loaded) {
+            synchronized (ReferenceData.class) {
+                if (!loaded) {
+                    refresh();
+                }
+            }
+        }
+    }
+
+    /**
+     * reloads both tables from the database
+     * @return true if the tables were loaded
+     */
+    public static synchronized boolean refresh() {
+        try {
+            load(ReferenceDataRepository.findAllCountries(), ReferenceDataRepository.findAllDivisions());
+            return true;
+        } catch (SQLException e) {
+            System.out.println("Failed to load countries and divisions");
+            return false;
+        }
+    }
+
+    /**
+     * replaces the cached tables with the given rows
+     * @param countries every country
+     * @param divisions every first level division
+     */
+    public static synchronized void load(List<Country> countries, List<Division> divisions) {
+        tables = new Tables(countries, divisions);
+        loaded = true;
+    }
+
+    /**
+     * @param divisionID the division ID to look up
+     * @return the division or null if there isn't one with that ID
+     */
+    public static Division getDivision(int divisionID) {
+        Division[] divisions = tables.divisionsByID;
+        return divisionID >= 0 && divisionID < divisions.length ? divisions[divisionID] : null;
+    }
+
+    /**
+     * @param countryID the country ID to look up
+     * @return the country or null if there isn't one with that ID
+     */
+    public static Country getCountry(int countryID) {
+        Country[] countries = tables.countriesByID;
+        return countryID >= 0 && countryID < countries.length ? countries[countryID] : null;
+    }
+
+    /**
+     * @param divisionID the division ID to look up
+     * @return the country the division is in or null if the division isn't known
+     */
+    public static Country getCountryForDivision(int divisionID) {
+        Division division = getDivision(divisionID);
+        return division == null ? null : getCountry(division.getCountryID());
+    }
+
+    /**
+     * @return true once the tables have been loaded from the database
+     */
+    public static boolean isLoaded() {
+        return loaded;
+    }
+
+    /**
+     * @param countryName a country name
+     * @return the country's ID, or -1 if there is no country with that name
+     */
+    public static int getCountryID(String countryName) {
+        Integer countryID = countryName == null ? null : tables.countryIDsByName.get(countryName);
+        return countryID == null ? -1 : countryID;
+    }
+
+    /**
+     * @param divisionName a division name
+     * @return the division, or null if there is no division with that name
+     */
+    public static Division getDivision(String divisionName) {
+        return divisionName == null ? null : tables.divisionsByName.get(divisionName);
+    }
+
+    /**
+     * @param divisionName a division name
+     * @param countryName a country name
+     * @return true if the division is in the country
+     */
+    public static boolean isDivisionInCountry(String divisionName, String countryName) {
+        Division division = getDivision(divisionName);
+        return division != null && division.getCountryID() == getCountryID(countryName);
+    }
+
+    /**
+     * @return every country name in alphabetical order
+     */
+    public static List<String> getCountryNames() {
+        return tables.countryNames;
+    }
+
+    /**
+     * @return every division name in alphabetical order
+     */
+    public static List<String> getDivisionNames() {
+        return tables.divisionNames;
+    }
+
+    /**
+     * @param countryName a country name
+     * @return the names of the country's divisions in alphabetical order - empty if there is no such country
+     */
+    public static List<String> getDivisionNames(String countryName) {
+        return tables.divisionNamesByCountry.getOrDefault(getCountryID(countryName), Collections.emptyList());
+    }
+
+    /**
+     * @return every country ordered by ID
+     */
+    public static List<Country> getCountries() {
+        return tables.countries;
+    }
+
+    /**
+     * @return every division ordered by ID
+     */
+    public static List<Division> getDivisions() {
+        return tables.divisions;
+    }
+
+    /**
+     * One loaded copy of the reference tables with their ID indexes
+     */
+    private static class Tables {
+        /**
+         * every country
+         */
+        final List<Country> countries;
+        /**
+         * every division
+         */
+        final List<Division> divisions;
+        /**
+         * countries indexed directly by Country_ID
+         */
+        final Country[] countriesByID;
+        /**
+         * divisions indexed directly by Division_ID
+         */
+        final Division[] divisionsByID;
+        /**
+         * the ID of each country name
+         */
+        final Map<String, Integer> countryIDsByName = new HashMap<>();
+        /**
+         * the division for each division name - the lowest ID if a name is repeated
+         */
+        final Map<String, Division> divisionsByName = new HashMap<>();
+        /**
+         * every country name in alphabetical order
+         */
+        final List<String> countryNames;
+        /**
+         * every division name in alphabetical order
+         */
+        final List<String> divisionNames;
+        /**
+         * each country's division names in alphabetical order, by Country_ID
+         */
+        final Map<Integer, List<String>> divisionNamesByCountry = new HashMap<>();
+
+        /**
+         * constructor - builds the ID and name indexes
+         * @param countries every country
+         * @param divisions every division
+         */
+        Tables(List<Country> countries, List<Division> divisions) {
+            this.countries = List.copyOf(countries);
+            this.divisions = List.copyOf(divisions);
+
+            int maxCountryID = 0;
+            for (Country country : countries) {
+                maxCountryID = Math.max(maxCountryID, country.getCountryID());
+            }
+            countriesByID = new Country[maxCountryID + 1];
+            for (Country country : countries) {
+                countriesByID[country.getCountryID()] = country;
+            }
+
+            int maxDivisionID = 0;
+            for (Division division : divisions) {
+                maxDivisionID = Math.max(maxDivisionID, division.getDivisionID());
+            }
+            divisionsByID = new Division[maxDivisionID + 1];
+            for (Division division : divisions) {
+                divisionsByID[division.getDivisionID()] = division;
+            }
+
+            List<String> sortedCountryNames = new ArrayList<>();
+            for (Country country : countries) {
+                countryIDsByName.put(country.getCountry(), country.getCountryID());
+                sortedCountryNames.add(country.getCountry());
+            }
+            Collections.sort(sortedCountryNames);
+            countryNames = List.copyOf(sortedCountryNames);
+
+            List<String> sortedDivisionNames = new ArrayList<>();
+            Map<Integer, List<String>> namesByCountry = new HashMap<>();
+            for (Division division : divisions) {
+                divisionsByName.putIfAbsent(division.getDivision(), division);
+                sortedDivisionNames.add(division.getDivision());
+                namesByCountry.computeIfAbsent(division.getCountryID(), id -> new ArrayList<>()).add(division.getDivision());
+            }
+            Collections.sort(sortedDivisionNames);
+            divisionNames = List.copyOf(sortedDivisionNames);
+            for (Map.Entry<Integer, List<String>> entry : namesByCountry.entrySet()) {
+                Collections.sort(entry.getValue());
+                divisionNamesByCountry.put(entry.getKey(), List.copyOf(entry.getValue()));
+            }
+        }
+    }
+}
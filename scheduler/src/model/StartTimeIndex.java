@@ -0,0 +1,179 @@
+package model;
+
+import java.time.LocalDateTime;
+import java.util.Arrays;
+
+/**
+ * Keeps appointment IDs sorted by start time so the appointments in a time window can be found with a binary search
+ * instead of scanning every appointment.
+ * Each entry is one long - the start in epoch seconds in the high bits and the appointment ID in the low 31 bits - so
+ * the index costs 8 bytes per appointment. Added and removed entries are buffered and merged in on the next lookup,
+ * which keeps a bulk load or a batch of deletes from shifting the sorted array for every row.
+ * Start times must be between 1970 and 2106
+ * @author Derek Brown
+ */
+public class StartTimeIndex {
+    /**
+     * the sorted entries
+     */
+    private long[] sorted = new long[16];
+    /**
+     * number of sorted entries
+     */
+    private int sortedSize;
+    /**
+     * entries added since the last merge, in no particular order
+     */
+    private long[] pending = new long[16];
+    /**
+     * number of pending entries
+     */
+    private int pendingSize;
+    /**
+     * entries removed since the last merge, in no particular order
+     */
+    private long[] removed = new long[16];
+    /**
+     * number of removed entries
+     */
+    private int removedSize;
+
+    /**
+     * adds an appointment
+     * @param appointment the appointment to index
+     */
+    public synchronized void add(Appointment appointment) {
+        long key = keyOf(appointment);
+        if (key < 0) {
+            return;
+        }
+        if (pendingSize == pending.length) {
+            pending = Arrays.copyOf(pending, pendingSize * 2);
+        }
+        pending[pendingSize++] = key;
+    }
+
+    /**
+     * removes an appointment - the appointment must have the start time it was added with
+     * @param appointment the appointment to remove
+     */
+    public synchronized void remove(Appointment appointment) {
+        long key = keyOf(appointment);
+        if (key < 0) {
+            return;
+        }
+        if (removedSize == removed.length) {
+            removed = Arrays.copyOf(removed, removedSize * 2);
+        }
+        removed[removedSize++] = key;
+        //a lookup normally merges them, but don't let them pile up if none comes
+        if (removedSize > Math.max(1024, sortedSize)) {
+            merge();
+        }
+    }
+
+    /**
+     * removes every appointment from the index
+     */
+    public synchronized void clear() {
+        sortedSize = 0;
+        pendingSize = 0;
+        removedSize = 0;
+    }
+
+    /**
+     * finds the appointments starting strictly after from and strictly before to
+     * @param from the start of the window (exclusive)
+     * @param to the end of the window (exclusive)
+     * @return the appointment IDs in start order
+     */
+    public synchronized int[] findStartingBetween(LocalDateTime from, LocalDateTime to) {
+        merge();
+        //start times are whole seconds, so "after from" is "at or after the next whole second"
+        long low = toKeyBound(AppointmentIndex.toEpochSecond(from) + 1);
+        //and "before to" includes to's own second if to has a fraction of a second
+        long high = toKeyBound(AppointmentIndex.toEpochSecond(to) + (to.getNano() > 0 ? 1 : 0));
+        int first = firstAtOrAfter(low);
+        int last = firstAtOrAfter(high);
+        int[] ids = new int[Math.max(0, last - first)];
+        for (int i = first; i < last; i++) {
+            ids[i - first] = (int) (sorted[i] & Integer.MAX_VALUE);
+        }
+        return ids;
+    }
+
+    /**
+     * @return number of appointments indexed
+     */
+    public synchronized int size() {
+        merge();
+        return sortedSize;
+    }
+
+    /**
+     * sorts the pending and removed entries and merges them into the sorted array in one pass, each removed entry
+     * cancelling one equal entry. An entry removed and added again (an appointment moved within the list) stays
+     */
+    private void merge() {
+        if (pendingSize == 0 && removedSize == 0) {
+            return;
+        }
+        Arrays.sort(pending, 0, pendingSize);
+        Arrays.sort(removed, 0, removedSize);
+        long[] merged = new long[Math.max(16, sortedSize + pendingSize)];
+        int i = 0;
+        int j = 0;
+        int r = 0;
+        int k = 0;
+        while (i < sortedSize || j < pendingSize) {
+            long next = j == pendingSize || (i < sortedSize && sorted[i] <= pending[j]) ? sorted[i++] : pending[j++];
+            while (r < removedSize && removed[r] < next) {
+                r++;
+            }
+            if (r < removedSize && removed[r] == next) {
+                r++;
+                continue;
+            }
+            merged[k++] = next;
+        }
+        sorted = merged;
+        sortedSize = k;
+        pendingSize = 0;
+        removedSize = 0;
+    }
+
+    /**
+     * @param key an entry
+     * @return index of the first sorted entry at or after the key
+     */
+    private int firstAtOrAfter(long key) {
+        int index = Arrays.binarySearch(sorted, 0, sortedSize, key);
+        return index >= 0 ? index : -index - 1;
+    }
+
+    /**
+     * @param second epoch seconds
+     * @return the smallest possible entry for an appointment starting at that second, clamped to the supported range
+     */
+    private static long toKeyBound(long second) {
+        if (second < 0) {
+            return 0;
+        }
+        return second >= (1L << 32) ? Long.MAX_VALUE : second << 31;
+    }
+
+    /**
+     * @param appointment an appointment
+     * @return the index entry for the appointment, or -1 if it has no start time or one outside the supported range
+     */
+    private static long keyOf(Appointment appointment) {
+        if (appointment.getStart() == null || appointment.getAppointmentID() < 0) {
+            return -1;
+        }
+        long second = AppointmentIndex.toEpochSecond(appointment.getStart());
+        if (second < 0 || second >= (1L << 32)) {
+            return -1;
+        }
+        return second << 31 | appointment.getAppointmentID();
+    }
+}
@@ -0,0 +1,58 @@
+package model;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.ConcurrentHashMap;
+
+/**
+ * Assigns each distinct string a small int code, so repeated values (types, locations, etc.)
+ * can be stored and compared as ints. Safe to use from several threads
+ * @author Derek Brown
+ */
+public class StringDictionary {
+    /**
+     * code for each string
+     */
+    private final ConcurrentHashMap<String, Integer> codes = new ConcurrentHashMap<>();
+    /**
+     * string for each code
+     */
+    private final List<String> values = new ArrayList<>();
+
+    /**
+     * @param value the string to encode - null is stored as an empty string
+     * @return the code for the string, assigning a new one if needed
+     */
+    public int encode(String value) {
+        String key = value == null ? "" : value;
+        Integer code = codes.get(key);
+        if (code != null) {
+            return code;
+        }
+        synchronized (values) {
+            return codes.computeIfAbsent(key, k -> {
+                values.add(k);
+                return values.size() - 1;
+            });
+        }
+    }
+
+    /**
+     * @param code a code returned by encode
+     * @return the string for the code
+     */
+    public String decode(int code) {
+        synchronized (values) {
+            return values.get(code);
+        }
+    }
+
+    /**
+     * @return number of distinct strings
+     */
+    public int size() {
+        synchronized (values) {
+            return values.size();
+        }
+    }
+}
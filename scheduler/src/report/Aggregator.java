@@ -0,0 +1,168 @@
+package report;
+
+import model.Appointment;
+import model.AppointmentList;
+import model.AppointmentStore;
+import model.StringDictionary;
+
+import java.time.Instant;
+import java.time.LocalDate;
+import java.time.Month;
+import java.time.zone.ZoneRules;
+import java.util.ArrayList;
+import java.util.Comparator;
+import java.util.List;
+import java.util.concurrent.ForkJoinPool;
+import java.util.concurrent.RecursiveTask;
+import java.util.function.IntFunction;
+import java.util.function.IntUnaryOperator;
+import java.util.function.ToIntFunction;
+
+/**
+ * Builds group-by counts in a single pass over a list.
+ * Large lists are split into chunks that are counted in parallel on the fork-join pool and then merged
+ * @author Derek Brown
+ */
+public class Aggregator {
+    /**
+     * lists at least this long are counted in parallel
+     */
+    public static int parallelThreshold = 50_000;
+    /**
+     * the smallest chunk a parallel count is split into
+     */
+    private static final int CHUNK_SIZE = 10_000;
+
+    /**
+     * counts the items in each group
+     * @param items the items to count
+     * @param groupKey picks the int group key for an item (must not be Integer.MIN_VALUE)
+     * @param <T> the item type
+     * @return count of items per group key
+     */
+    public static <T> IntCountMap countBy(List<? extends T> items, ToIntFunction<? super T> groupKey) {
+        return countRows(items.size(), index -> groupKey.applyAsInt(items.get(index)));
+    }
+
+    /**
+     * counts rows by group - for data held in columns rather than a list of objects
+     * @param rows number of rows
+     * @param groupKey picks the int group key for a row index (must not be Integer.MIN_VALUE)
+     * @return count of rows per group key
+     */
+    public static IntCountMap countRows(int rows, IntUnaryOperator groupKey) {
+        if (rows < parallelThreshold) {
+            return count(groupKey, 0, rows);
+        }
+        return ForkJoinPool.commonPool().invoke(new CountTask(groupKey, 0, rows));
+    }
+
+    /**
+     * counts appointments by the month they start in and their type.
+     * Types are matched exactly, so one type name being a prefix of another doesn't affect the counts
+     * @param appointments the appointments to count
+     * @return the non-zero counts ordered by month, then type
+     */
+    public static List<MonthTypeCount> countByMonthAndType(List<? extends Appointment> appointments) {
+        if (appointments instanceof AppointmentList) {
+            return countByMonthAndType(((AppointmentList) appointments).getStore());
+        }
+        StringDictionary types = new StringDictionary();
+        IntCountMap counts = countBy(appointments,
+                appointment -> types.encode(appointment.getType()) * 16 + appointment.getStart().getMonthValue());
+        return toMonthTypeRows(counts, types::decode);
+    }
+
+    /**
+     * counts stored appointments by start month and type straight from the type code and start columns
+     * @param store the appointments to count
+     * @return the non-zero counts ordered by month, then type
+     */
+    public static List<MonthTypeCount> countByMonthAndType(AppointmentStore store) {
+        ZoneRules rules = store.getZone().getRules();
+        IntCountMap counts = countRows(store.size(), row -> {
+            long start = store.getStartEpochSecond(row);
+            int offset = rules.getOffset(Instant.ofEpochSecond(start)).getTotalSeconds();
+            int month = LocalDate.ofEpochDay(Math.floorDiv(start + offset, 86_400L)).getMonthValue();
+            return store.getTypeCode(row) * 16 + month;
+        });
+        return toMonthTypeRows(counts, store::decodeType);
+    }
+
+    /**
+     * turns type code * 16 + month counts into report rows
+     * @param counts the counts
+     * @param decodeType turns a type code back into the type
+     * @return the rows ordered by month, then type
+     */
+    public static List<MonthTypeCount> toMonthTypeRows(IntCountMap counts, IntFunction<String> decodeType) {
+        List<MonthTypeCount> rows = new ArrayList<>(counts.size());
+        for (int key : counts.sortedKeys()) {
+            rows.add(new MonthTypeCount(Month.of(key % 16), decodeType.apply(key / 16), counts.get(key)));
+        }
+        rows.sort(Comparator.comparing(MonthTypeCount::getMonth).thenComparing(MonthTypeCount::getType));
+        return rows;
+    }
+
+    /**
+     * counts a range of rows on the calling thread
+     * @param groupKey picks the group key for a row index
+     * @param from first index (inclusive)
+     * @param to last index (exclusive)
+     * @return count of rows per group key
+     */
+    private static IntCountMap count(IntUnaryOperator groupKey, int from, int to) {
+        IntCountMap counts = new IntCountMap();
+        for (int i = from; i < to; i++) {
+            counts.increment(groupKey.applyAsInt(i));
+        }
+        return counts;
+    }
+
+    /**
+     * Counts half of a range in a forked task and the other half on the current thread, then merges the results
+     */
+    private static class CountTask extends RecursiveTask<IntCountMap> {
+        /**
+         * version for serialization - RecursiveTask is Serializable, though the task is never serialized
+         */
+        private static final long serialVersionUID = 1L;
+        /**
+         * picks the group key for a row index
+         */
+        private final IntUnaryOperator groupKey;
+        /**
+         * first index (inclusive)
+         */
+        private final int from;
+        /**
+         * last index (exclusive)
+         */
+        private final int to;
+
+        /**
+         * constructor
+         * @param groupKey picks the group key for a row index
+         * @param from first index (inclusive)
+         * @param to last index (exclusive)
+         */
+        CountTask(IntUnaryOperator groupKey, int from, int to) {
+            this.groupKey = groupKey;
+            this.from = from;
+            this.to = to;
+        }
+
+        @Override
+        protected IntCountMap compute() {
+            if (to - from <= CHUNK_SIZE) {
+                return count(groupKey, from, to);
+            }
+            int middle = (from + to) >>> 1;
+            CountTask left = new CountTask(groupKey, from, middle);
+            left.fork();
+            IntCountMap counts = new CountTask(groupKey, middle, to).compute();
+            counts.addAll(left.join());
+            return counts;
+        }
+    }
+}
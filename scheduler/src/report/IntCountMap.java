@@ -0,0 +1,159 @@
+package report;
+
+import java.util.Arrays;
+
+/**
+ * A hash map from int keys to int counts using open addressing over primitive arrays, so counting doesn't box
+ * a key or value per row. Keys must not be Integer.MIN_VALUE, which marks an empty slot
+ * @author Derek Brown
+ */
+public class IntCountMap {
+    /**
+     * marks an empty slot in the keys array
+     */
+    private static final int EMPTY = Integer.MIN_VALUE;
+    /**
+     * the keys, or EMPTY for unused slots
+     */
+    private int[] keys;
+    /**
+     * the count for the key in the same slot
+     */
+    private int[] counts;
+    /**
+     * number of keys stored
+     */
+    private int size;
+
+    /**
+     * constructor
+     */
+    public IntCountMap() {
+        this(16);
+    }
+
+    /**
+     * constructor
+     * @param expectedKeys roughly how many distinct keys will be counted
+     */
+    public IntCountMap(int expectedKeys) {
+        int capacity = Integer.highestOneBit(Math.max(4, expectedKeys * 2) - 1) << 1;
+        keys = new int[capacity];
+        counts = new int[capacity];
+        Arrays.fill(keys, EMPTY);
+    }
+
+    /**
+     * adds one to the count for a key
+     * @param key the key to count
+     */
+    public void increment(int key) {
+        add(key, 1);
+    }
+
+    /**
+     * adds to the count for a key
+     * @param key the key to count
+     * @param amount the amount to add
+     */
+    public void add(int key, int amount) {
+        int slot = findSlot(keys, key);
+        if (keys[slot] == EMPTY) {
+            keys[slot] = key;
+            size++;
+            counts[slot] = amount;
+            if (size * 2 > keys.length) {
+                grow();
+            }
+        }
+        else {
+            counts[slot] += amount;
+        }
+    }
+
+    /**
+     * @param key the key to look up
+     * @return the count for the key, or 0 if it hasn't been counted
+     */
+    public int get(int key) {
+        int slot = findSlot(keys, key);
+        return keys[slot] == EMPTY ? 0 : counts[slot];
+    }
+
+    /**
+     * adds every count in another map to this one
+     * @param other the map to merge in
+     */
+    public void addAll(IntCountMap other) {
+        for (int i = 0; i < other.keys.length; i++) {
+            if (other.keys[i] != EMPTY) {
+                add(other.keys[i], other.counts[i]);
+            }
+        }
+    }
+
+    /**
+     * @return the counted keys in ascending order
+     */
+    public int[] sortedKeys() {
+        int[] found = new int[size];
+        int count = 0;
+        for (int key : keys) {
+            if (key != EMPTY) {
+                found[count++] = key;
+            }
+        }
+        Arrays.sort(found);
+        return found;
+    }
+
+    /**
+     * @return number of distinct keys counted
+     */
+    public int size() {
+        return size;
+    }
+
+    /**
+     * finds the slot holding the key, or the empty slot where it would go
+     * @param table the keys array to search
+     * @param key the key
+     * @return the slot index
+     */
+    private static int findSlot(int[] table, int key) {
+        int mask = table.length - 1;
+        int slot = mix(key) & mask;
+        while (table[slot] != EMPTY && table[slot] != key) {
+            slot = (slot + 1) & mask;
+        }
+        return slot;
+    }
+
+    /**
+     * spreads the key bits so sequential keys don't cluster
+     * @param key the key
+     * @return the hash
+     */
+    private static int mix(int key) {
+        int hash = key * 0x9E3779B9;
+        return hash ^ (hash >>> 16);
+    }
+
+    /**
+     * doubles the table size and re-inserts every key
+     */
+    private void grow() {
+        int[] oldKeys = keys;
+        int[] oldCounts = counts;
+        keys = new int[oldKeys.length * 2];
+        counts = new int[oldKeys.length * 2];
+        Arrays.fill(keys, EMPTY);
+        for (int i = 0; i < oldKeys.length; i++) {
+            if (oldKeys[i] != EMPTY) {
+                int slot = findSlot(keys, oldKeys[i]);
+                keys[slot] = oldKeys[i];
+                counts[slot] = oldCounts[i];
+            }
+        }
+    }
+}
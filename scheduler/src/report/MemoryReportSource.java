@@ -0,0 +1,70 @@
+package report;
+
+import model.Appointment;
+import model.AppointmentList;
+import model.AppointmentStore;
+import model.Customer;
+
+import java.util.ArrayList;
+import java.util.List;
+
+/**
+ * Computes the reports from appointment and customer lists that are already loaded
+ * @author Derek Brown
+ */
+public class MemoryReportSource implements ReportSource {
+    /**
+     * the loaded appointments
+     */
+    private final List<Appointment> appointments;
+    /**
+     * the loaded customers
+     */
+    private final List<Customer> customers;
+
+    /**
+     * constructor
+     * @param appointments the loaded appointments
+     * @param customers the loaded customers
+     */
+    public MemoryReportSource(List<Appointment> appointments, List<Customer> customers) {
+        this.appointments = appointments;
+        this.customers = customers;
+    }
+
+    @Override
+    public List<Appointment> appointmentsForContact(int contactID) {
+        List<Appointment> listByContact = new ArrayList<>();
+        if (appointments instanceof AppointmentList) {
+            //scan the contact column and only build the matching appointments
+            AppointmentStore store = ((AppointmentList) appointments).getStore();
+            for (int row = 0; row < store.size(); row++) {
+                if (store.getContactID(row) == contactID) {
+                    listByContact.add(store.get(row));
+                }
+            }
+            return listByContact;
+        }
+        for (Appointment appointment : appointments) {
+            if (appointment.getContactID() == contactID) {
+                listByContact.add(appointment);
+            }
+        }
+        return listByContact;
+    }
+
+    @Override
+    public List<MonthTypeCount> countByMonthAndType() {
+        return Aggregator.countByMonthAndType(appointments);
+    }
+
+    @Override
+    public int countAppointments() {
+        return appointments.size();
+    }
+
+    @Override
+    public int countCustomers() {
+        return customers.size();
+    }
+}
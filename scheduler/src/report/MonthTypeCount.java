@@ -0,0 +1,60 @@
+package report;
+
+import java.time.Month;
+
+/**
+ * One row of the month/type report - the number of appointments of a type in a month
+ * @author Derek Brown
+ */
+public class MonthTypeCount {
+    /**
+     * the month
+     */
+    private final Month month;
+    /**
+     * the appointment type
+     */
+    private final String type;
+    /**
+     * number of appointments of the type in the month
+     */
+    private final int count;
+
+    /**
+     * constructor
+     * @param month the month to set
+     * @param type the type to set
+     * @param count the count to set
+     */
+    public MonthTypeCount(Month month, String type, int count) {
+        this.month = month;
+        this.type = type;
+        this.count = count;
+    }
+
+    /**
+     * @return the month
+     */
+    public Month getMonth() {
+        return month;
+    }
+
+    /**
+     * @return the appointment type
+     */
+    public String getType() {
+        return type;
+    }
+
+    /**
+     * @return number of appointments of the type in the month
+     */
+    public int getCount() {
+        return count;
+    }
+
+    @Override
+    public String toString() {
+        return month + " - " + type + " - " + count;
+    }
+}
@@ -0,0 +1,45 @@
+package report;
+
+import model.Appointment;
+import model.Customer;
+
+import java.util.List;
+
+/**
+ * Chooses whether the reports are computed in memory or in the database.
+ * The mode is set with -Dscheduler.reports=memory|sql|auto (default auto). In auto mode the reports run in memory
+ * when the appointment and customer lists have finished loading and there are no more than memoryThreshold appointments,
+ * otherwise in SQL - lists that are still loading would give partial counts
+ * @author Derek Brown
+ */
+public class ReportEngine {
+    /**
+     * the configured mode - memory, sql or auto
+     */
+    public static String mode = System.getProperty("scheduler.reports", "auto");
+    /**
+     * in auto mode, the most loaded appointments that will be reported on in memory
+     */
+    public static int memoryThreshold = Integer.getInteger("scheduler.reports.memoryThreshold", 100_000);
+
+    /**
+     * picks the report source for the current data
+     * @param loadedAppointments the appointments already in memory (may be empty or partial if not loaded)
+     * @param loadedCustomers the customers already in memory (may be empty or partial if not loaded)
+     * @param loaded true once both lists have finished loading
+     * @return the source to run the reports with
+     */
+    public static ReportSource plan(List<Appointment> loadedAppointments, List<Customer> loadedCustomers, boolean loaded) {
+        switch (mode.toLowerCase()) {
+            case "memory":
+                return new MemoryReportSource(loadedAppointments, loadedCustomers);
+            case "sql":
+                return new SqlReportSource();
+            default:
+                if (loaded && loadedAppointments.size() <= memoryThreshold) {
+                    return new MemoryReportSource(loadedAppointments, loadedCustomers);
+                }
+                return new SqlReportSource();
+        }
+    }
+}
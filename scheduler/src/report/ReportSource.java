@@ -0,0 +1,39 @@
+package report;
+
+import model.Appointment;
+
+import java.sql.SQLException;
+import java.util.List;
+
+/**
+ * Computes the data behind the three reports. Implementations either query the database or work on the
+ * appointments already in memory, but return results in the same shape
+ * @author Derek Brown
+ */
+public interface ReportSource {
+
+    /**
+     * @param contactID the contact to list appointments for
+     * @return every appointment with the contact
+     * @throws SQLException if the data can't be read
+     */
+    List<Appointment> appointmentsForContact(int contactID) throws SQLException;
+
+    /**
+     * @return the number of appointments per month and type, ordered by month then type
+     * @throws SQLException if the data can't be read
+     */
+    List<MonthTypeCount> countByMonthAndType() throws SQLException;
+
+    /**
+     * @return the total number of appointments
+     * @throws SQLException if the data can't be read
+     */
+    int countAppointments() throws SQLException;
+
+    /**
+     * @return the total number of customers
+     * @throws SQLException if the data can't be read
+     */
+    int countCustomers() throws SQLException;
+}
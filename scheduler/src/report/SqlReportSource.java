@@ -0,0 +1,34 @@
+package report;
+
+import dao.ReportRepository;
+import model.Appointment;
+
+import java.sql.SQLException;
+import java.util.List;
+
+/**
+ * Computes the reports with GROUP BY/COUNT queries so no appointments need to be held in memory
+ * @author Derek Brown
+ */
+public class SqlReportSource implements ReportSource {
+
+    @Override
+    public List<Appointment> appointmentsForContact(int contactID) throws SQLException {
+        return ReportRepository.findAppointmentsByContact(contactID);
+    }
+
+    @Override
+    public List<MonthTypeCount> countByMonthAndType() throws SQLException {
+        return ReportRepository.countByMonthAndType();
+    }
+
+    @Override
+    public int countAppointments() throws SQLException {
+        return ReportRepository.countRows("appointments");
+    }
+
+    @Override
+    public int countCustomers() throws SQLException {
+        return ReportRepository.countRows("customers");
+    }
+}
@@ -0,0 +1,121 @@
+package snapshot;
+
+import dao.AppointmentRepository;
+import dao.CustomerRepository;
+import model.Appointment;
+import model.Customer;
+import model.ReferenceData;
+
+import java.sql.SQLException;
+import java.sql.Timestamp;
+import java.util.HashSet;
+import java.util.List;
+import java.util.Set;
+
+/**
+ * The changes that bring a snapshot's lists up to date with the database, fetched in one go on a background thread.
+ * Appointments use the Last_Update and appointment_deletions watermarks like Landing.refreshAppointments.
+ * Customers changed since the watermark are fetched by Last_Update, and deleted ones are found from the list of
+ * customer IDs, since customer deletions aren't recorded. The reference data is small, so it is simply reloaded
+ * @author Derek Brown
+ */
+public class Reconciliation {
+    /**
+     * database time the changes were fetched - the watermark for the next refresh
+     */
+    private final Timestamp syncTime;
+    /**
+     * appointments inserted or updated since the appointment watermark
+     */
+    private final List<Appointment> changedAppointments;
+    /**
+     * IDs of appointments deleted since the appointment watermark
+     */
+    private final List<Integer> deletedAppointmentIDs;
+    /**
+     * customers inserted or updated since the customer watermark
+     */
+    private final List<Customer> changedCustomers;
+    /**
+     * the ID of every customer in the database
+     */
+    private final Set<Integer> customerIDs;
+
+    /**
+     * constructor
+     * @param syncTime database time the changes were fetched
+     * @param changedAppointments appointments inserted or updated since the appointment watermark
+     * @param deletedAppointmentIDs IDs of appointments deleted since the appointment watermark
+     * @param changedCustomers customers inserted or updated since the customer watermark
+     * @param customerIDs the ID of every customer in the database
+     */
+    private Reconciliation(Timestamp syncTime, List<Appointment> changedAppointments, List<Integer> deletedAppointmentIDs,
+                           List<Customer> changedCustomers, Set<Integer> customerIDs) {
+        this.syncTime = syncTime;
+        this.changedAppointments = changedAppointments;
+        this.deletedAppointmentIDs = deletedAppointmentIDs;
+        this.changedCustomers = changedCustomers;
+        this.customerIDs = customerIDs;
+    }
+
+    /**
+     * reloads the reference data and fetches the appointment and customer changes - blocking, so call it off the FX thread
+     * @param appointmentSync the snapshot's appointment watermark
+     * @param customerSync the snapshot's customer watermark
+     * @return the changes
+     * @throws SQLException if a query fails
+     */
+    public static Reconciliation fetch(Timestamp appointmentSync, Timestamp customerSync) throws SQLException {
+        Timestamp syncTime = AppointmentRepository.currentTimestamp();
+        ReferenceData.refresh();
+        List<Appointment> changedAppointments = AppointmentRepository.findUpdatedSince(appointmentSync);
+        List<Integer> deletedAppointmentIDs = AppointmentRepository.findDeletedSince(appointmentSync);
+        List<Customer> changedCustomers = CustomerRepository.findUpdatedSince(customerSync);
+        Set<Integer> customerIDs = new HashSet<>(CustomerRepository.findAllIDs());
+        return new Reconciliation(syncTime, changedAppointments, deletedAppointmentIDs, changedCustomers, customerIDs);
+    }
+
+    /**
+     * @return database time the changes were fetched - the watermark for the next refresh
+     */
+    public Timestamp getSyncTime() {
+        return syncTime;
+    }
+
+    /**
+     * @return appointments inserted or updated since the appointment watermark
+     */
+    public List<Appointment> getChangedAppointments() {
+        return changedAppointments;
+    }
+
+    /**
+     * @return IDs of appointments deleted since the appointment watermark
+     */
+    public List<Integer> getDeletedAppointmentIDs() {
+        return deletedAppointmentIDs;
+    }
+
+    /**
+     * @return customers inserted or updated since the customer watermark
+     */
+    public List<Customer> getChangedCustomers() {
+        return changedCustomers;
+    }
+
+    /**
+     * @return the ID of every customer in the database - customers not in it have been deleted
+     */
+    public Set<Integer> getCustomerIDs() {
+        return customerIDs;
+    }
+
+    /**
+     * @return the number of changes
+     */
+    @Override
+    public String toString() {
+        return "Reconciliation at " + syncTime + " (" + changedAppointments.size() + " appointments changed, "
+                + deletedAppointmentIDs.size() + " deleted, " + changedCustomers.size() + " customers changed)";
+    }
+}
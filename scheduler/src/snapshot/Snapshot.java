@@ -0,0 +1,206 @@
+package snapshot;
+
+import jdbc.DBConnection;
+import model.Appointment;
+import model.Country;
+import model.Customer;
+import model.Division;
+
+import java.io.IOException;
+import java.nio.ByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.file.AtomicMoveNotSupportedException;
+import java.nio.file.Files;
+import java.nio.file.NoSuchFileException;
+import java.nio.file.Path;
+import java.nio.file.Paths;
+import java.nio.file.StandardCopyOption;
+import java.nio.file.StandardOpenOption;
+import java.sql.Timestamp;
+import java.util.List;
+
+/**
+ * A copy of the appointment, customer and reference data lists saved on the local disk, so the next start can show
+ * them straight away instead of waiting for every row to come over the network. The file is written on exit in a
+ * compact binary format (see SnapshotCodec) and read back in one go. It isn't memory-mapped, since on Windows a mapping
+ * left for the garbage collector would stop save replacing the file on exit. It records the database times the lists
+ * were last brought up to date, so the caller can fetch only the rows changed since (see Reconciliation)
+ * @author Derek Brown
+ */
+public class Snapshot {
+    /**
+     * the snapshot file
+     */
+    public static String snapshotFile = System.getProperty("scheduler.snapshot.file", "scheduler_snapshot.bin");
+    /**
+     * false to neither read nor write the snapshot (-Dscheduler.snapshot=false)
+     */
+    public static boolean enabled = !"false".equals(System.getProperty("scheduler.snapshot"));
+
+    /**
+     * the database the lists came from - a snapshot of another database is ignored
+     */
+    private final String source;
+    /**
+     * database time the appointment list was last brought up to date
+     */
+    private final Timestamp appointmentSync;
+    /**
+     * database time the customer list was last brought up to date
+     */
+    private final Timestamp customerSync;
+    /**
+     * every country
+     */
+    private final List<Country> countries;
+    /**
+     * every first level division
+     */
+    private final List<Division> divisions;
+    /**
+     * every customer
+     */
+    private final List<Customer> customers;
+    /**
+     * every appointment
+     */
+    private final List<Appointment> appointments;
+
+    /**
+     * constructor
+     * @param source the database the lists came from
+     * @param appointmentSync database time the appointment list was last brought up to date
+     * @param customerSync database time the customer list was last brought up to date
+     * @param countries every country
+     * @param divisions every first level division
+     * @param customers every customer
+     * @param appointments every appointment
+     */
+    public Snapshot(String source, Timestamp appointmentSync, Timestamp customerSync, List<Country> countries,
+                    List<Division> divisions, List<Customer> customers, List<Appointment> appointments) {
+        this.source = source;
+        this.appointmentSync = appointmentSync;
+        this.customerSync = customerSync;
+        this.countries = countries;
+        this.divisions = divisions;
+        this.customers = customers;
+        this.appointments = appointments;
+    }
+
+    /**
+     * reads the snapshot of the current database. Its countries and divisions are put in ReferenceData (unless
+     * they have already been loaded from the database) before its customers are built, so the division names resolve
+     * @return the snapshot, or null if there isn't a usable one - missing, damaged, an older format or another database
+     */
+    public static Snapshot load() {
+        if (!enabled) {
+            return null;
+        }
+        Path path = Paths.get(snapshotFile);
+        try (FileChannel channel = FileChannel.open(path, StandardOpenOption.READ)) {
+            if (channel.size() > Integer.MAX_VALUE) {
+                System.out.println("Snapshot too large - ignoring " + path);
+                return null;
+            }
+            ByteBuffer buffer = ByteBuffer.allocate((int) channel.size());
+            int read;
+            do {
+                read = channel.read(buffer);
+            } while (read > 0 && buffer.hasRemaining());
+            return SnapshotCodec.decode(buffer.flip(), DBConnection.url);
+        } catch (NoSuchFileException e) {
+            return null;
+        } catch (IOException | RuntimeException e) {
+            System.out.println("Unable to read the snapshot - ignoring " + path);
+            return null;
+        }
+    }
+
+    /**
+     * writes a snapshot, replacing the old one only once the new one is complete
+     * @param snapshot the lists to save
+     * @return true if the snapshot was written
+     */
+    public static boolean save(Snapshot snapshot) {
+        if (!enabled) {
+            return false;
+        }
+        Path path = Paths.get(snapshotFile);
+        Path temporary = Paths.get(snapshotFile + ".tmp");
+        try {
+            try (FileChannel channel = FileChannel.open(temporary, StandardOpenOption.CREATE,
+                    StandardOpenOption.TRUNCATE_EXISTING, StandardOpenOption.WRITE)) {
+                SnapshotCodec.encode(snapshot, channel);
+                channel.force(false);
+            }
+            try {
+                Files.move(temporary, path, StandardCopyOption.REPLACE_EXISTING, StandardCopyOption.ATOMIC_MOVE);
+            } catch (AtomicMoveNotSupportedException e) {
+                Files.move(temporary, path, StandardCopyOption.REPLACE_EXISTING);
+            }
+            return true;
+        } catch (IOException e) {
+            System.out.println("Unable to write the snapshot " + path);
+            return false;
+        }
+    }
+
+    /**
+     * @return the database the lists came from
+     */
+    public String getSource() {
+        return source;
+    }
+
+    /**
+     * @return database time the appointment list was last brought up to date
+     */
+    public Timestamp getAppointmentSync() {
+        return appointmentSync;
+    }
+
+    /**
+     * @return database time the customer list was last brought up to date
+     */
+    public Timestamp getCustomerSync() {
+        return customerSync;
+    }
+
+    /**
+     * @return every country
+     */
+    public List<Country> getCountries() {
+        return countries;
+    }
+
+    /**
+     * @return every first level division
+     */
+    public List<Division> getDivisions() {
+        return divisions;
+    }
+
+    /**
+     * @return every customer
+     */
+    public List<Customer> getCustomers() {
+        return customers;
+    }
+
+    /**
+     * @return every appointment
+     */
+    public List<Appointment> getAppointments() {
+        return appointments;
+    }
+
+    /**
+     * @return the sync times and list sizes
+     */
+    @Override
+    public String toString() {
+        return "Snapshot (appointments at " + appointmentSync + ", customers at " + customerSync + ", "
+                + countries.size() + " countries, " + divisions.size() + " divisions, "
+                + customers.size() + " customers, " + appointments.size() + " appointments)";
+    }
+}
@@ -0,0 +1,380 @@
+package snapshot;
+
+import model.Appointment;
+import model.AppointmentStore;
+import model.Country;
+import model.Customer;
+import model.Division;
+import model.ReferenceData;
+import model.StringDictionary;
+import util.TimeService;
+
+import java.io.IOException;
+import java.nio.ByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.charset.StandardCharsets;
+import java.sql.Timestamp;
+import java.time.LocalDateTime;
+import java.time.ZoneOffset;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Objects;
+import java.util.zip.CRC32;
+
+/**
+ * The snapshot file format. After a fixed header (magic, version, the two sync times and the source database) come
+ * the countries, divisions, customers and appointments, each as a count followed by the rows, then a CRC32 of
+ * everything before it. Ints are written as variable length (7 bits a byte) and strings as a length and UTF-8 bytes,
+ * so most IDs take one or two bytes. Titles, locations and types repeat a lot, so each distinct one is written once
+ * in a string table and the appointments refer to it by code, as in AppointmentStore. Times are epoch seconds
+ * @author Derek Brown
+ */
+class SnapshotCodec {
+    /**
+     * the first four bytes of every snapshot - "SCHD"
+     */
+    static final int MAGIC = 0x53434844;
+    /**
+     * the format version - a snapshot with any other version is ignored
+     */
+    static final int VERSION = 1;
+    /**
+     * size of the write buffer
+     */
+    private static final int BUFFER_BYTES = 64 * 1024;
+
+    /**
+     * writes a snapshot to a channel
+     * @param snapshot the snapshot
+     * @param channel the channel, positioned where the snapshot starts
+     * @throws IOException if a write fails
+     */
+    static void encode(Snapshot snapshot, FileChannel channel) throws IOException {
+        Output out = new Output(channel);
+        out.buffer.putInt(MAGIC);
+        out.buffer.putInt(VERSION);
+        putTimestamp(out.buffer, snapshot.getAppointmentSync());
+        putTimestamp(out.buffer, snapshot.getCustomerSync());
+        out.putString(snapshot.getSource());
+
+        out.putVarInt(snapshot.getCountries().size());
+        for (Country country : snapshot.getCountries()) {
+            out.putVarInt(country.getCountryID());
+            out.putString(country.getCountry());
+        }
+        out.putVarInt(snapshot.getDivisions().size());
+        for (Division division : snapshot.getDivisions()) {
+            out.putVarInt(division.getDivisionID());
+            out.putString(division.getDivision());
+            out.putVarInt(division.getCountryID());
+        }
+        out.putVarInt(snapshot.getCustomers().size());
+        for (Customer customer : snapshot.getCustomers()) {
+            out.putVarInt(customer.getCustomerID());
+            out.putString(customer.getCustomerName());
+            out.putString(customer.getAddress());
+            out.putString(customer.getPostalCode());
+            out.putString(customer.getPhone());
+            out.putVarInt(customer.getFirstLevelDivisionID());
+        }
+
+        List<Appointment> appointments = snapshot.getAppointments();
+        int size = appointments.size();
+        StringDictionary strings = new StringDictionary();
+        int[] codes = new int[size * 3];
+        for (int i = 0; i < size; i++) {
+            Appointment appointment = appointments.get(i);
+            codes[i * 3] = strings.encode(appointment.getTitle());
+            codes[i * 3 + 1] = strings.encode(appointment.getLocation());
+            codes[i * 3 + 2] = strings.encode(appointment.getType());
+        }
+        out.putVarInt(strings.size());
+        for (int code = 0; code < strings.size(); code++) {
+            out.putString(strings.decode(code));
+        }
+        out.putVarInt(size);
+        for (int i = 0; i < size; i++) {
+            Appointment appointment = appointments.get(i);
+            out.putVarInt(appointment.getAppointmentID());
+            out.putVarInt(codes[i * 3]);
+            out.putVarInt(codes[i * 3 + 1]);
+            out.putVarInt(codes[i * 3 + 2]);
+            out.putString(appointment.getDescription());
+            out.putLong(toEpochSecond(appointment.getStart()));
+            out.putLong(toEpochSecond(appointment.getEnd()));
+            out.putVarInt(appointment.getCustomerID());
+            out.putVarInt(appointment.getContactID());
+            out.putVarInt(appointment.getUserID());
+        }
+        out.finish();
+    }
+
+    /**
+     * reads a snapshot
+     * @param buffer the whole snapshot file
+     * @param expectedSource the current database - a snapshot of any other is ignored
+     * @return the snapshot, or null if it is damaged, another version or of another database
+     */
+    static Snapshot decode(ByteBuffer buffer, String expectedSource) {
+        if (buffer.remaining() < 12 || buffer.getInt(0) != MAGIC || buffer.getInt(4) != VERSION) {
+            System.out.println("Snapshot format not recognised - ignoring it");
+            return null;
+        }
+        int crcOffset = buffer.limit() - 4;
+        CRC32 crc = new CRC32();
+        crc.update(buffer.duplicate().limit(crcOffset));
+        if ((int) crc.getValue() != buffer.getInt(crcOffset)) {
+            System.out.println("Snapshot is damaged - ignoring it");
+            return null;
+        }
+        Input in = new Input(buffer.limit(crcOffset).position(8));
+        Timestamp appointmentSync = getTimestamp(in.buffer);
+        Timestamp customerSync = getTimestamp(in.buffer);
+        String source = in.getString();
+        if (!Objects.equals(source, expectedSource)) {
+            System.out.println("Snapshot is of another database - ignoring it");
+            return null;
+        }
+
+        int count = in.getVarInt();
+        List<Country> countries = new ArrayList<>(count);
+        for (int i = 0; i < count; i++) {
+            countries.add(new Country(in.getVarInt(), in.getString()));
+        }
+        count = in.getVarInt();
+        List<Division> divisions = new ArrayList<>(count);
+        for (int i = 0; i < count; i++) {
+            divisions.add(new Division(in.getVarInt(), in.getString(), in.getVarInt()));
+        }
+        //customers look up their division and country names when built
+        if (!ReferenceData.isLoaded()) {
+            ReferenceData.load(countries, divisions);
+        }
+        count = in.getVarInt();
+        List<Customer> customers = new ArrayList<>(count);
+        for (int i = 0; i < count; i++) {
+            customers.add(new Customer(in.getVarInt(), in.getString(), in.getString(), in.getString(),
+                    in.getString(), in.getVarInt()));
+        }
+
+        count = in.getVarInt();
+        String[] strings = new String[count];
+        for (int code = 0; code < count; code++) {
+            strings[code] = in.getString();
+        }
+        count = in.getVarInt();
+        List<Appointment> appointments = new ArrayList<>(count);
+        for (int i = 0; i < count; i++) {
+            int appointmentID = in.getVarInt();
+            String title = strings[in.getVarInt()];
+            String location = strings[in.getVarInt()];
+            String type = strings[in.getVarInt()];
+            String description = in.getString();
+            LocalDateTime start = toUtc(in.buffer.getLong());
+            LocalDateTime end = toUtc(in.buffer.getLong());
+            int customerID = in.getVarInt();
+            int contactID = in.getVarInt();
+            int userID = in.getVarInt();
+            appointments.add(new Appointment(appointmentID, title, description, location, type, start, end,
+                    customerID, contactID, userID));
+        }
+        return new Snapshot(source, appointmentSync, customerSync, countries, divisions, customers, appointments);
+    }
+
+    /**
+     * writes a database time as epoch milliseconds and nanoseconds, so the watermark isn't rounded
+     * @param buffer the buffer to write to
+     * @param timestamp the time
+     */
+    private static void putTimestamp(ByteBuffer buffer, Timestamp timestamp) {
+        buffer.putLong(timestamp.getTime());
+        buffer.putInt(timestamp.getNanos());
+    }
+
+    /**
+     * @param buffer the buffer to read from
+     * @return a database time written by putTimestamp
+     */
+    private static Timestamp getTimestamp(ByteBuffer buffer) {
+        Timestamp timestamp = new Timestamp(buffer.getLong());
+        timestamp.setNanos(buffer.getInt());
+        return timestamp;
+    }
+
+    /**
+     * @param local a time in the user's time zone, or null
+     * @return the time in epoch seconds, or AppointmentStore.NO_TIME for null
+     */
+    private static long toEpochSecond(LocalDateTime local) {
+        return local == null ? AppointmentStore.NO_TIME : TimeService.toEpochSecond(local);
+    }
+
+    /**
+     * @param epochSecond a time in epoch seconds, or AppointmentStore.NO_TIME
+     * @return the time in UTC, as the Appointment constructor takes it, or null
+     */
+    private static LocalDateTime toUtc(long epochSecond) {
+        return epochSecond == AppointmentStore.NO_TIME ? null : LocalDateTime.ofEpochSecond(epochSecond, 0, ZoneOffset.UTC);
+    }
+
+    /**
+     * Buffered writes to a channel, keeping a CRC32 of everything written
+     */
+    private static class Output {
+        /**
+         * the channel being written
+         */
+        private final FileChannel channel;
+        /**
+         * bytes waiting to be written
+         */
+        private final ByteBuffer buffer = ByteBuffer.allocate(BUFFER_BYTES);
+        /**
+         * CRC32 of the bytes written so far
+         */
+        private final CRC32 crc = new CRC32();
+
+        /**
+         * constructor
+         * @param channel the channel to write
+         */
+        private Output(FileChannel channel) {
+            this.channel = channel;
+        }
+
+        /**
+         * makes sure the buffer has room, writing it out if not
+         * @param bytes the room needed
+         * @throws IOException if the write fails
+         */
+        private void ensure(int bytes) throws IOException {
+            if (buffer.remaining() < bytes) {
+                drain();
+            }
+        }
+
+        /**
+         * writes out the buffer
+         * @throws IOException if the write fails
+         */
+        private void drain() throws IOException {
+            buffer.flip();
+            crc.update(buffer.duplicate());
+            while (buffer.hasRemaining()) {
+                channel.write(buffer);
+            }
+            buffer.clear();
+        }
+
+        /**
+         * @param value an int, written in 1 to 5 bytes - small non-negative values are shortest
+         * @throws IOException if a write fails
+         */
+        private void putVarInt(int value) throws IOException {
+            ensure(5);
+            while ((value & ~0x7F) != 0) {
+                buffer.put((byte) ((value & 0x7F) | 0x80));
+                value >>>= 7;
+            }
+            buffer.put((byte) value);
+        }
+
+        /**
+         * @param value a long, written in 8 bytes
+         * @throws IOException if a write fails
+         */
+        private void putLong(long value) throws IOException {
+            ensure(8);
+            buffer.putLong(value);
+        }
+
+        /**
+         * @param value a string, written as its UTF-8 length plus one (0 for null) and the bytes
+         * @throws IOException if a write fails
+         */
+        private void putString(String value) throws IOException {
+            if (value == null) {
+                putVarInt(0);
+                return;
+            }
+            byte[] bytes = value.getBytes(StandardCharsets.UTF_8);
+            putVarInt(bytes.length + 1);
+            if (bytes.length > buffer.capacity()) {
+                drain();
+                crc.update(bytes);
+                ByteBuffer large = ByteBuffer.wrap(bytes);
+                while (large.hasRemaining()) {
+                    channel.write(large);
+                }
+                return;
+            }
+            ensure(bytes.length);
+            buffer.put(bytes);
+        }
+
+        /**
+         * writes out the buffer followed by the CRC32
+         * @throws IOException if the write fails
+         */
+        private void finish() throws IOException {
+            drain();
+            buffer.putInt((int) crc.getValue());
+            buffer.flip();
+            while (buffer.hasRemaining()) {
+                channel.write(buffer);
+            }
+        }
+    }
+
+    /**
+     * Reads from the snapshot in memory
+     */
+    private static class Input {
+        /**
+         * the snapshot, positioned at the next value
+         */
+        private final ByteBuffer buffer;
+        /**
+         * reused for decoding strings
+         */
+        private byte[] bytes = new byte[256];
+
+        /**
+         * constructor
+         * @param buffer the snapshot, positioned at the first value
+         */
+        private Input(ByteBuffer buffer) {
+            this.buffer = buffer;
+        }
+
+        /**
+         * @return an int written by putVarInt
+         */
+        private int getVarInt() {
+            int value = 0;
+            for (int shift = 0; shift < 35; shift += 7) {
+                byte next = buffer.get();
+                value |= (next & 0x7F) << shift;
+                if (next >= 0) {
+                    return value;
+                }
+            }
+            throw new IllegalStateException("Malformed int in snapshot");
+        }
+
+        /**
+         * @return a string written by putString
+         */
+        private String getString() {
+            int length = getVarInt() - 1;
+            if (length < 0) {
+                return null;
+            }
+            if (length > bytes.length) {
+                bytes = new byte[Math.max(length, bytes.length * 2)];
+            }
+            buffer.get(bytes, 0, length);
+            return new String(bytes, 0, length, StandardCharsets.UTF_8);
+        }
+    }
+}
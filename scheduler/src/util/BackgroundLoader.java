@@ -0,0 +1,304 @@
+package util;
+
+import javafx.application.Platform;
+import javafx.concurrent.Task;
+
+import java.lang.reflect.Method;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.Callable;
+import java.util.concurrent.CancellationException;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.function.Consumer;
+
+/**
+ * Runs database loads off the JavaFX application thread and hands the results back on it.
+ * Every load has a key - starting a load cancels the one already running under the same key, so a stale result is
+ * never applied over a newer one. Loads started with loadForScreen are also cancelled by cancelScreenLoads, which each
+ * screen calls as it initializes so work for a screen the user has left is dropped.
+ * Uses virtual threads when the JDK has them, otherwise a small pool of daemon threads
+ * @author Derek Brown
+ */
+public class BackgroundLoader {
+    /**
+     * the executor the loads run on
+     */
+    private static final ExecutorService executor = createExecutor();
+    /**
+     * the running load for each key
+     */
+    private static final Map<String, Task<?>> running = new ConcurrentHashMap<>();
+    /**
+     * keys of the running loads that belong to the current screen
+     */
+    private static final Map<String, Boolean> screenKeys = new ConcurrentHashMap<>();
+    /**
+     * the most rows a streaming load hands to the FX thread in one Platform.runLater call
+     */
+    public static int batchSize = Integer.getInteger("scheduler.load.batchSize", 500);
+    /**
+     * the longest a streaming load holds rows before handing them to the FX thread
+     */
+    public static long batchMillis = Long.getLong("scheduler.load.batchMillis", 50);
+
+    /**
+     * loads a value in the background, cancelling the running load with the same key
+     * @param key identifies the load
+     * @param work the blocking work, run on the loader thread
+     * @param onSuccess receives the result on the FX thread
+     * @param failureMessage printed if the work throws
+     * @param <T> the result type
+     * @return the task, for binding progress or cancelling
+     */
+    public static <T> Task<T> load(String key, Callable<T> work, Consumer<T> onSuccess, String failureMessage) {
+        Task<T> task = new Task<>() {
+            @Override
+            protected T call() throws Exception {
+                return work.call();
+            }
+        };
+        task.setOnSucceeded(event -> {
+            if (finished(key, task)) {
+                onSuccess.accept(task.getValue());
+            }
+        });
+        return submit(key, task, failureMessage);
+    }
+
+    /**
+     * like load, but the load is also cancelled when the user navigates to another screen
+     * @param key identifies the load
+     * @param work the blocking work, run on the loader thread
+     * @param onSuccess receives the result on the FX thread
+     * @param failureMessage printed if the work throws
+     * @param <T> the result type
+     * @return the task, for binding progress or cancelling
+     */
+    public static <T> Task<T> loadForScreen(String key, Callable<T> work, Consumer<T> onSuccess, String failureMessage) {
+        screenKeys.put(key, Boolean.TRUE);
+        return load(key, work, onSuccess, failureMessage);
+    }
+
+    /**
+     * streams rows in the background, handing them to the FX thread in batches as they are read.
+     * Progress is reported against the total the work gives the sink, if any
+     * @param key identifies the load
+     * @param work the blocking work, which passes each row to the sink
+     * @param onBatch receives each batch of rows on the FX thread
+     * @param onDone run on the FX thread once every batch has been handed over
+     * @param failureMessage printed if the work throws
+     * @param <T> the row type
+     * @return the task, for binding progress or cancelling
+     */
+    public static <T> Task<Void> stream(String key, StreamWork<T> work, Consumer<List<T>> onBatch, Runnable onDone, String failureMessage) {
+        StreamTask<T> task = new StreamTask<>(work, onBatch);
+        task.setOnSucceeded(event -> {
+            if (finished(key, task)) {
+                onDone.run();
+            }
+        });
+        return submit(key, task, failureMessage);
+    }
+
+    /**
+     * cancels the load running under a key, if any
+     * @param key identifies the load
+     */
+    public static void cancel(String key) {
+        Task<?> task = running.remove(key);
+        screenKeys.remove(key);
+        if (task != null) {
+            task.cancel();
+        }
+    }
+
+    /**
+     * cancels every load started with loadForScreen - called when a new screen is shown
+     */
+    public static void cancelScreenLoads() {
+        for (String key : new ArrayList<>(screenKeys.keySet())) {
+            cancel(key);
+        }
+    }
+
+    /**
+     * @param key identifies the load
+     * @return true if a load is running under the key
+     */
+    public static boolean isRunning(String key) {
+        return running.containsKey(key);
+    }
+
+    /**
+     * replaces the running load for the key and starts the task
+     * @param key identifies the load
+     * @param task the task to run
+     * @param failureMessage printed if the task fails
+     * @param <T> the task's result type
+     * @return the task
+     */
+    private static <T> Task<T> submit(String key, Task<T> task, String failureMessage) {
+        task.setOnFailed(event -> {
+            finished(key, task);
+            System.out.println(failureMessage);
+        });
+        task.setOnCancelled(event -> finished(key, task));
+        Task<?> previous = running.put(key, task);
+        if (previous != null) {
+            previous.cancel();
+        }
+        executor.execute(task);
+        return task;
+    }
+
+    /**
+     * forgets a task once it has finished, unless a newer load has already replaced it
+     * @param key identifies the load
+     * @param task the finished task
+     * @return true if the task was still the current load for the key
+     */
+    private static boolean finished(String key, Task<?> task) {
+        if (running.remove(key, task)) {
+            screenKeys.remove(key);
+            return true;
+        }
+        return false;
+    }
+
+    /**
+     * @return a virtual thread per task executor if the JDK has one, otherwise a pool of daemon threads
+     */
+    private static ExecutorService createExecutor() {
+        try {
+            Method factory = Executors.class.getMethod("newVirtualThreadPerTaskExecutor");
+            return (ExecutorService) factory.invoke(null);
+        } catch (ReflectiveOperationException e) {
+            AtomicInteger threadCount = new AtomicInteger();
+            int threads = Math.max(2, Math.min(4, Runtime.getRuntime().availableProcessors()));
+            return Executors.newFixedThreadPool(threads, runnable -> {
+                Thread thread = new Thread(runnable, "background-loader-" + threadCount.incrementAndGet());
+                thread.setDaemon(true);
+                return thread;
+            });
+        }
+    }
+
+    /**
+     * Blocking work that produces rows one at a time
+     * @param <T> the row type
+     */
+    public interface StreamWork<T> {
+        /**
+         * reads the rows
+         * @param sink receives each row
+         * @throws Exception if the rows can't be read
+         */
+        void run(Sink<T> sink) throws Exception;
+    }
+
+    /**
+     * Receives the rows of a streaming load
+     * @param <T> the row type
+     */
+    public interface Sink<T> {
+        /**
+         * @param total the number of rows expected, used for progress
+         */
+        void setTotal(long total);
+
+        /**
+         * @param row the next row
+         */
+        void accept(T row);
+    }
+
+    /**
+     * A task that buffers rows and hands them to the FX thread in batches
+     * @param <T> the row type
+     */
+    private static class StreamTask<T> extends Task<Void> implements Sink<T> {
+        /**
+         * the blocking work
+         */
+        private final StreamWork<T> work;
+        /**
+         * receives each batch on the FX thread
+         */
+        private final Consumer<List<T>> onBatch;
+        /**
+         * rows read but not handed over yet
+         */
+        private List<T> buffer = new ArrayList<>();
+        /**
+         * when the first row in the buffer was read
+         */
+        private long bufferStarted;
+        /**
+         * rows read so far
+         */
+        private long count;
+        /**
+         * rows expected, or -1 if unknown
+         */
+        private long total = -1;
+
+        /**
+         * constructor
+         * @param work the blocking work
+         * @param onBatch receives each batch on the FX thread
+         */
+        StreamTask(StreamWork<T> work, Consumer<List<T>> onBatch) {
+            this.work = work;
+            this.onBatch = onBatch;
+        }
+
+        @Override
+        protected Void call() throws Exception {
+            work.run(this);
+            flush();
+            return null;
+        }
+
+        @Override
+        public void setTotal(long total) {
+            this.total = total;
+        }
+
+        @Override
+        public void accept(T row) {
+            if (isCancelled()) {
+                throw new CancellationException();
+            }
+            if (buffer.isEmpty()) {
+                bufferStarted = System.currentTimeMillis();
+            }
+            buffer.add(row);
+            count++;
+            if (buffer.size() >= batchSize || System.currentTimeMillis() - bufferStarted >= batchMillis) {
+                flush();
+            }
+        }
+
+        /**
+         * hands the buffered rows to the FX thread - dropped there if the load was cancelled in the meantime
+         */
+        private void flush() {
+            if (!buffer.isEmpty()) {
+                List<T> batch = buffer;
+                buffer = new ArrayList<>();
+                Platform.runLater(() -> {
+                    if (!isCancelled()) {
+                        onBatch.accept(batch);
+                    }
+                });
+            }
+            if (total > 0) {
+                updateProgress(Math.min(count, total), total);
+            }
+        }
+    }
+}
@@ -0,0 +1,53 @@
+package util;
+
+import java.sql.SQLException;
+import java.util.List;
+
+/**
+ * A table that can be read one page at a time with keyset pagination - rows are ordered by a unique int key and a page
+ * is read as "the rows after key X", so the database can seek with the primary key index instead of counting past
+ * every earlier row. Pages sorted by another column are read with an offset instead
+ * @param <T> the row type
+ * @author Derek Brown
+ */
+public interface PageSource<T> {
+
+    /**
+     * @return the number of rows
+     * @throws SQLException if the rows can't be counted
+     */
+    int count() throws SQLException;
+
+    /**
+     * reads a page of rows in key order
+     * @param afterKey only rows with a key greater than this are read
+     * @param skip rows to skip after afterKey before the page starts - 0 when the key of the row before the page is known
+     * @param limit the most rows to read
+     * @return the rows
+     * @throws SQLException if the rows can't be read
+     */
+    List<T> fetchPage(int afterKey, int skip, int limit) throws SQLException;
+
+    /**
+     * reads a page of rows in the order of a column, with ties in key order
+     * @param property the table property to sort by - one canSortBy accepts
+     * @param descending true to sort largest first
+     * @param skip rows to skip before the page starts
+     * @param limit the most rows to read
+     * @return the rows
+     * @throws SQLException if the rows can't be read
+     */
+    List<T> fetchSortedPage(String property, boolean descending, int skip, int limit) throws SQLException;
+
+    /**
+     * @param property a table property (the name given to its column's PropertyValueFactory)
+     * @return true if fetchSortedPage can sort by it
+     */
+    boolean canSortBy(String property);
+
+    /**
+     * @param row a row
+     * @return the row's key
+     */
+    int keyOf(T row);
+}
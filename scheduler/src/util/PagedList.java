@@ -0,0 +1,381 @@
+package util;
+
+import javafx.collections.ListChangeListener;
+import javafx.collections.ObservableList;
+import javafx.collections.ObservableListBase;
+import javafx.collections.WeakListChangeListener;
+import javafx.concurrent.Task;
+import javafx.concurrent.WorkerStateEvent;
+import javafx.scene.control.TableColumn;
+import javafx.scene.control.TableView;
+import javafx.scene.control.cell.PropertyValueFactory;
+
+import java.util.Collections;
+import java.util.HashSet;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Objects;
+import java.util.Set;
+import java.util.TreeMap;
+import java.util.function.BooleanSupplier;
+
+/**
+ * A read-only list for a TableView that holds only a few pages of a table in memory.
+ * The size comes from a count query; rows are fetched a page at a time in the background the first time the table asks
+ * for them (get returns null until then and the rows are filled in with a change event when the page arrives).
+ * The next page is prefetched once the user scrolls past the middle of a page, and the least recently used pages are
+ * dropped so heap use depends on the visible window rather than the table size.
+ * Pages are located by keyset - the last key of each page read is remembered, so the next page is read as the rows
+ * after that key. Jumping past pages that haven't been read skips rows from the nearest known key instead.
+ * When sorted by a column (see sort) the database does the sorting and pages are read by offset.
+ * If the whole table is already held in memory (e.g. Landing.fullAppointmentList once it has loaded) and no sort is
+ * set, the rows are read straight from that list instead, so the table costs no extra heap or queries and every row
+ * is available at once - changes to that list are passed on to the table
+ * @param <T> the row type
+ * @author Derek Brown
+ */
+public class PagedList<T> extends ObservableListBase<T> {
+    /**
+     * number of rows in a page
+     */
+    public static int defaultPageSize = Integer.getInteger("scheduler.page.size", 100);
+    /**
+     * number of pages kept in memory
+     */
+    public static int defaultMaxPages = Integer.getInteger("scheduler.page.cached", 6);
+
+    /**
+     * name of the list, used for the background load keys
+     */
+    private final String name;
+    /**
+     * where the rows come from
+     */
+    private final PageSource<T> source;
+    /**
+     * the whole table in memory, or null if there isn't one
+     */
+    private final ObservableList<T> loadedRows;
+    /**
+     * true once loadedRows holds the whole table
+     */
+    private final BooleanSupplier loaded;
+    /**
+     * passes changes to loadedRows on while the rows are read from it - held here since the list only keeps a weak reference
+     */
+    private final ListChangeListener<T> loadedRowsListener = this::loadedRowsChanged;
+    /**
+     * number of rows in a page
+     */
+    private final int pageSize;
+    /**
+     * the loaded pages by page number, least recently used first
+     */
+    private final Map<Integer, List<T>> pages;
+    /**
+     * the key of the last row of each page that has been read - kept after the page itself is dropped
+     */
+    private final TreeMap<Integer, Integer> pageEndKeys = new TreeMap<>();
+    /**
+     * pages being fetched
+     */
+    private final Set<Integer> loading = new HashSet<>();
+    /**
+     * number of rows in the table when it was last counted
+     */
+    private int size;
+    /**
+     * incremented on refresh so pages fetched before it are ignored
+     */
+    private int generation;
+    /**
+     * true while the rows are read from loadedRows instead of pages
+     */
+    private boolean inMemory;
+    /**
+     * the table property the rows are sorted by, or null for key order
+     */
+    private String sortProperty;
+    /**
+     * true if sorted largest first
+     */
+    private boolean descending;
+
+    /**
+     * constructor - starts counting the rows in the background
+     * @param name name of the list, used for the background load keys
+     * @param source where the rows come from
+     */
+    public PagedList(String name, PageSource<T> source) {
+        this(name, source, null, () -> false);
+    }
+
+    /**
+     * constructor - reads from the table in memory if it has loaded, otherwise starts counting the rows in the background
+     * @param name name of the list, used for the background load keys
+     * @param source where the rows come from
+     * @param loadedRows the whole table in memory, in the order to show when unsorted
+     * @param loaded true once loadedRows holds the whole table
+     */
+    public PagedList(String name, PageSource<T> source, ObservableList<T> loadedRows, BooleanSupplier loaded) {
+        this(name, source, loadedRows, loaded, defaultPageSize, defaultMaxPages);
+    }
+
+    /**
+     * constructor - reads from the table in memory if it has loaded, otherwise starts counting the rows in the background
+     * @param name name of the list, used for the background load keys
+     * @param source where the rows come from
+     * @param loadedRows the whole table in memory, in the order to show when unsorted, or null if there isn't one
+     * @param loaded true once loadedRows holds the whole table
+     * @param pageSize number of rows in a page
+     * @param maxPages number of pages kept in memory
+     */
+    public PagedList(String name, PageSource<T> source, ObservableList<T> loadedRows, BooleanSupplier loaded,
+                     int pageSize, int maxPages) {
+        this.name = name;
+        this.source = source;
+        this.loadedRows = loadedRows;
+        this.loaded = loaded;
+        this.pageSize = pageSize;
+        this.pages = new LinkedHashMap<>(maxPages + 1, 0.75f, true) {
+            @Override
+            protected boolean removeEldestEntry(Map.Entry<Integer, List<T>> eldest) {
+                return size() > maxPages;
+            }
+        };
+        if (loadedRows != null) {
+            loadedRows.addListener(new WeakListChangeListener<>(loadedRowsListener));
+        }
+        refresh();
+    }
+
+    /**
+     * drops every loaded page and recounts the rows - called after rows are added or deleted, or the sort changes.
+     * Switches to reading from the table in memory if it has loaded and no sort is set
+     */
+    public void refresh() {
+        int refreshGeneration = ++generation;
+        pages.clear();
+        pageEndKeys.clear();
+        loading.clear();
+        inMemory = sortProperty == null && loadedRows != null && loaded.getAsBoolean();
+        if (inMemory) {
+            resize(loadedRows.size());
+            return;
+        }
+        BackgroundLoader.loadForScreen(name + ".count", source::count, count -> {
+            if (refreshGeneration == generation) {
+                resize(count);
+            }
+        }, "Unable to count rows for " + name);
+    }
+
+    /**
+     * sorts by a column in the database, or goes back to key order
+     * @param property the table property to sort by - one the source can sort by - or null for key order
+     * @param descending true to sort largest first
+     */
+    public void setSort(String property, boolean descending) {
+        if (Objects.equals(property, sortProperty) && (property == null || descending == this.descending)) {
+            return;
+        }
+        sortProperty = property;
+        this.descending = descending;
+        refresh();
+    }
+
+    /**
+     * a sort policy for a TableView showing this list - sorts by the first column in the table's sort order
+     * (see setSort), as long as the column shows a property the source can sort by
+     * @param table the table
+     * @return true if the rows are now in the table's sort order, false if the column can't be sorted by
+     */
+    public boolean sort(TableView<?> table) {
+        if (table.getSortOrder().isEmpty()) {
+            setSort(null, false);
+            return true;
+        }
+        TableColumn<?, ?> column = table.getSortOrder().get(0);
+        Object cellValueFactory = column.getCellValueFactory();
+        if (!(cellValueFactory instanceof PropertyValueFactory)) {
+            return false;
+        }
+        String property = ((PropertyValueFactory<?, ?>) cellValueFactory).getProperty();
+        if (!source.canSortBy(property)) {
+            return false;
+        }
+        setSort(property, column.getSortType() == TableColumn.SortType.DESCENDING);
+        return true;
+    }
+
+    /**
+     * @param index the row position
+     * @return the row, or null if its page hasn't been fetched yet
+     */
+    @Override
+    public T get(int index) {
+        if (index < 0 || index >= size) {
+            throw new IndexOutOfBoundsException(index);
+        }
+        if (inMemory) {
+            return loadedRows.get(index);
+        }
+        int page = index / pageSize;
+        int offset = index % pageSize;
+        List<T> rows = pages.get(page);
+        if (rows == null) {
+            requestPage(page);
+            return null;
+        }
+        if (offset >= pageSize / 2 && (page + 1) * pageSize < size) {
+            requestPage(page + 1);
+        }
+        return offset < rows.size() ? rows.get(offset) : null;
+    }
+
+    @Override
+    public int size() {
+        return size;
+    }
+
+    /**
+     * only searches the loaded pages - a full search would fetch the whole table
+     * @param o the row to find
+     * @return the position of the row, or -1 if it isn't in a loaded page
+     */
+    @Override
+    public int indexOf(Object o) {
+        if (inMemory) {
+            return loadedRows.indexOf(o);
+        }
+        for (Map.Entry<Integer, List<T>> page : pages.entrySet()) {
+            int offset = page.getValue().indexOf(o);
+            if (offset >= 0) {
+                return page.getKey() * pageSize + offset;
+            }
+        }
+        return -1;
+    }
+
+    @Override
+    public int lastIndexOf(Object o) {
+        return indexOf(o);
+    }
+
+    @Override
+    public boolean contains(Object o) {
+        return indexOf(o) >= 0;
+    }
+
+    /**
+     * @return number of pages held in memory
+     */
+    public int getLoadedPageCount() {
+        return pages.size();
+    }
+
+    /**
+     * fetches a page in the background unless it's loaded or already being fetched
+     * @param page the page number
+     */
+    private void requestPage(int page) {
+        if (pages.containsKey(page) || !loading.add(page)) {
+            return;
+        }
+        int afterKey = Integer.MIN_VALUE;
+        int skip = page * pageSize;
+        Map.Entry<Integer, Integer> known = pageEndKeys.floorEntry(page - 1);
+        if (known != null) {
+            afterKey = known.getValue();
+            skip = (page - 1 - known.getKey()) * pageSize;
+        }
+        int fetchAfter = afterKey;
+        int fetchSkip = skip;
+        int fetchGeneration = generation;
+        String fetchSort = sortProperty;
+        boolean fetchDescending = descending;
+        Task<List<T>> task = BackgroundLoader.loadForScreen(name + ".page." + page, () -> fetchSort == null
+                ? source.fetchPage(fetchAfter, fetchSkip, pageSize)
+                : source.fetchSortedPage(fetchSort, fetchDescending, page * pageSize, pageSize), rows -> {
+                    if (fetchGeneration == generation) {
+                        loading.remove(page);
+                        pageLoaded(page, rows);
+                    }
+                }, "Unable to load page " + page + " of " + name);
+        task.addEventHandler(WorkerStateEvent.WORKER_STATE_FAILED, event -> loading.remove(page));
+        task.addEventHandler(WorkerStateEvent.WORKER_STATE_CANCELLED, event -> loading.remove(page));
+    }
+
+    /**
+     * stores a fetched page and tells the table its rows have changed
+     * @param page the page number
+     * @param rows the fetched rows
+     */
+    private void pageLoaded(int page, List<T> rows) {
+        pages.put(page, rows);
+        if (sortProperty == null && !rows.isEmpty()) {
+            pageEndKeys.put(page, source.keyOf(rows.get(rows.size() - 1)));
+        }
+        int from = page * pageSize;
+        int to = Math.min(size, from + pageSize);
+        if (from < to) {
+            beginChange();
+            nextReplace(from, to, Collections.nCopies(to - from, null));
+            endChange();
+        }
+    }
+
+    /**
+     * passes a change to the table in memory on to the table, while the rows are read from it
+     * @param change the change
+     */
+    private void loadedRowsChanged(ListChangeListener.Change<? extends T> change) {
+        if (!inMemory) {
+            return;
+        }
+        size = loadedRows.size();
+        beginChange();
+        while (change.next()) {
+            if (change.wasPermutated()) {
+                int[] permutation = new int[change.getTo() - change.getFrom()];
+                for (int i = change.getFrom(); i < change.getTo(); i++) {
+                    permutation[i - change.getFrom()] = change.getPermutation(i);
+                }
+                nextPermutation(change.getFrom(), change.getTo(), permutation);
+            }
+            else if (change.wasUpdated()) {
+                for (int i = change.getFrom(); i < change.getTo(); i++) {
+                    nextUpdate(i);
+                }
+            }
+            else {
+                if (change.wasRemoved()) {
+                    nextRemove(change.getFrom(), change.getRemoved());
+                }
+                if (change.wasAdded()) {
+                    nextAdd(change.getFrom(), change.getTo());
+                }
+            }
+        }
+        endChange();
+    }
+
+    /**
+     * changes the size after a recount, telling the table every row was replaced
+     * @param newSize the new number of rows
+     */
+    private void resize(int newSize) {
+        int oldSize = size;
+        beginChange();
+        if (oldSize > 0) {
+            size = 0;
+            nextRemove(0, Collections.nCopies(oldSize, null));
+        }
+        size = newSize;
+        if (newSize > 0) {
+            nextAdd(0, newSize);
+        }
+        endChange();
+    }
+}
@@ -0,0 +1,239 @@
+package util;
+
+import model.Appointment;
+
+import java.time.Clock;
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.PriorityQueue;
+import java.util.concurrent.Executors;
+import java.util.concurrent.ScheduledExecutorService;
+import java.util.concurrent.ScheduledFuture;
+import java.util.concurrent.TimeUnit;
+import java.util.function.Consumer;
+
+/**
+ * Reminds the user of appointments leadMinutes before they start. Upcoming starts are kept in a priority queue ordered
+ * by reminder time, and a single scheduled task wakes exactly when the earliest reminder is due - there is no polling.
+ * The queue is kept in step with the appointment list (see Landing.syncIndexes): a changed or deleted appointment only
+ * drops its entry from the ID map, and the stale queue entry is skipped when it reaches the head
+ * @author Derek Brown
+ */
+public class ReminderScheduler {
+    /**
+     * how long before an appointment starts the reminder is given, in minutes
+     */
+    public static long leadMinutes = Long.getLong("scheduler.reminder.leadMinutes", 15);
+    /**
+     * supplies the current time
+     */
+    public static Clock clock = Clock.systemUTC();
+
+    /**
+     * how long after an appointment's start its reminder is still given, e.g. after the computer wakes from sleep
+     */
+    private static final long LATE_MILLIS = 60_000;
+    /**
+     * upcoming reminders, earliest first - may hold stale entries for changed or deleted appointments
+     */
+    private static final PriorityQueue<Reminder> queue = new PriorityQueue<>();
+    /**
+     * the start, in epoch seconds, of every appointment waiting for a reminder - the queue entry that matches is the live one
+     */
+    private static final Map<Integer, Long> startByID = new HashMap<>();
+    /**
+     * runs the wake-ups - created by start()
+     */
+    private static ScheduledExecutorService executor;
+    /**
+     * the scheduled wake-up, or null if none is scheduled
+     */
+    private static ScheduledFuture<?> wakeUp;
+    /**
+     * when the scheduled wake-up runs, in epoch milliseconds
+     */
+    private static long wakeUpMillis = Long.MAX_VALUE;
+    /**
+     * receives the IDs of appointments whose reminders are due - null until start() is called
+     */
+    private static Consumer<List<Integer>> listener;
+
+    /**
+     * queues a reminder for an appointment that hasn't started yet, replacing any earlier one for the same ID.
+     * An appointment starting within leadMinutes is reminded straight away
+     * @param appointment the appointment
+     */
+    public static synchronized void add(Appointment appointment) {
+        if (appointment.getStart() == null) {
+            return;
+        }
+        long start = TimeService.toEpochSecond(appointment.getStart());
+        if (start * 1000 <= clock.millis()) {
+            startByID.remove(appointment.getAppointmentID());
+            return;
+        }
+        startByID.put(appointment.getAppointmentID(), start);
+        queue.add(new Reminder(appointment.getAppointmentID(), start, start * 1000 - TimeUnit.MINUTES.toMillis(leadMinutes)));
+        schedule();
+    }
+
+    /**
+     * drops the reminder for an appointment
+     * @param appointmentID the appointment's ID
+     */
+    public static synchronized void remove(int appointmentID) {
+        if (startByID.remove(appointmentID) != null && queue.size() > 2 * startByID.size() + 64) {
+            compact();
+        }
+    }
+
+    /**
+     * drops every reminder
+     */
+    public static synchronized void clear() {
+        queue.clear();
+        startByID.clear();
+        schedule();
+    }
+
+    /**
+     * starts giving reminders - any that are already due are given straight away
+     * @param onDue receives the IDs of appointments whose reminders are due, on the scheduler's thread
+     */
+    public static synchronized void start(Consumer<List<Integer>> onDue) {
+        listener = onDue;
+        if (executor == null) {
+            executor = Executors.newSingleThreadScheduledExecutor(runnable -> {
+                Thread thread = new Thread(runnable, "appointment-reminders");
+                thread.setDaemon(true);
+                return thread;
+            });
+        }
+        schedule();
+    }
+
+    /**
+     * @return number of appointments waiting for a reminder
+     */
+    public static synchronized int size() {
+        return startByID.size();
+    }
+
+    /**
+     * makes sure the wake-up is scheduled for the earliest live reminder
+     */
+    private static void schedule() {
+        if (listener == null) {
+            return;
+        }
+        Reminder next = peekLive();
+        long nextMillis = next == null ? Long.MAX_VALUE : next.remindMillis;
+        if (nextMillis == wakeUpMillis) {
+            return;
+        }
+        if (wakeUp != null) {
+            wakeUp.cancel(false);
+            wakeUp = null;
+        }
+        wakeUpMillis = nextMillis;
+        if (next != null) {
+            wakeUp = executor.schedule(ReminderScheduler::fire, Math.max(0, nextMillis - clock.millis()), TimeUnit.MILLISECONDS);
+        }
+    }
+
+    /**
+     * the wake-up - takes every reminder that is due, reschedules for the next one and passes the due IDs on
+     */
+    private static void fire() {
+        List<Integer> due = new ArrayList<>();
+        Consumer<List<Integer>> onDue;
+        synchronized (ReminderScheduler.class) {
+            long now = clock.millis();
+            Reminder next = peekLive();
+            while (next != null && next.remindMillis <= now) {
+                queue.poll();
+                startByID.remove(next.appointmentID);
+                if (next.startSecond * 1000 + LATE_MILLIS > now) {
+                    due.add(next.appointmentID);
+                }
+                next = peekLive();
+            }
+            wakeUp = null;
+            wakeUpMillis = Long.MAX_VALUE;
+            schedule();
+            onDue = listener;
+        }
+        if (!due.isEmpty() && onDue != null) {
+            onDue.accept(due);
+        }
+    }
+
+    /**
+     * drops stale entries from the head of the queue
+     * @return the earliest live reminder, or null if there are none
+     */
+    private static Reminder peekLive() {
+        Reminder head = queue.peek();
+        while (head != null && !head.isLive()) {
+            queue.poll();
+            head = queue.peek();
+        }
+        return head;
+    }
+
+    /**
+     * rebuilds the queue without its stale entries, once deletes have left it mostly stale
+     */
+    private static void compact() {
+        queue.removeIf(reminder -> !reminder.isLive());
+    }
+
+    /**
+     * One queued reminder
+     */
+    private static class Reminder implements Comparable<Reminder> {
+        /**
+         * the appointment's ID
+         */
+        private final int appointmentID;
+        /**
+         * the appointment's start in epoch seconds when it was queued
+         */
+        private final long startSecond;
+        /**
+         * when the reminder is due, in epoch milliseconds
+         */
+        private final long remindMillis;
+
+        /**
+         * constructor
+         * @param appointmentID the appointment's ID
+         * @param startSecond the appointment's start in epoch seconds
+         * @param remindMillis when the reminder is due, in epoch milliseconds
+         */
+        private Reminder(int appointmentID, long startSecond, long remindMillis) {
+            this.appointmentID = appointmentID;
+            this.startSecond = startSecond;
+            this.remindMillis = remindMillis;
+        }
+
+        /**
+         * @return true if the appointment is still waiting for a reminder with this start time
+         */
+        private boolean isLive() {
+            Long start = startByID.get(appointmentID);
+            return start != null && start == startSecond;
+        }
+
+        /**
+         * @param other another reminder
+         * @return the order of the two reminders by due time
+         */
+        @Override
+        public int compareTo(Reminder other) {
+            return Long.compare(remindMillis, other.remindMillis);
+        }
+    }
+}
@@ -0,0 +1,142 @@
+package util;
+
+import java.time.LocalDate;
+import java.time.LocalDateTime;
+import java.time.ZonedDateTime;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.List;
+
+/**
+ * The business hour appointment slots that start on one date in the user's time zone.
+ * Business hours are set in US Eastern time, so depending on the user's zone the slots on a local date can come from the
+ * end of one Eastern business day and the start of the next. Each slot is worked out from the actual instant on that
+ * date, so DST changes in either zone move the slots correctly. End times for a start run to the close of the start's
+ * own Eastern business day, so an appointment can cross local midnight but never business hours
+ * @author Derek Brown
+ */
+public class SlotTable {
+    /**
+     * the local date the table is for
+     */
+    private final LocalDate localDate;
+    /**
+     * start of each slot in the local zone, in order
+     */
+    private final List<ZonedDateTime> starts = new ArrayList<>();
+    /**
+     * local start of each slot - kept alongside starts for lookups by local time
+     */
+    private final List<LocalDateTime> localStarts = new ArrayList<>();
+    /**
+     * close of business for each slot's Eastern business day
+     */
+    private final List<ZonedDateTime> closes = new ArrayList<>();
+    /**
+     * start of each slot as HH:mm:ss
+     */
+    private final List<String> startLabels = new ArrayList<>();
+
+    /**
+     * builds the table
+     * @param localDate a date in the user's time zone
+     */
+    SlotTable(LocalDate localDate) {
+        this.localDate = localDate;
+        //business days in Eastern time that can overlap the local date
+        for (LocalDate easternDate = localDate.minusDays(1); !easternDate.isAfter(localDate.plusDays(1)); easternDate = easternDate.plusDays(1)) {
+            ZonedDateTime open = easternDate.atTime(TimeService.OPEN).atZone(TimeService.EASTERN);
+            ZonedDateTime close = easternDate.atTime(TimeService.CLOSE).atZone(TimeService.EASTERN);
+            for (ZonedDateTime slot = open; slot.isBefore(close); slot = slot.plusMinutes(TimeService.SLOT_MINUTES)) {
+                ZonedDateTime localStart = slot.withZoneSameInstant(TimeService.LOCAL);
+                if (localStart.toLocalDate().equals(localDate)) {
+                    starts.add(localStart);
+                    localStarts.add(localStart.toLocalDateTime());
+                    closes.add(close);
+                    startLabels.add(TimeService.formatTime(localStart.toLocalDateTime()));
+                }
+            }
+        }
+    }
+
+    /**
+     * @return the local date the table is for
+     */
+    public LocalDate getLocalDate() {
+        return localDate;
+    }
+
+    /**
+     * @return number of start slots
+     */
+    public int size() {
+        return starts.size();
+    }
+
+    /**
+     * @return the start of each slot as HH:mm:ss, in order
+     */
+    public List<String> getStartLabels() {
+        return Collections.unmodifiableList(startLabels);
+    }
+
+    /**
+     * @param startIndex index of a start slot
+     * @return the slot's start in local time
+     */
+    public LocalDateTime getStart(int startIndex) {
+        return localStarts.get(startIndex);
+    }
+
+    /**
+     * @param startIndex index of a start slot
+     * @return the slot's start in epoch seconds
+     */
+    public long getStartEpochSecond(int startIndex) {
+        return starts.get(startIndex).toEpochSecond();
+    }
+
+    /**
+     * @param startIndex index of a start slot
+     * @return the close of business for the slot's Eastern business day in epoch seconds - no appointment starting
+     * in the slot can end after it
+     */
+    public long getCloseEpochSecond(int startIndex) {
+        return closes.get(startIndex).toEpochSecond();
+    }
+
+    /**
+     * @param startIndex index of a start slot
+     * @return the possible end times for an appointment starting in the slot, in local time
+     */
+    public List<LocalDateTime> getEnds(int startIndex) {
+        List<LocalDateTime> ends = new ArrayList<>();
+        ZonedDateTime close = closes.get(startIndex);
+        //minutes are added on the instant time line, so ends stay 30 minutes apart across a DST change
+        for (ZonedDateTime end = starts.get(startIndex).plusMinutes(TimeService.SLOT_MINUTES); !end.isAfter(close);
+             end = end.plusMinutes(TimeService.SLOT_MINUTES)) {
+            ends.add(end.toLocalDateTime());
+        }
+        return ends;
+    }
+
+    /**
+     * @param startIndex index of a start slot
+     * @return the possible end times for the slot as HH:mm:ss
+     */
+    public List<String> getEndLabels(int startIndex) {
+        List<String> labels = new ArrayList<>();
+        for (LocalDateTime end : getEnds(startIndex)) {
+            labels.add(TimeService.formatTime(end));
+        }
+        return labels;
+    }
+
+    /**
+     * @param local a time in the user's time zone
+     * @return the index of the start slot at that time, or -1 if no slot starts then
+     */
+    public int indexOfStart(LocalDateTime local) {
+        return localStarts.indexOf(local);
+    }
+}
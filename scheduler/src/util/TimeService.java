@@ -0,0 +1,125 @@
+package util;
+
+import java.time.Instant;
+import java.time.LocalDate;
+import java.time.LocalDateTime;
+import java.time.LocalTime;
+import java.time.ZoneId;
+import java.time.ZoneOffset;
+import java.time.format.DateTimeFormatter;
+import java.util.LinkedHashMap;
+import java.util.Map;
+
+/**
+ * Shared time zone conversion. The zones and formatters are built once, and the business hour slot table for a date is
+ * built once per date and then reused.
+ * Times are stored in the database in UTC, shown to the user in the system time zone, and business hours are
+ * 08:00 to 22:00 US Eastern in 30 minute slots
+ * @author Derek Brown
+ */
+public class TimeService {
+    /**
+     * UTC - the zone times are stored in
+     */
+    public static final ZoneId UTC = ZoneOffset.UTC;
+    /**
+     * US Eastern - the zone business hours are set in
+     */
+    public static final ZoneId EASTERN = ZoneId.of("US/Eastern");
+    /**
+     * the user's time zone
+     */
+    public static final ZoneId LOCAL = ZoneId.systemDefault();
+    /**
+     * formats and parses times of day, e.g. 08:30:00
+     */
+    public static final DateTimeFormatter TIME_FORMATTER = DateTimeFormatter.ofPattern("HH:mm:ss");
+    /**
+     * formats and parses dates with times, e.g. 2021-09-10 08:30:00
+     */
+    public static final DateTimeFormatter DATE_TIME_FORMATTER = DateTimeFormatter.ofPattern("yyyy-MM-dd HH:mm:ss");
+    /**
+     * start of business hours in US Eastern time
+     */
+    public static final LocalTime OPEN = LocalTime.of(8, 0);
+    /**
+     * end of business hours in US Eastern time
+     */
+    public static final LocalTime CLOSE = LocalTime.of(22, 0);
+    /**
+     * length of an appointment slot in minutes
+     */
+    public static final int SLOT_MINUTES = 30;
+    /**
+     * number of slot tables kept
+     */
+    private static final int MAX_CACHED_TABLES = 64;
+    /**
+     * slot tables by local date, least recently used first
+     */
+    private static final Map<LocalDate, SlotTable> slotTables = new LinkedHashMap<>(16, 0.75f, true) {
+        @Override
+        protected boolean removeEldestEntry(Map.Entry<LocalDate, SlotTable> eldest) {
+            return size() > MAX_CACHED_TABLES;
+        }
+    };
+
+    /**
+     * @param utc a time in UTC
+     * @return the same instant in the user's time zone
+     */
+    public static LocalDateTime utcToLocal(LocalDateTime utc) {
+        return utc == null ? null : LocalDateTime.ofInstant(utc.toInstant(ZoneOffset.UTC), LOCAL);
+    }
+
+    /**
+     * @param local a time in the user's time zone
+     * @return the same instant in UTC
+     */
+    public static LocalDateTime localToUtc(LocalDateTime local) {
+        return local == null ? null : LocalDateTime.ofInstant(local.atZone(LOCAL).toInstant(), UTC);
+    }
+
+    /**
+     * @param local a time in the user's time zone
+     * @return the time in epoch seconds
+     */
+    public static long toEpochSecond(LocalDateTime local) {
+        return local.atZone(LOCAL).toEpochSecond();
+    }
+
+    /**
+     * @param epochSecond a time in epoch seconds
+     * @return the time in the user's time zone
+     */
+    public static LocalDateTime fromEpochSecond(long epochSecond) {
+        return LocalDateTime.ofInstant(Instant.ofEpochSecond(epochSecond), LOCAL);
+    }
+
+    /**
+     * @param local a time in the user's time zone
+     * @return the time of day as HH:mm:ss
+     */
+    public static String formatTime(LocalDateTime local) {
+        return local.format(TIME_FORMATTER);
+    }
+
+    /**
+     * @param local a time in the user's time zone
+     * @return the date and time as yyyy-MM-dd HH:mm:ss
+     */
+    public static String formatDateTime(LocalDateTime local) {
+        return local.format(DATE_TIME_FORMATTER);
+    }
+
+    /**
+     * gets the business hour slots starting on a date in the user's time zone, built with that date's DST rules
+     * @param localDate a date in the user's time zone
+     * @return the slot table for the date
+     */
+    public static SlotTable slotsFor(LocalDate localDate) {
+        synchronized (slotTables) {
+            return slotTables.computeIfAbsent(localDate, SlotTable::new);
+        }
+    }
+}